@@ -0,0 +1,121 @@
+package com.revolut.benchmark;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.lang.reflect.Type;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import com.google.gson.Gson;
+import com.google.gson.reflect.TypeToken;
+import com.google.gson.stream.JsonWriter;
+import com.revolut.core.dto.AccountDto;
+import com.revolut.core.service.impl.DefaultAccountService;
+import com.revolut.dao.DaoFactory;
+import com.revolut.dao.account.AccountDao;
+import com.revolut.dao.exception.DaoValidationException;
+import com.revolut.dao.model.Account;
+import com.revolut.dao.model.Currency;
+import com.revolut.dao.model.Transaction;
+import com.revolut.dao.model.TransactionType;
+import com.revolut.dao.transation.TransactionDao;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Serialization of {@code GET /v1/accounts} with history, as a whole string turned into bytes against a json writer
+ * over the response stream. Run with {@code -prof gc} to see allocation per response.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class AccountListingBenchmark {
+
+    private static final Type ACCOUNTS_TYPE = new TypeToken<List<AccountDto>>() {
+    }.getType();
+
+    @Param({"100", "1000"})
+    private int accounts;
+
+    @Param({"100"})
+    private int historySize;
+
+    private final Gson json = new Gson();
+
+    private List<AccountDto> accountDtos;
+
+    @Setup
+    public void setUp() throws DaoValidationException {
+        AccountDao accountDao = DaoFactory.getAccountDao();
+        TransactionDao transactionDao = DaoFactory.getTransactionDao();
+        accountDao.deleteAll();
+        transactionDao.deleteAll();
+        for (int i = 0; i < accounts; i++) {
+            Account account = accountDao.save(Account.builder()
+                    .uuid("account-" + i)
+                    .total(100000L)
+                    .currency(Currency.USD)
+                    .build());
+            for (int j = 0; j < historySize; j++) {
+                transactionDao.save(Transaction.builder()
+                        .ownerAccountId(account.getId())
+                        .otherAccountId(account.getId() + 1)
+                        .amount(1L)
+                        .currency(Currency.USD)
+                        .type(TransactionType.TRANSFER_BETWEEN_ACCOUNTS)
+                        .description("Transfer")
+                        .build());
+            }
+        }
+        accountDtos = DefaultAccountService.getInstance().getAll(true);
+    }
+
+    @Benchmark
+    public long string() throws IOException {
+        CountingOutputStream response = new CountingOutputStream();
+        response.write(json.toJson(accountDtos, ACCOUNTS_TYPE).getBytes(StandardCharsets.UTF_8));
+        return response.count;
+    }
+
+    @Benchmark
+    public long streaming() throws IOException {
+        CountingOutputStream response = new CountingOutputStream();
+        JsonWriter writer = new JsonWriter(new BufferedWriter(new OutputStreamWriter(response, StandardCharsets.UTF_8)));
+        json.toJson(accountDtos, ACCOUNTS_TYPE, writer);
+        writer.flush();
+        return response.count;
+    }
+
+    // stands for the socket, bytes are counted and dropped
+    private static class CountingOutputStream extends OutputStream {
+
+        private long count;
+
+        @Override
+        public void write(int b) {
+            count++;
+        }
+
+        @Override
+        public void write(byte[] b, int off, int len) {
+            count += len;
+        }
+
+    }
+
+}
@@ -0,0 +1,81 @@
+package com.revolut.benchmark;
+
+import java.util.concurrent.TimeUnit;
+
+import com.revolut.core.cache.AccountCache;
+import com.revolut.core.dto.AccountDto;
+import com.revolut.core.service.AccountService;
+import com.revolut.core.service.impl.DefaultAccountService;
+import com.revolut.dao.DaoFactory;
+import com.revolut.dao.account.AccountDao;
+import com.revolut.dao.exception.DaoValidationException;
+import com.revolut.dao.model.Account;
+import com.revolut.dao.model.Currency;
+import com.revolut.dao.model.Transaction;
+import com.revolut.dao.model.TransactionType;
+import com.revolut.dao.transation.TransactionDao;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Service side of {@code GET /v1/accounts/{id}}, converted on every read and served from the account cache. Run with
+ * {@code -prof gc} to see allocation per read.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class AccountReadBenchmark {
+
+    private static final String ACCOUNT_ID = "account-1";
+
+    @Param({"0", "100"})
+    private int historySize;
+
+    // 0 turns the cache off
+    @Param({"0", "10000"})
+    private int accountCacheSize;
+
+    private AccountService accountService;
+
+    @Setup
+    public void setUp() throws DaoValidationException {
+        AccountDao accountDao = DaoFactory.getAccountDao();
+        TransactionDao transactionDao = DaoFactory.getTransactionDao();
+        accountDao.deleteAll();
+        transactionDao.deleteAll();
+        Account account = accountDao.save(Account.builder()
+                .uuid(ACCOUNT_ID)
+                .total(100000L)
+                .currency(Currency.USD)
+                .build());
+        for (int i = 0; i < historySize; i++) {
+            transactionDao.save(Transaction.builder()
+                    .ownerAccountId(account.getId())
+                    .otherAccountId(account.getId() + 1)
+                    .amount(1L)
+                    .currency(Currency.USD)
+                    .type(TransactionType.TRANSFER_BETWEEN_ACCOUNTS)
+                    .build());
+        }
+        AccountCache.getInstance().setMaxSize(accountCacheSize);
+        accountService = DefaultAccountService.getInstance();
+    }
+
+    @Benchmark
+    public AccountDto getById() {
+        return accountService.getById(ACCOUNT_ID);
+    }
+
+}
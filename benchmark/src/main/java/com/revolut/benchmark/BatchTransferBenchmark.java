@@ -0,0 +1,127 @@
+package com.revolut.benchmark;
+
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+import com.revolut.core.dto.BatchMode;
+import com.revolut.core.dto.TransferTransactionCreateDto;
+import com.revolut.core.service.impl.TransferMode;
+import com.revolut.core.service.impl.TransferTransactionService;
+import com.revolut.dao.DaoFactory;
+import com.revolut.dao.StorageConfig;
+import com.revolut.dao.account.AccountDao;
+import com.revolut.dao.model.Account;
+import com.revolut.dao.model.Currency;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+/**
+ * Time to apply the same transfers as one batch and one by one, with and without journal:
+ * {@code java -jar benchmark/target/benchmarks.jar BatchTransferBenchmark}.
+ * Every transfer applied one by one is journaled and forced on its own, a batch is one journal unit.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class BatchTransferBenchmark {
+
+    @Param({"100", "1000"})
+    private int batchSize;
+
+    @Param({"false", "true"})
+    private boolean journaled;
+
+    @Param({"10000"})
+    private int accounts;
+
+    private Path journalFile;
+
+    private String[] accountIds;
+
+    private List<TransferTransactionCreateDto> transfers;
+
+    private TransferTransactionService transferService;
+
+    @Setup
+    public void setUp() throws IOException {
+        if (journaled) {
+            // every trial runs in its own fork, so the journal is enabled once per jvm
+            journalFile = Files.createTempFile("journal", ".bin");
+            DaoFactory.enableJournal(StorageConfig.builder()
+                    .journalFile(journalFile)
+                    .commitMaxWaitMicros(0)
+                    .build());
+        }
+        AccountDao accountDao = DaoFactory.getAccountDao();
+        accountIds = new String[accounts];
+        for (int i = 0; i < accounts; i++) {
+            accountIds[i] = accountDao.save(Account.builder()
+                    .uuid("account-" + i)
+                    .total(Long.MAX_VALUE / 2)
+                    .currency(Currency.USD)
+                    .build())
+                    .getUuid();
+        }
+        transferService = TransferTransactionService.getInstance();
+        transferService.setTransferMode(TransferMode.STRIPED_LOCK);
+    }
+
+    // payout like batch, few source accounts paying many others
+    @Setup(Level.Invocation)
+    public void nextTransfers() {
+        ThreadLocalRandom random = ThreadLocalRandom.current();
+        transfers = new ArrayList<>(batchSize);
+        for (int i = 0; i < batchSize; i++) {
+            int from = random.nextInt(4);
+            int to = 4 + random.nextInt(accounts - 4);
+            TransferTransactionCreateDto createDto = new TransferTransactionCreateDto();
+            createDto.setAccountId(accountIds[from]);
+            createDto.setDestinationAccountId(accountIds[to]);
+            createDto.setAmount(BigDecimal.ONE);
+            transfers.add(createDto);
+        }
+    }
+
+    @TearDown
+    public void tearDown() throws IOException {
+        transferService.setTransferMode(TransferMode.OPTIMISTIC);
+        if (journaled) {
+            DaoFactory.close();
+            Files.deleteIfExists(journalFile);
+        }
+    }
+
+    @Benchmark
+    public void batch(Blackhole blackhole) {
+        blackhole.consume(transferService.createTransactions(transfers, BatchMode.ALL_OR_NOTHING));
+    }
+
+    @Benchmark
+    public void sequential(Blackhole blackhole) {
+        for (TransferTransactionCreateDto createDto : transfers) {
+            blackhole.consume(transferService.createTransaction(createDto));
+        }
+    }
+
+}
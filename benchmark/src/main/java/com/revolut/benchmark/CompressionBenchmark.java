@@ -0,0 +1,169 @@
+package com.revolut.benchmark;
+
+import java.io.FilterInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.HttpURLConnection;
+import java.net.ServerSocket;
+import java.net.URL;
+import java.util.concurrent.TimeUnit;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.InflaterInputStream;
+
+import com.revolut.dao.DaoFactory;
+import com.revolut.dao.account.AccountDao;
+import com.revolut.dao.exception.DaoValidationException;
+import com.revolut.dao.model.Account;
+import com.revolut.dao.model.Currency;
+import com.revolut.dao.model.Transaction;
+import com.revolut.dao.model.TransactionType;
+import com.revolut.dao.transation.TransactionDao;
+import com.revolut.web.RestApplication;
+import com.sun.jersey.api.container.httpserver.HttpServerFactory;
+import com.sun.net.httpserver.HttpServer;
+import org.openjdk.jmh.annotations.AuxCounters;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * {@code GET /v1/accounts} with history over loopback to the embedded http server, from the request until the client
+ * has decoded the last byte. {@code wireBytes} is the length of the response body as sent, {@code jsonBytes} as
+ * decoded.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgsAppend = "-Xmx3g")
+public class CompressionBenchmark {
+
+    @Param({"10000", "100000", "1000000"})
+    private int accounts;
+
+    @Param({"1"})
+    private int historySize;
+
+    @Param({"identity", "gzip", "deflate"})
+    private String encoding;
+
+    private HttpServer httpServer;
+
+    private String accountsUrl;
+
+    @Setup
+    public void setUp() throws IOException, DaoValidationException {
+        AccountDao accountDao = DaoFactory.getAccountDao();
+        TransactionDao transactionDao = DaoFactory.getTransactionDao();
+        accountDao.deleteAll();
+        transactionDao.deleteAll();
+        for (int i = 0; i < accounts; i++) {
+            Account account = accountDao.save(Account.builder()
+                    .uuid("account-" + i)
+                    .total(100000L)
+                    .currency(Currency.USD)
+                    .build());
+            for (int j = 0; j < historySize; j++) {
+                transactionDao.save(Transaction.builder()
+                        .ownerAccountId(account.getId())
+                        .otherAccountId(account.getId() + 1)
+                        .amount(1L)
+                        .currency(Currency.USD)
+                        .type(TransactionType.TRANSFER_BETWEEN_ACCOUNTS)
+                        .description("Transfer")
+                        .build());
+            }
+        }
+
+        System.setProperty("sun.net.httpserver.nodelay", "true");
+        int httpPort;
+        try (ServerSocket free = new ServerSocket(0)) {
+            httpPort = free.getLocalPort();
+        }
+        httpServer = HttpServerFactory.create(String.format("http://localhost:%d/v1/", httpPort), new RestApplication());
+        httpServer.start();
+        accountsUrl = String.format("http://localhost:%d/v1/accounts", httpPort);
+    }
+
+    @TearDown
+    public void tearDown() {
+        httpServer.stop(0);
+        DaoFactory.getAccountDao().deleteAll();
+        DaoFactory.getTransactionDao().deleteAll();
+    }
+
+    @Benchmark
+    public long listAccounts(WireCounters counters) throws IOException {
+        HttpURLConnection connection = (HttpURLConnection) new URL(accountsUrl).openConnection();
+        connection.setRequestProperty("Accept-Encoding", encoding);
+        CountingInputStream wire = new CountingInputStream(connection.getInputStream());
+        String contentEncoding = connection.getContentEncoding();
+        InputStream body = wire;
+        if ("gzip".equals(contentEncoding)) {
+            body = new GZIPInputStream(wire, 8 * 1024);
+        } else if ("deflate".equals(contentEncoding)) {
+            body = new InflaterInputStream(wire);
+        }
+        long decoded = 0;
+        byte[] buffer = new byte[8 * 1024];
+        try (InputStream response = body) {
+            int read;
+            while ((read = response.read(buffer)) > 0) {
+                decoded += read;
+            }
+        }
+        counters.wireBytes = wire.count;
+        counters.jsonBytes = decoded;
+        return decoded;
+    }
+
+    // every response of a run has the same length, counters keep the last one instead of a sum
+    @State(Scope.Thread)
+    @AuxCounters(AuxCounters.Type.EVENTS)
+    public static class WireCounters {
+
+        public long wireBytes;
+
+        public long jsonBytes;
+
+    }
+
+    private static class CountingInputStream extends FilterInputStream {
+
+        private long count;
+
+        private CountingInputStream(InputStream in) {
+            super(in);
+        }
+
+        @Override
+        public int read() throws IOException {
+            int b = super.read();
+            if (b >= 0) {
+                count++;
+            }
+            return b;
+        }
+
+        @Override
+        public int read(byte[] b, int off, int len) throws IOException {
+            int read = super.read(b, off, len);
+            if (read > 0) {
+                count += read;
+            }
+            return read;
+        }
+
+    }
+
+}
@@ -0,0 +1,102 @@
+package com.revolut.benchmark;
+
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+import com.revolut.core.dto.TransferTransactionCreateDto;
+import com.revolut.core.service.impl.TransferMode;
+import com.revolut.core.service.impl.TransferTransactionService;
+import com.revolut.dao.DaoFactory;
+import com.revolut.dao.StorageConfig;
+import com.revolut.dao.account.AccountDao;
+import com.revolut.dao.model.Account;
+import com.revolut.dao.model.Currency;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+/**
+ * Journaled transfers, every call returns once its writes are forced to disk. Batch size and wait show the
+ * throughput/latency tradeoff of group commit, batch size 1 is close to a force per write:
+ * {@code java -jar benchmark/target/benchmarks.jar DurableTransferBenchmark -t 16}.
+ * Commit batch sizes and latencies are also exposed by {@code GET /v1/metrics} of the running service.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class DurableTransferBenchmark {
+
+    @Param({"1", "64", "256"})
+    private int batchSize;
+
+    @Param({"0", "100"})
+    private int maxWaitMicros;
+
+    @Param({"10000"})
+    private int accounts;
+
+    private Path journalFile;
+
+    private String[] accountIds;
+
+    private TransferTransactionService transferService;
+
+    @Setup
+    public void setUp() throws IOException {
+        // every trial runs in its own fork, so the journal is enabled once per jvm
+        journalFile = Files.createTempFile("journal", ".bin");
+        DaoFactory.enableJournal(StorageConfig.builder()
+                .journalFile(journalFile)
+                .commitBatchSize(batchSize)
+                .commitMaxWaitMicros(maxWaitMicros)
+                .build());
+        AccountDao accountDao = DaoFactory.getAccountDao();
+        accountIds = new String[accounts];
+        for (int i = 0; i < accounts; i++) {
+            accountIds[i] = accountDao.save(Account.builder()
+                    .uuid("account-" + i)
+                    .total(Long.MAX_VALUE / 2)
+                    .currency(Currency.USD)
+                    .build())
+                    .getUuid();
+        }
+        transferService = TransferTransactionService.getInstance();
+        transferService.setTransferMode(TransferMode.STRIPED_LOCK);
+    }
+
+    @TearDown
+    public void tearDown() throws IOException {
+        DaoFactory.close();
+        Files.deleteIfExists(journalFile);
+    }
+
+    @Benchmark
+    public void transfer(Blackhole blackhole) {
+        ThreadLocalRandom random = ThreadLocalRandom.current();
+        int from = random.nextInt(accounts);
+        int to = random.nextInt(accounts - 1);
+        TransferTransactionCreateDto createDto = new TransferTransactionCreateDto();
+        createDto.setAccountId(accountIds[from]);
+        createDto.setDestinationAccountId(accountIds[to < from ? to : to + 1]);
+        createDto.setAmount(BigDecimal.ONE);
+        blackhole.consume(transferService.createTransaction(createDto));
+    }
+
+}
@@ -0,0 +1,206 @@
+package com.revolut.benchmark;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.math.BigDecimal;
+import java.net.HttpURLConnection;
+import java.net.InetSocketAddress;
+import java.net.ServerSocket;
+import java.net.URL;
+import java.nio.ByteBuffer;
+import java.nio.channels.SocketChannel;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.TimeUnit;
+
+import com.revolut.core.service.impl.TransferMode;
+import com.revolut.core.service.impl.TransferTransactionService;
+import com.revolut.dao.DaoFactory;
+import com.revolut.dao.account.AccountDao;
+import com.revolut.dao.exception.DaoValidationException;
+import com.revolut.dao.model.Account;
+import com.revolut.dao.model.Currency;
+import com.revolut.dao.transation.TransactionDao;
+import com.revolut.web.RestApplication;
+import com.revolut.web.binary.BinaryProtocol;
+import com.revolut.web.binary.BinaryServer;
+import com.sun.jersey.api.container.httpserver.HttpServerFactory;
+import com.sun.net.httpserver.HttpServer;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Transfers sent over loopback to {@code POST /v1/accounts/{id}/transactions/transfer} of the embedded http server and
+ * to the binary protocol, one by one and pipelined on one connection. Both ingresses run in this process.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@Threads(4)
+public class IngressBenchmark {
+
+    private static final int PIPELINE_DEPTH = 64;
+
+    private static final String TRANSFER_BODY = "{\"destinationAccountId\":\"account-2\",\"amount\":0.01}";
+
+    private HttpServer httpServer;
+
+    private BinaryServer binaryServer;
+
+    private String transferUrl;
+
+    @Setup
+    public void setUp() throws IOException, DaoValidationException {
+        AccountDao accountDao = DaoFactory.getAccountDao();
+        TransactionDao transactionDao = DaoFactory.getTransactionDao();
+        accountDao.deleteAll();
+        transactionDao.deleteAll();
+        for (String accountId : new String[]{"account-1", "account-2"}) {
+            accountDao.save(Account.builder()
+                    .uuid(accountId)
+                    .total(Currency.USD.toMinorUnits(BigDecimal.valueOf(1_000_000_000L)))
+                    .currency(Currency.USD)
+                    .build());
+        }
+        TransferTransactionService.getInstance().setTransferMode(TransferMode.STRIPED_LOCK);
+
+        System.setProperty("sun.net.httpserver.nodelay", "true");
+        int httpPort;
+        try (ServerSocket free = new ServerSocket(0)) {
+            httpPort = free.getLocalPort();
+        }
+        httpServer = HttpServerFactory.create(String.format("http://localhost:%d/v1/", httpPort), new RestApplication());
+        httpServer.start();
+        transferUrl = String.format("http://localhost:%d/v1/accounts/account-1/transactions/transfer", httpPort);
+        binaryServer = new BinaryServer(0, Runtime.getRuntime().availableProcessors());
+    }
+
+    @TearDown
+    public void tearDown() {
+        httpServer.stop(0);
+        binaryServer.close();
+        TransferTransactionService.getInstance().setTransferMode(TransferMode.OPTIMISTIC);
+    }
+
+    @Benchmark
+    public int rest() throws IOException {
+        HttpURLConnection connection = (HttpURLConnection) new URL(transferUrl).openConnection();
+        connection.setRequestMethod("POST");
+        connection.setDoOutput(true);
+        connection.setRequestProperty("Content-Type", "application/json");
+        try (OutputStream body = connection.getOutputStream()) {
+            body.write(TRANSFER_BODY.getBytes(StandardCharsets.UTF_8));
+        }
+        int status = connection.getResponseCode();
+        // read to the end, so that the connection is kept alive
+        try (InputStream response = connection.getInputStream()) {
+            byte[] buffer = new byte[512];
+            while (response.read(buffer) > 0) {
+                // drained
+            }
+        }
+        return status;
+    }
+
+    @Benchmark
+    public byte binary(BinaryClient client) throws IOException {
+        client.sendTransfers(1);
+        return client.receive(1);
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(PIPELINE_DEPTH)
+    public byte binaryPipelined(BinaryClient client) throws IOException {
+        client.sendTransfers(PIPELINE_DEPTH);
+        return client.receive(PIPELINE_DEPTH);
+    }
+
+    @State(Scope.Thread)
+    public static class BinaryClient {
+
+        private SocketChannel channel;
+
+        private final ByteBuffer requests = ByteBuffer.allocateDirect(64 * 1024);
+
+        private final ByteBuffer responses = ByteBuffer.allocateDirect(64 * 1024);
+
+        private long requestId;
+
+        @Setup(Level.Trial)
+        public void connect(IngressBenchmark benchmark) throws IOException {
+            channel = SocketChannel.open(new InetSocketAddress("localhost", benchmark.binaryServer.getPort()));
+            channel.socket().setTcpNoDelay(true);
+            responses.limit(0);
+        }
+
+        @TearDown(Level.Trial)
+        public void disconnect() throws IOException {
+            channel.close();
+        }
+
+        private void sendTransfers(int count) throws IOException {
+            requests.clear();
+            for (int i = 0; i < count; i++) {
+                int start = requests.position();
+                requests.putInt(0);
+                requests.putLong(requestId++);
+                requests.put(BinaryProtocol.TRANSFER);
+                BinaryProtocol.putString(requests, "account-1");
+                BinaryProtocol.putString(requests, "account-2");
+                BinaryProtocol.putAmount(requests, BigDecimal.valueOf(1, 2));
+                requests.putInt(start, requests.position() - start - 4);
+            }
+            requests.flip();
+            while (requests.hasRemaining()) {
+                channel.write(requests);
+            }
+        }
+
+        // returns status of the last response
+        private byte receive(int count) throws IOException {
+            byte status = BinaryProtocol.ERROR;
+            for (int i = 0; i < count; i++) {
+                fill(4);
+                int length = responses.getInt();
+                fill(length);
+                int end = responses.position() + length;
+                responses.getLong();
+                status = responses.get();
+                responses.position(end);
+                if (status != BinaryProtocol.OK) {
+                    throw new IllegalStateException("Transfer failed with status " + status);
+                }
+            }
+            return status;
+        }
+
+        // responses are kept in read mode
+        private void fill(int bytes) throws IOException {
+            while (responses.remaining() < bytes) {
+                responses.compact();
+                int read = channel.read(responses);
+                responses.flip();
+                if (read < 0) {
+                    throw new IOException("Connection closed");
+                }
+            }
+        }
+
+    }
+
+}
@@ -0,0 +1,59 @@
+package com.revolut.benchmark;
+
+import java.math.BigDecimal;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+/**
+ * Balance math of one transfer with the former decimal totals against long minor units.
+ * Run with {@code -prof gc} to compare allocation per transfer.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class MoneyArithmeticBenchmark {
+
+    private BigDecimal decimalFrom = new BigDecimal("1000000.00");
+
+    private BigDecimal decimalTo = new BigDecimal("1000000.00");
+
+    private BigDecimal decimalAmount = new BigDecimal("12.34");
+
+    private long from = 100000000L;
+
+    private long to = 100000000L;
+
+    private long amount = 1234L;
+
+    @Benchmark
+    public void decimal(Blackhole blackhole) {
+        // the way transfers were computed before
+        if (decimalFrom.compareTo(decimalAmount) >= 0) {
+            BigDecimal negated = decimalAmount.multiply(BigDecimal.valueOf(-1));
+            blackhole.consume(decimalFrom.add(negated));
+            blackhole.consume(decimalTo.add(decimalAmount));
+        }
+    }
+
+    @Benchmark
+    public void minorUnits(Blackhole blackhole) {
+        if (from >= amount) {
+            blackhole.consume(Math.subtractExact(from, amount));
+            blackhole.consume(Math.addExact(to, amount));
+        }
+    }
+
+}
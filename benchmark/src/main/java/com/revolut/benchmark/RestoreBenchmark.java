@@ -0,0 +1,136 @@
+package com.revolut.benchmark;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.AbstractList;
+import java.util.concurrent.TimeUnit;
+
+import com.revolut.dao.DaoFactory;
+import com.revolut.dao.StorageConfig;
+import com.revolut.dao.account.InMemoryAccountDao;
+import com.revolut.dao.journal.Journal;
+import com.revolut.dao.journal.JournalListener;
+import com.revolut.dao.journal.Snapshot;
+import com.revolut.dao.model.Account;
+import com.revolut.dao.model.Currency;
+import com.revolut.dao.model.Transaction;
+import com.revolut.dao.transation.InMemoryTransactionDao;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import static java.util.Collections.emptyList;
+import static java.util.Collections.singletonList;
+
+/**
+ * Startup restore: snapshot of all accounts followed by a journal tail of account updates.
+ * 10M accounts need a few gigabytes of heap:
+ * {@code java -jar benchmark/target/benchmarks.jar RestoreBenchmark -p accounts=10000000 -jvmArgsAppend -Xmx8g}.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.SingleShotTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 2)
+@Measurement(iterations = 5)
+@Fork(1)
+public class RestoreBenchmark {
+
+    @Param({"1000000", "10000000"})
+    private int accounts;
+
+    @Param({"100000"})
+    private int journalTail;
+
+    private Path journalFile;
+
+    private Path snapshotFile;
+
+    @Setup
+    public void setUp() throws IOException {
+        journalFile = Files.createTempFile("journal", ".bin");
+        snapshotFile = Files.createTempFile("snapshot", ".bin");
+        // accounts are generated while written, so the setup does not hold all of them twice
+        Snapshot.write(snapshotFile, 0, new AbstractList<Account>() {
+
+            @Override
+            public Account get(int index) {
+                return account(index, 0);
+            }
+
+            @Override
+            public int size() {
+                return accounts;
+            }
+
+        }, emptyList());
+        try (Journal journal = Journal.open(journalFile, new IgnoringListener())) {
+            for (int i = 0; i < journalTail; i++) {
+                journal.appendAccounts(singletonList(account(i % accounts, 1 + i / accounts)));
+            }
+        }
+    }
+
+    @TearDown(Level.Iteration)
+    public void clear() throws IOException {
+        DaoFactory.close();
+        InMemoryAccountDao.getInstance().deleteAll();
+        InMemoryTransactionDao.getInstance().deleteAll();
+    }
+
+    @TearDown
+    public void tearDown() throws IOException {
+        Files.deleteIfExists(journalFile);
+        Files.deleteIfExists(snapshotFile);
+    }
+
+    @Benchmark
+    public void restore() throws IOException {
+        DaoFactory.enableJournal(StorageConfig.builder()
+                .journalFile(journalFile)
+                .snapshotFile(snapshotFile)
+                .snapshotIntervalSeconds(0)
+                .build());
+    }
+
+    private static Account account(int index, long version) {
+        return Account.builder()
+                .id((long) index + 1)
+                .version(version)
+                .uuid("account-" + index)
+                .total(index)
+                .currency(Currency.USD)
+                .build();
+    }
+
+    private static class IgnoringListener implements JournalListener {
+
+        @Override
+        public void onAccount(Account account) {
+        }
+
+        @Override
+        public void onAccountDeleted(String uuid) {
+        }
+
+        @Override
+        public void onTransaction(Transaction transaction) {
+        }
+
+        @Override
+        public void onPosting(Transaction leg, Account ownerAccount, Account otherAccount) {
+        }
+
+    }
+
+}
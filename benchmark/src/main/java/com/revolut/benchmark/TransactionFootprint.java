@@ -0,0 +1,58 @@
+package com.revolut.benchmark;
+
+import com.revolut.dao.exception.DaoValidationException;
+import com.revolut.dao.model.Currency;
+import com.revolut.dao.model.Transaction;
+import com.revolut.dao.model.TransactionType;
+import com.revolut.dao.transation.InMemoryTransactionDao;
+import com.revolut.dao.transation.OffHeapTransactionDao;
+import com.revolut.dao.transation.TransactionDao;
+
+/**
+ * Prints heap and direct memory taken per stored transaction by both transaction stores:
+ * {@code java -cp benchmark/target/benchmarks.jar com.revolut.benchmark.TransactionFootprint 1000000}.
+ */
+public class TransactionFootprint {
+
+    private static final int ACCOUNTS = 10000;
+
+    public static void main(String[] args) throws DaoValidationException {
+        int transactions = args.length > 0 ? Integer.parseInt(args[0]) : 1000000;
+        measure("HEAP", InMemoryTransactionDao.getInstance(), transactions);
+        InMemoryTransactionDao.getInstance().deleteAll();
+        OffHeapTransactionDao offHeap = OffHeapTransactionDao.getInstance();
+        long heap = measure("OFF_HEAP", offHeap, transactions);
+        System.out.printf("%-8s direct %6.1f B/transaction%n", "OFF_HEAP",
+                (double) offHeap.getOffHeapBytes() / transactions);
+        System.out.printf("%-8s total  %6.1f B/transaction%n", "OFF_HEAP",
+                (double) (heap + offHeap.getOffHeapBytes()) / transactions);
+    }
+
+    // returns heap taken by the stored transactions
+    private static long measure(String name, TransactionDao transactionDao, int transactions)
+            throws DaoValidationException {
+        long before = usedHeap();
+        for (int i = 0; i < transactions; i++) {
+            // same shape as transfer legs, random uuid and no description
+            transactionDao.save(Transaction.builder()
+                    .ownerAccountId((long) i % ACCOUNTS + 1)
+                    .otherAccountId((long) (i + 1) % ACCOUNTS + 1)
+                    .amount(i + 1)
+                    .currency(Currency.USD)
+                    .type(TransactionType.TRANSFER_BETWEEN_ACCOUNTS)
+                    .build());
+        }
+        long heap = usedHeap() - before;
+        System.out.printf("%-8s heap   %6.1f B/transaction%n", name, (double) heap / transactions);
+        return heap;
+    }
+
+    private static long usedHeap() {
+        Runtime runtime = Runtime.getRuntime();
+        for (int i = 0; i < 3; i++) {
+            System.gc();
+        }
+        return runtime.totalMemory() - runtime.freeMemory();
+    }
+
+}
@@ -0,0 +1,100 @@
+package com.revolut.benchmark;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.lang.annotation.Annotation;
+import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDateTime;
+import java.util.concurrent.TimeUnit;
+import javax.ws.rs.core.MediaType;
+
+import com.revolut.core.dto.TransactionDto;
+import com.revolut.core.dto.TransferTransactionCreateDto;
+import com.revolut.dao.model.Currency;
+import com.revolut.dao.model.TransactionType;
+import com.revolut.web.provider.GsonProvider;
+import com.revolut.web.provider.TransferJsonCodec;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Body of {@code POST /v1/accounts/{id}/transactions/transfer} and its response, read and written by gson against the
+ * hand written codec. Run with {@code -prof gc} to see allocation per request.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class TransferCodecBenchmark {
+
+    private static final byte[] REQUEST = "{\"destinationAccountId\":\"account-2\",\"amount\":12.50}"
+            .getBytes(StandardCharsets.UTF_8);
+
+    private static final Annotation[] NO_ANNOTATIONS = new Annotation[0];
+
+    private final GsonProvider gsonProvider = new GsonProvider();
+
+    private final ByteArrayInputStream request = new ByteArrayInputStream(REQUEST);
+
+    private final OutputStream response = new OutputStream() {
+
+        @Override
+        public void write(int b) {
+        }
+
+        @Override
+        public void write(byte[] b, int off, int len) {
+        }
+
+    };
+
+    private TransactionDto transactionDto;
+
+    @Setup
+    public void setUp() {
+        transactionDto = TransactionDto.builder()
+                .id("6a069e84-5c9a-42e5-bda7-0ad53a641576")
+                .type(TransactionType.TRANSFER_BETWEEN_ACCOUNTS)
+                .amount(BigDecimal.valueOf(-1250, 2))
+                .currency(Currency.USD)
+                .createdAt(LocalDateTime.now())
+                .build();
+    }
+
+    @Benchmark
+    public Object gsonRequest() throws IOException {
+        request.reset();
+        return gsonProvider.readFrom(Object.class, TransferTransactionCreateDto.class, NO_ANNOTATIONS,
+                MediaType.APPLICATION_JSON_TYPE, null, request);
+    }
+
+    @Benchmark
+    public Object codecRequest() throws IOException {
+        request.reset();
+        return TransferJsonCodec.readTransfer(request);
+    }
+
+    @Benchmark
+    public void gsonResponse() throws IOException {
+        gsonProvider.writeTo(transactionDto, TransactionDto.class, TransactionDto.class, NO_ANNOTATIONS,
+                MediaType.APPLICATION_JSON_TYPE, null, response);
+    }
+
+    @Benchmark
+    public void codecResponse() throws IOException {
+        TransferJsonCodec.writeTransaction(transactionDto, response);
+    }
+
+}
@@ -0,0 +1,103 @@
+package com.revolut.benchmark;
+
+import java.math.BigDecimal;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+import com.revolut.core.dto.TransferTransactionCreateDto;
+import com.revolut.core.service.impl.TransferMode;
+import com.revolut.core.service.impl.TransferTransactionService;
+import com.revolut.dao.DaoFactory;
+import com.revolut.dao.account.AccountDao;
+import com.revolut.dao.exception.DaoValidationException;
+import com.revolut.dao.model.Account;
+import com.revolut.dao.model.Currency;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+/**
+ * Transfers between random account pairs, {@code hotShare} of them touch one of a few hot accounts. Run with several
+ * thread counts to see how a mode scales:
+ * {@code java -jar benchmark/target/benchmarks.jar TransferThroughputBenchmark -t 1,2,4,8}.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class TransferThroughputBenchmark {
+
+    @Param({"OPTIMISTIC", "STRIPED_LOCK", "SEQUENCED", "SHARDED", "MICRO_BATCHED"})
+    private TransferMode mode;
+
+    @Param({"10000"})
+    private int accounts;
+
+    // share of transfers from or to one of the hot accounts
+    @Param({"0", "0.9"})
+    private double hotShare;
+
+    @Param({"4"})
+    private int hotAccounts;
+
+    private String[] accountIds;
+
+    private TransferTransactionService transferService;
+
+    @Setup
+    public void setUp() throws DaoValidationException {
+        AccountDao accountDao = DaoFactory.getAccountDao();
+        accountDao.deleteAll();
+        DaoFactory.getTransactionDao().deleteAll();
+        accountIds = new String[accounts];
+        for (int i = 0; i < accounts; i++) {
+            accountIds[i] = accountDao.save(Account.builder()
+                    .uuid("account-" + i)
+                    .total(Long.MAX_VALUE / 2)
+                    .currency(Currency.USD)
+                    .build())
+                    .getUuid();
+        }
+        transferService = TransferTransactionService.getInstance();
+        transferService.setTransferMode(mode);
+    }
+
+    @TearDown
+    public void tearDown() {
+        // stops sequencer and shard threads
+        transferService.setTransferMode(TransferMode.OPTIMISTIC);
+    }
+
+    @Benchmark
+    public void transfer(Blackhole blackhole) {
+        ThreadLocalRandom random = ThreadLocalRandom.current();
+        int first = random.nextDouble() < hotShare ? random.nextInt(hotAccounts) : random.nextInt(accounts);
+        int second = random.nextInt(accounts - 1);
+        second = second < first ? second : second + 1;
+        // hot accounts both send and receive
+        boolean firstSends = random.nextBoolean();
+        TransferTransactionCreateDto createDto = new TransferTransactionCreateDto();
+        createDto.setAccountId(accountIds[firstSends ? first : second]);
+        createDto.setDestinationAccountId(accountIds[firstSends ? second : first]);
+        createDto.setAmount(BigDecimal.ONE);
+        try {
+            blackhole.consume(transferService.createTransaction(createDto));
+        } catch (RuntimeException ex) {
+            // lost races are part of the measured cost
+            blackhole.consume(ex);
+        }
+    }
+
+}
@@ -0,0 +1,190 @@
+package com.revolut.core.cache;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.atomic.LongAdder;
+
+import com.revolut.core.dto.AccountDto;
+import com.revolut.core.dto.CacheStatsDto;
+
+/**
+ * Bounded cache of account dtos with history keyed by uuid. An entry is served only while the stored account has the
+ * db id and version the dto was converted from. Every posting bumps the versions under the account locks, so a read
+ * never shows an account older than the last committed transfer, whichever path posted it. Entries are spread over
+ * segments by the hash of the uuid, a full segment evicts its least recently read entry.
+ */
+public class AccountCache {
+
+    public static final int DEFAULT_MAX_SIZE = 10000;
+
+    private static final int SEGMENTS = 16;
+
+    // measured heap of a converted dto with its entry and key, and of every transaction of its history
+    private static final long ENTRY_BYTES = 200;
+
+    private static final long TRANSACTION_BYTES = 88;
+
+    private static volatile AccountCache instance;
+
+    private final LongAdder hits = new LongAdder();
+
+    private final LongAdder misses = new LongAdder();
+
+    private final LongAdder evictions = new LongAdder();
+
+    private final LongAdder invalidations = new LongAdder();
+
+    private volatile int maxSize;
+
+    private volatile Segment[] segments;
+
+    public synchronized static AccountCache getInstance() {
+        if (instance == null) {
+            instance = new AccountCache();
+        }
+        return instance;
+    }
+
+    private AccountCache() {
+        setMaxSize(DEFAULT_MAX_SIZE);
+    }
+
+    // drops every entry, 0 turns the cache off
+    public synchronized void setMaxSize(int maxSize) {
+        int segmentCount = Math.max(1, Math.min(SEGMENTS, maxSize));
+        int capacity = (maxSize + segmentCount - 1) / segmentCount;
+        Segment[] created = new Segment[segmentCount];
+        for (int i = 0; i < segmentCount; i++) {
+            created[i] = new Segment(capacity);
+        }
+        this.maxSize = maxSize;
+        segments = created;
+    }
+
+    // null when there is no dto of this db id and version
+    public AccountDto get(String uuid, Long id, long version) {
+        Segment segment = segmentFor(uuid);
+        AccountDto cached = null;
+        synchronized (segment) {
+            Entry entry = segment.get(uuid);
+            if (entry != null && Objects.equals(entry.id, id) && entry.version == version) {
+                cached = entry.account;
+            } else if (entry != null && (!Objects.equals(entry.id, id) || entry.version < version)) {
+                segment.remove(uuid);
+                segment.bytes -= entry.bytes;
+                invalidations.increment();
+            }
+        }
+        if (cached != null) {
+            hits.increment();
+        } else {
+            misses.increment();
+        }
+        return cached;
+    }
+
+    public void put(String uuid, Long id, long version, AccountDto account) {
+        if (maxSize <= 0) {
+            return;
+        }
+        Entry entry = new Entry(id, version, account);
+        Segment segment = segmentFor(uuid);
+        synchronized (segment) {
+            Entry existing = segment.get(uuid);
+            // a slower reader doesn't replace a newer dto of the same account
+            if (existing != null && Objects.equals(existing.id, id) && existing.version > version) {
+                return;
+            }
+            segment.bytes += entry.bytes;
+            Entry replaced = segment.put(uuid, entry);
+            if (replaced != null) {
+                segment.bytes -= replaced.bytes;
+            }
+        }
+    }
+
+    public void clear() {
+        for (Segment segment : segments) {
+            synchronized (segment) {
+                segment.clear();
+                segment.bytes = 0;
+            }
+        }
+    }
+
+    public CacheStatsDto getStats() {
+        int size = 0;
+        long bytes = 0;
+        for (Segment segment : segments) {
+            synchronized (segment) {
+                size += segment.size();
+                bytes += segment.bytes;
+            }
+        }
+        long hitCount = hits.sum();
+        long missCount = misses.sum();
+        return CacheStatsDto.builder()
+                .maxSize(maxSize)
+                .size(size)
+                .hits(hitCount)
+                .misses(missCount)
+                .hitRate(hitCount + missCount > 0 ? (double) hitCount / (hitCount + missCount) : 0)
+                .evictions(evictions.sum())
+                .invalidations(invalidations.sum())
+                .estimatedBytes(bytes)
+                .build();
+    }
+
+    private Segment segmentFor(String uuid) {
+        Segment[] current = segments;
+        // spreads the high bits, as hash maps do
+        int hash = uuid.hashCode();
+        return current[((hash ^ (hash >>> 16)) & 0x7fffffff) % current.length];
+    }
+
+    private static final class Entry {
+
+        private final Long id;
+
+        private final long version;
+
+        private final AccountDto account;
+
+        private final long bytes;
+
+        private Entry(Long id, long version, AccountDto account) {
+            this.id = id;
+            this.version = version;
+            this.account = account;
+            int history = account.getTransactionHistory() != null ? account.getTransactionHistory().size() : 0;
+            this.bytes = ENTRY_BYTES + TRANSACTION_BYTES * history;
+        }
+
+    }
+
+    // access ordered, guarded by its own monitor
+    private final class Segment extends LinkedHashMap<String, Entry> {
+
+        private final int capacity;
+
+        private long bytes;
+
+        private Segment(int capacity) {
+            super(16, 0.75f, true);
+            this.capacity = capacity;
+        }
+
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<String, Entry> eldest) {
+            if (size() <= capacity) {
+                return false;
+            }
+            bytes -= eldest.getValue().bytes;
+            evictions.increment();
+            return true;
+        }
+
+    }
+
+}
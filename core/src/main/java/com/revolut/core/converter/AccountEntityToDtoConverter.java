@@ -16,9 +16,19 @@ public class AccountEntityToDtoConverter implements Converter<Account, AccountDt
         return AccountDto.builder()
                 .id(input.getUuid())
                 .currency(input.getCurrency())
-                .total(input.getTotal())
+                .total(input.getCurrency().fromMinorUnits(input.getTotal()))
                 .transactionHistory(transactionConverter.convertCollection(input.getTransactionHistory()))
                 .build();
     }
 
+    // history is left null so that it's omitted from responses
+    public AccountDto convertWithoutHistory(Account input) {
+        return AccountDto.builder()
+                .id(input.getUuid())
+                .currency(input.getCurrency())
+                .total(input.getCurrency().fromMinorUnits(input.getTotal()))
+                .transactionHistory(null)
+                .build();
+    }
+
 }
@@ -0,0 +1,20 @@
+package com.revolut.core.converter;
+
+import com.revolut.core.dto.HistogramDto;
+import com.revolut.dao.metrics.Histogram;
+
+public class HistogramToDtoConverter implements Converter<Histogram, HistogramDto> {
+
+    @Override
+    public HistogramDto convert(Histogram input) {
+        return HistogramDto.builder()
+                .count(input.getCount())
+                .mean(input.getMean())
+                .p50(input.getPercentile(0.5))
+                .p99(input.getPercentile(0.99))
+                .p999(input.getPercentile(0.999))
+                .max(input.getMax())
+                .build();
+    }
+
+}
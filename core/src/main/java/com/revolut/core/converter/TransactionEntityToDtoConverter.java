@@ -9,7 +9,7 @@ public class TransactionEntityToDtoConverter implements Converter<Transaction, T
     public TransactionDto convert(Transaction input) {
         return TransactionDto.builder()
                 .id(input.getUuid())
-                .amount(input.getAmount())
+                .amount(input.getCurrency().fromMinorUnits(input.getAmount()))
                 .createdAt(input.getCreatedAt())
                 .currency(input.getCurrency())
                 .description(input.getDescription())
@@ -0,0 +1,10 @@
+package com.revolut.core.dto;
+
+public enum BatchMode {
+
+    // nothing is applied if any transaction of the batch fails
+    ALL_OR_NOTHING,
+    // failed transactions are skipped, the rest is applied
+    BEST_EFFORT
+
+}
@@ -0,0 +1,27 @@
+package com.revolut.core.dto;
+
+import lombok.AccessLevel;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.EqualsAndHashCode;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+
+@Builder
+@Getter
+@NoArgsConstructor(access = AccessLevel.PRIVATE)
+@AllArgsConstructor(access = AccessLevel.PRIVATE)
+@EqualsAndHashCode
+public class CacheStatsDto {
+
+    private int maxSize;
+    private int size;
+    private long hits;
+    private long misses;
+    private double hitRate;
+    private long evictions;
+    // entries dropped because their account changed
+    private long invalidations;
+    private long estimatedBytes;
+
+}
@@ -0,0 +1,24 @@
+package com.revolut.core.dto;
+
+import lombok.AccessLevel;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.EqualsAndHashCode;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+
+@Builder
+@Getter
+@NoArgsConstructor(access = AccessLevel.PRIVATE)
+@AllArgsConstructor(access = AccessLevel.PRIVATE)
+@EqualsAndHashCode
+public class HistogramDto {
+
+    private long count;
+    private double mean;
+    private long p50;
+    private long p99;
+    private long p999;
+    private long max;
+
+}
@@ -0,0 +1,24 @@
+package com.revolut.core.dto;
+
+import java.util.List;
+
+import lombok.AccessLevel;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+
+import static java.util.Collections.emptyList;
+
+@Builder
+@Getter
+@NoArgsConstructor(access = AccessLevel.PRIVATE)
+@AllArgsConstructor(access = AccessLevel.PRIVATE)
+public class TransactionBatchDto {
+
+    private int applied;
+    private int failed;
+    @Builder.Default
+    private List<TransactionResultDto> results = emptyList();
+
+}
@@ -0,0 +1,26 @@
+package com.revolut.core.dto;
+
+import java.util.List;
+
+import lombok.AccessLevel;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.EqualsAndHashCode;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+
+import static java.util.Collections.emptyList;
+
+@Builder
+@Getter
+@NoArgsConstructor(access = AccessLevel.PRIVATE)
+@AllArgsConstructor(access = AccessLevel.PRIVATE)
+@EqualsAndHashCode
+public class TransactionPageDto {
+
+    @Builder.Default
+    private List<TransactionDto> transactions = emptyList();
+    // pass as cursor to get the next page, null on the last page
+    private String nextCursor;
+
+}
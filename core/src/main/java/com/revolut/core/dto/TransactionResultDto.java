@@ -0,0 +1,31 @@
+package com.revolut.core.dto;
+
+import lombok.AccessLevel;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+
+// outcome of one transaction of a batch, in the order it was submitted
+@Builder
+@Getter
+@NoArgsConstructor(access = AccessLevel.PRIVATE)
+@AllArgsConstructor(access = AccessLevel.PRIVATE)
+public class TransactionResultDto {
+
+    private Status status;
+    // set when the transaction is applied
+    private TransactionDto transaction;
+    // set when the transaction failed
+    private String error;
+
+    public enum Status {
+
+        APPLIED,
+        FAILED,
+        // valid on its own, but the batch was rejected because of another transaction
+        NOT_APPLIED
+
+    }
+
+}
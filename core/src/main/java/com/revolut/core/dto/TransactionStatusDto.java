@@ -0,0 +1,31 @@
+package com.revolut.core.dto;
+
+import lombok.AccessLevel;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+
+// state of a transaction submitted without waiting for it
+@Builder
+@Getter
+@NoArgsConstructor(access = AccessLevel.PRIVATE)
+@AllArgsConstructor(access = AccessLevel.PRIVATE)
+public class TransactionStatusDto {
+
+    private String id;
+    private Status status;
+    // set when the transaction is applied
+    private TransactionDto transaction;
+    // set when the transaction failed
+    private String error;
+
+    public enum Status {
+
+        QUEUED,
+        APPLIED,
+        FAILED
+
+    }
+
+}
@@ -0,0 +1,10 @@
+package com.revolut.core.exception;
+
+// work is rejected right away instead of being queued, caller should retry later
+public class OverloadedException extends RuntimeException {
+
+    public OverloadedException(String message) {
+        super(message);
+    }
+
+}
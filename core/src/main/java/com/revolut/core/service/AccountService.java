@@ -4,13 +4,23 @@ import java.util.List;
 
 import com.revolut.core.dto.AccountCreateDto;
 import com.revolut.core.dto.AccountDto;
+import com.revolut.core.dto.TransactionPageDto;
 
 public interface AccountService {
 
     List<AccountDto> getAll();
 
+    List<AccountDto> getAll(boolean withHistory);
+
     AccountDto getById(String id);
 
+    AccountDto getById(String id, boolean withHistory);
+
+    // changes with every write of the account, nothing but the stored version is read
+    String getVersion(String id);
+
+    TransactionPageDto getTransactions(String id, String cursor, Integer limit);
+
     AccountDto createAccount(AccountCreateDto createDto);
 
 }
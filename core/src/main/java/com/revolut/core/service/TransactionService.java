@@ -1,5 +1,10 @@
 package com.revolut.core.service;
 
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+
+import com.revolut.core.dto.BatchMode;
+import com.revolut.core.dto.TransactionBatchDto;
 import com.revolut.core.dto.TransactionCreateDto;
 import com.revolut.core.dto.TransactionDto;
 
@@ -7,4 +12,10 @@ public interface TransactionService<T extends TransactionCreateDto, R extends Tr
 
     R createTransaction(T createDto);
 
+    // completes once the transaction is applied and durable, failures complete it exceptionally
+    CompletableFuture<R> createTransactionAsync(T createDto);
+
+    // applies transactions in the given order and stores them at once, result of every transaction is reported
+    TransactionBatchDto createTransactions(List<T> createDtos, BatchMode mode);
+
 }
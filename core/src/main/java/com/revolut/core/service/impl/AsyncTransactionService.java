@@ -0,0 +1,186 @@
+package com.revolut.core.service.impl;
+
+import java.util.Map;
+import java.util.Queue;
+import java.util.UUID;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import com.revolut.core.dto.TransactionCreateDto;
+import com.revolut.core.dto.TransactionDto;
+import com.revolut.core.dto.TransactionStatusDto;
+import com.revolut.core.dto.TransferTransactionCreateDto;
+import com.revolut.core.exception.NotFoundException;
+import com.revolut.core.exception.OverloadedException;
+import com.revolut.core.exception.TransactionFailedException;
+import com.revolut.core.strategy.TransactionStrategy;
+
+import static com.revolut.core.dto.TransactionStatusDto.Status.APPLIED;
+import static com.revolut.core.dto.TransactionStatusDto.Status.FAILED;
+import static com.revolut.core.dto.TransactionStatusDto.Status.QUEUED;
+
+/**
+ * Takes transactions without waiting for them. Submitted transactions wait in a bounded queue for a few workers,
+ * a full queue rejects new ones right away, so callers are pushed back instead of piling up on contended accounts.
+ * Outcome of the latest finished transactions is kept for polling. Once closed, the service takes no more transactions.
+ */
+public class AsyncTransactionService {
+
+    private static final int DEFAULT_WORKERS = Runtime.getRuntime().availableProcessors();
+
+    private static final int DEFAULT_QUEUE_SIZE = 10000;
+
+    // finished transactions kept for polling, the oldest are forgotten first
+    private static final int RETAINED_STATUSES = 100000;
+
+    private static AsyncTransactionService instance;
+
+    private final Map<String, TransactionStatusDto> statuses = new ConcurrentHashMap<>();
+
+    private final Queue<String> finished = new ConcurrentLinkedQueue<>();
+
+    private final AtomicInteger finishedCount = new AtomicInteger();
+
+    // settings are set on the startup thread and read by request and worker threads
+    private volatile int workers = DEFAULT_WORKERS;
+
+    private volatile int queueSize = DEFAULT_QUEUE_SIZE;
+
+    private volatile int retainedStatuses = RETAINED_STATUSES;
+
+    private TransactionStrategy transactionStrategy = TransactionStrategy.getInstance();
+
+    // started by the first submission
+    private ThreadPoolExecutor pool;
+
+    private boolean closed;
+
+    private AsyncTransactionService() {
+    }
+
+    public synchronized static AsyncTransactionService getInstance() {
+        if (instance == null) {
+            instance = new AsyncTransactionService();
+        }
+        return instance;
+    }
+
+    // should be set before the first submission
+    public void setWorkers(int workers) {
+        this.workers = workers;
+    }
+
+    public void setQueueSize(int queueSize) {
+        this.queueSize = queueSize;
+    }
+
+    public void setRetainedStatuses(int retainedStatuses) {
+        this.retainedStatuses = retainedStatuses;
+    }
+
+    // returns the queued status, its id is used to poll the outcome
+    public TransactionStatusDto submit(TransactionCreateDto createDto) {
+        // invalid transfer is rejected before it takes a place in the queue
+        if (createDto instanceof TransferTransactionCreateDto) {
+            TransferTransactionService.validateTransactionCreateDto((TransferTransactionCreateDto) createDto);
+        }
+        String id = UUID.randomUUID().toString();
+        TransactionStatusDto queued = TransactionStatusDto.builder()
+                .id(id)
+                .status(QUEUED)
+                .build();
+        ThreadPoolExecutor workerPool = getPool();
+        statuses.put(id, queued);
+        try {
+            workerPool.execute(() -> run(id, createDto));
+        } catch (RejectedExecutionException ex) {
+            statuses.remove(id);
+            // rejected by the pool closed meanwhile
+            if (workerPool.isShutdown()) {
+                throw stoppedException();
+            }
+            throw new OverloadedException("Transaction queue is full, try again later");
+        }
+        return queued;
+    }
+
+    public TransactionStatusDto getStatus(String id) {
+        TransactionStatusDto status = id != null ? statuses.get(id) : null;
+        if (status == null) {
+            throw new NotFoundException(String.format("Transaction status with id %s not found", id));
+        }
+        return status;
+    }
+
+    // runs transactions queued before and stops workers, later submissions are rejected
+    public void close() {
+        ThreadPoolExecutor stopped;
+        synchronized (this) {
+            closed = true;
+            stopped = pool;
+        }
+        if (stopped == null) {
+            return;
+        }
+        stopped.shutdown();
+        try {
+            stopped.awaitTermination(Long.MAX_VALUE, TimeUnit.NANOSECONDS);
+        } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private void run(String id, TransactionCreateDto createDto) {
+        TransactionStatusDto status;
+        try {
+            TransactionDto transaction = transactionStrategy.createTransaction(createDto);
+            status = TransactionStatusDto.builder()
+                    .id(id)
+                    .status(APPLIED)
+                    .transaction(transaction)
+                    .build();
+        } catch (RuntimeException ex) {
+            status = TransactionStatusDto.builder()
+                    .id(id)
+                    .status(FAILED)
+                    .error(ex.getMessage())
+                    .build();
+        }
+        statuses.put(id, status);
+        finished.add(id);
+        if (finishedCount.incrementAndGet() > retainedStatuses) {
+            String oldest = finished.poll();
+            if (oldest != null) {
+                finishedCount.decrementAndGet();
+                statuses.remove(oldest);
+            }
+        }
+    }
+
+    private synchronized ThreadPoolExecutor getPool() {
+        if (closed) {
+            throw stoppedException();
+        }
+        if (pool == null) {
+            AtomicInteger threads = new AtomicInteger();
+            // a rejected submission throws, nothing waits for room in the queue
+            pool = new ThreadPoolExecutor(workers, workers, 0, TimeUnit.MILLISECONDS, new ArrayBlockingQueue<>(queueSize),
+                    runnable -> {
+                        Thread thread = new Thread(runnable, "async-transaction-" + threads.getAndIncrement());
+                        thread.setDaemon(true);
+                        return thread;
+                    });
+        }
+        return pool;
+    }
+
+    private static TransactionFailedException stoppedException() {
+        return new TransactionFailedException("Transaction failed cause transactions are stopped");
+    }
+
+}
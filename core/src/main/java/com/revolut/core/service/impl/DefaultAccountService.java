@@ -1,29 +1,46 @@
 package com.revolut.core.service.impl;
 
 import java.util.List;
+import java.util.Optional;
 import java.util.UUID;
+import java.util.stream.Collectors;
 
+import com.revolut.core.cache.AccountCache;
 import com.revolut.core.converter.AccountEntityToDtoConverter;
+import com.revolut.core.converter.TransactionEntityToDtoConverter;
 import com.revolut.core.dto.AccountCreateDto;
 import com.revolut.core.dto.AccountDto;
+import com.revolut.core.dto.TransactionPageDto;
 import com.revolut.core.exception.NotFoundException;
 import com.revolut.core.exception.ValidationException;
 import com.revolut.core.service.AccountService;
+import com.revolut.dao.DaoFactory;
 import com.revolut.dao.account.AccountDao;
-import com.revolut.dao.account.InMemoryAccountDao;
 import com.revolut.dao.exception.DaoValidationException;
 import com.revolut.dao.model.Account;
+import com.revolut.dao.model.Transaction;
+import com.revolut.dao.transation.TransactionDao;
 
 import static java.util.Collections.emptyList;
 
 public class DefaultAccountService implements AccountService {
 
+    private static final int DEFAULT_PAGE_SIZE = 50;
+
+    private static final int MAX_PAGE_SIZE = 1000;
+
     private static volatile AccountService instance;
 
     private AccountDao accountDao;
 
+    private TransactionDao transactionDao;
+
     private AccountEntityToDtoConverter accountEntityToDtoConverter;
 
+    private TransactionEntityToDtoConverter transactionEntityToDtoConverter;
+
+    private AccountCache accountCache;
+
     public static synchronized AccountService getInstance() {
         if (instance == null) {
             instance = new DefaultAccountService();
@@ -32,8 +49,11 @@ public class DefaultAccountService implements AccountService {
     }
 
     private DefaultAccountService() {
-        accountDao = InMemoryAccountDao.getInstance();
+        accountDao = DaoFactory.getAccountDao();
+        transactionDao = DaoFactory.getTransactionDao();
         accountEntityToDtoConverter = new AccountEntityToDtoConverter();
+        transactionEntityToDtoConverter = new TransactionEntityToDtoConverter();
+        accountCache = AccountCache.getInstance();
     }
 
     @Override
@@ -41,18 +61,72 @@ public class DefaultAccountService implements AccountService {
         return accountEntityToDtoConverter.convertCollection(accountDao.getAll());
     }
 
+    @Override
+    public List<AccountDto> getAll(boolean withHistory) {
+        if (withHistory) {
+            return getAll();
+        }
+        return accountDao.getAllWithoutHistory().stream()
+                .map(accountEntityToDtoConverter::convertWithoutHistory)
+                .collect(Collectors.toList());
+    }
+
     @Override
     public AccountDto getById(String id) {
-        return accountDao.getEntity(id).map(accountEntityToDtoConverter::convert)
+        // the stored account is a hash lookup, history is read and converted only when the cached dto is outdated
+        Optional<Account> stored = accountDao.getEntityWithoutHistory(id);
+        if (stored.isPresent()) {
+            AccountDto cached = accountCache.get(id, stored.get().getId(), stored.get().getVersion());
+            if (cached != null) {
+                return cached;
+            }
+        }
+        return accountDao.getEntity(id)
+                .map(account -> {
+                    AccountDto accountDto = accountEntityToDtoConverter.convert(account);
+                    accountCache.put(id, account.getId(), account.getVersion(), accountDto);
+                    return accountDto;
+                })
                 .orElseThrow(() -> new NotFoundException(String.format("Account with id %s not found", id)));
     }
 
+    @Override
+    public AccountDto getById(String id, boolean withHistory) {
+        if (withHistory) {
+            return getById(id);
+        }
+        return accountEntityToDtoConverter.convertWithoutHistory(getAccountWithoutHistory(id));
+    }
+
+    @Override
+    public String getVersion(String id) {
+        Account account = getAccountWithoutHistory(id);
+        // db id tells apart an account deleted and created again with the same uuid
+        return account.getId() + "." + account.getVersion();
+    }
+
+    @Override
+    public TransactionPageDto getTransactions(String id, String cursor, Integer limit) {
+        int pageSize = getPageSize(limit);
+        Account account = getAccountWithoutHistory(id);
+        // one extra transaction tells whether there is a next page
+        List<Transaction> transactions = transactionDao.getEntities(account.getId(), parseCursor(cursor), pageSize + 1);
+        boolean hasNext = transactions.size() > pageSize;
+        if (hasNext) {
+            transactions = transactions.subList(0, pageSize);
+        }
+        return TransactionPageDto.builder()
+                .transactions(transactionEntityToDtoConverter.convertCollection(transactions))
+                .nextCursor(hasNext ? String.valueOf(transactions.get(pageSize - 1).getId()) : null)
+                .build();
+    }
+
     @Override
     public AccountDto createAccount(AccountCreateDto createDto) {
         validateAccountDetails(createDto);
         Account account = Account.builder()
                 .currency(createDto.getCurrency())
-                .total(createDto.getTotal())
+                .total(toMinorUnits(createDto))
                 .transactionHistory(emptyList())
                 .build();
         try {
@@ -63,6 +137,40 @@ public class DefaultAccountService implements AccountService {
         return accountEntityToDtoConverter.convert(account);
     }
 
+    private long toMinorUnits(AccountCreateDto createDto) {
+        try {
+            return createDto.getCurrency().toMinorUnits(createDto.getTotal());
+        } catch (ArithmeticException ex) {
+            throw new ValidationException(String.format("Total should have at most %d fraction digits",
+                    createDto.getCurrency().getScale()));
+        }
+    }
+
+    private Account getAccountWithoutHistory(String id) {
+        return accountDao.getEntityWithoutHistory(id)
+                .orElseThrow(() -> new NotFoundException(String.format("Account with id %s not found", id)));
+    }
+
+    private int getPageSize(Integer limit) {
+        if (limit == null) {
+            return DEFAULT_PAGE_SIZE;
+        } else if (limit <= 0 || limit > MAX_PAGE_SIZE) {
+            throw new ValidationException(String.format("Page size should be between 1 and %d", MAX_PAGE_SIZE));
+        }
+        return limit;
+    }
+
+    private Long parseCursor(String cursor) {
+        if (cursor == null || cursor.isEmpty()) {
+            return null;
+        }
+        try {
+            return Long.valueOf(cursor);
+        } catch (NumberFormatException ex) {
+            throw new ValidationException(String.format("Invalid cursor %s", cursor));
+        }
+    }
+
     private void validateAccountDetails(AccountCreateDto createDto) {
         if (createDto.getCurrency() == null || createDto.getTotal() == null) {
             throw new ValidationException("To create account you should set not null and valid currency and total");
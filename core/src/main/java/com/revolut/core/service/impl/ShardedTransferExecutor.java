@@ -0,0 +1,402 @@
+package com.revolut.core.service.impl;
+
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.LongAdder;
+
+import com.revolut.core.converter.TransactionEntityToDtoConverter;
+import com.revolut.core.dto.TransactionDto;
+import com.revolut.core.dto.TransferTransactionCreateDto;
+import com.revolut.core.exception.NotFoundException;
+import com.revolut.core.exception.TransactionFailedException;
+import com.revolut.dao.account.AccountDao;
+import com.revolut.dao.exception.DaoValidationException;
+import com.revolut.dao.metrics.Histogram;
+import com.revolut.dao.metrics.Metrics;
+import com.revolut.dao.model.Account;
+import com.revolut.dao.model.Transaction;
+
+/**
+ * Accounts are split between shards by uuid hash, every shard is a thread which owns the state of its accounts and
+ * receives messages through its queue. Transfer between accounts of one shard is applied right away.
+ * <p>
+ * Transfer between two shards is coordinated by the shard with the lower index in two phases. The coordinator reserves
+ * its account and asks the other shard to reserve the other account, once it is reserved the coordinator posts the
+ * transfer and tells the other shard to take the new state of its account or to drop the reservation. Reserved account
+ * isn't touched by anything else, work on it waits in order of arrival. Coordinator only ever waits for a shard with
+ * a higher index, so reservations can't wait for each other in a cycle.
+ */
+class ShardedTransferExecutor implements TransferExecutor {
+
+    public static final String QUEUE_DEPTH_METRIC = "transfer.shard.%d.queueDepth";
+    // every transfer posted to accounts of the shard, its count gives the throughput of the shard
+    public static final String TRANSFER_METRIC = "transfer.shard.%d.transferMicros";
+
+    private static final int MAX_TRANSFER_ATTEMPTS = 16;
+
+    private static final long CLOSE_POLL_MILLIS = 10;
+
+    private final AccountDao accountDao;
+
+    private final TransactionEntityToDtoConverter converter;
+
+    private final Shard[] shards;
+
+    // transfers submitted and not finished on every shard yet
+    private final LongAdder inFlight = new LongAdder();
+
+    private volatile boolean closed;
+
+    ShardedTransferExecutor(AccountDao accountDao, TransactionEntityToDtoConverter converter, int shardCount) {
+        if (shardCount < 1) {
+            throw new IllegalArgumentException("Shard count should be positive");
+        }
+        this.accountDao = accountDao;
+        this.converter = converter;
+        shards = new Shard[shardCount];
+        for (int i = 0; i < shardCount; i++) {
+            shards[i] = new Shard(i);
+        }
+        for (Shard shard : shards) {
+            shard.thread.start();
+        }
+    }
+
+    @Override
+    public CompletableFuture<TransactionDto> submit(TransferTransactionCreateDto createDto) {
+        // counted before the check, so close either waits for the transfer or the transfer sees it is closed
+        inFlight.increment();
+        if (closed) {
+            inFlight.decrement();
+            throw new TransactionFailedException("Transaction failed cause transfers are stopped");
+        }
+        Transfer transfer;
+        try {
+            transfer = new Transfer(createDto);
+        } catch (RuntimeException ex) {
+            inFlight.decrement();
+            throw ex;
+        }
+        transfer.coordinator.send(transfer, () -> transfer.coordinator.begin(transfer));
+        return transfer.response;
+    }
+
+    @Override
+    public void close() {
+        closed = true;
+        try {
+            while (inFlight.sum() > 0) {
+                Thread.sleep(CLOSE_POLL_MILLIS);
+            }
+            for (Shard shard : shards) {
+                shard.thread.interrupt();
+                shard.thread.join();
+            }
+        } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private void complete(Transfer transfer, Transaction posted, Throwable failure) {
+        if (failure != null) {
+            transfer.response.completeExceptionally(failure instanceof CompletionException ? failure.getCause() : failure);
+            return;
+        }
+        try {
+            transfer.response.complete(converter.convert(posted));
+        } catch (RuntimeException ex) {
+            transfer.response.completeExceptionally(ex);
+        }
+    }
+
+    // counts the transfer out of flight once, whichever way it ends
+    private void finish(Transfer transfer) {
+        if (transfer.finished.compareAndSet(false, true)) {
+            inFlight.decrement();
+        }
+    }
+
+    // account as stored by the posting
+    private static Account stored(TransferPosting posting, String accountId) {
+        for (Account account : posting.getAccounts()) {
+            if (account.getUuid().equals(accountId)) {
+                return account.toBuilder().version(account.getVersion() + 1).build();
+            }
+        }
+        throw new IllegalStateException(String.format("Account %s is not posted", accountId));
+    }
+
+    private Shard shardOf(String accountId) {
+        int hash = accountId.hashCode();
+        return shards[((hash ^ (hash >>> 16)) & Integer.MAX_VALUE) % shards.length];
+    }
+
+    private class Transfer {
+
+        private final TransferTransactionCreateDto createDto;
+
+        private final CompletableFuture<TransactionDto> response = new CompletableFuture<>();
+
+        private final long submittedAt = System.nanoTime();
+
+        // shard with the lower index, the only one when both accounts are in the same shard
+        private final Shard coordinator;
+
+        private final Shard participant;
+
+        private final String coordinatorAccountId;
+
+        private final String participantAccountId;
+
+        private int attempts;
+
+        private final AtomicBoolean finished = new AtomicBoolean();
+
+        private Transfer(TransferTransactionCreateDto createDto) {
+            this.createDto = createDto;
+            Shard from = shardOf(createDto.getAccountId());
+            Shard to = shardOf(createDto.getDestinationAccountId());
+            boolean fromCoordinates = from.index <= to.index;
+            coordinator = fromCoordinates ? from : to;
+            participant = fromCoordinates ? to : from;
+            coordinatorAccountId = fromCoordinates ? createDto.getAccountId() : createDto.getDestinationAccountId();
+            participantAccountId = fromCoordinates ? createDto.getDestinationAccountId() : createDto.getAccountId();
+        }
+
+        private boolean isLocal() {
+            return coordinator == participant;
+        }
+
+    }
+
+    // all fields except the queue are touched by the shard thread only
+    private class Shard {
+
+        private final int index;
+
+        private final Thread thread;
+
+        private final BlockingQueue<Message> queue = new LinkedBlockingQueue<>();
+
+        // latest version of every account of the shard seen by it
+        private final Map<String, Account> accounts = new HashMap<>();
+
+        private final Map<String, Transfer> reservations = new HashMap<>();
+
+        // work waiting for a reserved account, in order of arrival
+        private final Map<String, Deque<Message>> waiting = new HashMap<>();
+
+        private final Histogram queueDepths;
+
+        private final Histogram transferTimes;
+
+        private Shard(int index) {
+            this.index = index;
+            queueDepths = Metrics.getInstance().histogram(String.format(QUEUE_DEPTH_METRIC, index));
+            transferTimes = Metrics.getInstance().histogram(String.format(TRANSFER_METRIC, index));
+            thread = new Thread(this::run, "transfer-shard-" + index);
+            thread.setDaemon(true);
+        }
+
+        private void send(Transfer transfer, Runnable work) {
+            queue.add(new Message(transfer, work));
+        }
+
+        private void run() {
+            try {
+                while (true) {
+                    Message message = queue.take();
+                    queueDepths.record(queue.size());
+                    dispatch(message);
+                }
+            } catch (InterruptedException ex) {
+                // stopped by close
+            }
+        }
+
+        // failure of a message fails only its transfer, the shard keeps running
+        private void dispatch(Message message) {
+            try {
+                message.work.run();
+            } catch (Throwable ex) {
+                abort(message.transfer, ex);
+            }
+        }
+
+        // drops what the failed transfer holds on this shard and tells the other shard to do the same
+        private void abort(Transfer transfer, Throwable failure) {
+            transfer.response.completeExceptionally(failure);
+            drop(transfer);
+            if (!transfer.isLocal()) {
+                Shard other = this == transfer.coordinator ? transfer.participant : transfer.coordinator;
+                other.send(transfer, () -> other.drop(transfer));
+            }
+            finish(transfer);
+        }
+
+        // releases reservations of the transfer and forgets states of its accounts, they are read again when needed
+        private void drop(Transfer transfer) {
+            for (String accountId : new String[]{transfer.coordinatorAccountId, transfer.participantAccountId}) {
+                accounts.remove(accountId);
+                if (reservations.get(accountId) == transfer) {
+                    release(accountId);
+                }
+            }
+        }
+
+        // first phase on the coordinator shard
+        private void begin(Transfer transfer) {
+            if (isReserved(transfer.coordinatorAccountId, transfer, () -> begin(transfer))) {
+                return;
+            }
+            if (transfer.isLocal()) {
+                if (!isReserved(transfer.participantAccountId, transfer, () -> begin(transfer))) {
+                    post(transfer, load(transfer.participantAccountId));
+                }
+                return;
+            }
+            reservations.put(transfer.coordinatorAccountId, transfer);
+            transfer.participant.send(transfer, () -> transfer.participant.reserve(transfer));
+        }
+
+        // first phase on the participant shard
+        private void reserve(Transfer transfer) {
+            if (isReserved(transfer.participantAccountId, transfer, () -> reserve(transfer))) {
+                return;
+            }
+            reservations.put(transfer.participantAccountId, transfer);
+            Account reserved = load(transfer.participantAccountId);
+            transfer.coordinator.send(transfer, () -> transfer.coordinator.post(transfer, reserved));
+        }
+
+        // second phase on the coordinator shard, the other account is reserved by its shard or belongs to this one
+        private void post(Transfer transfer, Account otherAccount) {
+            Account account = load(transfer.coordinatorAccountId);
+            TransferPosting posting = null;
+            boolean retry = false;
+            RuntimeException error = null;
+            if (account == null || otherAccount == null) {
+                error = new NotFoundException(String.format("Account with id %s not found",
+                        account == null ? transfer.coordinatorAccountId : transfer.participantAccountId));
+            } else {
+                boolean fromCoordinates = transfer.coordinatorAccountId.equals(transfer.createDto.getAccountId());
+                try {
+                    TransferPosting candidate = TransferPosting.of(fromCoordinates ? account : otherAccount,
+                            fromCoordinates ? otherAccount : account, transfer.createDto.getAmount());
+                    Optional<CompletableFuture<Transaction>> durable = accountDao.postAsync(candidate.getAccounts(), candidate.getLeg());
+                    if (durable.isPresent()) {
+                        posting = candidate;
+                        transferTimes.record(TimeUnit.NANOSECONDS.toMicros(System.nanoTime() - transfer.submittedAt));
+                        durable.get().whenComplete((posted, failure) -> complete(transfer, posted, failure));
+                    } else {
+                        // changed by another writer since it was read
+                        retry = true;
+                    }
+                } catch (DaoValidationException ex) {
+                    error = new TransactionFailedException(String.format("Transaction failed cause %s", ex.getMessage()));
+                } catch (TransactionFailedException ex) {
+                    // checked against states this shard has seen, another writer might have topped the account up
+                    error = ex;
+                    retry = transfer.attempts == 0;
+                } catch (RuntimeException ex) {
+                    error = ex;
+                }
+            }
+            Account participantState = posting != null ? stored(posting, transfer.participantAccountId) : null;
+            if (posting != null) {
+                accounts.put(transfer.coordinatorAccountId, stored(posting, transfer.coordinatorAccountId));
+            } else if (retry) {
+                accounts.remove(transfer.coordinatorAccountId);
+            }
+            boolean again = retry && ++transfer.attempts < MAX_TRANSFER_ATTEMPTS;
+            if (posting == null && !again) {
+                transfer.response.completeExceptionally(error != null
+                        ? error
+                        : new TransactionFailedException("Transaction failed cause accounts were modified concurrently"));
+            }
+            boolean evict = retry;
+            if (transfer.isLocal()) {
+                settle(transfer, participantState, evict, again);
+            } else {
+                release(transfer.coordinatorAccountId);
+                transfer.participant.send(transfer, () -> transfer.participant.settle(transfer, participantState, evict, again));
+            }
+        }
+
+        // end of the second phase on the participant shard, takes the posted state of its account if there is one
+        private void settle(Transfer transfer, Account participantState, boolean evict, boolean again) {
+            if (participantState != null) {
+                accounts.put(transfer.participantAccountId, participantState);
+            } else if (evict) {
+                accounts.remove(transfer.participantAccountId);
+            }
+            if (!transfer.isLocal()) {
+                if (participantState != null) {
+                    transferTimes.record(TimeUnit.NANOSECONDS.toMicros(System.nanoTime() - transfer.submittedAt));
+                }
+                release(transfer.participantAccountId);
+            }
+            if (again) {
+                transfer.coordinator.send(transfer, () -> transfer.coordinator.begin(transfer));
+            } else {
+                finish(transfer);
+            }
+        }
+
+        // defers the work if the account is reserved by a transfer in progress
+        private boolean isReserved(String accountId, Transfer transfer, Runnable work) {
+            if (!reservations.containsKey(accountId)) {
+                return false;
+            }
+            waiting.computeIfAbsent(accountId, id -> new ArrayDeque<>()).add(new Message(transfer, work));
+            return true;
+        }
+
+        private void release(String accountId) {
+            reservations.remove(accountId);
+            Deque<Message> deferred = waiting.get(accountId);
+            while (deferred != null && !deferred.isEmpty() && !reservations.containsKey(accountId)) {
+                dispatch(deferred.poll());
+            }
+            if (deferred != null && deferred.isEmpty()) {
+                waiting.remove(accountId);
+            }
+        }
+
+        private Account load(String accountId) {
+            Account account = accounts.get(accountId);
+            if (account == null) {
+                account = accountDao.getEntityWithoutHistory(accountId).orElse(null);
+                if (account != null) {
+                    accounts.put(accountId, account);
+                }
+            }
+            return account;
+        }
+
+    }
+
+    // work of one transfer on a shard
+    private static class Message {
+
+        private final Transfer transfer;
+
+        private final Runnable work;
+
+        private Message(Transfer transfer, Runnable work) {
+            this.transfer = transfer;
+            this.work = work;
+        }
+
+    }
+
+}
@@ -0,0 +1,30 @@
+package com.revolut.core.service.impl;
+
+import java.util.Map;
+
+import com.revolut.core.exception.NotFoundException;
+import com.revolut.dao.account.AccountDao;
+import com.revolut.dao.model.Account;
+
+// reads accounts of transfers without history, a missing account fails the transfer
+final class TransferAccounts {
+
+    private TransferAccounts() {
+    }
+
+    static Account get(AccountDao accountDao, String accountId) {
+        return accountDao.getEntityWithoutHistory(accountId)
+                .orElseThrow(() -> new NotFoundException(String.format("Account with id %s not found", accountId)));
+    }
+
+    // state of the account seen last by the caller, read once and kept in the given map
+    static Account get(AccountDao accountDao, Map<String, Account> accounts, String accountId) {
+        Account account = accounts.get(accountId);
+        if (account == null) {
+            account = get(accountDao, accountId);
+            accounts.put(accountId, account);
+        }
+        return account;
+    }
+
+}
@@ -0,0 +1,93 @@
+package com.revolut.core.service.impl;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+
+import com.revolut.core.dto.BatchMode;
+import com.revolut.core.dto.TransferTransactionCreateDto;
+import com.revolut.core.exception.NotFoundException;
+import com.revolut.core.exception.TransactionFailedException;
+import com.revolut.core.exception.ValidationException;
+import com.revolut.dao.account.AccountDao;
+import com.revolut.dao.exception.DaoValidationException;
+import com.revolut.dao.model.Account;
+import com.revolut.dao.model.Transaction;
+
+// outcome of transfers applied one by one to accounts read once and posted together
+class TransferBatch {
+
+    // failure of every transfer, null if it is posted or not applied
+    private final RuntimeException[] errors;
+
+    // posted leg of every transfer, null if it failed or nothing is posted
+    private final Transaction[] posted;
+
+    private TransferBatch(RuntimeException[] errors, Transaction[] posted) {
+        this.errors = errors;
+        this.posted = posted;
+    }
+
+    // returns empty result if any of accounts was changed since it was read
+    static Optional<TransferBatch> post(AccountDao accountDao, List<TransferTransactionCreateDto> createDtos, BatchMode mode) {
+        // every account as it is after the transfers applied so far
+        Map<String, Account> accounts = new HashMap<>();
+        Map<String, Account> changedAccounts = new LinkedHashMap<>();
+        List<Transaction> legs = new ArrayList<>(createDtos.size());
+        RuntimeException[] errors = new RuntimeException[createDtos.size()];
+        Transaction[] posted = new Transaction[createDtos.size()];
+        for (int i = 0; i < createDtos.size(); i++) {
+            TransferTransactionCreateDto createDto = createDtos.get(i);
+            try {
+                TransferTransactionService.validateTransactionCreateDto(createDto);
+                TransferPosting posting = TransferPosting.of(TransferAccounts.get(accountDao, accounts, createDto.getAccountId()),
+                        TransferAccounts.get(accountDao, accounts, createDto.getDestinationAccountId()), createDto.getAmount());
+                for (Account account : posting.getAccounts()) {
+                    accounts.put(account.getUuid(), account);
+                    changedAccounts.put(account.getUuid(), account);
+                }
+                legs.add(posting.getLeg());
+            } catch (ValidationException | NotFoundException | TransactionFailedException ex) {
+                errors[i] = ex;
+                if (mode == BatchMode.ALL_OR_NOTHING) {
+                    return Optional.of(new TransferBatch(errors, posted));
+                }
+            }
+        }
+        if (legs.isEmpty()) {
+            return Optional.of(new TransferBatch(errors, posted));
+        }
+        Optional<List<Transaction>> postedLegs;
+        try {
+            postedLegs = accountDao.postAll(new ArrayList<>(changedAccounts.values()), legs);
+        } catch (DaoValidationException ex) {
+            throw new TransactionFailedException(String.format("Transaction failed cause %s", ex.getMessage()));
+        }
+        return postedLegs.map(legsInOrder -> {
+            // legs follow the order of transfers without errors
+            int leg = 0;
+            for (int i = 0; i < errors.length; i++) {
+                if (errors[i] == null) {
+                    posted[i] = legsInOrder.get(leg++);
+                }
+            }
+            return new TransferBatch(errors, posted);
+        });
+    }
+
+    int size() {
+        return errors.length;
+    }
+
+    RuntimeException getError(int index) {
+        return errors[index];
+    }
+
+    Transaction getPosted(int index) {
+        return posted[index];
+    }
+
+}
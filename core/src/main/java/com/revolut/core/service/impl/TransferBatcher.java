@@ -0,0 +1,203 @@
+package com.revolut.core.service.impl;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+
+import com.revolut.core.converter.TransactionEntityToDtoConverter;
+import com.revolut.core.dto.BatchMode;
+import com.revolut.core.dto.TransactionDto;
+import com.revolut.core.dto.TransferTransactionCreateDto;
+import com.revolut.core.exception.TransactionFailedException;
+import com.revolut.dao.account.AccountDao;
+import com.revolut.dao.metrics.Histogram;
+import com.revolut.dao.metrics.Metrics;
+
+import static java.util.Collections.singletonList;
+
+/**
+ * Collects transfers submitted concurrently into micro-batches, a single thread applies every batch in one pass so that
+ * account stripes and the journal are taken once per batch. Every caller gets the result of its own transfer.
+ * <p>
+ * Batch size follows the load: the batcher waits for as many transfers as the previous batch had, but at most
+ * {@code maxWaitMicros} after the first one, and takes everything queued up to {@code maxBatchSize}. A lone transfer
+ * is applied right away and a busy queue is drained in batches as big as the number of concurrent callers.
+ * <p>
+ * When posting a batch fails or keeps conflicting, its transfers are posted one by one, so only the transfers which
+ * fail on their own are failed.
+ */
+class TransferBatcher implements TransferExecutor {
+
+    public static final String BATCH_SIZE_METRIC = "transfer.batch.size";
+    // time between submission of a transfer and the start of its batch
+    public static final String QUEUE_LATENCY_METRIC = "transfer.batch.queueMicros";
+
+    private static final int MAX_TRANSFER_ATTEMPTS = 16;
+
+    private final AccountDao accountDao;
+
+    private final TransactionEntityToDtoConverter converter;
+
+    private final int maxBatchSize;
+
+    private final long maxWaitNanos;
+
+    private final BlockingQueue<PendingTransfer> queue = new LinkedBlockingQueue<>();
+
+    private final Thread batcher;
+
+    private final Histogram batchSizes = Metrics.getInstance().histogram(BATCH_SIZE_METRIC);
+
+    private final Histogram queueLatencies = Metrics.getInstance().histogram(QUEUE_LATENCY_METRIC);
+
+    // size the next batch waits for, touched by the batcher thread only
+    private int targetBatchSize = 1;
+
+    private volatile boolean closed;
+
+    TransferBatcher(AccountDao accountDao, TransactionEntityToDtoConverter converter, int maxBatchSize, long maxWaitMicros) {
+        if (maxBatchSize < 1 || maxWaitMicros < 0) {
+            throw new IllegalArgumentException("Batch size should be positive and wait should not be negative");
+        }
+        this.accountDao = accountDao;
+        this.converter = converter;
+        this.maxBatchSize = maxBatchSize;
+        this.maxWaitNanos = TimeUnit.MICROSECONDS.toNanos(maxWaitMicros);
+        batcher = new Thread(this::batchLoop, "transfer-batcher");
+        batcher.setDaemon(true);
+        batcher.start();
+    }
+
+    @Override
+    public CompletableFuture<TransactionDto> submit(TransferTransactionCreateDto createDto) {
+        PendingTransfer pending = new PendingTransfer(createDto);
+        synchronized (this) {
+            // nothing is enqueued after close, so the batcher never leaves a caller waiting
+            if (closed) {
+                throw new TransactionFailedException("Transaction failed cause transfers are stopped");
+            }
+            queue.add(pending);
+        }
+        return pending.response;
+    }
+
+    @Override
+    public void close() {
+        synchronized (this) {
+            closed = true;
+        }
+        batcher.interrupt();
+        try {
+            batcher.join();
+        } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private void batchLoop() {
+        List<PendingTransfer> batch = new ArrayList<>(maxBatchSize);
+        while (!closed || !queue.isEmpty()) {
+            try {
+                collect(batch);
+            } catch (InterruptedException ex) {
+                // woken up by close, remaining transfers are drained below
+                queue.drainTo(batch, maxBatchSize - batch.size());
+            }
+            if (!batch.isEmpty()) {
+                targetBatchSize = batch.size();
+                apply(batch);
+                batch.clear();
+            }
+        }
+    }
+
+    private void collect(List<PendingTransfer> batch) throws InterruptedException {
+        batch.add(queue.take());
+        queue.drainTo(batch, maxBatchSize - batch.size());
+        long deadline = System.nanoTime() + maxWaitNanos;
+        while (batch.size() < targetBatchSize) {
+            long remaining = deadline - System.nanoTime();
+            PendingTransfer next = remaining > 0 ? queue.poll(remaining, TimeUnit.NANOSECONDS) : null;
+            if (next == null) {
+                return;
+            }
+            batch.add(next);
+            queue.drainTo(batch, maxBatchSize - batch.size());
+        }
+    }
+
+    private void apply(List<PendingTransfer> batch) {
+        long now = System.nanoTime();
+        batchSizes.record(batch.size());
+        List<TransferTransactionCreateDto> createDtos = new ArrayList<>(batch.size());
+        for (PendingTransfer pending : batch) {
+            queueLatencies.record(TimeUnit.NANOSECONDS.toMicros(now - pending.submittedAt));
+            createDtos.add(pending.createDto);
+        }
+        TransferBatch posted;
+        try {
+            posted = post(createDtos);
+        } catch (RuntimeException ex) {
+            if (batch.size() == 1) {
+                batch.get(0).response.completeExceptionally(ex);
+            } else {
+                // a failing dao call or lasting conflicts may come from one transfer, the rest shouldn't fail with it
+                batch.forEach(this::applyAlone);
+            }
+            return;
+        }
+        for (int i = 0; i < batch.size(); i++) {
+            complete(batch.get(i), posted, i);
+        }
+    }
+
+    private void applyAlone(PendingTransfer pending) {
+        try {
+            complete(pending, post(singletonList(pending.createDto)), 0);
+        } catch (RuntimeException ex) {
+            pending.response.completeExceptionally(ex);
+        }
+    }
+
+    private void complete(PendingTransfer pending, TransferBatch posted, int index) {
+        if (posted.getError(index) != null) {
+            pending.response.completeExceptionally(posted.getError(index));
+            return;
+        }
+        try {
+            pending.response.complete(converter.convert(posted.getPosted(index)));
+        } catch (RuntimeException ex) {
+            pending.response.completeExceptionally(ex);
+        }
+    }
+
+    // transfers of callers don't depend on each other, so a failed one doesn't hold the rest back
+    private TransferBatch post(List<TransferTransactionCreateDto> createDtos) {
+        for (int attempt = 0; attempt < MAX_TRANSFER_ATTEMPTS; attempt++) {
+            Optional<TransferBatch> posted = TransferBatch.post(accountDao, createDtos, BatchMode.BEST_EFFORT);
+            if (posted.isPresent()) {
+                return posted.get();
+            }
+        }
+        throw new TransactionFailedException("Transaction failed cause accounts were modified concurrently");
+    }
+
+    private static class PendingTransfer {
+
+        private final TransferTransactionCreateDto createDto;
+
+        private final long submittedAt = System.nanoTime();
+
+        private final CompletableFuture<TransactionDto> response = new CompletableFuture<>();
+
+        private PendingTransfer(TransferTransactionCreateDto createDto) {
+            this.createDto = createDto;
+        }
+
+    }
+
+}
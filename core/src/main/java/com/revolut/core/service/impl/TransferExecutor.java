@@ -0,0 +1,19 @@
+package com.revolut.core.service.impl;
+
+import java.io.Closeable;
+import java.util.concurrent.CompletableFuture;
+
+import com.revolut.core.dto.TransactionDto;
+import com.revolut.core.dto.TransferTransactionCreateDto;
+
+// runs transfers on its own threads, callers wait for the returned result
+interface TransferExecutor extends Closeable {
+
+    // completes once the transfer is applied and durable
+    CompletableFuture<TransactionDto> submit(TransferTransactionCreateDto createDto);
+
+    // should be called once callers stop submitting, waits for everything submitted before
+    @Override
+    void close();
+
+}
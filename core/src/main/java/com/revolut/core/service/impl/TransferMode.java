@@ -0,0 +1,16 @@
+package com.revolut.core.service.impl;
+
+public enum TransferMode {
+
+    // accounts are read without locks and updated by version compare-and-set, retried on conflict
+    OPTIMISTIC,
+    // transfer takes lock stripes of the two involved accounts only
+    STRIPED_LOCK,
+    // transfers are queued to a single writer thread through a ring buffer, callers wait for their turn
+    SEQUENCED,
+    // accounts are split between single threaded shards, transfer between two shards is reserved and committed by both
+    SHARDED,
+    // concurrent transfers are collected into micro-batches applied by a single thread, each caller gets its own result
+    MICRO_BATCHED
+
+}
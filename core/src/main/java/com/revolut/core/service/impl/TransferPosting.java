@@ -0,0 +1,72 @@
+package com.revolut.core.service.impl;
+
+import java.math.BigDecimal;
+import java.util.Arrays;
+import java.util.List;
+
+import com.revolut.core.exception.TransactionFailedException;
+import com.revolut.core.exception.ValidationException;
+import com.revolut.dao.model.Account;
+import com.revolut.dao.model.Currency;
+import com.revolut.dao.model.Transaction;
+import lombok.Getter;
+
+import static com.revolut.dao.model.TransactionType.TRANSFER_BETWEEN_ACCOUNTS;
+
+// accounts as they are after a transfer together with its double-entry leg, ready to be posted
+@Getter
+class TransferPosting {
+
+    private final List<Account> accounts;
+
+    private final Transaction leg;
+
+    private TransferPosting(List<Account> accounts, Transaction leg) {
+        this.accounts = accounts;
+        this.leg = leg;
+    }
+
+    // throws if the transfer is not possible with the given state of accounts
+    static TransferPosting of(Account from, Account to, BigDecimal amount) {
+        long minorUnits = toMinorUnits(from.getCurrency(), amount);
+        verifyTransaction(from, to, minorUnits);
+        // one double-entry posting, the leg of the destination account is derived from it
+        Transaction leg = Transaction.builder()
+                .ownerAccountId(from.getId())
+                .otherAccountId(to.getId())
+                .amount(-minorUnits)
+                .type(TRANSFER_BETWEEN_ACCOUNTS)
+                .currency(from.getCurrency())
+                .build();
+        try {
+            return new TransferPosting(Arrays.asList(
+                    from.toBuilder()
+                            .total(Math.subtractExact(from.getTotal(), minorUnits))
+                            .build(),
+                    to.toBuilder()
+                            .total(Math.addExact(to.getTotal(), minorUnits))
+                            .build()),
+                    leg);
+        } catch (ArithmeticException ex) {
+            throw new TransactionFailedException(String.format("Transaction failed cause total of account %s overflows", to.getUuid()));
+        }
+    }
+
+    private static long toMinorUnits(Currency currency, BigDecimal amount) {
+        try {
+            return currency.toMinorUnits(amount);
+        } catch (ArithmeticException ex) {
+            throw new ValidationException(String.format("Transaction amount should have at most %d fraction digits",
+                    currency.getScale()));
+        }
+    }
+
+    private static void verifyTransaction(Account from, Account to, long amount) {
+        if (!from.getCurrency().equals(to.getCurrency())) {
+            throw new TransactionFailedException("Transaction failed cause accounts have different currencies");
+        } else if (from.getTotal() < amount) {
+            throw new TransactionFailedException(String.format("Transaction failed cause not enough money on account %s", from.getUuid()));
+        }
+    }
+
+}
@@ -0,0 +1,272 @@
+package com.revolut.core.service.impl;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.LockSupport;
+
+import com.revolut.core.converter.TransactionEntityToDtoConverter;
+import com.revolut.core.dto.TransactionDto;
+import com.revolut.core.dto.TransferTransactionCreateDto;
+import com.revolut.core.exception.TransactionFailedException;
+import com.revolut.dao.account.AccountDao;
+import com.revolut.dao.exception.DaoValidationException;
+import com.revolut.dao.model.Account;
+import com.revolut.dao.model.Transaction;
+
+/**
+ * Single writer of transfers. Callers publish commands into a pre-allocated ring and wait for their response,
+ * the pipeline behind the ring has three stages:
+ * <ol>
+ * <li>sequencer thread validates and applies commands one by one against its own accounts, kept in a plain map,
+ * and posts them without waiting for durability</li>
+ * <li>journal, postings are made durable in order by the group commit flusher when journal is enabled</li>
+ * <li>responder thread waits for durability in sequence order, completes callers and releases slots</li>
+ * </ol>
+ * Accounts changed by other writers are noticed by the version check of the posting and read again.
+ */
+class TransferSequencer implements TransferExecutor {
+
+    private static final int MAX_TRANSFER_ATTEMPTS = 16;
+
+    // busy waits before a stage parks
+    private static final int SPIN_TRIES = 100;
+
+    private static final long PARK_NANOS = TimeUnit.MILLISECONDS.toNanos(1);
+
+    // set in the claimed counter by close, a sequence can't be claimed after it
+    private static final long CLOSED = Long.MIN_VALUE;
+
+    private final AccountDao accountDao;
+
+    private final TransactionEntityToDtoConverter converter;
+
+    private final Slot[] ring;
+
+    private final int mask;
+
+    // next sequence to be claimed by a caller, together with the closed bit
+    private final AtomicLong claimed = new AtomicLong();
+
+    // sequences below are applied by the sequencer
+    private volatile long sequenced;
+
+    // sequences below are completed and their slots can be reused
+    private volatile long released;
+
+    // state of the sequencer thread only, the latest version of every account it has seen
+    private final Map<String, Account> accounts = new HashMap<>();
+
+    private final Thread sequencer;
+
+    private final Thread responder;
+
+    // set by a stage before it parks, so that the stage before it knows it has to be woken up
+    private volatile boolean sequencerParked;
+
+    private volatile boolean responderParked;
+
+    TransferSequencer(AccountDao accountDao, TransactionEntityToDtoConverter converter, int ringSize) {
+        if (Integer.bitCount(ringSize) != 1) {
+            throw new IllegalArgumentException("Ring size should be a power of two");
+        }
+        this.accountDao = accountDao;
+        this.converter = converter;
+        ring = new Slot[ringSize];
+        for (int i = 0; i < ringSize; i++) {
+            ring[i] = new Slot();
+        }
+        mask = ringSize - 1;
+        sequencer = new Thread(this::sequence, "transfer-sequencer");
+        responder = new Thread(this::respond, "transfer-responder");
+        sequencer.setDaemon(true);
+        responder.setDaemon(true);
+        sequencer.start();
+        responder.start();
+    }
+
+    @Override
+    public CompletableFuture<TransactionDto> submit(TransferTransactionCreateDto createDto) {
+        CompletableFuture<TransactionDto> response = new CompletableFuture<>();
+        long sequence = claim();
+        // ring is full until the responder releases the slot taken one lap ago
+        while (sequence - released >= ring.length) {
+            LockSupport.parkNanos(PARK_NANOS);
+        }
+        Slot slot = ring[(int) sequence & mask];
+        slot.createDto = createDto;
+        slot.response = response;
+        slot.published = sequence;
+        if (sequencerParked) {
+            LockSupport.unpark(sequencer);
+        }
+        return response;
+    }
+
+    @Override
+    public void close() {
+        long current;
+        do {
+            current = claimed.get();
+        } while (!claimed.compareAndSet(current, current | CLOSED));
+        LockSupport.unpark(sequencer);
+        LockSupport.unpark(responder);
+        try {
+            sequencer.join();
+            responder.join();
+        } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    // the closed check and the claim are one step, so stages that have seen every claim before close can stop
+    private long claim() {
+        while (true) {
+            long current = claimed.get();
+            if ((current & CLOSED) != 0) {
+                throw new TransactionFailedException("Transaction failed cause transfers are stopped");
+            }
+            if (claimed.compareAndSet(current, current + 1)) {
+                return current;
+            }
+        }
+    }
+
+    // true once closed and every claimed sequence before the given one is handled
+    private boolean isDrained(long next) {
+        return claimed.get() == (next | CLOSED);
+    }
+
+    private void sequence() {
+        for (long next = 0; ; next++) {
+            Slot slot = ring[(int) next & mask];
+            for (int tries = 0; slot.published != next; tries++) {
+                if (isDrained(next)) {
+                    return;
+                }
+                if (tries < SPIN_TRIES) {
+                    Thread.yield();
+                    continue;
+                }
+                sequencerParked = true;
+                // checked again once the flag is visible to callers
+                if (slot.published != next) {
+                    LockSupport.parkNanos(PARK_NANOS);
+                }
+                sequencerParked = false;
+            }
+            try {
+                slot.durable = apply(slot.createDto);
+            } catch (Throwable ex) {
+                // fails only this transfer, the sequencer keeps running for the rest of the ring
+                slot.error = ex;
+            }
+            sequenced = next + 1;
+            if (responderParked) {
+                LockSupport.unpark(responder);
+            }
+        }
+    }
+
+    private void respond() {
+        for (long next = 0; ; next++) {
+            for (int tries = 0; sequenced <= next; tries++) {
+                if (isDrained(next)) {
+                    return;
+                }
+                if (tries < SPIN_TRIES) {
+                    Thread.yield();
+                    continue;
+                }
+                responderParked = true;
+                if (sequenced <= next) {
+                    LockSupport.parkNanos(PARK_NANOS);
+                }
+                responderParked = false;
+            }
+            Slot slot = ring[(int) next & mask];
+            complete(slot);
+            slot.clear();
+            released = next + 1;
+        }
+    }
+
+    private CompletableFuture<Transaction> apply(TransferTransactionCreateDto createDto) {
+        for (int attempt = 0; attempt < MAX_TRANSFER_ATTEMPTS; attempt++) {
+            boolean cached = accounts.containsKey(createDto.getAccountId())
+                    || accounts.containsKey(createDto.getDestinationAccountId());
+            Account from = TransferAccounts.get(accountDao, accounts, createDto.getAccountId());
+            Account to = TransferAccounts.get(accountDao, accounts, createDto.getDestinationAccountId());
+            TransferPosting posting;
+            try {
+                posting = TransferPosting.of(from, to, createDto.getAmount());
+            } catch (TransactionFailedException ex) {
+                if (!cached) {
+                    throw ex;
+                }
+                // verified against what this thread has written, another writer might have topped the account up
+                accounts.remove(from.getUuid());
+                accounts.remove(to.getUuid());
+                continue;
+            }
+            Optional<CompletableFuture<Transaction>> durable;
+            try {
+                durable = accountDao.postAsync(posting.getAccounts(), posting.getLeg());
+            } catch (DaoValidationException ex) {
+                throw new TransactionFailedException(String.format("Transaction failed cause %s", ex.getMessage()));
+            }
+            if (durable.isPresent()) {
+                for (Account account : posting.getAccounts()) {
+                    accounts.put(account.getUuid(), account.toBuilder().version(account.getVersion() + 1).build());
+                }
+                return durable.get();
+            }
+            // changed by another writer since it was read
+            accounts.remove(from.getUuid());
+            accounts.remove(to.getUuid());
+        }
+        throw new TransactionFailedException("Transaction failed cause accounts were modified concurrently");
+    }
+
+    private void complete(Slot slot) {
+        if (slot.error != null) {
+            slot.response.completeExceptionally(slot.error);
+            return;
+        }
+        try {
+            // postings are journaled in sequence order, a later one is never durable before this one
+            slot.response.complete(converter.convert(slot.durable.join()));
+        } catch (CompletionException ex) {
+            slot.response.completeExceptionally(ex.getCause());
+        } catch (Throwable ex) {
+            slot.response.completeExceptionally(ex);
+        }
+    }
+
+    // written by the caller before it is published, by the sequencer before the sequence moves and cleared by the responder
+    private static class Slot {
+
+        private volatile long published = -1;
+
+        private TransferTransactionCreateDto createDto;
+
+        private CompletableFuture<TransactionDto> response;
+
+        private CompletableFuture<Transaction> durable;
+
+        private Throwable error;
+
+        private void clear() {
+            createDto = null;
+            response = null;
+            durable = null;
+            error = null;
+        }
+
+    }
+
+}
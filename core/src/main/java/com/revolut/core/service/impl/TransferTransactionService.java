@@ -1,112 +1,256 @@
 package com.revolut.core.service.impl;
 
-import java.math.BigDecimal;
+import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.locks.Lock;
 
 import com.revolut.core.converter.TransactionEntityToDtoConverter;
+import com.revolut.core.dto.BatchMode;
+import com.revolut.core.dto.TransactionBatchDto;
 import com.revolut.core.dto.TransactionDto;
+import com.revolut.core.dto.TransactionResultDto;
 import com.revolut.core.dto.TransferTransactionCreateDto;
-import com.revolut.core.exception.NotFoundException;
 import com.revolut.core.exception.TransactionFailedException;
 import com.revolut.core.exception.ValidationException;
 import com.revolut.core.service.TransactionService;
+import com.revolut.dao.DaoFactory;
 import com.revolut.dao.account.AccountDao;
-import com.revolut.dao.account.InMemoryAccountDao;
 import com.revolut.dao.exception.DaoValidationException;
+import com.revolut.dao.lock.StripedLock;
 import com.revolut.dao.model.Account;
-import com.revolut.dao.model.Transaction;
-import com.revolut.dao.transation.InMemoryTransactionDao;
-import com.revolut.dao.transation.TransactionDao;
 
-import static com.revolut.dao.model.TransactionType.TRANSFER_BETWEEN_ACCOUNTS;
+import static com.revolut.core.dto.TransactionResultDto.Status.APPLIED;
+import static com.revolut.core.dto.TransactionResultDto.Status.FAILED;
+import static com.revolut.core.dto.TransactionResultDto.Status.NOT_APPLIED;
 
 public class TransferTransactionService implements TransactionService<TransferTransactionCreateDto, TransactionDto> {
 
-    private static TransactionService instance;
+    private static final int MAX_TRANSFER_ATTEMPTS = 16;
 
-    private AccountDao accountDao;
+    // every transfer of a batch is journaled together with the others as one unit
+    private static final int MAX_BATCH_SIZE = 10000;
+
+    private static final int SEQUENCER_RING_SIZE = 1024;
+
+    private static final int DEFAULT_TRANSFER_SHARDS = Runtime.getRuntime().availableProcessors();
+
+    private static final int DEFAULT_TRANSFER_BATCH_SIZE = 256;
 
-    private TransactionDao transactionDao;
+    private static final long DEFAULT_TRANSFER_BATCH_WAIT_MICROS = 100;
+
+    private static TransferTransactionService instance;
+
+    private AccountDao accountDao;
 
     private TransactionEntityToDtoConverter converter;
 
+    private StripedLock accountLocks;
+
+    private volatile TransferMode transferMode = TransferMode.OPTIMISTIC;
+
+    private int transferShards = DEFAULT_TRANSFER_SHARDS;
+
+    private int transferBatchSize = DEFAULT_TRANSFER_BATCH_SIZE;
+
+    private long transferBatchWaitMicros = DEFAULT_TRANSFER_BATCH_WAIT_MICROS;
+
+    // runs transfers of the sequenced, sharded and micro-batched modes
+    private volatile TransferExecutor executor;
+
     private TransferTransactionService() {
-        transactionDao = InMemoryTransactionDao.getInstance();
-        accountDao = InMemoryAccountDao.getInstance();
+        accountDao = DaoFactory.getAccountDao();
         converter = new TransactionEntityToDtoConverter();
+        accountLocks = new StripedLock();
     }
 
-    public synchronized static TransactionService getInstance() {
+    public synchronized static TransferTransactionService getInstance() {
         if (instance == null) {
             instance = new TransferTransactionService();
         }
         return instance;
     }
 
+    // threads of the sequenced, sharded and micro-batched modes are started when the mode is set and stopped once another one is set
+    public synchronized void setTransferMode(TransferMode transferMode) {
+        if (executor != null) {
+            executor.close();
+            executor = null;
+        }
+        if (transferMode == TransferMode.SEQUENCED) {
+            executor = new TransferSequencer(accountDao, converter, SEQUENCER_RING_SIZE);
+        } else if (transferMode == TransferMode.SHARDED) {
+            executor = new ShardedTransferExecutor(accountDao, converter, transferShards);
+        } else if (transferMode == TransferMode.MICRO_BATCHED) {
+            executor = new TransferBatcher(accountDao, converter, transferBatchSize, transferBatchWaitMicros);
+        }
+        this.transferMode = transferMode;
+    }
+
+    // should be set before the sharded mode, number of available processors by default
+    public synchronized void setTransferShards(int transferShards) {
+        this.transferShards = transferShards;
+    }
+
+    // limits of the micro-batched mode, should be set before it
+    public synchronized void setTransferBatchSize(int transferBatchSize) {
+        this.transferBatchSize = transferBatchSize;
+    }
+
+    public synchronized void setTransferBatchWaitMicros(long transferBatchWaitMicros) {
+        this.transferBatchWaitMicros = transferBatchWaitMicros;
+    }
+
     @Override
     public TransactionDto createTransaction(TransferTransactionCreateDto createDto) {
-        validateTransactionCreateDto(createDto);
-        Account from = getAccount(createDto.getAccountId());
-        Account to = getAccount(createDto.getDestinationAccountId());
-        verifyTransaction(from, to, createDto);
-        Transaction toTransaction = Transaction.builder()
-                .ownerAccountId(from.getId())
-                .otherAccountId(to.getId())
-                .amount(createDto.getAmount())
-                .type(TRANSFER_BETWEEN_ACCOUNTS)
-                .currency(from.getCurrency())
-                .build();
-        Transaction fromTransaction = Transaction.builder()
-                .ownerAccountId(to.getId())
-                .otherAccountId(from.getId())
-                .amount(createDto.getAmount().multiply(BigDecimal.valueOf(-1)))
-                .type(TRANSFER_BETWEEN_ACCOUNTS)
-                .currency(from.getCurrency())
-                .build();
-        from.setTotal(from.getTotal().add(fromTransaction.getAmount()));
-        to.setTotal(to.getTotal().add(toTransaction.getAmount()));
         try {
-            toTransaction = transactionDao.save(toTransaction);
-            fromTransaction = transactionDao.save(fromTransaction);
-        } catch (DaoValidationException ex) {
-            rollBackTransactions(Arrays.asList(toTransaction, fromTransaction));
+            return createTransactionAsync(createDto).join();
+        } catch (CompletionException ex) {
+            if (ex.getCause() instanceof RuntimeException) {
+                throw (RuntimeException) ex.getCause();
+            }
+            throw ex;
         }
-        if (!accountDao.updateAccounts(Arrays.asList(from, to))) {
-            // TODO transaction should not be removed but reverted by creating new one
-            rollBackTransactions(Arrays.asList(toTransaction, fromTransaction));
+    }
 
+    // returns once the transfer is applied in memory or handed to transfer threads, nothing blocks on the journal
+    @Override
+    public CompletableFuture<TransactionDto> createTransactionAsync(TransferTransactionCreateDto createDto) {
+        try {
+            return submitTransfer(createDto);
+        } catch (RuntimeException ex) {
+            CompletableFuture<TransactionDto> failed = new CompletableFuture<>();
+            failed.completeExceptionally(ex);
+            return failed;
         }
-        return converter.convert(fromTransaction);
     }
 
-    private Account getAccount(String accountId) {
-        return accountDao.getEntity(accountId)
-                .orElseThrow(() -> new NotFoundException(String.format("Account with id %s not found", accountId)));
+    /**
+     * Transfers of a batch are applied one by one to accounts read once, then all of them and the accounts they changed
+     * are stored at once. Stripes of every involved account are taken once in the striped lock mode, otherwise the whole
+     * batch is retried if any of its accounts was changed concurrently. Transfers of the sequenced, sharded and
+     * micro-batched modes notice accounts changed by a batch through their versions.
+     */
+    @Override
+    public TransactionBatchDto createTransactions(List<TransferTransactionCreateDto> createDtos, BatchMode mode) {
+        validateBatch(createDtos, mode);
+        if (transferMode == TransferMode.STRIPED_LOCK) {
+            List<String> accountIds = new ArrayList<>(createDtos.size() * 2);
+            for (TransferTransactionCreateDto createDto : createDtos) {
+                accountIds.add(createDto.getAccountId());
+                accountIds.add(createDto.getDestinationAccountId());
+            }
+            Lock[] locks = accountLocks.lockAll(accountIds);
+            try {
+                return TransferBatch.post(accountDao, createDtos, mode)
+                        .map(this::toBatchDto)
+                        .orElseThrow(() -> new TransactionFailedException("Transaction failed cause accounts were modified concurrently"));
+            } finally {
+                StripedLock.unlockAll(locks);
+            }
+        }
+        for (int attempt = 0; attempt < MAX_TRANSFER_ATTEMPTS; attempt++) {
+            Optional<TransferBatch> batch = TransferBatch.post(accountDao, createDtos, mode);
+            if (batch.isPresent()) {
+                return toBatchDto(batch.get());
+            }
+        }
+        throw new TransactionFailedException("Transaction failed cause accounts were modified concurrently");
     }
 
-    private void validateTransactionCreateDto(TransferTransactionCreateDto createDto) {
-        if (createDto.getDestinationAccountId() == null || createDto.getAmount() == null) {
-            throw new ValidationException("Transaction should contain not null and valid destination account id and amount");
-        } else if (createDto.getDestinationAccountId().equals(createDto.getAccountId())) {
-            throw new ValidationException("Operation with same account id is not supported");
-        } else if (createDto.getAmount().compareTo(BigDecimal.ZERO) <= 0) {
-            throw new ValidationException("Transaction amount should have positive value");
+    private TransactionBatchDto toBatchDto(TransferBatch batch) {
+        List<TransactionResultDto> results = new ArrayList<>(batch.size());
+        int applied = 0;
+        int failed = 0;
+        for (int i = 0; i < batch.size(); i++) {
+            if (batch.getError(i) != null) {
+                failed++;
+                results.add(TransactionResultDto.builder()
+                        .status(FAILED)
+                        .error(batch.getError(i).getMessage())
+                        .build());
+            } else if (batch.getPosted(i) == null) {
+                // nothing is posted if any transfer has failed in all or nothing mode
+                results.add(TransactionResultDto.builder()
+                        .status(NOT_APPLIED)
+                        .build());
+            } else {
+                applied++;
+                results.add(TransactionResultDto.builder()
+                        .status(APPLIED)
+                        .transaction(converter.convert(batch.getPosted(i)))
+                        .build());
+            }
+        }
+        return TransactionBatchDto.builder()
+                .applied(applied)
+                .failed(failed)
+                .results(results)
+                .build();
+    }
+
+    private CompletableFuture<TransactionDto> submitTransfer(TransferTransactionCreateDto createDto) {
+        validateTransactionCreateDto(createDto);
+        TransferExecutor currentExecutor = executor;
+        if (currentExecutor != null) {
+            return currentExecutor.submit(createDto);
+        }
+        if (transferMode == TransferMode.STRIPED_LOCK) {
+            Lock[] locks = accountLocks.lockAll(Arrays.asList(createDto.getAccountId(), createDto.getDestinationAccountId()));
+            try {
+                // nobody else can change both accounts while stripes are held
+                return tryTransfer(createDto)
+                        .orElseThrow(() -> new TransactionFailedException("Transaction failed cause accounts were modified concurrently"));
+            } finally {
+                StripedLock.unlockAll(locks);
+            }
+        }
+        for (int attempt = 0; attempt < MAX_TRANSFER_ATTEMPTS; attempt++) {
+            Optional<CompletableFuture<TransactionDto>> result = tryTransfer(createDto);
+            if (result.isPresent()) {
+                return result.get();
+            }
         }
+        throw new TransactionFailedException("Transaction failed cause accounts were modified concurrently");
     }
 
-    private void verifyTransaction(Account from, Account to, TransferTransactionCreateDto createDto) {
-        if (!from.getCurrency().equals(to.getCurrency())) {
-            throw new TransactionFailedException("Transaction failed cause accounts have different currencies");
-        } else if (from.getTotal().compareTo(createDto.getAmount()) < 0) {
-            throw new TransactionFailedException(String.format("Transaction failed cause not enough money on account %s", from.getUuid()));
+    // returns empty result if any of accounts was changed since it was read
+    private Optional<CompletableFuture<TransactionDto>> tryTransfer(TransferTransactionCreateDto createDto) {
+        Account from = TransferAccounts.get(accountDao, createDto.getAccountId());
+        Account to = TransferAccounts.get(accountDao, createDto.getDestinationAccountId());
+        TransferPosting posting = TransferPosting.of(from, to, createDto.getAmount());
+        try {
+            // accounts and the posting are stored together, a lost race leaves nothing to roll back
+            return accountDao.postAsync(posting.getAccounts(), posting.getLeg())
+                    .map(durable -> durable.thenApply(converter::convert));
+        } catch (DaoValidationException ex) {
+            throw new TransactionFailedException(String.format("Transaction failed cause %s", ex.getMessage()));
         }
+    }
 
+    private void validateBatch(List<TransferTransactionCreateDto> createDtos, BatchMode mode) {
+        if (createDtos == null || createDtos.isEmpty() || mode == null) {
+            throw new ValidationException("Batch should contain mode and at least one transaction");
+        } else if (createDtos.size() > MAX_BATCH_SIZE) {
+            throw new ValidationException(String.format("Batch should contain at most %d transactions", MAX_BATCH_SIZE));
+        } else if (createDtos.contains(null)) {
+            throw new ValidationException("Batch should not contain null transactions");
+        }
     }
 
-    private void rollBackTransactions(List<Transaction> transactions) {
-        transactions.stream().map(Transaction::getUuid).forEach(transactionDao::delete);
-        throw new TransactionFailedException("Transaction failed and rolled back");
+    static void validateTransactionCreateDto(TransferTransactionCreateDto createDto) {
+        if (createDto.getAccountId() == null) {
+            throw new ValidationException("Transaction should contain not null account id");
+        } else if (createDto.getDestinationAccountId() == null || createDto.getAmount() == null) {
+            throw new ValidationException("Transaction should contain not null and valid destination account id and amount");
+        } else if (createDto.getDestinationAccountId().equals(createDto.getAccountId())) {
+            throw new ValidationException("Operation with same account id is not supported");
+        } else if (createDto.getAmount().signum() <= 0) {
+            throw new ValidationException("Transaction amount should have positive value");
+        }
     }
 
 }
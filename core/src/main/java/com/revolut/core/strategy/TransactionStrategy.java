@@ -1,9 +1,16 @@
 package com.revolut.core.strategy;
 
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+
+import com.revolut.core.dto.TransactionBatchCreateDto;
+import com.revolut.core.dto.TransactionBatchDto;
 import com.revolut.core.dto.TransactionCreateDto;
 import com.revolut.core.dto.TransactionDto;
 import com.revolut.core.dto.TransferTransactionCreateDto;
 import com.revolut.core.exception.TransactionFailedException;
+import com.revolut.core.exception.ValidationException;
 import com.revolut.core.service.impl.TransferTransactionService;
 
 public class TransactionStrategy {
@@ -22,10 +29,35 @@ public class TransactionStrategy {
 
     public TransactionDto createTransaction(TransactionCreateDto createDto) {
         if (createDto instanceof TransferTransactionCreateDto) {
-            return TransferTransactionService.getInstance().createTransaction(createDto);
+            return TransferTransactionService.getInstance().createTransaction((TransferTransactionCreateDto) createDto);
         } else {
             throw new TransactionFailedException("Transaction is not supported now");
         }
     }
 
+    public CompletableFuture<TransactionDto> createTransactionAsync(TransactionCreateDto createDto) {
+        if (createDto instanceof TransferTransactionCreateDto) {
+            return TransferTransactionService.getInstance().createTransactionAsync((TransferTransactionCreateDto) createDto);
+        } else {
+            CompletableFuture<TransactionDto> failed = new CompletableFuture<>();
+            failed.completeExceptionally(new TransactionFailedException("Transaction is not supported now"));
+            return failed;
+        }
+    }
+
+    // only batches of transfers are supported now
+    public TransactionBatchDto createTransactions(TransactionBatchCreateDto batchCreateDto) {
+        if (batchCreateDto.getTransactions() == null) {
+            throw new ValidationException("Batch should contain mode and at least one transaction");
+        }
+        List<TransferTransactionCreateDto> transfers = new ArrayList<>(batchCreateDto.getTransactions().size());
+        for (TransactionCreateDto createDto : batchCreateDto.getTransactions()) {
+            if (createDto != null && !(createDto instanceof TransferTransactionCreateDto)) {
+                throw new TransactionFailedException("Transaction is not supported now");
+            }
+            transfers.add((TransferTransactionCreateDto) createDto);
+        }
+        return TransferTransactionService.getInstance().createTransactions(transfers, batchCreateDto.getMode());
+    }
+
 }
@@ -0,0 +1,192 @@
+package com.revolut.core;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import com.revolut.core.dto.TransactionDto;
+import com.revolut.core.dto.TransactionStatusDto;
+import com.revolut.core.dto.TransferTransactionCreateDto;
+import com.revolut.core.exception.NotFoundException;
+import com.revolut.core.exception.OverloadedException;
+import com.revolut.core.exception.TransactionFailedException;
+import com.revolut.core.exception.ValidationException;
+import com.revolut.core.service.impl.AsyncTransactionService;
+import com.revolut.core.strategy.TransactionStrategy;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.powermock.reflect.Whitebox;
+
+import static com.revolut.core.dto.TransactionStatusDto.Status.APPLIED;
+import static com.revolut.core.dto.TransactionStatusDto.Status.FAILED;
+import static com.revolut.core.dto.TransactionStatusDto.Status.QUEUED;
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.catchThrowable;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+public class AsyncTransactionServiceTest {
+
+    private static final String UUID_1 = "account-1";
+    private static final String UUID_2 = "account-2";
+    private static final String TRANSACTION_UUID = "transaction-1";
+
+    private TransactionStrategy transactionStrategy;
+
+    // every test gets a service of its own, a closed one can't be used again
+    private AsyncTransactionService asyncTransactionService;
+
+    @Before
+    public void setUp() throws Exception {
+        transactionStrategy = mock(TransactionStrategy.class);
+        asyncTransactionService = Whitebox.invokeConstructor(AsyncTransactionService.class);
+        Whitebox.setInternalState(asyncTransactionService, "transactionStrategy", transactionStrategy);
+    }
+
+    @After
+    public void tearDown() {
+        asyncTransactionService.close();
+    }
+
+    @Test
+    public void shouldReportOutcomeOfSubmittedTransactions() throws Exception {
+        // given
+        TransferTransactionCreateDto failing = transfer(UUID_2, UUID_1, "1");
+        when(transactionStrategy.createTransaction(any())).thenReturn(TransactionDto.builder()
+                .id(TRANSACTION_UUID)
+                .build());
+        when(transactionStrategy.createTransaction(failing))
+                .thenThrow(new TransactionFailedException("Transaction failed cause not enough money on account account-2"));
+
+        // when
+        TransactionStatusDto applied = asyncTransactionService.submit(transfer(UUID_1, UUID_2, "1"));
+        TransactionStatusDto failed = asyncTransactionService.submit(failing);
+
+        // then
+        assertThat(applied.getStatus()).isEqualTo(QUEUED);
+        assertThat(failed.getStatus()).isEqualTo(QUEUED);
+        TransactionStatusDto appliedStatus = awaitFinished(applied.getId());
+        assertThat(appliedStatus.getStatus()).isEqualTo(APPLIED);
+        assertThat(appliedStatus.getTransaction().getId()).isEqualTo(TRANSACTION_UUID);
+        TransactionStatusDto failedStatus = awaitFinished(failed.getId());
+        assertThat(failedStatus.getStatus()).isEqualTo(FAILED);
+        assertThat(failedStatus.getError()).isEqualTo("Transaction failed cause not enough money on account account-2");
+    }
+
+    @Test(expected = ValidationException.class)
+    public void shouldRejectInvalidTransferBeforeQueueingIt() {
+        try {
+            // when
+            asyncTransactionService.submit(transfer(UUID_1, UUID_1, "1"));
+        } finally {
+            // then
+            verify(transactionStrategy, never()).createTransaction(any());
+        }
+    }
+
+    @Test
+    public void shouldRejectTransactionWhenQueueIsFull() throws Exception {
+        // given
+        CountDownLatch released = new CountDownLatch(1);
+        when(transactionStrategy.createTransaction(any())).thenAnswer(invocation -> {
+            released.await();
+            return TransactionDto.builder().build();
+        });
+        asyncTransactionService.setWorkers(1);
+        asyncTransactionService.setQueueSize(1);
+        TransactionStatusDto running = asyncTransactionService.submit(transfer(UUID_1, UUID_2, "1"));
+        TransactionStatusDto queued = asyncTransactionService.submit(transfer(UUID_1, UUID_2, "1"));
+
+        // when
+        Throwable rejected = catchThrowable(() -> asyncTransactionService.submit(transfer(UUID_1, UUID_2, "1")));
+        released.countDown();
+
+        // then
+        assertThat(rejected).isInstanceOf(OverloadedException.class);
+        assertThat(awaitFinished(running.getId()).getStatus()).isEqualTo(APPLIED);
+        assertThat(awaitFinished(queued.getId()).getStatus()).isEqualTo(APPLIED);
+    }
+
+    @Test
+    public void shouldForgetOldestStatusesWhenMoreAreFinished() throws Exception {
+        // given
+        when(transactionStrategy.createTransaction(any())).thenReturn(TransactionDto.builder().build());
+        asyncTransactionService.setWorkers(1);
+        asyncTransactionService.setRetainedStatuses(3);
+        List<String> ids = new ArrayList<>();
+
+        // when
+        for (int i = 0; i < 5; i++) {
+            ids.add(asyncTransactionService.submit(transfer(UUID_1, UUID_2, "1")).getId());
+            awaitFinished(ids.get(i));
+        }
+
+        // then
+        assertThat(catchThrowable(() -> asyncTransactionService.getStatus(ids.get(0)))).isInstanceOf(NotFoundException.class);
+        assertThat(catchThrowable(() -> asyncTransactionService.getStatus(ids.get(1)))).isInstanceOf(NotFoundException.class);
+        for (String id : ids.subList(2, 5)) {
+            assertThat(asyncTransactionService.getStatus(id).getStatus()).isEqualTo(APPLIED);
+        }
+    }
+
+    @Test(expected = NotFoundException.class)
+    public void shouldFailToGetUnknownStatus() {
+        // when
+        asyncTransactionService.getStatus("missing");
+    }
+
+    @Test
+    public void shouldRunQueuedTransactionsOnCloseAndRejectLaterOnes() {
+        // given
+        when(transactionStrategy.createTransaction(any())).thenReturn(TransactionDto.builder().build());
+        asyncTransactionService.setWorkers(1);
+        List<String> ids = new ArrayList<>();
+        for (int i = 0; i < 10; i++) {
+            ids.add(asyncTransactionService.submit(transfer(UUID_1, UUID_2, "1")).getId());
+        }
+
+        // when
+        asyncTransactionService.close();
+        Throwable rejected = catchThrowable(() -> asyncTransactionService.submit(transfer(UUID_1, UUID_2, "1")));
+
+        // then
+        for (String id : ids) {
+            assertThat(asyncTransactionService.getStatus(id).getStatus()).isEqualTo(APPLIED);
+        }
+        assertThat(rejected).isInstanceOf(TransactionFailedException.class);
+    }
+
+    @Test(expected = TransactionFailedException.class)
+    public void shouldRejectTransactionsAfterCloseWithoutAnySubmittedBefore() {
+        // given
+        asyncTransactionService.close();
+
+        // when
+        asyncTransactionService.submit(transfer(UUID_1, UUID_2, "1"));
+    }
+
+    private TransactionStatusDto awaitFinished(String id) throws InterruptedException {
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+        TransactionStatusDto status = asyncTransactionService.getStatus(id);
+        while (status.getStatus() == QUEUED && System.nanoTime() < deadline) {
+            Thread.sleep(1);
+            status = asyncTransactionService.getStatus(id);
+        }
+        return status;
+    }
+
+    private static TransferTransactionCreateDto transfer(String from, String to, String amount) {
+        TransferTransactionCreateDto createDto = new TransferTransactionCreateDto();
+        createDto.setAccountId(from);
+        createDto.setDestinationAccountId(to);
+        createDto.setAmount(new BigDecimal(amount));
+        return createDto;
+    }
+
+}
@@ -5,6 +5,7 @@ import java.util.Arrays;
 import java.util.List;
 import java.util.Optional;
 
+import com.revolut.core.cache.AccountCache;
 import com.revolut.core.dto.AccountCreateDto;
 import com.revolut.core.dto.AccountDto;
 import com.revolut.core.dto.TransactionDto;
@@ -31,6 +32,9 @@ import static java.util.Collections.singletonList;
 import static org.assertj.core.api.Assertions.assertThat;
 import static org.mockito.ArgumentMatchers.any;
 import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.reset;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
 import static org.powermock.api.mockito.PowerMockito.when;
 
 @RunWith(PowerMockRunner.class)
@@ -39,12 +43,15 @@ public class DefaultAccountServiceTest {
 
     private static final String UUID_1 = "account-1";
     private static final String UUID_2 = "account-2";
-    private static final BigDecimal TOTAL_1 = BigDecimal.valueOf(100);
-    private static final BigDecimal TOTAL_2 = BigDecimal.valueOf(200);
+    private static final BigDecimal TOTAL_1 = new BigDecimal("100.00");
+    private static final BigDecimal TOTAL_2 = new BigDecimal("200.00");
+    private static final long TOTAL_1_MINOR_UNITS = 10000L;
+    private static final long TOTAL_2_MINOR_UNITS = 20000L;
     private static final Currency CURRENCY_1 = Currency.USD;
     private static final Currency CURRENCY_2 = Currency.EUR;
     private static final List<Transaction> TRANSACTIONS_2 = singletonList(
             Transaction.builder()
+                    .currency(CURRENCY_2)
                     .build()
     );
 
@@ -63,14 +70,16 @@ public class DefaultAccountServiceTest {
 
     @Before
     public void setUp() {
+        reset(accountDao);
+        AccountCache.getInstance().clear();
         account1 = Account.builder()
                 .uuid(UUID_1)
-                .total(TOTAL_1)
+                .total(TOTAL_1_MINOR_UNITS)
                 .currency(CURRENCY_1)
                 .build();
         account2 = Account.builder()
                 .uuid(UUID_2)
-                .total(TOTAL_2)
+                .total(TOTAL_2_MINOR_UNITS)
                 .currency(CURRENCY_2)
                 .transactionHistory(TRANSACTIONS_2)
                 .build();
@@ -96,7 +105,10 @@ public class DefaultAccountServiceTest {
                         .id(UUID_2)
                         .currency(CURRENCY_2)
                         .total(TOTAL_2)
-                        .transactionHistory(singletonList(TransactionDto.builder().build()))
+                        .transactionHistory(singletonList(TransactionDto.builder()
+                                .currency(CURRENCY_2)
+                                .amount(new BigDecimal("0.00"))
+                                .build()))
                         .build()
         );
         assertThat(result).usingRecursiveFieldByFieldElementComparator().containsExactlyInAnyOrderElementsOf(expected);
@@ -138,6 +150,70 @@ public class DefaultAccountServiceTest {
         assertThat(result).isEqualTo(expected);
     }
 
+    @Test
+    public void shouldGetAccountWithoutHistory() {
+        // given
+        when(accountDao.getEntityWithoutHistory(UUID_2)).thenReturn(Optional.of(account2));
+
+        // when
+        AccountDto result = defaultAccountService.getById(UUID_2, false);
+
+        //then
+        AccountDto expected = AccountDto.builder()
+                .id(UUID_2)
+                .currency(CURRENCY_2)
+                .total(TOTAL_2)
+                .transactionHistory(null)
+                .build();
+        assertThat(result).isEqualTo(expected);
+    }
+
+    @Test
+    public void shouldGetCachedAccountWhileVersionIsUnchanged() {
+        // given
+        Account stored = account2.toBuilder().id(2L).version(5L).build();
+        when(accountDao.getEntityWithoutHistory(UUID_2)).thenReturn(Optional.of(stored));
+        when(accountDao.getEntity(UUID_2)).thenReturn(Optional.of(stored));
+
+        // when
+        AccountDto first = defaultAccountService.getById(UUID_2);
+        AccountDto second = defaultAccountService.getById(UUID_2);
+
+        // then
+        assertThat(second).isSameAs(first);
+        verify(accountDao, times(1)).getEntity(UUID_2);
+    }
+
+    @Test
+    public void shouldReloadCachedAccountAfterItChanged() {
+        // given
+        Account stored = account2.toBuilder().id(2L).version(5L).build();
+        Account changed = stored.toBuilder().version(6L).total(TOTAL_1_MINOR_UNITS).build();
+        when(accountDao.getEntityWithoutHistory(UUID_2)).thenReturn(Optional.of(stored)).thenReturn(Optional.of(changed));
+        when(accountDao.getEntity(UUID_2)).thenReturn(Optional.of(stored)).thenReturn(Optional.of(changed));
+        defaultAccountService.getById(UUID_2);
+
+        // when
+        AccountDto result = defaultAccountService.getById(UUID_2);
+
+        // then
+        assertThat(result.getTotal()).isEqualTo(TOTAL_1);
+        assertThat(AccountCache.getInstance().getStats().getInvalidations()).isGreaterThan(0);
+    }
+
+    @Test
+    public void shouldGetVersionOfAccount() {
+        // given
+        when(accountDao.getEntityWithoutHistory(UUID_1))
+                .thenReturn(Optional.of(account1.toBuilder().id(7L).version(3L).build()));
+
+        // when
+        String result = defaultAccountService.getVersion(UUID_1);
+
+        // then
+        assertThat(result).isEqualTo("7.3");
+    }
+
     @Test
     public void shouldCreateAccount() throws DaoValidationException {
         // given
@@ -146,7 +222,7 @@ public class DefaultAccountServiceTest {
                 .total(TOTAL_1)
                 .build();
         when(accountDao.save(Account.builder()
-                .total(TOTAL_1)
+                .total(TOTAL_1_MINOR_UNITS)
                 .currency(CURRENCY_1)
                 .build())
         ).thenReturn(account1);
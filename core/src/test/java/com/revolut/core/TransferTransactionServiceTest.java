@@ -0,0 +1,224 @@
+package com.revolut.core;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Optional;
+import java.util.stream.Collectors;
+
+import com.revolut.core.dto.BatchMode;
+import com.revolut.core.dto.TransactionBatchDto;
+import com.revolut.core.dto.TransactionResultDto;
+import com.revolut.core.dto.TransferTransactionCreateDto;
+import com.revolut.core.exception.TransactionFailedException;
+import com.revolut.core.exception.ValidationException;
+import com.revolut.core.service.impl.TransferTransactionService;
+import com.revolut.dao.account.InMemoryAccountDao;
+import com.revolut.dao.exception.DaoValidationException;
+import com.revolut.dao.model.Account;
+import com.revolut.dao.model.Currency;
+import com.revolut.dao.model.Transaction;
+import org.junit.Before;
+import org.junit.BeforeClass;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Captor;
+import org.mockito.MockitoAnnotations;
+import org.powermock.api.mockito.PowerMockito;
+import org.powermock.core.classloader.annotations.PrepareForTest;
+import org.powermock.modules.junit4.PowerMockRunner;
+
+import static java.util.Collections.emptyList;
+
+import static com.revolut.core.dto.TransactionResultDto.Status.APPLIED;
+import static com.revolut.core.dto.TransactionResultDto.Status.FAILED;
+import static com.revolut.core.dto.TransactionResultDto.Status.NOT_APPLIED;
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.reset;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.powermock.api.mockito.PowerMockito.when;
+
+@RunWith(PowerMockRunner.class)
+@PrepareForTest({InMemoryAccountDao.class})
+public class TransferTransactionServiceTest {
+
+    private static final String UUID_1 = "account-1";
+    private static final String UUID_2 = "account-2";
+    private static final String UUID_3 = "account-3";
+    private static final String MISSING_UUID = "account-4";
+    private static final long TOTAL_1_MINOR_UNITS = 10000L;
+
+    private TransferTransactionService transactionService = TransferTransactionService.getInstance();
+
+    private static InMemoryAccountDao accountDao;
+
+    @Captor
+    private ArgumentCaptor<List<Account>> accounts;
+
+    @BeforeClass
+    public static void globalSetUp() throws Exception {
+        accountDao = mock(InMemoryAccountDao.class);
+        PowerMockito.whenNew(InMemoryAccountDao.class).withAnyArguments().thenReturn(accountDao);
+    }
+
+    @Before
+    public void setUp() throws DaoValidationException {
+        MockitoAnnotations.initMocks(this);
+        reset(accountDao);
+        when(accountDao.getEntityWithoutHistory(UUID_1)).thenReturn(Optional.of(account(1L, UUID_1, TOTAL_1_MINOR_UNITS)));
+        when(accountDao.getEntityWithoutHistory(UUID_2)).thenReturn(Optional.of(account(2L, UUID_2, 0L)));
+        when(accountDao.getEntityWithoutHistory(UUID_3)).thenReturn(Optional.of(account(3L, UUID_3, 0L)));
+        when(accountDao.getEntityWithoutHistory(MISSING_UUID)).thenReturn(Optional.empty());
+        // posted legs get uuids in order of posting
+        when(accountDao.postAll(anyList(), anyList())).thenAnswer(invocation -> {
+            List<Transaction> legs = invocation.getArgument(1);
+            List<Transaction> posted = new ArrayList<>(legs.size());
+            for (int i = 0; i < legs.size(); i++) {
+                posted.add(legs.get(i).toBuilder().uuid("posted-" + i).build());
+            }
+            return Optional.of(posted);
+        });
+    }
+
+    @Test
+    public void shouldApplyEveryTransferInAllOrNothingMode() throws DaoValidationException {
+        // given
+        List<TransferTransactionCreateDto> createDtos = Arrays.asList(
+                transfer(UUID_1, UUID_2, "60"),
+                transfer(UUID_1, UUID_3, "40"));
+
+        // when
+        TransactionBatchDto result = transactionService.createTransactions(createDtos, BatchMode.ALL_OR_NOTHING);
+
+        // then
+        assertThat(result.getApplied()).isEqualTo(2);
+        assertThat(result.getFailed()).isEqualTo(0);
+        assertThat(statuses(result)).containsExactly(APPLIED, APPLIED);
+        assertThat(result.getResults().get(0).getTransaction().getId()).isEqualTo("posted-0");
+        assertThat(result.getResults().get(0).getTransaction().getAmount()).isEqualByComparingTo("-60");
+        assertThat(result.getResults().get(1).getTransaction().getId()).isEqualTo("posted-1");
+        assertThat(result.getResults().get(1).getTransaction().getAmount()).isEqualByComparingTo("-40");
+        assertThat(postedTotals()).containsExactly(0L, 6000L, 4000L);
+    }
+
+    @Test
+    public void shouldApplyNothingIfAnyTransferFailsInAllOrNothingMode() throws DaoValidationException {
+        // given
+        List<TransferTransactionCreateDto> createDtos = Arrays.asList(
+                transfer(UUID_1, UUID_2, "60"),
+                transfer(UUID_1, UUID_3, "50"),
+                transfer(UUID_1, UUID_3, "10"));
+
+        // when
+        TransactionBatchDto result = transactionService.createTransactions(createDtos, BatchMode.ALL_OR_NOTHING);
+
+        // then
+        assertThat(result.getApplied()).isEqualTo(0);
+        assertThat(result.getFailed()).isEqualTo(1);
+        assertThat(statuses(result)).containsExactly(NOT_APPLIED, FAILED, NOT_APPLIED);
+        assertThat(result.getResults().get(0).getTransaction()).isNull();
+        assertThat(result.getResults().get(1).getError()).isEqualTo("Transaction failed cause not enough money on account account-1");
+        verify(accountDao, never()).postAll(anyList(), anyList());
+    }
+
+    @Test
+    public void shouldApplyTransfersWithoutErrorsInBestEffortMode() throws DaoValidationException {
+        // given
+        List<TransferTransactionCreateDto> createDtos = Arrays.asList(
+                transfer(UUID_1, UUID_2, "60"),
+                transfer(UUID_1, MISSING_UUID, "1"),
+                transfer(UUID_1, UUID_1, "1"),
+                transfer(UUID_1, UUID_2, "50"),
+                transfer(UUID_1, UUID_3, "40"));
+
+        // when
+        TransactionBatchDto result = transactionService.createTransactions(createDtos, BatchMode.BEST_EFFORT);
+
+        // then
+        assertThat(result.getApplied()).isEqualTo(2);
+        assertThat(result.getFailed()).isEqualTo(3);
+        assertThat(statuses(result)).containsExactly(APPLIED, FAILED, FAILED, FAILED, APPLIED);
+        assertThat(result.getResults().get(0).getTransaction().getId()).isEqualTo("posted-0");
+        assertThat(result.getResults().get(1).getError()).isEqualTo("Account with id account-4 not found");
+        assertThat(result.getResults().get(2).getError()).isEqualTo("Operation with same account id is not supported");
+        // checked against the state left by the first transfer
+        assertThat(result.getResults().get(3).getError()).isEqualTo("Transaction failed cause not enough money on account account-1");
+        assertThat(result.getResults().get(4).getTransaction().getId()).isEqualTo("posted-1");
+        assertThat(result.getResults().get(4).getTransaction().getAmount()).isEqualByComparingTo("-40");
+        assertThat(postedTotals()).containsExactly(0L, 6000L, 4000L);
+    }
+
+    @Test
+    public void shouldPostNothingIfEveryTransferFailsInBestEffortMode() throws DaoValidationException {
+        // given
+        List<TransferTransactionCreateDto> createDtos = Arrays.asList(
+                transfer(UUID_2, UUID_1, "1"),
+                transfer(MISSING_UUID, UUID_1, "1"));
+
+        // when
+        TransactionBatchDto result = transactionService.createTransactions(createDtos, BatchMode.BEST_EFFORT);
+
+        // then
+        assertThat(result.getApplied()).isEqualTo(0);
+        assertThat(result.getFailed()).isEqualTo(2);
+        assertThat(statuses(result)).containsExactly(FAILED, FAILED);
+        verify(accountDao, never()).postAll(anyList(), anyList());
+    }
+
+    @Test(expected = TransactionFailedException.class)
+    public void shouldFailBatchIfAccountsAreModifiedConcurrently() throws DaoValidationException {
+        // given
+        when(accountDao.postAll(anyList(), anyList())).thenReturn(Optional.empty());
+
+        try {
+            // when
+            transactionService.createTransactions(Arrays.asList(transfer(UUID_1, UUID_2, "1")), BatchMode.BEST_EFFORT);
+        } finally {
+            // then
+            verify(accountDao, times(16)).postAll(anyList(), anyList());
+        }
+    }
+
+    @Test(expected = ValidationException.class)
+    public void shouldRejectEmptyBatch() {
+        // when
+        transactionService.createTransactions(emptyList(), BatchMode.BEST_EFFORT);
+    }
+
+    private List<Long> postedTotals() throws DaoValidationException {
+        verify(accountDao).postAll(accounts.capture(), anyList());
+        return accounts.getValue().stream()
+                .map(Account::getTotal)
+                .collect(Collectors.toList());
+    }
+
+    private static List<TransactionResultDto.Status> statuses(TransactionBatchDto batch) {
+        return batch.getResults().stream()
+                .map(TransactionResultDto::getStatus)
+                .collect(Collectors.toList());
+    }
+
+    private static TransferTransactionCreateDto transfer(String from, String to, String amount) {
+        TransferTransactionCreateDto createDto = new TransferTransactionCreateDto();
+        createDto.setAccountId(from);
+        createDto.setDestinationAccountId(to);
+        createDto.setAmount(new BigDecimal(amount));
+        return createDto;
+    }
+
+    private static Account account(Long id, String uuid, long total) {
+        return Account.builder()
+                .id(id)
+                .uuid(uuid)
+                .total(total)
+                .currency(Currency.USD)
+                .build();
+    }
+
+}
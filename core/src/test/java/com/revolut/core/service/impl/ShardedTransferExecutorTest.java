@@ -0,0 +1,196 @@
+package com.revolut.core.service.impl;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+import java.util.Random;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import com.revolut.core.converter.TransactionEntityToDtoConverter;
+import com.revolut.core.dto.TransactionDto;
+import com.revolut.core.dto.TransferTransactionCreateDto;
+import com.revolut.core.exception.NotFoundException;
+import com.revolut.core.exception.TransactionFailedException;
+import com.revolut.dao.account.AccountDao;
+import com.revolut.dao.account.InMemoryAccountDao;
+import com.revolut.dao.exception.DaoValidationException;
+import com.revolut.dao.model.Account;
+import com.revolut.dao.model.Currency;
+import com.revolut.dao.model.Transaction;
+import com.revolut.dao.transation.InMemoryTransactionDao;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.catchThrowable;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+public class ShardedTransferExecutorTest {
+
+    private static final int SHARDS = 4;
+    private static final int ACCOUNTS = 8;
+    private static final long TOTAL = 100000L;
+    private static final int THREADS = 4;
+    private static final int TRANSFERS_PER_THREAD = 500;
+
+    private InMemoryAccountDao accountDao;
+
+    private ShardedTransferExecutor executor;
+
+    @Before
+    public void setUp() throws DaoValidationException {
+        accountDao = InMemoryAccountDao.getInstance();
+        accountDao.setTransactionDao(InMemoryTransactionDao.getInstance());
+        accountDao.deleteAll();
+        InMemoryTransactionDao.getInstance().deleteAll();
+        for (int i = 0; i < ACCOUNTS; i++) {
+            accountDao.save(Account.builder()
+                    .uuid(uuid(i))
+                    .total(TOTAL)
+                    .currency(Currency.USD)
+                    .build());
+        }
+    }
+
+    @After
+    public void tearDown() {
+        if (executor != null) {
+            executor.close();
+        }
+        accountDao.deleteAll();
+        InMemoryTransactionDao.getInstance().deleteAll();
+    }
+
+    @Test
+    public void shouldConserveMoneyOfConcurrentTransfersBetweenShards() throws Exception {
+        // given
+        executor = new ShardedTransferExecutor(accountDao, new TransactionEntityToDtoConverter(), SHARDS);
+        ExecutorService clients = Executors.newFixedThreadPool(THREADS);
+        List<Future<List<CompletableFuture<TransactionDto>>>> submitted = new ArrayList<>();
+
+        // when
+        for (int thread = 0; thread < THREADS; thread++) {
+            Random random = new Random(thread);
+            submitted.add(clients.submit(() -> {
+                List<CompletableFuture<TransactionDto>> responses = new ArrayList<>();
+                for (int i = 0; i < TRANSFERS_PER_THREAD; i++) {
+                    int from = random.nextInt(ACCOUNTS);
+                    int to = (from + 1 + random.nextInt(ACCOUNTS - 1)) % ACCOUNTS;
+                    responses.add(executor.submit(transfer(uuid(from), uuid(to), 1 + random.nextInt(300))));
+                }
+                return responses;
+            }));
+        }
+        int succeeded = 0;
+        for (Future<List<CompletableFuture<TransactionDto>>> responses : submitted) {
+            for (CompletableFuture<TransactionDto> response : responses.get()) {
+                try {
+                    response.get(10, TimeUnit.SECONDS);
+                    succeeded++;
+                } catch (ExecutionException ex) {
+                    // not enough money is the only expected failure
+                    assertThat(ex.getCause()).isInstanceOf(TransactionFailedException.class);
+                }
+            }
+        }
+        clients.shutdown();
+
+        // then
+        long sum = 0;
+        for (Account account : accountDao.getAllWithoutHistory()) {
+            assertThat(account.getTotal()).isGreaterThanOrEqualTo(0L);
+            sum += account.getTotal();
+        }
+        assertThat(sum).isEqualTo(TOTAL * ACCOUNTS);
+        assertThat(succeeded).isGreaterThan(0);
+        assertThat(InMemoryTransactionDao.getInstance().getAll()).hasSize(succeeded);
+    }
+
+    @Test
+    public void shouldFailTransferToMissingAccount() {
+        // given
+        executor = new ShardedTransferExecutor(accountDao, new TransactionEntityToDtoConverter(), SHARDS);
+
+        // when
+        Throwable missingDestination = catchThrowable(() -> executor.submit(transfer(uuid(0), "missing", 1)).get(5, TimeUnit.SECONDS));
+        Throwable missingSource = catchThrowable(() -> executor.submit(transfer("missing", uuid(0), 1)).get(5, TimeUnit.SECONDS));
+
+        // then
+        assertThat(missingDestination).hasCauseInstanceOf(NotFoundException.class);
+        assertThat(missingSource).hasCauseInstanceOf(NotFoundException.class);
+        assertThat(accountDao.getEntityWithoutHistory(uuid(0))).get().extracting(Account::getTotal).isEqualTo(TOTAL);
+    }
+
+    @Test
+    public void shouldRetryTransferWhenAccountIsChangedByAnotherWriter() throws Exception {
+        // given
+        executor = new ShardedTransferExecutor(accountDao, new TransactionEntityToDtoConverter(), SHARDS);
+        executor.submit(transfer(uuid(0), uuid(1), 1)).get(5, TimeUnit.SECONDS);
+        Account changed = accountDao.getEntityWithoutHistory(uuid(0)).get();
+        accountDao.save(changed.toBuilder().total(changed.getTotal() + 500).build());
+
+        // when
+        TransactionDto result = executor.submit(transfer(uuid(0), uuid(1), 2)).get(5, TimeUnit.SECONDS);
+
+        // then
+        assertThat(result.getAmount()).isEqualByComparingTo(BigDecimal.valueOf(-2));
+        assertThat(accountDao.getEntityWithoutHistory(uuid(0))).get().extracting(Account::getTotal).isEqualTo(TOTAL + 500 - 300);
+        assertThat(accountDao.getEntityWithoutHistory(uuid(1))).get().extracting(Account::getTotal).isEqualTo(TOTAL + 300);
+    }
+
+    @Test
+    public void shouldKeepShardsRunningAfterTransferThrows() throws Exception {
+        // given
+        AccountDao failingDao = mock(AccountDao.class);
+        when(failingDao.getEntityWithoutHistory(any())).thenAnswer(invocation -> accountDao.getEntityWithoutHistory(invocation.getArgument(0)));
+        when(failingDao.getEntityWithoutHistory("broken")).thenThrow(new IllegalStateException("broken"));
+        when(failingDao.postAsync(anyList(), any(Transaction.class)))
+                .thenAnswer(invocation -> accountDao.postAsync(invocation.getArgument(0), invocation.getArgument(1)));
+        executor = new ShardedTransferExecutor(failingDao, new TransactionEntityToDtoConverter(), SHARDS);
+        List<CompletableFuture<TransactionDto>> failed = new ArrayList<>();
+
+        // when
+        for (int i = 0; i < ACCOUNTS; i++) {
+            failed.add(executor.submit(transfer(uuid(i), "broken", 1)));
+            failed.add(executor.submit(transfer("broken", uuid(i), 1)));
+        }
+        List<CompletableFuture<TransactionDto>> succeeded = new ArrayList<>();
+        for (int i = 0; i < ACCOUNTS; i++) {
+            succeeded.add(executor.submit(transfer(uuid(i), uuid((i + 1) % ACCOUNTS), 1)));
+        }
+
+        // then
+        for (CompletableFuture<TransactionDto> response : failed) {
+            assertThat(catchThrowable(() -> response.get(5, TimeUnit.SECONDS))).hasCauseInstanceOf(IllegalStateException.class);
+        }
+        for (CompletableFuture<TransactionDto> response : succeeded) {
+            assertThat(response.get(5, TimeUnit.SECONDS)).isNotNull();
+        }
+        executor.close();
+        assertThat(catchThrowable(() -> executor.submit(transfer(uuid(0), uuid(1), 1)))).isInstanceOf(TransactionFailedException.class);
+        executor = null;
+    }
+
+    private static TransferTransactionCreateDto transfer(String from, String to, long amount) {
+        TransferTransactionCreateDto createDto = new TransferTransactionCreateDto();
+        createDto.setAccountId(from);
+        createDto.setDestinationAccountId(to);
+        createDto.setAmount(BigDecimal.valueOf(amount));
+        return createDto;
+    }
+
+    private static String uuid(int index) {
+        return "account-" + index;
+    }
+
+}
@@ -0,0 +1,219 @@
+package com.revolut.core.service.impl;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import com.revolut.core.converter.TransactionEntityToDtoConverter;
+import com.revolut.core.dto.TransactionDto;
+import com.revolut.core.dto.TransferTransactionCreateDto;
+import com.revolut.core.exception.NotFoundException;
+import com.revolut.dao.account.AccountDao;
+import com.revolut.dao.exception.DaoValidationException;
+import com.revolut.dao.model.Account;
+import com.revolut.dao.model.Currency;
+import com.revolut.dao.model.Transaction;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Captor;
+import org.mockito.MockitoAnnotations;
+import org.mockito.stubbing.Answer;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.catchThrowable;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+public class TransferBatcherTest {
+
+    private static final String FROM_UUID = "account-1";
+    private static final String TO_UUID = "account-2";
+    private static final String POISON_UUID = "account-3";
+    private static final String MISSING_UUID = "account-4";
+
+    // long enough to never pass in a test, a batch is applied once it has the size it waits for
+    private static final long MAX_WAIT_MICROS = TimeUnit.SECONDS.toMicros(30);
+
+    private AccountDao accountDao;
+
+    @Captor
+    private ArgumentCaptor<List<Transaction>> legs;
+
+    private TransferBatcher batcher;
+
+    @Before
+    public void setUp() {
+        MockitoAnnotations.initMocks(this);
+        accountDao = mock(AccountDao.class);
+        when(accountDao.getEntityWithoutHistory(FROM_UUID)).thenReturn(Optional.of(account(1L, FROM_UUID, 100000L)));
+        when(accountDao.getEntityWithoutHistory(TO_UUID)).thenReturn(Optional.of(account(2L, TO_UUID, 0L)));
+        when(accountDao.getEntityWithoutHistory(POISON_UUID)).thenReturn(Optional.of(account(3L, POISON_UUID, 0L)));
+        when(accountDao.getEntityWithoutHistory(MISSING_UUID)).thenReturn(Optional.empty());
+    }
+
+    @After
+    public void tearDown() {
+        if (batcher != null) {
+            batcher.close();
+        }
+    }
+
+    @Test
+    public void shouldWaitForAsManyTransfersAsPreviousBatchHad() throws Exception {
+        // given
+        CountDownLatch firstBatchStarted = new CountDownLatch(1);
+        CountDownLatch firstBatchReleased = new CountDownLatch(1);
+        when(accountDao.postAll(anyList(), anyList())).thenAnswer(invocation -> {
+            firstBatchStarted.countDown();
+            firstBatchReleased.await();
+            return posted(invocation.getArgument(1));
+        });
+        batcher = new TransferBatcher(accountDao, new TransactionEntityToDtoConverter(), 16, MAX_WAIT_MICROS);
+
+        // when
+        CompletableFuture<TransactionDto> lone = batcher.submit(transfer(FROM_UUID, TO_UUID, 1));
+        firstBatchStarted.await(5, TimeUnit.SECONDS);
+        List<CompletableFuture<TransactionDto>> queued = submit(5);
+        firstBatchReleased.countDown();
+        for (CompletableFuture<TransactionDto> response : queued) {
+            response.get(5, TimeUnit.SECONDS);
+        }
+        List<CompletableFuture<TransactionDto>> next = submit(5);
+        for (CompletableFuture<TransactionDto> response : next) {
+            response.get(5, TimeUnit.SECONDS);
+        }
+
+        // then
+        assertThat(lone.get()).isNotNull();
+        assertThat(postedBatchSizes(3)).containsExactly(1, 5, 5);
+    }
+
+    @Test
+    public void shouldRetryBatchWhenAccountsAreModifiedConcurrently() throws Exception {
+        // given
+        when(accountDao.postAll(anyList(), anyList()))
+                .thenReturn(Optional.empty())
+                .thenAnswer(invocation -> posted(invocation.getArgument(1)));
+        batcher = new TransferBatcher(accountDao, new TransactionEntityToDtoConverter(), 16, 0);
+
+        // when
+        TransactionDto result = batcher.submit(transfer(FROM_UUID, TO_UUID, 2)).get(5, TimeUnit.SECONDS);
+
+        // then
+        assertThat(result.getAmount()).isEqualByComparingTo(BigDecimal.valueOf(-2));
+        verify(accountDao, times(2)).postAll(anyList(), anyList());
+        verify(accountDao, times(2)).getEntityWithoutHistory(FROM_UUID);
+    }
+
+    @Test
+    public void shouldPostTransfersOneByOneWhenBatchFails() throws Exception {
+        // given
+        List<CompletableFuture<TransactionDto>> responses = whileFirstBatchIsPosted(invocation -> {
+            List<Transaction> legs = invocation.getArgument(1);
+            if (legs.stream().anyMatch(leg -> leg.getOtherAccountId() == 3L)) {
+                throw new IllegalStateException("poison");
+            }
+            return posted(legs);
+        }, transfer(FROM_UUID, TO_UUID, 1), transfer(FROM_UUID, POISON_UUID, 1), transfer(FROM_UUID, MISSING_UUID, 1),
+                transfer(FROM_UUID, TO_UUID, 2));
+
+        // then
+        assertThat(responses.get(0).get(5, TimeUnit.SECONDS).getAmount()).isEqualByComparingTo(BigDecimal.valueOf(-1));
+        assertThat(catchThrowable(() -> responses.get(1).get(5, TimeUnit.SECONDS))).hasCauseInstanceOf(IllegalStateException.class);
+        assertThat(catchThrowable(() -> responses.get(2).get(5, TimeUnit.SECONDS))).hasCauseInstanceOf(NotFoundException.class);
+        assertThat(responses.get(3).get(5, TimeUnit.SECONDS).getAmount()).isEqualByComparingTo(BigDecimal.valueOf(-2));
+    }
+
+    @Test
+    public void shouldPostTransfersOneByOneWhenBatchKeepsConflicting() throws Exception {
+        // given
+        List<CompletableFuture<TransactionDto>> responses = whileFirstBatchIsPosted(invocation -> {
+            List<Transaction> legs = invocation.getArgument(1);
+            return legs.size() > 1 ? Optional.empty() : posted(legs);
+        }, transfer(FROM_UUID, TO_UUID, 1), transfer(FROM_UUID, POISON_UUID, 2), transfer(FROM_UUID, TO_UUID, 3));
+
+        // then
+        for (int i = 0; i < responses.size(); i++) {
+            assertThat(responses.get(i).get(5, TimeUnit.SECONDS).getAmount()).isEqualByComparingTo(BigDecimal.valueOf(-(i + 1)));
+        }
+        // the first batch, 16 attempts of the conflicting one and one post of every transfer
+        assertThat(postedBatchSizes(1 + 16 + 3).subList(1, 17)).containsOnly(3);
+    }
+
+    // the given transfers are queued while a lone first transfer is posted, so that they make up the next batch
+    private List<CompletableFuture<TransactionDto>> whileFirstBatchIsPosted(Answer<?> postAll,
+                                                                          TransferTransactionCreateDto... createDtos)
+            throws Exception {
+        CountDownLatch firstBatchStarted = new CountDownLatch(1);
+        CountDownLatch firstBatchReleased = new CountDownLatch(1);
+        when(accountDao.postAll(anyList(), anyList()))
+                .thenAnswer(invocation -> {
+                    firstBatchStarted.countDown();
+                    firstBatchReleased.await();
+                    return posted(invocation.getArgument(1));
+                })
+                .thenAnswer(postAll);
+        batcher = new TransferBatcher(accountDao, new TransactionEntityToDtoConverter(), 16, 0);
+        CompletableFuture<TransactionDto> first = batcher.submit(transfer(FROM_UUID, TO_UUID, 1));
+        firstBatchStarted.await(5, TimeUnit.SECONDS);
+        List<CompletableFuture<TransactionDto>> responses = new ArrayList<>();
+        for (TransferTransactionCreateDto createDto : createDtos) {
+            responses.add(batcher.submit(createDto));
+        }
+        firstBatchReleased.countDown();
+        first.get(5, TimeUnit.SECONDS);
+        return responses;
+    }
+
+    private List<CompletableFuture<TransactionDto>> submit(int count) {
+        List<CompletableFuture<TransactionDto>> responses = new ArrayList<>();
+        for (int i = 0; i < count; i++) {
+            responses.add(batcher.submit(transfer(FROM_UUID, TO_UUID, 1)));
+        }
+        return responses;
+    }
+
+    private List<Integer> postedBatchSizes(int calls) throws DaoValidationException {
+        verify(accountDao, times(calls)).postAll(anyList(), legs.capture());
+        List<Integer> sizes = new ArrayList<>();
+        for (List<Transaction> batch : legs.getAllValues()) {
+            sizes.add(batch.size());
+        }
+        return sizes;
+    }
+
+    private static Optional<List<Transaction>> posted(List<Transaction> legs) {
+        List<Transaction> posted = new ArrayList<>(legs.size());
+        for (Transaction leg : legs) {
+            posted.add(leg.toBuilder().uuid("posted-" + posted.size()).build());
+        }
+        return Optional.of(posted);
+    }
+
+    private static TransferTransactionCreateDto transfer(String from, String to, long amount) {
+        TransferTransactionCreateDto createDto = new TransferTransactionCreateDto();
+        createDto.setAccountId(from);
+        createDto.setDestinationAccountId(to);
+        createDto.setAmount(BigDecimal.valueOf(amount));
+        return createDto;
+    }
+
+    private static Account account(Long id, String uuid, long total) {
+        return Account.builder()
+                .id(id)
+                .uuid(uuid)
+                .total(total)
+                .currency(Currency.USD)
+                .build();
+    }
+
+}
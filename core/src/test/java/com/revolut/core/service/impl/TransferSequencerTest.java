@@ -0,0 +1,194 @@
+package com.revolut.core.service.impl;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import com.revolut.core.converter.TransactionEntityToDtoConverter;
+import com.revolut.core.dto.TransactionDto;
+import com.revolut.core.dto.TransferTransactionCreateDto;
+import com.revolut.core.exception.TransactionFailedException;
+import com.revolut.dao.account.AccountDao;
+import com.revolut.dao.model.Account;
+import com.revolut.dao.model.Currency;
+import com.revolut.dao.model.Transaction;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Captor;
+import org.mockito.MockitoAnnotations;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.catchThrowable;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+public class TransferSequencerTest {
+
+    private static final String FROM_UUID = "account-1";
+    private static final String TO_UUID = "account-2";
+    private static final long FROM_TOTAL = 10000L;
+
+    private AccountDao accountDao;
+
+    @Captor
+    private ArgumentCaptor<List<Account>> accounts;
+
+    private TransferSequencer sequencer;
+
+    @Before
+    public void setUp() {
+        MockitoAnnotations.initMocks(this);
+        accountDao = mock(AccountDao.class);
+        when(accountDao.getEntityWithoutHistory(FROM_UUID)).thenReturn(Optional.of(account(1L, FROM_UUID, FROM_TOTAL)));
+        when(accountDao.getEntityWithoutHistory(TO_UUID)).thenReturn(Optional.of(account(2L, TO_UUID, 0L)));
+    }
+
+    @After
+    public void tearDown() {
+        if (sequencer != null) {
+            sequencer.close();
+        }
+    }
+
+    @Test
+    public void shouldApplyTransfersInOrderOfSubmission() throws Exception {
+        // given
+        when(accountDao.postAsync(anyList(), any(Transaction.class)))
+                .thenAnswer(invocation -> Optional.of(CompletableFuture.completedFuture(invocation.getArgument(1))));
+        sequencer = new TransferSequencer(accountDao, new TransactionEntityToDtoConverter(), 4);
+        List<CompletableFuture<TransactionDto>> responses = new ArrayList<>();
+
+        // when
+        for (int i = 1; i <= 10; i++) {
+            responses.add(sequencer.submit(transfer(i)));
+        }
+
+        // then
+        for (int i = 0; i < responses.size(); i++) {
+            assertThat(responses.get(i).get(5, TimeUnit.SECONDS).getAmount()).isEqualByComparingTo(BigDecimal.valueOf(-(i + 1)));
+        }
+        verify(accountDao, times(10)).postAsync(accounts.capture(), any(Transaction.class));
+        long total = FROM_TOTAL;
+        for (int i = 0; i < 10; i++) {
+            // amounts of one currency unit are 100 minor units
+            total -= (i + 1) * 100L;
+            Account from = accounts.getAllValues().get(i).get(0);
+            assertThat(from.getTotal()).isEqualTo(total);
+            assertThat(from.getVersion()).isEqualTo(i);
+        }
+    }
+
+    @Test
+    public void shouldWaitForFreeSlotWhenRingIsFull() throws Exception {
+        // given
+        List<CompletableFuture<Transaction>> durables = new ArrayList<>();
+        when(accountDao.postAsync(anyList(), any(Transaction.class))).thenAnswer(invocation -> {
+            CompletableFuture<Transaction> durable = new CompletableFuture<>();
+            synchronized (durables) {
+                durables.add(durable);
+            }
+            return Optional.of(durable.thenApply(done -> (Transaction) invocation.getArgument(1)));
+        });
+        sequencer = new TransferSequencer(accountDao, new TransactionEntityToDtoConverter(), 2);
+        CompletableFuture<TransactionDto> first = sequencer.submit(transfer(1));
+        CompletableFuture<TransactionDto> second = sequencer.submit(transfer(1));
+        ExecutorService executor = Executors.newSingleThreadExecutor();
+
+        // when
+        Future<CompletableFuture<TransactionDto>> third = executor.submit(() -> sequencer.submit(transfer(1)));
+        Thread.sleep(200);
+        boolean submittedWhileFull = third.isDone();
+        synchronized (durables) {
+            durables.get(0).complete(null);
+        }
+        CompletableFuture<TransactionDto> thirdResponse = third.get(5, TimeUnit.SECONDS);
+        boolean secondDone = second.isDone();
+        completeDurables(durables, thirdResponse);
+        executor.shutdown();
+
+        // then
+        assertThat(submittedWhileFull).isFalse();
+        assertThat(secondDone).isFalse();
+        assertThat(first.get()).isNotNull();
+        assertThat(second.get()).isNotNull();
+        assertThat(thirdResponse.get()).isNotNull();
+    }
+
+    @Test
+    public void shouldCompleteSubmittedTransfersOnCloseAndRejectLaterOnes() throws Exception {
+        // given
+        when(accountDao.postAsync(anyList(), any(Transaction.class)))
+                .thenAnswer(invocation -> Optional.of(CompletableFuture.completedFuture(invocation.getArgument(1))));
+        sequencer = new TransferSequencer(accountDao, new TransactionEntityToDtoConverter(), 4);
+        List<CompletableFuture<TransactionDto>> responses = new ArrayList<>();
+        for (int i = 0; i < 8; i++) {
+            responses.add(sequencer.submit(transfer(1)));
+        }
+
+        // when
+        sequencer.close();
+        Throwable rejected = catchThrowable(() -> sequencer.submit(transfer(1)));
+
+        // then
+        assertThat(responses).allMatch(response -> response.isDone() && !response.isCompletedExceptionally());
+        assertThat(rejected).isInstanceOf(TransactionFailedException.class);
+    }
+
+    @Test
+    public void shouldFailOnlyTransferWhichThrewError() throws Exception {
+        // given
+        when(accountDao.postAsync(anyList(), any(Transaction.class)))
+                .thenThrow(new StackOverflowError())
+                .thenAnswer(invocation -> Optional.of(CompletableFuture.completedFuture(invocation.getArgument(1))));
+        sequencer = new TransferSequencer(accountDao, new TransactionEntityToDtoConverter(), 4);
+
+        // when
+        CompletableFuture<TransactionDto> failed = sequencer.submit(transfer(1));
+        CompletableFuture<TransactionDto> next = sequencer.submit(transfer(2));
+
+        // then
+        assertThat(catchThrowable(() -> failed.get(5, TimeUnit.SECONDS))).hasCauseInstanceOf(StackOverflowError.class);
+        assertThat(next.get(5, TimeUnit.SECONDS).getAmount()).isEqualByComparingTo(BigDecimal.valueOf(-2));
+    }
+
+    // makes every posting durable until the response is done, postings applied meanwhile included
+    private static void completeDurables(List<CompletableFuture<Transaction>> durables,
+                                         CompletableFuture<TransactionDto> response) throws InterruptedException {
+        while (!response.isDone()) {
+            synchronized (durables) {
+                durables.forEach(durable -> durable.complete(null));
+            }
+            Thread.sleep(10);
+        }
+    }
+
+    private static TransferTransactionCreateDto transfer(long amount) {
+        TransferTransactionCreateDto createDto = new TransferTransactionCreateDto();
+        createDto.setAccountId(FROM_UUID);
+        createDto.setDestinationAccountId(TO_UUID);
+        createDto.setAmount(BigDecimal.valueOf(amount));
+        return createDto;
+    }
+
+    private static Account account(Long id, String uuid, long total) {
+        return Account.builder()
+                .id(id)
+                .uuid(uuid)
+                .total(total)
+                .currency(Currency.USD)
+                .build();
+    }
+
+}
@@ -16,4 +16,7 @@ public interface Dao<T extends DomainEntity> {
 
     List<T> deleteAll();
 
+    // puts an entity read back from durable storage, keeping its id and version
+    void restore(T entity);
+
 }
@@ -0,0 +1,205 @@
+package com.revolut.dao;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+
+import com.revolut.dao.account.AccountDao;
+import com.revolut.dao.account.InMemoryAccountDao;
+import com.revolut.dao.journal.GroupCommit;
+import com.revolut.dao.journal.Journal;
+import com.revolut.dao.journal.JournalListener;
+import com.revolut.dao.journal.JournaledAccountDao;
+import com.revolut.dao.journal.JournaledTransactionDao;
+import com.revolut.dao.journal.Snapshot;
+import com.revolut.dao.journal.SnapshotWriter;
+import com.revolut.dao.model.Account;
+import com.revolut.dao.model.Transaction;
+import com.revolut.dao.transation.InMemoryTransactionDao;
+import com.revolut.dao.transation.OffHeapTransactionDao;
+import com.revolut.dao.transation.TransactionDao;
+import com.revolut.dao.transation.TransactionStore;
+
+// gives daos of the configured storage engine, in memory only unless journal is enabled
+public final class DaoFactory {
+
+    private static AccountDao accountDao;
+
+    private static TransactionDao transactionDao;
+
+    private static TransactionStore transactionStore = TransactionStore.HEAP;
+
+    private static Journal journal;
+
+    private static GroupCommit groupCommit;
+
+    private static SnapshotWriter snapshotWriter;
+
+    private DaoFactory() {
+    }
+
+    public static synchronized AccountDao getAccountDao() {
+        if (accountDao == null) {
+            accountDao = inMemoryAccountDao();
+        }
+        return accountDao;
+    }
+
+    public static synchronized TransactionDao getTransactionDao() {
+        if (transactionDao == null) {
+            transactionDao = inMemoryTransactionDao();
+        }
+        return transactionDao;
+    }
+
+    // should be called before daos are used
+    public static synchronized void setTransactionStore(TransactionStore store) {
+        if (journal != null) {
+            throw new IllegalStateException("Transaction store can't be changed after journal is enabled");
+        }
+        transactionStore = store;
+        accountDao = null;
+        transactionDao = null;
+    }
+
+    /**
+     * Should be called before daos are used. Loads the snapshot if there is one and replays the journal written after
+     * it, the whole journal is replayed when the snapshot can't be read.
+     */
+    public static synchronized void enableJournal(StorageConfig config) throws IOException {
+        if (journal != null) {
+            throw new IllegalStateException("Journal is already enabled");
+        }
+        InMemoryAccountDao accounts = inMemoryAccountDao();
+        TransactionDao transactions = inMemoryTransactionDao();
+        List<Transaction> snapshotTransactions = new ArrayList<>();
+        long journalPosition = 0;
+        if (config.getSnapshotFile() != null && Files.exists(config.getSnapshotFile())) {
+            try {
+                journalPosition = Snapshot.load(config.getSnapshotFile(), new RestoringListener(accounts, snapshotTransactions));
+            } catch (IOException ex) {
+                accounts.deleteAll();
+                snapshotTransactions.clear();
+            }
+        }
+        List<Transaction> journalTransactions = new ArrayList<>();
+        journal = Journal.open(config.getJournalFile(), new RestoringListener(accounts, journalTransactions), journalPosition);
+        // concurrent saves may be journaled out of id order
+        journalTransactions.sort(Comparator.comparing(Transaction::getId));
+        restoreInOrder(transactions, snapshotTransactions, journalTransactions);
+        groupCommit = new GroupCommit(journal, config.getCommitBatchSize(), config.getCommitMaxWaitMicros());
+        accountDao = new JournaledAccountDao(accounts, groupCommit);
+        transactionDao = new JournaledTransactionDao(transactions, groupCommit);
+        if (config.getSnapshotFile() != null) {
+            snapshotWriter = new SnapshotWriter(config.getSnapshotFile(), groupCommit, accounts, transactions);
+            if (config.getSnapshotIntervalSeconds() > 0) {
+                snapshotWriter.schedule(config.getSnapshotIntervalSeconds());
+            }
+        }
+    }
+
+    // writes a snapshot right away, does nothing unless snapshot file is configured
+    public static synchronized void writeSnapshot() throws IOException {
+        if (snapshotWriter != null) {
+            snapshotWriter.write();
+        }
+    }
+
+    // journal can be enabled again after close, in memory state is kept
+    public static synchronized void close() throws IOException {
+        if (snapshotWriter != null) {
+            snapshotWriter.close();
+            snapshotWriter = null;
+        }
+        if (journal != null) {
+            groupCommit.close();
+            journal.close();
+            groupCommit = null;
+            journal = null;
+        }
+        accountDao = null;
+        transactionDao = null;
+    }
+
+    private static InMemoryAccountDao inMemoryAccountDao() {
+        InMemoryAccountDao accounts = InMemoryAccountDao.getInstance();
+        accounts.setTransactionDao(inMemoryTransactionDao());
+        return accounts;
+    }
+
+    private static TransactionDao inMemoryTransactionDao() {
+        return transactionStore == TransactionStore.OFF_HEAP
+                ? OffHeapTransactionDao.getInstance()
+                : InMemoryTransactionDao.getInstance();
+    }
+
+    // merges two id ordered lists, transactions of the journal tail may already be in the snapshot
+    private static void restoreInOrder(TransactionDao transactions, List<Transaction> snapshotTransactions,
+                                       List<Transaction> journalTransactions) {
+        int snapshotIndex = 0;
+        int journalIndex = 0;
+        while (snapshotIndex < snapshotTransactions.size() || journalIndex < journalTransactions.size()) {
+            Transaction next;
+            if (journalIndex == journalTransactions.size()) {
+                next = snapshotTransactions.get(snapshotIndex++);
+            } else if (snapshotIndex == snapshotTransactions.size()) {
+                next = journalTransactions.get(journalIndex++);
+            } else {
+                long snapshotId = snapshotTransactions.get(snapshotIndex).getId();
+                long journalId = journalTransactions.get(journalIndex).getId();
+                next = snapshotId <= journalId ? snapshotTransactions.get(snapshotIndex++) : journalTransactions.get(journalIndex++);
+                if (snapshotId == journalId) {
+                    journalIndex++;
+                }
+            }
+            transactions.restore(next);
+        }
+    }
+
+    private static class RestoringListener implements JournalListener {
+
+        private final InMemoryAccountDao accounts;
+
+        private final List<Transaction> transactions;
+
+        private RestoringListener(InMemoryAccountDao accounts, List<Transaction> transactions) {
+            this.accounts = accounts;
+            this.transactions = transactions;
+        }
+
+        @Override
+        public void onAccount(Account account) {
+            accounts.restore(account);
+        }
+
+        @Override
+        public void onAccountDeleted(String uuid) {
+            accounts.delete(uuid);
+        }
+
+        @Override
+        public void onTransaction(Transaction transaction) {
+            transactions.add(transaction);
+        }
+
+        @Override
+        public void onPosting(Transaction leg, Account ownerAccount, Account otherAccount) {
+            transactions.add(leg);
+            restoreBalance(ownerAccount);
+            restoreBalance(otherAccount);
+        }
+
+        // account deleted later in the journal may be already missing from a fuzzy snapshot
+        private void restoreBalance(Account balance) {
+            accounts.getEntityById(balance.getId()).ifPresent(existing -> accounts.restore(existing.toBuilder()
+                    .version(balance.getVersion())
+                    .total(balance.getTotal())
+                    .build()));
+        }
+
+    }
+
+}
@@ -1,12 +1,16 @@
 package com.revolut.dao;
 
-import java.util.ArrayList;
-import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
 
 import com.revolut.dao.model.DomainEntity;
 
 public abstract class InMemoryDao<T extends DomainEntity> implements Dao<T> {
 
-    protected final List<T> entities = new ArrayList<>();
+    // primary index by uuid
+    protected final ConcurrentMap<String, T> entities = new ConcurrentHashMap<>();
+
+    // secondary index by id generated by database
+    protected final ConcurrentMap<Long, T> entitiesById = new ConcurrentHashMap<>();
 
 }
@@ -0,0 +1,22 @@
+package com.revolut.dao;
+
+import java.nio.file.Path;
+
+import lombok.Builder;
+import lombok.Getter;
+
+// durable storage settings, snapshots are not written when snapshot file is null
+@Builder
+@Getter
+public class StorageConfig {
+
+    private final Path journalFile;
+    private final Path snapshotFile;
+    @Builder.Default
+    private final int commitBatchSize = 256;
+    @Builder.Default
+    private final long commitMaxWaitMicros = 100;
+    @Builder.Default
+    private final long snapshotIntervalSeconds = 300;
+
+}
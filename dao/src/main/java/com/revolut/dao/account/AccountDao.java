@@ -1,14 +1,35 @@
 package com.revolut.dao.account;
 
 import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
 
 import com.revolut.dao.Dao;
+import com.revolut.dao.exception.DaoValidationException;
 import com.revolut.dao.model.Account;
+import com.revolut.dao.model.Transaction;
 
 public interface AccountDao extends Dao<Account> {
 
+    Optional<Account> getEntityById(Long id);
+
     List<Account> getAll();
 
-    boolean updateAccounts(List<Account> accounts);
+    // reads below don't attach transaction history
+    Optional<Account> getEntityWithoutHistory(String uuid);
+
+    List<Account> getAllWithoutHistory();
+
+    // saves all accounts at once only if none of them changed since the given versions were read
+    boolean compareAndSet(List<Account> accounts) throws DaoValidationException;
+
+    // as compare and set, also posts the transfer leg while the accounts are held, returns the posted leg on success
+    Optional<Transaction> post(List<Account> accounts, Transaction leg) throws DaoValidationException;
+
+    // as post, but returns once the posting is applied in memory, the future completes when it is also durable
+    Optional<CompletableFuture<Transaction>> postAsync(List<Account> accounts, Transaction leg) throws DaoValidationException;
+
+    // as post for many legs between the given accounts, all of them are stored and made durable as one unit
+    Optional<List<Transaction>> postAll(List<Account> accounts, List<Transaction> legs) throws DaoValidationException;
 
 }
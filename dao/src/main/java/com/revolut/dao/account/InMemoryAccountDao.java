@@ -1,20 +1,27 @@
 package com.revolut.dao.account;
 
 import java.util.ArrayList;
-import java.util.Iterator;
 import java.util.List;
-import java.util.Objects;
 import java.util.Optional;
 import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
 import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.Lock;
+import java.util.function.BiFunction;
+import java.util.function.Function;
 import java.util.stream.Collectors;
 
 import com.revolut.dao.InMemoryDao;
 import com.revolut.dao.exception.DaoValidationException;
+import com.revolut.dao.lock.StripedLock;
 import com.revolut.dao.model.Account;
+import com.revolut.dao.model.Transaction;
 import com.revolut.dao.transation.InMemoryTransactionDao;
 import com.revolut.dao.transation.TransactionDao;
 
+import static java.util.Collections.emptyList;
+import static java.util.Collections.singletonList;
+
 //TODO: delete operation should save history in some way
 public class InMemoryAccountDao extends InMemoryDao<Account> implements AccountDao {
 
@@ -22,7 +29,10 @@ public class InMemoryAccountDao extends InMemoryDao<Account> implements AccountD
 
     private static volatile InMemoryAccountDao instance;
 
-    private TransactionDao transactionDao;
+    // every write of an account is done under its stripe
+    private final StripedLock accountLocks = new StripedLock();
+
+    private volatile TransactionDao transactionDao;
 
     private InMemoryAccountDao() {
         transactionDao = InMemoryTransactionDao.getInstance();
@@ -35,133 +45,232 @@ public class InMemoryAccountDao extends InMemoryDao<Account> implements AccountD
         return instance;
     }
 
+    // store the transaction history is read from
+    public void setTransactionDao(TransactionDao transactionDao) {
+        this.transactionDao = transactionDao;
+    }
+
     @Override
     public Optional<Account> getEntity(String uuid) {
-        return entities.stream()
-                .filter(account -> Objects.equals(account.getUuid(), uuid))
-                .findFirst()
-                .map(this::copy)
-                .map(this::setTransactionHistory);
+        return Optional.ofNullable(uuid)
+                .map(entities::get)
+                .map(this::withTransactionHistory);
+    }
+
+    @Override
+    public Optional<Account> getEntityById(Long id) {
+        return Optional.ofNullable(id)
+                .map(entitiesById::get)
+                .map(this::withTransactionHistory);
     }
 
     @Override
     public Account save(Account account) throws DaoValidationException {
+        return withTransactionHistory(save(account, Function.identity()));
+    }
+
+    // as save, whileHeld gets the account as stored before it is released, its result is returned
+    public <T> T save(Account account, Function<Account, T> whileHeld) throws DaoValidationException {
         validate(account);
-        Account copy = copy(account);
-        if (copy.getUuid() == null) {
-            copy.setUuid(UUID.randomUUID().toString());
-        }
-        int accountIndex = entities.size();
-        synchronized (entities) {
-            for (int i = 0; i < entities.size(); i++) {
-                if (Objects.equals(entities.get(i).getUuid(), copy.getUuid())) {
-                    accountIndex = i;
-                    break;
-                }
-            }
-            if (accountIndex < entities.size()) {
-                copy.setId(entities.get(accountIndex).getId());
-                entities.set(accountIndex, copy);
-            } else {
-                copy.setId(dbIdGenerator.getAndIncrement());
-                entities.add(copy);
+        String uuid = account.getUuid() != null ? account.getUuid() : UUID.randomUUID().toString();
+        Lock[] locks = accountLocks.lockAll(singletonList(uuid));
+        try {
+            Account existing = entities.get(uuid);
+            if (existing != null) {
+                return whileHeld.apply(store(account, uuid, existing.getId(), existing.getVersion() + 1));
             }
+            return whileHeld.apply(store(account, uuid, dbIdGenerator.getAndIncrement(), 0));
+        } finally {
+            StripedLock.unlockAll(locks);
         }
-        copy = copy(entities.get(accountIndex));
-        return setTransactionHistory(copy);
     }
 
     @Override
     public Optional<Account> delete(String uuid) {
-        Optional<Account> removed = Optional.empty();
-        synchronized (entities) {
-            Iterator<Account> accountIterator = entities.iterator();
-            while (accountIterator.hasNext()) {
-                Account account = accountIterator.next();
-                if (Objects.equals(account.getUuid(), uuid)) {
-                    accountIterator.remove();
-                    removed = Optional.of(account);
-                    break;
-                }
-            }
+        return delete(uuid, Function.identity());
+    }
+
+    // as delete, whileHeld gets the removed account before its uuid is released, its result is returned
+    public <T> Optional<T> delete(String uuid, Function<Account, T> whileHeld) {
+        if (uuid == null) {
+            return Optional.empty();
+        }
+        Lock[] locks = accountLocks.lockAll(singletonList(uuid));
+        try {
+            Optional<Account> removed = Optional.ofNullable(entities.remove(uuid));
+            removed.ifPresent(account -> entitiesById.remove(account.getId()));
+            return removed.map(whileHeld);
+        } finally {
+            StripedLock.unlockAll(locks);
         }
-        return removed;
     }
 
     @Override
     public List<Account> deleteAll() {
-        List<Account> removed;
-        synchronized (entities) {
-            removed = new ArrayList<>(entities);
-            entities.clear();
+        List<Account> removed = new ArrayList<>(entities.size());
+        for (String uuid : entities.keySet()) {
+            delete(uuid).ifPresent(removed::add);
         }
         return removed;
     }
 
+    @Override
+    public void restore(Account account) {
+        Lock[] locks = accountLocks.lockAll(singletonList(account.getUuid()));
+        try {
+            Account existing = entities.get(account.getUuid());
+            if (existing == null || existing.getVersion() < account.getVersion()) {
+                store(account, account.getUuid(), account.getId(), account.getVersion());
+                dbIdGenerator.accumulateAndGet(account.getId() + 1, Math::max);
+            }
+        } finally {
+            StripedLock.unlockAll(locks);
+        }
+    }
+
     @Override
     public List<Account> getAll() {
-        synchronized (entities) {
-            return entities.stream()
-                    .map(this::copy)
-                    .map(this::setTransactionHistory)
-                    .collect(Collectors.toList());
+        return entities.values().stream()
+                .map(this::withTransactionHistory)
+                .collect(Collectors.toList());
+    }
+
+    @Override
+    public Optional<Account> getEntityWithoutHistory(String uuid) {
+        // stored snapshots never carry history
+        return Optional.ofNullable(uuid)
+                .map(entities::get);
+    }
+
+    @Override
+    public List<Account> getAllWithoutHistory() {
+        return new ArrayList<>(entities.values());
+    }
+
+    @Override
+    public boolean compareAndSet(List<Account> accounts) throws DaoValidationException {
+        return compareAndSet(accounts, Function.identity()).isPresent();
+    }
+
+    // as compareAndSet, whileHeld gets the accounts as stored before they are released, empty if any was changed
+    public <T> Optional<T> compareAndSet(List<Account> accounts, Function<List<Account>, T> whileHeld)
+            throws DaoValidationException {
+        for (Account account : accounts) {
+            validate(account);
+        }
+        Lock[] locks = accountLocks.lockAll(accounts.stream().map(Account::getUuid).collect(Collectors.toList()));
+        try {
+            List<Account> existingAccounts = getUnchanged(accounts);
+            if (existingAccounts == null) {
+                return Optional.empty();
+            }
+            return Optional.of(whileHeld.apply(storeUpdated(accounts, existingAccounts)));
+        } finally {
+            StripedLock.unlockAll(locks);
         }
     }
 
     @Override
-    public boolean updateAccounts(List<Account> accounts) {
-        synchronized (entities) {
-            List<Account> validForUpdate = accounts.stream()
-                    .map(account -> getEntity(account.getUuid())
-                            .filter(savedAccount -> savedAccount.getTransactionHistory().size() - 1 == account.getTransactionHistory()
-                                    .size()
-                                    && savedAccount.getTransactionHistory().containsAll(account.getTransactionHistory())))
-                    .filter(Optional::isPresent)
-                    .map(Optional::get)
-                    .collect(Collectors.toList());
-            if (validForUpdate.size() == accounts.size()) {
-                try {
-                    for (Account account : accounts) {
-                        save(account);
-                    }
-                    return true;
-                } catch (DaoValidationException e) {
-                    rollBack(validForUpdate);
-                }
+    public Optional<Transaction> post(List<Account> accounts, Transaction leg) throws DaoValidationException {
+        return post(accounts, leg, (posted, stored) -> posted);
+    }
+
+    // as post, whileHeld gets the posted leg and the accounts as stored before they are released, its result is returned
+    public <T> Optional<T> post(List<Account> accounts, Transaction leg,
+                                BiFunction<Transaction, List<Account>, T> whileHeld) throws DaoValidationException {
+        for (Account account : accounts) {
+            validate(account);
+        }
+        Lock[] locks = accountLocks.lockAll(accounts.stream().map(Account::getUuid).collect(Collectors.toList()));
+        try {
+            List<Account> existingAccounts = getUnchanged(accounts);
+            if (existingAccounts == null) {
+                return Optional.empty();
             }
-            return false;
+            // a failed posting leaves accounts untouched
+            Transaction posted = transactionDao.post(leg);
+            return Optional.of(whileHeld.apply(posted, storeUpdated(accounts, existingAccounts)));
+        } finally {
+            StripedLock.unlockAll(locks);
         }
     }
 
-    private Account copy(Account account) {
-        Account copy = Account.builder()
-                .uuid(account.getUuid())
-                .currency(account.getCurrency())
-                .total(account.getTotal())
-                .build();
-        copy.setId(account.getId());
-        return copy;
+    @Override
+    // nothing to wait for in memory
+    public Optional<CompletableFuture<Transaction>> postAsync(List<Account> accounts, Transaction leg) throws DaoValidationException {
+        return post(accounts, leg).map(CompletableFuture::completedFuture);
     }
 
-    private Account setTransactionHistory(Account account) {
-        account.setTransactionHistory(transactionDao.getEntities(account.getId()));
-        return account;
+    @Override
+    public Optional<List<Transaction>> postAll(List<Account> accounts, List<Transaction> legs) throws DaoValidationException {
+        return postAll(accounts, legs, (posted, stored) -> posted);
     }
 
-    private void validate(Account account) throws DaoValidationException {
-        if (account.getUuid() == null || account.getCurrency() == null) {
-            throw new DaoValidationException("Account uuid and currency can't be null");
+    // as postAll, whileHeld gets the posted legs and the accounts as stored before they are released
+    public <T> Optional<T> postAll(List<Account> accounts, List<Transaction> legs,
+                                   BiFunction<List<Transaction>, List<Account>, T> whileHeld) throws DaoValidationException {
+        for (Account account : accounts) {
+            validate(account);
+        }
+        Lock[] locks = accountLocks.lockAll(accounts.stream().map(Account::getUuid).collect(Collectors.toList()));
+        try {
+            List<Account> existingAccounts = getUnchanged(accounts);
+            if (existingAccounts == null) {
+                return Optional.empty();
+            }
+            List<Transaction> posted = transactionDao.postAll(legs);
+            return Optional.of(whileHeld.apply(posted, storeUpdated(accounts, existingAccounts)));
+        } finally {
+            StripedLock.unlockAll(locks);
         }
     }
 
-    private void rollBack(List<Account> accounts) {
-        // should be logic to revert to previous db state as part of transaction
-        try {
-            for (Account account : accounts) {
-                save(account);
+    // should be called under the account stripes, returns stored accounts or null if any of them has another version
+    private List<Account> getUnchanged(List<Account> accounts) {
+        List<Account> existingAccounts = new ArrayList<>(accounts.size());
+        for (Account account : accounts) {
+            Account existing = entities.get(account.getUuid());
+            if (existing == null || existing.getVersion() != account.getVersion()) {
+                return null;
             }
-        } catch (DaoValidationException ex) {
-            throw new Error("Application failed");
+            existingAccounts.add(existing);
+        }
+        return existingAccounts;
+    }
+
+    // should be called under the account stripes, returns the stored snapshots
+    private List<Account> storeUpdated(List<Account> accounts, List<Account> existingAccounts) {
+        List<Account> stored = new ArrayList<>(accounts.size());
+        for (int i = 0; i < accounts.size(); i++) {
+            Account existing = existingAccounts.get(i);
+            stored.add(store(accounts.get(i), existing.getUuid(), existing.getId(), existing.getVersion() + 1));
+        }
+        return stored;
+    }
+
+    // should be called under the account stripe, publishes a new snapshot of the account
+    private Account store(Account account, String uuid, Long id, long version) {
+        Account snapshot = account.toBuilder()
+                .uuid(uuid)
+                .id(id)
+                .version(version)
+                .transactionHistory(emptyList())
+                .build();
+        entitiesById.put(id, snapshot);
+        entities.put(uuid, snapshot);
+        return snapshot;
+    }
+
+    // stored snapshot together with the history the transaction dao has for it now
+    public Account withTransactionHistory(Account account) {
+        return account.toBuilder()
+                .transactionHistory(transactionDao.getEntities(account.getId()))
+                .build();
+    }
+
+    private void validate(Account account) throws DaoValidationException {
+        if (account.getUuid() == null || account.getCurrency() == null) {
+            throw new DaoValidationException("Account uuid and currency can't be null");
         }
     }
 
@@ -0,0 +1,169 @@
+package com.revolut.dao.journal;
+
+import java.io.Closeable;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
+
+import com.revolut.dao.metrics.Histogram;
+import com.revolut.dao.metrics.Metrics;
+
+/**
+ * Makes journal appends durable in batches. Callers enqueue their units and block or take a future, a single flusher
+ * thread appends everything queued, forces the journal once and releases the whole batch.
+ * <p>
+ * The flusher takes up to {@code maxBatchSize} units and waits at most {@code maxWaitMicros} after the first one for
+ * the batch to fill up, so zero wait gives the lowest latency and a longer wait gives fewer forces under load.
+ */
+public class GroupCommit implements Closeable {
+
+    public static final String BATCH_SIZE_METRIC = "journal.commit.batchSize";
+    public static final String LATENCY_METRIC = "journal.commit.latencyMicros";
+
+    private final Journal journal;
+
+    private final int maxBatchSize;
+
+    private final long maxWaitNanos;
+
+    private final BlockingQueue<PendingUnit> queue = new LinkedBlockingQueue<>();
+
+    private final Thread flusher;
+
+    private final Histogram batchSizes = Metrics.getInstance().histogram(BATCH_SIZE_METRIC);
+
+    private final Histogram latencies = Metrics.getInstance().histogram(LATENCY_METRIC);
+
+    private volatile boolean closed;
+
+    public GroupCommit(Journal journal, int maxBatchSize, long maxWaitMicros) {
+        if (maxBatchSize < 1 || maxWaitMicros < 0) {
+            throw new IllegalArgumentException("Batch size should be positive and wait should not be negative");
+        }
+        this.journal = journal;
+        this.maxBatchSize = maxBatchSize;
+        this.maxWaitNanos = TimeUnit.MICROSECONDS.toNanos(maxWaitMicros);
+        flusher = new Thread(this::flushLoop, "journal-flusher");
+        flusher.setDaemon(true);
+        flusher.start();
+    }
+
+    // returns once the unit is forced to the storage device
+    public void commit(Consumer<Journal> unit) {
+        await(submit(unit));
+    }
+
+    // returns right away, units are appended in order of submission and the future completes once the unit is forced
+    public CompletableFuture<Void> submit(Consumer<Journal> unit) {
+        PendingUnit pending = new PendingUnit(unit);
+        synchronized (this) {
+            // nothing is enqueued after close, so the flusher never leaves a caller waiting
+            if (closed) {
+                throw new IllegalStateException("Journal is closed");
+            }
+            queue.add(pending);
+        }
+        return pending.durable;
+    }
+
+    // waits for a submitted unit, failure of the unit is rethrown as is
+    public static <T> T await(CompletableFuture<T> durable) {
+        try {
+            return durable.join();
+        } catch (CompletionException ex) {
+            if (ex.getCause() instanceof RuntimeException) {
+                throw (RuntimeException) ex.getCause();
+            }
+            throw ex;
+        }
+    }
+
+    // flushes everything enqueued before and stops the flusher
+    @Override
+    public void close() {
+        synchronized (this) {
+            closed = true;
+        }
+        flusher.interrupt();
+        try {
+            flusher.join();
+        } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private void flushLoop() {
+        List<PendingUnit> batch = new ArrayList<>(maxBatchSize);
+        while (!closed || !queue.isEmpty()) {
+            try {
+                collect(batch);
+            } catch (InterruptedException ex) {
+                // woken up by close, remaining units are drained below
+                queue.drainTo(batch, maxBatchSize - batch.size());
+            }
+            if (!batch.isEmpty()) {
+                flush(batch);
+                batch.clear();
+            }
+        }
+    }
+
+    private void collect(List<PendingUnit> batch) throws InterruptedException {
+        batch.add(queue.take());
+        queue.drainTo(batch, maxBatchSize - batch.size());
+        long deadline = System.nanoTime() + maxWaitNanos;
+        while (batch.size() < maxBatchSize) {
+            long remaining = deadline - System.nanoTime();
+            PendingUnit next = remaining > 0 ? queue.poll(remaining, TimeUnit.NANOSECONDS) : null;
+            if (next == null) {
+                return;
+            }
+            batch.add(next);
+            queue.drainTo(batch, maxBatchSize - batch.size());
+        }
+    }
+
+    private void flush(List<PendingUnit> batch) {
+        List<PendingUnit> appended = new ArrayList<>(batch.size());
+        for (PendingUnit pending : batch) {
+            try {
+                pending.unit.accept(journal);
+                appended.add(pending);
+            } catch (RuntimeException ex) {
+                pending.durable.completeExceptionally(ex);
+            }
+        }
+        try {
+            journal.force();
+        } catch (RuntimeException ex) {
+            appended.forEach(pending -> pending.durable.completeExceptionally(ex));
+            return;
+        }
+        long now = System.nanoTime();
+        batchSizes.record(batch.size());
+        for (PendingUnit pending : appended) {
+            latencies.record(TimeUnit.NANOSECONDS.toMicros(now - pending.enqueuedAt));
+            pending.durable.complete(null);
+        }
+    }
+
+    private static class PendingUnit {
+
+        private final Consumer<Journal> unit;
+
+        private final long enqueuedAt = System.nanoTime();
+
+        private final CompletableFuture<Void> durable = new CompletableFuture<>();
+
+        private PendingUnit(Consumer<Journal> unit) {
+            this.unit = unit;
+        }
+
+    }
+
+}
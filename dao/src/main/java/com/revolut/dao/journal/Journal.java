@@ -0,0 +1,313 @@
+package com.revolut.dao.journal;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.function.Consumer;
+import java.util.zip.CRC32;
+
+import com.revolut.dao.exception.DaoValidationException;
+import com.revolut.dao.model.Account;
+import com.revolut.dao.model.Transaction;
+
+import static java.nio.file.StandardOpenOption.CREATE;
+import static java.nio.file.StandardOpenOption.READ;
+import static java.nio.file.StandardOpenOption.WRITE;
+
+/**
+ * Append-only file of fixed size records written through memory mapped segments.
+ * <p>
+ * The file starts with a header of one record size holding a magic number and the format version, a file of another
+ * format is rejected. Every record starts with a CRC32 of the rest of the record, its type and flags. Records appended
+ * by one call form a unit, the last record of a unit is flagged as commit. Replay stops at the first empty or broken
+ * record, drops the unfinished unit before it and wipes everything after the last complete unit, so appends continue
+ * right after it and no record of an earlier run further in the file is replayed later.
+ */
+public class Journal implements Closeable {
+
+    static final int RECORD_SIZE = 256;
+
+    // records start after it, so they stay aligned to the record size
+    static final int HEADER_SIZE = RECORD_SIZE;
+
+    private static final int MAGIC = 0x524a4e4c;
+
+    // bumped on every change of the record layout
+    private static final int FORMAT_VERSION = 1;
+
+    // holds whole number of records, so a record never spans two segments
+    static final int SEGMENT_SIZE = 64 * 1024 * 1024;
+
+    private static final byte ACCOUNT = 1;
+    private static final byte ACCOUNT_DELETED = 2;
+    private static final byte TRANSACTION = 3;
+    private static final byte POSTING = 4;
+
+    private static final byte COMMIT = 1;
+
+    private static final int CHECKSUM_SIZE = 4;
+
+    private final FileChannel channel;
+
+    private final List<MappedByteBuffer> segments = new ArrayList<>();
+
+    // records are built here and copied to the mapped segment in one go
+    private final ByteBuffer record = ByteBuffer.allocate(RECORD_SIZE);
+
+    private final CRC32 checksum = new CRC32();
+
+    private long position;
+
+    // records before it are already on the storage device
+    private long forced;
+
+    private Journal(FileChannel channel) {
+        this.channel = channel;
+    }
+
+    public static Journal open(Path file, JournalListener listener) throws IOException {
+        return open(file, listener, 0);
+    }
+
+    // replays only records appended at the given position or after it, e.g. the tail after a snapshot, 0 replays all
+    public static Journal open(Path file, JournalListener listener, long fromPosition) throws IOException {
+        if (fromPosition < 0 || fromPosition % RECORD_SIZE != 0) {
+            throw new IllegalArgumentException(String.format("Position %d is not a record boundary", fromPosition));
+        }
+        Journal journal = new Journal(FileChannel.open(file, CREATE, READ, WRITE));
+        try {
+            journal.replay(listener, fromPosition);
+        } catch (IOException | RuntimeException ex) {
+            journal.close();
+            throw ex;
+        }
+        return journal;
+    }
+
+    public static void validate(Account account) throws DaoValidationException {
+        RecordCodec.validate(account);
+    }
+
+    public static void validate(Transaction transaction) throws DaoValidationException {
+        RecordCodec.validate(transaction);
+    }
+
+    public synchronized void appendAccounts(List<Account> accounts) {
+        for (int i = 0; i < accounts.size(); i++) {
+            Account account = accounts.get(i);
+            beginRecord(ACCOUNT, i == accounts.size() - 1);
+            RecordCodec.putAccount(record, account);
+            endRecord();
+        }
+    }
+
+    public synchronized void appendAccountDeleted(String uuid) {
+        beginRecord(ACCOUNT_DELETED, true);
+        RecordCodec.putString(record, uuid);
+        endRecord();
+    }
+
+    public synchronized void appendTransaction(Transaction transaction) {
+        beginRecord(TRANSACTION, true);
+        RecordCodec.putTransaction(record, transaction);
+        endRecord();
+    }
+
+    // transfer leg together with both accounts it changed as one record
+    public synchronized void appendPosting(Transaction leg, Account ownerAccount, Account otherAccount) {
+        beginRecord(POSTING, true);
+        RecordCodec.putTransaction(record, leg);
+        RecordCodec.putBalance(record, ownerAccount);
+        RecordCodec.putBalance(record, otherAccount);
+        endRecord();
+    }
+
+    // legs of many transfers followed by every account they changed, as one unit
+    public synchronized void appendPostings(List<Transaction> legs, List<Account> accounts) {
+        int last = legs.size() + accounts.size() - 1;
+        for (int i = 0; i < legs.size(); i++) {
+            beginRecord(TRANSACTION, i == last);
+            RecordCodec.putTransaction(record, legs.get(i));
+            endRecord();
+        }
+        for (int i = 0; i < accounts.size(); i++) {
+            beginRecord(ACCOUNT, legs.size() + i == last);
+            RecordCodec.putAccount(record, accounts.get(i));
+            endRecord();
+        }
+    }
+
+    // end of the last appended unit, replay from it skips everything appended so far
+    public synchronized long getPosition() {
+        return position;
+    }
+
+    // flushes records appended since the last call to the storage device, only segments holding them are forced
+    public synchronized void force() {
+        if (forced == position) {
+            return;
+        }
+        for (int i = (int) (forced / SEGMENT_SIZE); i <= (int) ((position - 1) / SEGMENT_SIZE); i++) {
+            segments.get(i).force();
+        }
+        forced = position;
+    }
+
+    @Override
+    public synchronized void close() throws IOException {
+        force();
+        segments.clear();
+        channel.close();
+    }
+
+    private void replay(JournalListener listener, long fromPosition) throws IOException {
+        long size = channel.size();
+        if (size < fromPosition) {
+            throw new IOException(String.format("Journal is shorter than replay position %d", fromPosition));
+        }
+        while ((long) segments.size() * SEGMENT_SIZE < size) {
+            mapSegment();
+        }
+        boolean written = readHeader();
+        List<Consumer<JournalListener>> unit = new ArrayList<>();
+        long offset = Math.max(fromPosition, HEADER_SIZE);
+        long committed = offset;
+        while (offset < size) {
+            ByteBuffer stored = recordAt(offset);
+            if (stored.get(stored.position() + CHECKSUM_SIZE) == 0 || !isIntact(stored)) {
+                break;
+            }
+            stored.position(stored.position() + CHECKSUM_SIZE);
+            byte type = stored.get();
+            byte flags = stored.get();
+            unit.add(readRecord(type, stored));
+            offset += RECORD_SIZE;
+            if ((flags & COMMIT) != 0) {
+                unit.forEach(event -> event.accept(listener));
+                unit.clear();
+                committed = offset;
+            }
+        }
+        // unfinished unit, a torn record after it and any record left further in the file are never replayed
+        for (long tail = committed; tail < size; tail += RECORD_SIZE) {
+            ByteBuffer stored = recordAt(tail);
+            if (!isEmpty(stored)) {
+                for (int i = 0; i < RECORD_SIZE; i++) {
+                    stored.put((byte) 0);
+                }
+                written = true;
+            }
+        }
+        // the header and wiped records may lie anywhere in the file, so they are forced once here
+        if (written) {
+            segments.forEach(MappedByteBuffer::force);
+        }
+        position = committed;
+        forced = committed;
+    }
+
+    // writes the header into a new file and tells so
+    private boolean readHeader() throws IOException {
+        ByteBuffer header = recordAt(0);
+        if (isEmpty(header)) {
+            header.putInt(MAGIC);
+            header.putInt(FORMAT_VERSION);
+            return true;
+        }
+        int magic = header.getInt();
+        int version = header.getInt();
+        if (magic != MAGIC) {
+            throw new IOException("Not a journal file");
+        }
+        if (version != FORMAT_VERSION) {
+            throw new IOException(String.format("Journal format %d is not supported, expected %d", version,
+                    FORMAT_VERSION));
+        }
+        return false;
+    }
+
+    private Consumer<JournalListener> readRecord(byte type, ByteBuffer stored) throws IOException {
+        switch (type) {
+            case ACCOUNT:
+                Account account = RecordCodec.getAccount(stored);
+                return listener -> listener.onAccount(account);
+            case ACCOUNT_DELETED:
+                String uuid = RecordCodec.getString(stored);
+                return listener -> listener.onAccountDeleted(uuid);
+            case TRANSACTION:
+                Transaction transaction = RecordCodec.getTransaction(stored);
+                return listener -> listener.onTransaction(transaction);
+            case POSTING:
+                Transaction leg = RecordCodec.getTransaction(stored);
+                Account ownerAccount = RecordCodec.getBalance(stored);
+                Account otherAccount = RecordCodec.getBalance(stored);
+                return listener -> listener.onPosting(leg, ownerAccount, otherAccount);
+            default:
+                throw new IOException(String.format("Unknown journal record type %d", type));
+        }
+    }
+
+    private static boolean isEmpty(ByteBuffer stored) {
+        for (int i = stored.position(); i < stored.limit(); i += Long.BYTES) {
+            if (stored.getLong(i) != 0) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private boolean isIntact(ByteBuffer stored) {
+        int start = stored.position();
+        checksum.reset();
+        stored.position(start + CHECKSUM_SIZE);
+        checksum.update(stored);
+        stored.position(start);
+        return stored.getInt(start) == (int) checksum.getValue();
+    }
+
+    private void beginRecord(byte type, boolean commit) {
+        record.clear();
+        record.putInt(0);
+        record.put(type);
+        record.put(commit ? COMMIT : 0);
+    }
+
+    private void endRecord() {
+        Arrays.fill(record.array(), record.position(), RECORD_SIZE, (byte) 0);
+        checksum.reset();
+        checksum.update(record.array(), CHECKSUM_SIZE, RECORD_SIZE - CHECKSUM_SIZE);
+        record.putInt(0, (int) checksum.getValue());
+        record.clear();
+        try {
+            recordAt(position).put(record);
+        } catch (IOException ex) {
+            throw new UncheckedIOException("Journal can't be extended", ex);
+        }
+        position += RECORD_SIZE;
+    }
+
+    // view of exactly one record at the given file offset
+    private ByteBuffer recordAt(long offset) throws IOException {
+        int index = (int) (offset / SEGMENT_SIZE);
+        while (segments.size() <= index) {
+            mapSegment();
+        }
+        MappedByteBuffer segment = segments.get(index);
+        segment.clear();
+        segment.position((int) (offset % SEGMENT_SIZE));
+        segment.limit(segment.position() + RECORD_SIZE);
+        return segment;
+    }
+
+    private void mapSegment() throws IOException {
+        segments.add(channel.map(FileChannel.MapMode.READ_WRITE, (long) segments.size() * SEGMENT_SIZE, SEGMENT_SIZE));
+    }
+
+}
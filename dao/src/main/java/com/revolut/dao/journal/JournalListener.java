@@ -0,0 +1,18 @@
+package com.revolut.dao.journal;
+
+import com.revolut.dao.model.Account;
+import com.revolut.dao.model.Transaction;
+
+// receives records of fully written journal units during replay, in journal order
+public interface JournalListener {
+
+    void onAccount(Account account);
+
+    void onAccountDeleted(String uuid);
+
+    void onTransaction(Transaction transaction);
+
+    // accounts carry only id, version and total after the posting
+    void onPosting(Transaction leg, Account ownerAccount, Account otherAccount);
+
+}
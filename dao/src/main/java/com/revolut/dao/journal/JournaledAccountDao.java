@@ -0,0 +1,140 @@
+package com.revolut.dao.journal;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
+
+import com.revolut.dao.account.AccountDao;
+import com.revolut.dao.account.InMemoryAccountDao;
+import com.revolut.dao.exception.DaoValidationException;
+import com.revolut.dao.model.Account;
+import com.revolut.dao.model.Transaction;
+
+import static java.util.Collections.singletonList;
+
+// keeps accounts in the delegate and returns once every applied change is durable in the journal
+public class JournaledAccountDao implements AccountDao {
+
+    private final InMemoryAccountDao delegate;
+
+    private final GroupCommit groupCommit;
+
+    public JournaledAccountDao(InMemoryAccountDao delegate, GroupCommit groupCommit) {
+        this.delegate = delegate;
+        this.groupCommit = groupCommit;
+    }
+
+    @Override
+    public Optional<Account> getEntity(String uuid) {
+        return delegate.getEntity(uuid);
+    }
+
+    @Override
+    public Optional<Account> getEntityById(Long id) {
+        return delegate.getEntityById(id);
+    }
+
+    @Override
+    public Optional<Account> getEntityWithoutHistory(String uuid) {
+        return delegate.getEntityWithoutHistory(uuid);
+    }
+
+    @Override
+    public List<Account> getAll() {
+        return delegate.getAll();
+    }
+
+    @Override
+    public List<Account> getAllWithoutHistory() {
+        return delegate.getAllWithoutHistory();
+    }
+
+    // every write is enqueued while the delegate holds the accounts, so the journal has them in the applied order
+    @Override
+    public Account save(Account account) throws DaoValidationException {
+        Journal.validate(account);
+        Account saved = GroupCommit.await(delegate.save(account, stored ->
+                groupCommit.submit(journal -> journal.appendAccounts(singletonList(stored)))
+                        .thenApply(durable -> stored)));
+        return delegate.withTransactionHistory(saved);
+    }
+
+    @Override
+    public boolean compareAndSet(List<Account> accounts) throws DaoValidationException {
+        for (Account account : accounts) {
+            Journal.validate(account);
+        }
+        Optional<CompletableFuture<Void>> stored = delegate.compareAndSet(accounts, storedAccounts ->
+                groupCommit.submit(journal -> journal.appendAccounts(storedAccounts)));
+        stored.ifPresent(GroupCommit::await);
+        return stored.isPresent();
+    }
+
+    @Override
+    public Optional<Transaction> post(List<Account> accounts, Transaction leg) throws DaoValidationException {
+        return postAsync(accounts, leg).map(GroupCommit::await);
+    }
+
+    @Override
+    public Optional<CompletableFuture<Transaction>> postAsync(List<Account> accounts, Transaction leg) throws DaoValidationException {
+        Journal.validate(leg);
+        return delegate.post(accounts, leg, (posted, stored) -> {
+            Account ownerAccount = stored(stored, posted.getOwnerAccountId());
+            Account otherAccount = stored(stored, posted.getOtherAccountId());
+            return groupCommit.submit(journal -> journal.appendPosting(posted, ownerAccount, otherAccount))
+                    .thenApply(durable -> posted);
+        });
+    }
+
+    @Override
+    public Optional<List<Transaction>> postAll(List<Account> accounts, List<Transaction> legs) throws DaoValidationException {
+        for (Account account : accounts) {
+            Journal.validate(account);
+        }
+        for (Transaction leg : legs) {
+            Journal.validate(leg);
+        }
+        Optional<CompletableFuture<List<Transaction>>> posted = delegate.postAll(accounts, legs, (postedLegs, stored) ->
+                groupCommit.submit(journal -> journal.appendPostings(postedLegs, stored))
+                        .thenApply(durable -> postedLegs));
+        return posted.map(GroupCommit::await);
+    }
+
+    @Override
+    public Optional<Account> delete(String uuid) {
+        return removeAsync(uuid).map(GroupCommit::await);
+    }
+
+    @Override
+    public List<Account> deleteAll() {
+        List<CompletableFuture<Account>> removing = new ArrayList<>();
+        for (Account account : delegate.getAllWithoutHistory()) {
+            removeAsync(account.getUuid()).ifPresent(removing::add);
+        }
+        List<Account> removed = new ArrayList<>(removing.size());
+        for (CompletableFuture<Account> durable : removing) {
+            removed.add(GroupCommit.await(durable));
+        }
+        return removed;
+    }
+
+    @Override
+    public void restore(Account account) {
+        delegate.restore(account);
+    }
+
+    private Optional<CompletableFuture<Account>> removeAsync(String uuid) {
+        return delegate.delete(uuid, removed ->
+                groupCommit.submit(journal -> journal.appendAccountDeleted(removed.getUuid()))
+                        .thenApply(durable -> removed));
+    }
+
+    private static Account stored(List<Account> stored, Long id) {
+        return stored.stream()
+                .filter(candidate -> candidate.getId().equals(id))
+                .findFirst()
+                .orElseThrow(() -> new IllegalStateException(String.format("Posting account %d is not saved", id)));
+    }
+
+}
@@ -0,0 +1,86 @@
+package com.revolut.dao.journal;
+
+import java.util.List;
+import java.util.Optional;
+
+import com.revolut.dao.exception.DaoValidationException;
+import com.revolut.dao.model.Transaction;
+import com.revolut.dao.transation.TransactionDao;
+
+import static java.util.Collections.emptyList;
+
+// keeps transactions in the delegate and returns once every saved one is durable in the journal
+public class JournaledTransactionDao implements TransactionDao {
+
+    private final TransactionDao delegate;
+
+    private final GroupCommit groupCommit;
+
+    public JournaledTransactionDao(TransactionDao delegate, GroupCommit groupCommit) {
+        this.delegate = delegate;
+        this.groupCommit = groupCommit;
+    }
+
+    @Override
+    public List<Transaction> getEntities(Long accountId) {
+        return delegate.getEntities(accountId);
+    }
+
+    @Override
+    public List<Transaction> getEntities(Long accountId, Long afterId, int limit) {
+        return delegate.getEntities(accountId, afterId, limit);
+    }
+
+    @Override
+    public List<Transaction> getAll() {
+        return delegate.getAll();
+    }
+
+    @Override
+    public Optional<Transaction> getEntity(String uuid) {
+        return delegate.getEntity(uuid);
+    }
+
+    @Override
+    public Transaction save(Transaction transaction) throws DaoValidationException {
+        Journal.validate(transaction);
+        Transaction saved = delegate.save(transaction);
+        groupCommit.commit(journal -> journal.appendTransaction(saved));
+        return saved;
+    }
+
+    @Override
+    public Transaction post(Transaction leg) throws DaoValidationException {
+        Journal.validate(leg);
+        Transaction posted = delegate.post(leg);
+        groupCommit.commit(journal -> journal.appendTransaction(posted));
+        return posted;
+    }
+
+    @Override
+    public List<Transaction> postAll(List<Transaction> legs) throws DaoValidationException {
+        for (Transaction leg : legs) {
+            Journal.validate(leg);
+        }
+        List<Transaction> posted = delegate.postAll(legs);
+        groupCommit.commit(journal -> journal.appendPostings(posted, emptyList()));
+        return posted;
+    }
+
+    @Override
+    public Optional<Transaction> delete(String uuid) {
+        return delegate.delete(uuid);
+    }
+
+    @Override
+    // left for tests, journal keeps removed transactions
+    public List<Transaction> deleteAll() {
+        return delegate.deleteAll();
+    }
+
+    @Override
+    public void restore(Transaction transaction) {
+        delegate.restore(transaction);
+    }
+
+}
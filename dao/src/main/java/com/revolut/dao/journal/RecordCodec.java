@@ -0,0 +1,143 @@
+package com.revolut.dao.journal;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+
+import com.revolut.dao.exception.DaoValidationException;
+import com.revolut.dao.model.Account;
+import com.revolut.dao.model.Currency;
+import com.revolut.dao.model.Transaction;
+import com.revolut.dao.model.TransactionType;
+
+// binary layout of accounts and transactions shared by journal records and snapshot chunks
+final class RecordCodec {
+
+    // upper bound of an encoded account or transaction
+    static final int MAX_ENCODED_SIZE = 240;
+
+    private static final int MAX_STRING_BYTES = 64;
+
+    private static final byte DOUBLE_ENTRY = 1;
+
+    private RecordCodec() {
+    }
+
+    static void validate(Account account) throws DaoValidationException {
+        if (!fits(account.getUuid())) {
+            throw new DaoValidationException("Account uuid is too long to be journaled");
+        }
+    }
+
+    static void validate(Transaction transaction) throws DaoValidationException {
+        if (!fits(transaction.getUuid()) || !fits(transaction.getDescription())) {
+            throw new DaoValidationException("Transaction uuid or description is too long to be journaled");
+        }
+    }
+
+    static void putAccount(ByteBuffer buffer, Account account) {
+        buffer.putLong(account.getId());
+        buffer.putLong(account.getVersion());
+        buffer.put((byte) account.getCurrency().ordinal());
+        buffer.putLong(account.getTotal());
+        putString(buffer, account.getUuid());
+    }
+
+    static Account getAccount(ByteBuffer buffer) {
+        return Account.builder()
+                .id(buffer.getLong())
+                .version(buffer.getLong())
+                .currency(Currency.values()[buffer.get()])
+                .total(buffer.getLong())
+                .uuid(getString(buffer))
+                .build();
+    }
+
+    static void putTransaction(ByteBuffer buffer, Transaction transaction) {
+        buffer.putLong(transaction.getId());
+        putString(buffer, transaction.getUuid());
+        buffer.putLong(transaction.getOwnerAccountId());
+        buffer.putLong(transaction.getOtherAccountId());
+        buffer.put((byte) transaction.getType().ordinal());
+        buffer.put((byte) transaction.getCurrency().ordinal());
+        buffer.put(transaction.isDoubleEntry() ? DOUBLE_ENTRY : 0);
+        buffer.putLong(transaction.getAmount());
+        buffer.putLong(transaction.getCreatedAt().toEpochSecond(ZoneOffset.UTC));
+        buffer.putInt(transaction.getCreatedAt().getNano());
+        putString(buffer, transaction.getDescription());
+    }
+
+    static Transaction getTransaction(ByteBuffer buffer) {
+        return Transaction.builder()
+                .id(buffer.getLong())
+                .uuid(getString(buffer))
+                .ownerAccountId(buffer.getLong())
+                .otherAccountId(buffer.getLong())
+                .type(TransactionType.values()[buffer.get()])
+                .currency(Currency.values()[buffer.get()])
+                .doubleEntry(buffer.get() == DOUBLE_ENTRY)
+                .amount(buffer.getLong())
+                .createdAt(LocalDateTime.ofEpochSecond(buffer.getLong(), buffer.getInt(), ZoneOffset.UTC))
+                .description(getString(buffer))
+                .build();
+    }
+
+    // state of an account changed by a posting, the rest of the account stays as it was
+    static void putBalance(ByteBuffer buffer, Account account) {
+        buffer.putLong(account.getId());
+        buffer.putLong(account.getVersion());
+        buffer.putLong(account.getTotal());
+    }
+
+    static Account getBalance(ByteBuffer buffer) {
+        return Account.builder()
+                .id(buffer.getLong())
+                .version(buffer.getLong())
+                .total(buffer.getLong())
+                .build();
+    }
+
+    static void putString(ByteBuffer buffer, String value) {
+        if (value == null) {
+            buffer.put((byte) -1);
+            return;
+        }
+        if (isAscii(value)) {
+            // common case of uuids, written without allocating a byte array
+            buffer.put((byte) value.length());
+            for (int i = 0; i < value.length(); i++) {
+                buffer.put((byte) value.charAt(i));
+            }
+        } else {
+            byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+            buffer.put((byte) bytes.length);
+            buffer.put(bytes);
+        }
+    }
+
+    static String getString(ByteBuffer buffer) {
+        int length = buffer.get();
+        if (length < 0) {
+            return null;
+        }
+        byte[] bytes = new byte[length];
+        buffer.get(bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    private static boolean fits(String value) {
+        return value == null || value.length() <= MAX_STRING_BYTES
+                && (isAscii(value) || value.getBytes(StandardCharsets.UTF_8).length <= MAX_STRING_BYTES);
+    }
+
+    private static boolean isAscii(String value) {
+        for (int i = 0; i < value.length(); i++) {
+            if (value.charAt(i) >= 0x80) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+}
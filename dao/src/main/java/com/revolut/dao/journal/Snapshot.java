@@ -0,0 +1,237 @@
+package com.revolut.dao.journal;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.stream.IntStream;
+import java.util.zip.CRC32;
+
+import com.revolut.dao.model.Account;
+import com.revolut.dao.model.Transaction;
+
+import static java.nio.file.StandardOpenOption.CREATE;
+import static java.nio.file.StandardOpenOption.READ;
+import static java.nio.file.StandardOpenOption.TRUNCATE_EXISTING;
+import static java.nio.file.StandardOpenOption.WRITE;
+
+/**
+ * Point-in-time image of accounts and transactions together with the journal position it was taken at.
+ * <p>
+ * Entities are packed into chunks of variable size records, the header points to a table with offset, size, count
+ * and CRC32 of every chunk. Chunks are mapped and decoded independently, so loading uses all cores. The file is
+ * written next to the target and moved over it, so a reader always sees a complete snapshot or the previous one.
+ */
+public final class Snapshot {
+
+    private static final int MAGIC = 0x534E4150;
+    private static final int FORMAT_VERSION = 3;
+
+    private static final int HEADER_SIZE = 32;
+    private static final int CHUNK_ENTRY_SIZE = 20;
+    private static final int CHUNK_SIZE = 1024 * 1024;
+
+    private Snapshot() {
+    }
+
+    // transactions should be ordered by id
+    public static void write(Path file, long journalPosition, Collection<Account> accounts,
+                             Collection<Transaction> transactions) throws IOException {
+        Path temporary = file.resolveSibling(file.getFileName() + ".tmp");
+        try (FileChannel channel = FileChannel.open(temporary, CREATE, TRUNCATE_EXISTING, WRITE)) {
+            ChunkWriter writer = new ChunkWriter(channel);
+            for (Account account : accounts) {
+                RecordCodec.putAccount(writer.next(), account);
+            }
+            int accountChunks = writer.finish();
+            for (Transaction transaction : transactions) {
+                RecordCodec.putTransaction(writer.next(), transaction);
+            }
+            int transactionChunks = writer.finish() - accountChunks;
+            long tableOffset = writer.position;
+            ByteBuffer table = ByteBuffer.allocate(writer.chunks.size() * CHUNK_ENTRY_SIZE);
+            writer.chunks.forEach(chunk -> chunk.writeTo(table));
+            table.flip();
+            writeFully(channel, table, tableOffset);
+            ByteBuffer header = ByteBuffer.allocate(HEADER_SIZE);
+            header.putInt(MAGIC)
+                    .putInt(FORMAT_VERSION)
+                    .putLong(journalPosition)
+                    .putLong(tableOffset)
+                    .putInt(accountChunks)
+                    .putInt(transactionChunks)
+                    .flip();
+            writeFully(channel, header, 0);
+            channel.force(true);
+        }
+        Files.move(temporary, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    }
+
+    /**
+     * Passes stored entities to the listener and returns the journal position the snapshot was taken at.
+     * Accounts are passed concurrently from several threads, transactions are passed in order of their ids.
+     */
+    public static long load(Path file, JournalListener listener) throws IOException {
+        try (FileChannel channel = FileChannel.open(file, READ)) {
+            ByteBuffer header = ByteBuffer.allocate(HEADER_SIZE);
+            readFully(channel, header, 0);
+            header.flip();
+            if (header.getInt() != MAGIC || header.getInt() != FORMAT_VERSION) {
+                throw new IOException(String.format("File %s is not a snapshot", file));
+            }
+            long journalPosition = header.getLong();
+            long tableOffset = header.getLong();
+            int accountChunks = header.getInt();
+            int transactionChunks = header.getInt();
+            ByteBuffer table = ByteBuffer.allocate((accountChunks + transactionChunks) * CHUNK_ENTRY_SIZE);
+            readFully(channel, table, tableOffset);
+            table.flip();
+            List<Chunk> chunks = new ArrayList<>(accountChunks + transactionChunks);
+            while (table.hasRemaining()) {
+                chunks.add(Chunk.readFrom(table));
+            }
+            IntStream.range(0, accountChunks).parallel().forEach(index -> {
+                ByteBuffer chunk = chunks.get(index).map(channel);
+                while (chunk.hasRemaining()) {
+                    listener.onAccount(RecordCodec.getAccount(chunk));
+                }
+            });
+            // decoded in parallel, passed on in order
+            Transaction[][] transactions = new Transaction[transactionChunks][];
+            IntStream.range(0, transactionChunks).parallel().forEach(index -> {
+                Chunk stored = chunks.get(accountChunks + index);
+                ByteBuffer chunk = stored.map(channel);
+                transactions[index] = new Transaction[stored.count];
+                for (int i = 0; i < stored.count; i++) {
+                    transactions[index][i] = RecordCodec.getTransaction(chunk);
+                }
+            });
+            for (Transaction[] chunk : transactions) {
+                for (Transaction transaction : chunk) {
+                    listener.onTransaction(transaction);
+                }
+            }
+            return journalPosition;
+        } catch (CorruptedChunkException ex) {
+            throw new IOException(String.format("Snapshot %s is corrupted", file), ex);
+        }
+    }
+
+    private static void writeFully(FileChannel channel, ByteBuffer buffer, long offset) throws IOException {
+        while (buffer.hasRemaining()) {
+            offset += channel.write(buffer, offset);
+        }
+    }
+
+    private static void readFully(FileChannel channel, ByteBuffer buffer, long offset) throws IOException {
+        while (buffer.hasRemaining()) {
+            int read = channel.read(buffer, offset);
+            if (read < 0) {
+                throw new IOException("Unexpected end of snapshot");
+            }
+            offset += read;
+        }
+    }
+
+    private static class ChunkWriter {
+
+        private final FileChannel channel;
+
+        private final ByteBuffer buffer = ByteBuffer.allocate(CHUNK_SIZE);
+
+        private final List<Chunk> chunks = new ArrayList<>();
+
+        private final CRC32 checksum = new CRC32();
+
+        private long position = HEADER_SIZE;
+
+        private int count;
+
+        private ChunkWriter(FileChannel channel) {
+            this.channel = channel;
+        }
+
+        // buffer with room for one more record
+        private ByteBuffer next() throws IOException {
+            if (buffer.remaining() < RecordCodec.MAX_ENCODED_SIZE) {
+                finish();
+            }
+            count++;
+            return buffer;
+        }
+
+        // writes the current chunk if it is not empty and returns number of chunks written
+        private int finish() throws IOException {
+            if (count > 0) {
+                buffer.flip();
+                checksum.reset();
+                checksum.update(buffer.array(), 0, buffer.limit());
+                chunks.add(new Chunk(position, buffer.limit(), count, (int) checksum.getValue()));
+                writeFully(channel, buffer, position);
+                position += buffer.limit();
+                buffer.clear();
+                count = 0;
+            }
+            return chunks.size();
+        }
+
+    }
+
+    private static class Chunk {
+
+        private final long offset;
+
+        private final int size;
+
+        private final int count;
+
+        private final int checksum;
+
+        private Chunk(long offset, int size, int count, int checksum) {
+            this.offset = offset;
+            this.size = size;
+            this.count = count;
+            this.checksum = checksum;
+        }
+
+        private static Chunk readFrom(ByteBuffer table) {
+            return new Chunk(table.getLong(), table.getInt(), table.getInt(), table.getInt());
+        }
+
+        private void writeTo(ByteBuffer table) {
+            table.putLong(offset).putInt(size).putInt(count).putInt(checksum);
+        }
+
+        private ByteBuffer map(FileChannel channel) {
+            try {
+                MappedByteBuffer mapped = channel.map(FileChannel.MapMode.READ_ONLY, offset, size);
+                CRC32 actual = new CRC32();
+                actual.update(mapped);
+                if ((int) actual.getValue() != checksum) {
+                    throw new CorruptedChunkException(null);
+                }
+                mapped.rewind();
+                return mapped;
+            } catch (IOException ex) {
+                throw new CorruptedChunkException(ex);
+            }
+        }
+
+    }
+
+    // carries failures out of parallel streams
+    private static class CorruptedChunkException extends RuntimeException {
+
+        private CorruptedChunkException(Throwable cause) {
+            super(cause);
+        }
+
+    }
+
+}
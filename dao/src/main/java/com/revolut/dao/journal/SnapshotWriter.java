@@ -0,0 +1,83 @@
+package com.revolut.dao.journal;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+import com.revolut.dao.account.AccountDao;
+import com.revolut.dao.metrics.Histogram;
+import com.revolut.dao.metrics.Metrics;
+import com.revolut.dao.transation.TransactionDao;
+
+/**
+ * Periodically writes snapshots in the background without locking the daos.
+ * <p>
+ * The journal position is taken first through the group commit, so every change journaled before it is already
+ * visible in the daos. Entities are read after that, a snapshot may also contain newer changes, which replay of the
+ * journal tail applies again without effect: accounts keep their highest version and known transactions are skipped.
+ */
+public class SnapshotWriter implements Closeable {
+
+    public static final String DURATION_METRIC = "snapshot.write.durationMillis";
+
+    private static final Logger LOGGER = Logger.getLogger(SnapshotWriter.class.getName());
+
+    private final Path file;
+
+    private final GroupCommit groupCommit;
+
+    private final AccountDao accountDao;
+
+    private final TransactionDao transactionDao;
+
+    private final ScheduledExecutorService scheduler = Executors.newSingleThreadScheduledExecutor(runnable -> {
+        Thread thread = new Thread(runnable, "snapshot-writer");
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    private final Histogram durations = Metrics.getInstance().histogram(DURATION_METRIC);
+
+    public SnapshotWriter(Path file, GroupCommit groupCommit, AccountDao accountDao, TransactionDao transactionDao) {
+        this.file = file;
+        this.groupCommit = groupCommit;
+        this.accountDao = accountDao;
+        this.transactionDao = transactionDao;
+    }
+
+    public void schedule(long intervalSeconds) {
+        scheduler.scheduleWithFixedDelay(() -> {
+            try {
+                write();
+            } catch (IOException | RuntimeException ex) {
+                // a task that throws cancels the schedule, the next attempt may succeed
+                // and until then startup falls back to the previous snapshot or the full journal
+                LOGGER.log(Level.WARNING, "Problems during snapshot write, next attempt in " + intervalSeconds + " s", ex);
+            }
+        }, intervalSeconds, intervalSeconds, TimeUnit.SECONDS);
+    }
+
+    public void write() throws IOException {
+        long startedAt = System.nanoTime();
+        long[] journalPosition = new long[1];
+        groupCommit.commit(journal -> journalPosition[0] = journal.getPosition());
+        Snapshot.write(file, journalPosition[0], accountDao.getAllWithoutHistory(), transactionDao.getAll());
+        durations.record(TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - startedAt));
+    }
+
+    @Override
+    public void close() {
+        scheduler.shutdownNow();
+        try {
+            scheduler.awaitTermination(1, TimeUnit.MINUTES);
+        } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+}
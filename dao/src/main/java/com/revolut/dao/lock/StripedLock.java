@@ -0,0 +1,59 @@
+package com.revolut.dao.lock;
+
+import java.util.Collection;
+import java.util.concurrent.locks.Lock;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Fixed set of locks shared by hashing keys onto them. Locks for several keys are always taken in stripe order,
+ * so two callers locking overlapping keys can't deadlock.
+ */
+public class StripedLock {
+
+    public static final int DEFAULT_STRIPES = 1024;
+
+    private final Lock[] stripes;
+
+    private final int mask;
+
+    public StripedLock() {
+        this(DEFAULT_STRIPES);
+    }
+
+    public StripedLock(int stripeCount) {
+        if (stripeCount <= 0 || Integer.bitCount(stripeCount) != 1) {
+            throw new IllegalArgumentException("Stripe count should be a positive power of two");
+        }
+        stripes = new Lock[stripeCount];
+        for (int i = 0; i < stripeCount; i++) {
+            stripes[i] = new ReentrantLock();
+        }
+        mask = stripeCount - 1;
+    }
+
+    public Lock[] lockAll(Collection<String> keys) {
+        int[] indexes = keys.stream()
+                .mapToInt(this::indexFor)
+                .distinct()
+                .sorted()
+                .toArray();
+        Lock[] locked = new Lock[indexes.length];
+        for (int i = 0; i < indexes.length; i++) {
+            locked[i] = stripes[indexes[i]];
+            locked[i].lock();
+        }
+        return locked;
+    }
+
+    public static void unlockAll(Lock[] locked) {
+        for (int i = locked.length - 1; i >= 0; i--) {
+            locked[i].unlock();
+        }
+    }
+
+    private int indexFor(String key) {
+        int hash = key != null ? key.hashCode() : 0;
+        return (hash ^ (hash >>> 16)) & mask;
+    }
+
+}
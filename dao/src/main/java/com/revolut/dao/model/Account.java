@@ -1,32 +1,25 @@
 package com.revolut.dao.model;
 
-import java.math.BigDecimal;
 import java.util.List;
 
-import lombok.AccessLevel;
-import lombok.AllArgsConstructor;
 import lombok.Builder;
 import lombok.EqualsAndHashCode;
 import lombok.Getter;
-import lombok.NoArgsConstructor;
-import lombok.Setter;
+import lombok.experimental.SuperBuilder;
 
 import static java.util.Collections.emptyList;
 
-@Builder
+@SuperBuilder(toBuilder = true)
 @Getter
-@Setter
-@NoArgsConstructor(access = AccessLevel.PRIVATE)
-@AllArgsConstructor(access = AccessLevel.PRIVATE)
 @EqualsAndHashCode(callSuper = true)
 public class Account extends DomainEntity {
 
-    private String uuid;
+    private final String uuid;
+    // in minor units of the currency
+    private final long total;
     @Builder.Default
-    private BigDecimal total = BigDecimal.ZERO;
+    private final Currency currency = Currency.USD;
     @Builder.Default
-    private Currency currency = Currency.USD;
-    @Builder.Default
-    private List<Transaction> transactionHistory = emptyList();
+    private final List<Transaction> transactionHistory = emptyList();
 
 }
@@ -1,8 +1,30 @@
 package com.revolut.dao.model;
 
+import java.math.BigDecimal;
+
+// amounts are kept as long numbers of minor units, e.g. cents, and converted to decimals only for clients
 public enum Currency {
 
-    USD,
-    EUR
+    USD(2),
+    EUR(2);
+
+    private final int scale;
+
+    Currency(int scale) {
+        this.scale = scale;
+    }
+
+    public int getScale() {
+        return scale;
+    }
+
+    // throws ArithmeticException if the amount has more fraction digits than the currency or doesn't fit into long
+    public long toMinorUnits(BigDecimal amount) {
+        return amount.setScale(scale).unscaledValue().longValueExact();
+    }
+
+    public BigDecimal fromMinorUnits(long amount) {
+        return BigDecimal.valueOf(amount, scale);
+    }
 
 }
@@ -1,19 +1,19 @@
 package com.revolut.dao.model;
 
-import lombok.AllArgsConstructor;
 import lombok.EqualsAndHashCode;
 import lombok.Getter;
-import lombok.NoArgsConstructor;
-import lombok.Setter;
+import lombok.experimental.SuperBuilder;
 
+// entities are immutable, so stored snapshots can be handed out without copying
 @Getter
-@Setter
-@NoArgsConstructor
-@AllArgsConstructor
+@SuperBuilder(toBuilder = true)
 @EqualsAndHashCode
 public class DomainEntity {
 
     // id generated by database
-    private Long id;
+    private final Long id;
+
+    // increased by database on every update of the entity
+    private final long version;
 
 }
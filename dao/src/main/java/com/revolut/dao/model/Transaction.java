@@ -1,32 +1,35 @@
 package com.revolut.dao.model;
 
-import java.math.BigDecimal;
 import java.time.LocalDateTime;
 
-import lombok.AccessLevel;
-import lombok.AllArgsConstructor;
-import lombok.Builder;
 import lombok.EqualsAndHashCode;
 import lombok.Getter;
-import lombok.NoArgsConstructor;
-import lombok.Setter;
+import lombok.experimental.SuperBuilder;
 
-@Builder
+@SuperBuilder(toBuilder = true)
 @Getter
-@NoArgsConstructor(access = AccessLevel.PRIVATE)
-@AllArgsConstructor(access = AccessLevel.PRIVATE)
 @EqualsAndHashCode(callSuper = true)
 public class Transaction extends DomainEntity {
 
-    @Setter
-    private String uuid;
-    private Long ownerAccountId;
-    private Long otherAccountId;
-    private TransactionType type;
-    private String description;
-    private BigDecimal amount;
-    private Currency currency;
-    @Setter
-    private LocalDateTime createdAt;
+    private final String uuid;
+    private final Long ownerAccountId;
+    private final Long otherAccountId;
+    private final TransactionType type;
+    private final String description;
+    // in minor units of the currency
+    private final long amount;
+    private final Currency currency;
+    private final LocalDateTime createdAt;
+    // one leg of a double-entry posting stored as a single record, the other leg belongs to the other account
+    private final boolean doubleEntry;
+
+    // same posting seen from the other account
+    public Transaction otherLeg() {
+        return toBuilder()
+                .ownerAccountId(otherAccountId)
+                .otherAccountId(ownerAccountId)
+                .amount(-amount)
+                .build();
+    }
 
 }
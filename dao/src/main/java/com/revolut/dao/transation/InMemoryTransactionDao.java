@@ -2,10 +2,14 @@ package com.revolut.dao.transation;
 
 import java.time.LocalDateTime;
 import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashSet;
 import java.util.List;
-import java.util.Objects;
 import java.util.Optional;
+import java.util.Set;
 import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
 import java.util.concurrent.atomic.AtomicLong;
 
 import com.revolut.dao.InMemoryDao;
@@ -14,7 +18,7 @@ import com.revolut.dao.exception.DaoValidationException;
 import lombok.AccessLevel;
 import lombok.NoArgsConstructor;
 
-import static java.util.stream.Collectors.toList;
+import static java.util.Collections.emptyList;
 
 @NoArgsConstructor(access = AccessLevel.PRIVATE)
 public class InMemoryTransactionDao extends InMemoryDao<Transaction> implements TransactionDao {
@@ -23,6 +27,12 @@ public class InMemoryTransactionDao extends InMemoryDao<Transaction> implements
 
     private static volatile InMemoryTransactionDao instance;
 
+    // append-only history per owner account, ordered by id
+    private final ConcurrentMap<Long, TransactionHistory> entitiesByOwner = new ConcurrentHashMap<>();
+
+    // uuids in use, a uuid is taken here before its transaction is added anywhere, so it can't be stored twice
+    private final Set<String> uuids = ConcurrentHashMap.newKeySet();
+
     public synchronized static InMemoryTransactionDao getInstance() {
         if (instance == null) {
             instance = new InMemoryTransactionDao();
@@ -32,93 +42,148 @@ public class InMemoryTransactionDao extends InMemoryDao<Transaction> implements
 
     @Override
     public List<Transaction> getEntities(Long accountId) {
-        synchronized (entities) {
-            return entities.stream()
-                    .filter(transaction -> Objects.equals(transaction.getOwnerAccountId(), accountId))
-                    .collect(toList());
-        }
+        TransactionHistory history = accountId != null ? entitiesByOwner.get(accountId) : null;
+        return history != null ? history.snapshot() : emptyList();
     }
 
     @Override
-    public Optional<Transaction> getEntity(String uuid) {
-        synchronized (entities) {
-            return entities.stream()
-                    .filter(transaction -> Objects.equals(transaction.getUuid(), uuid))
-                    .findFirst()
-                    .map(this::copy);
-        }
+    public List<Transaction> getEntities(Long accountId, Long afterId, int limit) {
+        TransactionHistory history = accountId != null ? entitiesByOwner.get(accountId) : null;
+        return history != null ? history.page(afterId, limit) : emptyList();
     }
 
     @Override
-    public Transaction save(Transaction transaction) throws DaoValidationException {
-        validate(transaction);
-        Transaction copy = copy(transaction);
-        transaction.setUuid(UUID.randomUUID().toString());
-        int newIndex;
-        synchronized (entities) {
-            copy.setId(dbIdGenerator.getAndIncrement());
-            copy.setCreatedAt(LocalDateTime.now());
-            entities.add(copy);
-            newIndex = entities.size() - 1;
-        }
-        return copy(entities.get(newIndex));
+    public List<Transaction> getAll() {
+        List<Transaction> all = new ArrayList<>(entitiesById.values());
+        all.sort(Comparator.comparing(Transaction::getId));
+        return all;
     }
 
     @Override
-    public Optional<Transaction> delete(String uuid) {
-        throw new UnsupportedOperationException("Transaction can't be removed");
+    public Optional<Transaction> getEntity(String uuid) {
+        return Optional.ofNullable(uuid)
+                .map(entities::get);
     }
 
     @Override
-    // left for tests
-    public List<Transaction> deleteAll() {
-        synchronized (entities) {
-            List<Transaction> removed = new ArrayList<>(entities);
-            entities.clear();
-            return removed;
+    public Transaction save(Transaction transaction) throws DaoValidationException {
+        TransactionValidation.validate(transaction);
+        String uuid = transaction.getUuid() != null ? transaction.getUuid() : UUID.randomUUID().toString();
+        reserve(uuid);
+        TransactionHistory history = history(transaction.getOwnerAccountId());
+        Transaction saved;
+        synchronized (history) {
+            // id is taken under the owner lock to keep each history sorted by id
+            saved = transaction.toBuilder()
+                    .uuid(uuid)
+                    .id(dbIdGenerator.getAndIncrement())
+                    .createdAt(LocalDateTime.now())
+                    .build();
+            history.add(saved);
         }
+        entitiesById.put(saved.getId(), saved);
+        entities.put(saved.getUuid(), saved);
+        return saved;
     }
 
-    private void validate(Transaction transaction) throws DaoValidationException {
-        List<String> validationErrors = new ArrayList<>();
-        if (transaction.getId() != null) {
-            validationErrors.add("id is not null");
+    @Override
+    public Transaction post(Transaction leg) throws DaoValidationException {
+        TransactionValidation.validatePosting(leg);
+        String uuid = leg.getUuid() != null ? leg.getUuid() : UUID.randomUUID().toString();
+        reserve(uuid);
+        return postReserved(leg, uuid);
+    }
+
+    @Override
+    public List<Transaction> postAll(List<Transaction> legs) throws DaoValidationException {
+        for (Transaction leg : legs) {
+            TransactionValidation.validatePosting(leg);
         }
-        if (transaction.getCurrency() == null) {
-            validationErrors.add("currency is null");
+        List<String> legUuids = new ArrayList<>(legs.size());
+        Set<String> batchUuids = new HashSet<>();
+        for (Transaction leg : legs) {
+            String uuid = leg.getUuid() != null ? leg.getUuid() : UUID.randomUUID().toString();
+            if (!batchUuids.add(uuid)) {
+                throw new DaoValidationException(String.format("Transaction %s is posted twice", uuid));
+            }
+            legUuids.add(uuid);
         }
-        if (transaction.getOwnerAccountId() == null) {
-            validationErrors.add("ownerAccountId is null");
+        // every uuid is taken before the first leg is posted, so a rejected batch leaves nothing behind
+        for (int i = 0; i < legUuids.size(); i++) {
+            try {
+                reserve(legUuids.get(i));
+            } catch (DaoValidationException ex) {
+                uuids.removeAll(legUuids.subList(0, i));
+                throw ex;
+            }
         }
-        if (transaction.getOtherAccountId() == null) {
-            validationErrors.add("otherAccountId is null");
+        List<Transaction> posted = new ArrayList<>(legs.size());
+        for (int i = 0; i < legs.size(); i++) {
+            posted.add(postReserved(legs.get(i), legUuids.get(i)));
         }
-        if (transaction.getAmount() == null) {
-            validationErrors.add("amount is null");
+        return posted;
+    }
+
+    @Override
+    // transactions of one account should be restored in order of their ids
+    public void restore(Transaction transaction) {
+        history(transaction.getOwnerAccountId()).add(transaction);
+        if (transaction.isDoubleEntry()) {
+            history(transaction.getOtherAccountId()).add(transaction.otherLeg());
         }
-        if (transaction.getType() == null) {
-            validationErrors.add("transaction type is null");
+        uuids.add(transaction.getUuid());
+        dbIdGenerator.accumulateAndGet(transaction.getId() + 1, Math::max);
+        entitiesById.put(transaction.getId(), transaction);
+        entities.put(transaction.getUuid(), transaction);
+    }
+
+    @Override
+    public Optional<Transaction> delete(String uuid) {
+        throw new UnsupportedOperationException("Transaction can't be removed");
+    }
+
+    private Transaction postReserved(Transaction leg, String uuid) {
+        TransactionHistory ownerHistory = history(leg.getOwnerAccountId());
+        TransactionHistory otherHistory = history(leg.getOtherAccountId());
+        // both histories are locked in order of account ids, so the id is greater than anything in either of them
+        boolean ownerFirst = leg.getOwnerAccountId() < leg.getOtherAccountId();
+        Transaction saved;
+        synchronized (ownerFirst ? ownerHistory : otherHistory) {
+            synchronized (ownerFirst ? otherHistory : ownerHistory) {
+                saved = leg.toBuilder()
+                        .uuid(uuid)
+                        .id(dbIdGenerator.getAndIncrement())
+                        .createdAt(LocalDateTime.now())
+                        .doubleEntry(true)
+                        .build();
+                ownerHistory.add(saved);
+                otherHistory.add(saved.otherLeg());
+            }
         }
-        if (!validationErrors.isEmpty()) {
-            String message = String.format("Validation for transaction is failed cause: %s.",
-                    String.join("; ", validationErrors));
-            throw new DaoValidationException(message);
+        entitiesById.put(saved.getId(), saved);
+        entities.put(saved.getUuid(), saved);
+        return saved;
+    }
+
+    private void reserve(String uuid) throws DaoValidationException {
+        if (!uuids.add(uuid)) {
+            throw new DaoValidationException(String.format("Transaction %s already exists", uuid));
         }
     }
 
-    private Transaction copy(Transaction transaction) {
-        Transaction copy = Transaction.builder()
-                .uuid(transaction.getUuid())
-                .ownerAccountId(transaction.getOwnerAccountId())
-                .otherAccountId(transaction.getOtherAccountId())
-                .amount(transaction.getAmount())
-                .currency(transaction.getCurrency())
-                .type(transaction.getType())
-                .description(transaction.getDescription())
-                .createdAt(transaction.getCreatedAt())
-                .build();
-        copy.setId(transaction.getId());
-        return copy;
+    private TransactionHistory history(Long accountId) {
+        return entitiesByOwner.computeIfAbsent(accountId, id -> new TransactionHistory());
+    }
+
+    @Override
+    // left for tests
+    public List<Transaction> deleteAll() {
+        List<Transaction> removed = getAll();
+        entitiesByOwner.clear();
+        entitiesById.clear();
+        entities.clear();
+        uuids.clear();
+        return removed;
     }
 
 }
@@ -0,0 +1,558 @@
+package com.revolut.dao.transation;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.util.AbstractList;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Optional;
+import java.util.RandomAccess;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+import com.revolut.dao.exception.DaoValidationException;
+import com.revolut.dao.model.Currency;
+import com.revolut.dao.model.Transaction;
+import com.revolut.dao.model.TransactionType;
+
+import static java.util.Collections.emptyList;
+
+/**
+ * Transactions kept as rows of primitive columns in direct buffers, objects are built only when a row is read.
+ * <p>
+ * Rows are appended under one lock in order of their ids, so a row number never changes and the id column is sorted.
+ * A row is published by increasing the volatile row count after all its columns are written, readers never lock.
+ * Canonical uuids are stored as two longs and found through an off-heap hash index, descriptions are deduplicated
+ * in a dictionary. Per account history is an int array of row numbers, a double-entry posting is one row listed
+ * in the histories of both accounts, the other account reads it as the opposite leg.
+ */
+public class OffHeapTransactionDao implements TransactionDao {
+
+    // rows per chunk of columns, chunks are allocated as the store grows
+    private static final int CHUNK_SHIFT = 16;
+    private static final int CHUNK_ROWS = 1 << CHUNK_SHIFT;
+    private static final int ROW_MASK = CHUNK_ROWS - 1;
+
+    private static final int ID = 0;
+    private static final int OWNER_ACCOUNT_ID = 1;
+    private static final int OTHER_ACCOUNT_ID = 2;
+    private static final int AMOUNT = 3;
+    private static final int CREATED_AT_SECONDS = 4;
+    private static final int UUID_HIGH = 5;
+    private static final int UUID_LOW = 6;
+    private static final int CREATED_AT_NANOS = 7;
+    private static final int DESCRIPTION = 8;
+    private static final int TYPE = 9;
+    private static final int CURRENCY = 10;
+    private static final int FLAGS = 11;
+
+    private static final int[] COLUMN_WIDTHS = {8, 8, 8, 8, 8, 8, 8, 4, 4, 1, 1, 1};
+    private static final int[] COLUMN_OFFSETS = new int[COLUMN_WIDTHS.length];
+    private static final int ROW_WIDTH;
+
+    static {
+        int offset = 0;
+        for (int column = 0; column < COLUMN_WIDTHS.length; column++) {
+            COLUMN_OFFSETS[column] = offset;
+            offset += COLUMN_WIDTHS[column] * CHUNK_ROWS;
+        }
+        ROW_WIDTH = offset / CHUNK_ROWS;
+    }
+
+    private static final int NO_DESCRIPTION = -1;
+
+    private static final byte DOUBLE_ENTRY = 1;
+
+    // history entries keep the row number shifted by one bit and the side of the posting in the lowest bit
+    private static final int MAX_ROWS = 1 << 30;
+    private static final int OWNER_SIDE = 0;
+    private static final int OTHER_SIDE = 1;
+
+    private static volatile OffHeapTransactionDao instance;
+
+    private final Object writeLock = new Object();
+
+    // replaced as a whole by deleteAll, readers keep scanning the store they have read
+    private volatile Store store = new Store();
+
+    private OffHeapTransactionDao() {
+    }
+
+    public synchronized static OffHeapTransactionDao getInstance() {
+        if (instance == null) {
+            instance = new OffHeapTransactionDao();
+        }
+        return instance;
+    }
+
+    @Override
+    public List<Transaction> getEntities(Long accountId) {
+        Store current = store;
+        Store.RowList rows = accountId != null ? current.rowsByOwner.get(accountId) : null;
+        return rows != null ? rows.snapshot() : emptyList();
+    }
+
+    @Override
+    public List<Transaction> getEntities(Long accountId, Long afterId, int limit) {
+        List<Transaction> history = getEntities(accountId);
+        if (history.isEmpty()) {
+            return history;
+        }
+        int from = afterId != null ? ((Store.RowView) history).indexAfter(afterId) : 0;
+        return history.subList(from, (int) Math.min((long) from + limit, history.size()));
+    }
+
+    @Override
+    public List<Transaction> getAll() {
+        return store.all();
+    }
+
+    @Override
+    public Optional<Transaction> getEntity(String uuid) {
+        if (uuid == null) {
+            return Optional.empty();
+        }
+        Store current = store;
+        Integer row = current.find(uuid);
+        return row != null ? Optional.of(current.read(row)) : Optional.empty();
+    }
+
+    @Override
+    public Transaction save(Transaction transaction) throws DaoValidationException {
+        TransactionValidation.validate(transaction);
+        String uuid = transaction.getUuid() != null ? transaction.getUuid() : UUID.randomUUID().toString();
+        LocalDateTime createdAt = LocalDateTime.now();
+        synchronized (writeLock) {
+            Store current = store;
+            validateUnique(current, uuid);
+            current.append(transaction, current.nextId, uuid, createdAt);
+            return current.read(current.size - 1);
+        }
+    }
+
+    @Override
+    public Transaction post(Transaction leg) throws DaoValidationException {
+        TransactionValidation.validatePosting(leg);
+        String uuid = leg.getUuid() != null ? leg.getUuid() : UUID.randomUUID().toString();
+        LocalDateTime createdAt = LocalDateTime.now();
+        synchronized (writeLock) {
+            Store current = store;
+            validateUnique(current, uuid);
+            current.append(leg.toBuilder().doubleEntry(true).build(), current.nextId, uuid, createdAt);
+            return current.read(current.size - 1);
+        }
+    }
+
+    @Override
+    public List<Transaction> postAll(List<Transaction> legs) throws DaoValidationException {
+        for (Transaction leg : legs) {
+            TransactionValidation.validatePosting(leg);
+        }
+        List<String> uuids = new ArrayList<>(legs.size());
+        for (Transaction leg : legs) {
+            uuids.add(leg.getUuid() != null ? leg.getUuid() : UUID.randomUUID().toString());
+        }
+        LocalDateTime createdAt = LocalDateTime.now();
+        List<Transaction> posted = new ArrayList<>(legs.size());
+        synchronized (writeLock) {
+            Store current = store;
+            if (current.size + legs.size() > MAX_ROWS) {
+                throw new IllegalStateException("Transaction store is full");
+            }
+            // the whole batch is checked before its first row is appended
+            Set<String> batchUuids = new HashSet<>();
+            for (String uuid : uuids) {
+                validateUnique(current, uuid);
+                if (!batchUuids.add(uuid)) {
+                    throw new DaoValidationException(String.format("Transaction %s is posted twice", uuid));
+                }
+            }
+            // rows of the batch are contiguous
+            for (int i = 0; i < legs.size(); i++) {
+                current.append(legs.get(i).toBuilder().doubleEntry(true).build(), current.nextId, uuids.get(i), createdAt);
+                posted.add(current.read(current.size - 1));
+            }
+        }
+        return posted;
+    }
+
+    @Override
+    // transactions should be restored in order of their ids
+    public void restore(Transaction transaction) {
+        synchronized (writeLock) {
+            Store current = store;
+            if (transaction.getId() < current.nextId) {
+                throw new IllegalStateException(String.format("Transaction %d is restored out of order", transaction.getId()));
+            }
+            current.append(transaction, transaction.getId(), transaction.getUuid(), transaction.getCreatedAt());
+        }
+    }
+
+    @Override
+    public Optional<Transaction> delete(String uuid) {
+        throw new UnsupportedOperationException("Transaction can't be removed");
+    }
+
+    @Override
+    // left for tests
+    public List<Transaction> deleteAll() {
+        synchronized (writeLock) {
+            List<Transaction> removed = new ArrayList<>(store.all());
+            // an empty store is published at once like an appended row, the old one stays intact for its readers
+            store = new Store();
+            return removed;
+        }
+    }
+
+    public int size() {
+        return store.size;
+    }
+
+    // direct memory held by columns and uuid index
+    public long getOffHeapBytes() {
+        Store current = store;
+        return (long) current.chunks.length * ROW_WIDTH * CHUNK_ROWS + current.uuidIndex.getBytes();
+    }
+
+    // should be called under the write lock
+    private static void validateUnique(Store current, String uuid) throws DaoValidationException {
+        if (current.find(uuid) != null) {
+            throw new DaoValidationException(String.format("Transaction %s already exists", uuid));
+        }
+    }
+
+    // parsed uuid if the string is exactly its canonical form, so that it can be restored from two longs
+    private static UUID toCanonicalUuid(String uuid) {
+        if (uuid.length() != 36 || uuid.charAt(8) != '-' || uuid.charAt(13) != '-'
+                || uuid.charAt(18) != '-' || uuid.charAt(23) != '-') {
+            return null;
+        }
+        try {
+            UUID parsed = UUID.fromString(uuid);
+            boolean nil = parsed.getMostSignificantBits() == 0 && parsed.getLeastSignificantBits() == 0;
+            return !nil && parsed.toString().equals(uuid) ? parsed : null;
+        } catch (IllegalArgumentException ex) {
+            return null;
+        }
+    }
+
+    private static void putLong(ByteBuffer chunk, int column, int index, long value) {
+        chunk.putLong(COLUMN_OFFSETS[column] + index * 8, value);
+    }
+
+    private static long getLong(ByteBuffer chunk, int column, int index) {
+        return chunk.getLong(COLUMN_OFFSETS[column] + index * 8);
+    }
+
+    private static void putInt(ByteBuffer chunk, int column, int index, int value) {
+        chunk.putInt(COLUMN_OFFSETS[column] + index * 4, value);
+    }
+
+    private static int getInt(ByteBuffer chunk, int column, int index) {
+        return chunk.getInt(COLUMN_OFFSETS[column] + index * 4);
+    }
+
+    // rows with their indexes, appended under the write lock
+    private final class Store {
+
+        private volatile ByteBuffer[] chunks = new ByteBuffer[0];
+
+        // number of published rows
+        private volatile int size;
+
+        private long nextId = 1;
+
+        private volatile UuidIndex uuidIndex = new UuidIndex(1024);
+
+        // uuids which are not canonical uuid strings, rare and kept on heap
+        private final ConcurrentMap<String, Integer> irregularRowsByUuid = new ConcurrentHashMap<>();
+        private final ConcurrentMap<Integer, String> irregularUuidsByRow = new ConcurrentHashMap<>();
+
+        private final ConcurrentMap<String, Integer> descriptionCodes = new ConcurrentHashMap<>();
+        private volatile String[] descriptions = new String[16];
+        private int descriptionCount;
+
+        private final ConcurrentMap<Long, RowList> rowsByOwner = new ConcurrentHashMap<>();
+
+        private List<Transaction> all() {
+            return new RowRange(size);
+        }
+
+        // published row of the uuid or null
+        private Integer find(String uuid) {
+            UUID canonical = toCanonicalUuid(uuid);
+            Integer row = canonical != null
+                    ? uuidIndex.find(canonical.getMostSignificantBits(), canonical.getLeastSignificantBits())
+                    : irregularRowsByUuid.get(uuid);
+            return row != null && row < size ? row : null;
+        }
+
+        // should be called under the write lock
+        private void append(Transaction transaction, long id, String uuid, LocalDateTime createdAt) {
+            int row = size;
+            if (row == MAX_ROWS) {
+                throw new IllegalStateException("Transaction store is full");
+            }
+            if ((row >>> CHUNK_SHIFT) == chunks.length) {
+                ByteBuffer[] grown = Arrays.copyOf(chunks, chunks.length + 1);
+                grown[chunks.length] = ByteBuffer.allocateDirect(ROW_WIDTH * CHUNK_ROWS).order(ByteOrder.nativeOrder());
+                chunks = grown;
+            }
+            ByteBuffer chunk = chunks[row >>> CHUNK_SHIFT];
+            int index = row & ROW_MASK;
+            UUID canonical = toCanonicalUuid(uuid);
+            putLong(chunk, ID, index, id);
+            putLong(chunk, OWNER_ACCOUNT_ID, index, transaction.getOwnerAccountId());
+            putLong(chunk, OTHER_ACCOUNT_ID, index, transaction.getOtherAccountId());
+            putLong(chunk, AMOUNT, index, transaction.getAmount());
+            putLong(chunk, CREATED_AT_SECONDS, index, createdAt.toEpochSecond(ZoneOffset.UTC));
+            putLong(chunk, UUID_HIGH, index, canonical != null ? canonical.getMostSignificantBits() : 0);
+            putLong(chunk, UUID_LOW, index, canonical != null ? canonical.getLeastSignificantBits() : 0);
+            putInt(chunk, CREATED_AT_NANOS, index, createdAt.getNano());
+            putInt(chunk, DESCRIPTION, index, encodeDescription(transaction.getDescription()));
+            chunk.put(COLUMN_OFFSETS[TYPE] + index, (byte) transaction.getType().ordinal());
+            chunk.put(COLUMN_OFFSETS[CURRENCY] + index, (byte) transaction.getCurrency().ordinal());
+            chunk.put(COLUMN_OFFSETS[FLAGS] + index, transaction.isDoubleEntry() ? DOUBLE_ENTRY : 0);
+            if (canonical == null) {
+                irregularUuidsByRow.put(row, uuid);
+            }
+            nextId = id + 1;
+            size = row + 1;
+            // indexes are updated after the row is published, readers check the row count
+            if (canonical != null) {
+                indexUuid(canonical, row);
+            } else {
+                irregularRowsByUuid.put(uuid, row);
+            }
+            rowsByOwner.computeIfAbsent(transaction.getOwnerAccountId(), accountId -> new RowList()).add(row << 1 | OWNER_SIDE);
+            if (transaction.isDoubleEntry()) {
+                rowsByOwner.computeIfAbsent(transaction.getOtherAccountId(), accountId -> new RowList()).add(row << 1 | OTHER_SIDE);
+            }
+        }
+
+        private Transaction read(int row) {
+            ByteBuffer chunk = chunks[row >>> CHUNK_SHIFT];
+            int index = row & ROW_MASK;
+            long uuidHigh = getLong(chunk, UUID_HIGH, index);
+            long uuidLow = getLong(chunk, UUID_LOW, index);
+            int description = getInt(chunk, DESCRIPTION, index);
+            return Transaction.builder()
+                    .id(getLong(chunk, ID, index))
+                    .uuid(uuidHigh == 0 && uuidLow == 0 ? irregularUuidsByRow.get(row) : new UUID(uuidHigh, uuidLow).toString())
+                    .ownerAccountId(getLong(chunk, OWNER_ACCOUNT_ID, index))
+                    .otherAccountId(getLong(chunk, OTHER_ACCOUNT_ID, index))
+                    .amount(getLong(chunk, AMOUNT, index))
+                    .createdAt(LocalDateTime.ofEpochSecond(getLong(chunk, CREATED_AT_SECONDS, index),
+                            getInt(chunk, CREATED_AT_NANOS, index), ZoneOffset.UTC))
+                    .description(description == NO_DESCRIPTION ? null : descriptions[description])
+                    .type(TransactionType.values()[chunk.get(COLUMN_OFFSETS[TYPE] + index)])
+                    .currency(Currency.values()[chunk.get(COLUMN_OFFSETS[CURRENCY] + index)])
+                    .doubleEntry(chunk.get(COLUMN_OFFSETS[FLAGS] + index) == DOUBLE_ENTRY)
+                    .build();
+        }
+
+        private Transaction read(int row, int side) {
+            Transaction transaction = read(row);
+            return side == OTHER_SIDE ? transaction.otherLeg() : transaction;
+        }
+
+        private long readId(int row) {
+            return getLong(chunks[row >>> CHUNK_SHIFT], ID, row & ROW_MASK);
+        }
+
+        // should be called under the write lock
+        private int encodeDescription(String description) {
+            if (description == null) {
+                return NO_DESCRIPTION;
+            }
+            Integer code = descriptionCodes.get(description);
+            if (code != null) {
+                return code;
+            }
+            if (descriptionCount == descriptions.length) {
+                descriptions = Arrays.copyOf(descriptions, descriptionCount * 2);
+            }
+            descriptions[descriptionCount] = description;
+            descriptionCodes.put(description, descriptionCount);
+            return descriptionCount++;
+        }
+
+        // should be called under the write lock
+        private void indexUuid(UUID uuid, int row) {
+            UuidIndex index = uuidIndex;
+            if (index.isFull()) {
+                index = index.grow();
+                uuidIndex = index;
+            }
+            index.put(uuid.getMostSignificantBits(), uuid.getLeastSignificantBits(), row);
+        }
+
+        // list which materializes transactions of its history entries on access
+        private abstract class RowView extends AbstractList<Transaction> implements RandomAccess {
+
+            abstract int entry(int index);
+
+            // binary search of the first entry with id greater than the given one
+            int indexAfter(long id) {
+                int low = 0;
+                int high = size();
+                while (low < high) {
+                    int middle = (low + high) >>> 1;
+                    if (readId(entry(middle) >>> 1) <= id) {
+                        low = middle + 1;
+                    } else {
+                        high = middle;
+                    }
+                }
+                return low;
+            }
+
+            @Override
+            public Transaction get(int index) {
+                if (index < 0 || index >= size()) {
+                    throw new IndexOutOfBoundsException(String.format("Index: %d, Size: %d", index, size()));
+                }
+                int entry = entry(index);
+                return read(entry >>> 1, entry & 1);
+            }
+
+        }
+
+        private class RowRange extends RowView {
+
+            private final int size;
+
+            private RowRange(int size) {
+                this.size = size;
+            }
+
+            @Override
+            int entry(int index) {
+                return index << 1 | OWNER_SIDE;
+            }
+
+            @Override
+            public int size() {
+                return size;
+            }
+
+        }
+
+        // append-only history entries of one account, written under the store write lock
+        private class RowList {
+
+            private volatile int[] entries = new int[8];
+
+            private volatile int size;
+
+            private void add(int entry) {
+                int[] current = entries;
+                if (size == current.length) {
+                    current = Arrays.copyOf(current, size * 2);
+                    current[size] = entry;
+                    entries = current;
+                } else {
+                    current[size] = entry;
+                }
+                size = size + 1;
+            }
+
+            private List<Transaction> snapshot() {
+                int snapshotSize = size;
+                int[] snapshotEntries = entries;
+                return snapshotSize == 0 ? emptyList() : new RowView() {
+
+                    @Override
+                    int entry(int index) {
+                        return snapshotEntries[index];
+                    }
+
+                    @Override
+                    public int size() {
+                        return snapshotSize;
+                    }
+
+                };
+            }
+
+        }
+
+        // open addressing hash table from uuid to row, slots hold row + 1 and zero marks an empty slot
+        private class UuidIndex {
+
+            private final ByteBuffer slots;
+
+            private final int mask;
+
+            private int count;
+
+            private UuidIndex(int capacity) {
+                slots = ByteBuffer.allocateDirect(capacity * 4).order(ByteOrder.nativeOrder());
+                mask = capacity - 1;
+            }
+
+            private Integer find(long high, long low) {
+                for (int slot = hash(high, low) & mask; ; slot = (slot + 1) & mask) {
+                    int stored = slots.getInt(slot * 4);
+                    if (stored == 0) {
+                        return null;
+                    }
+                    int row = stored - 1;
+                    if (row >= size) {
+                        // not published yet for this reader
+                        continue;
+                    }
+                    ByteBuffer chunk = chunks[row >>> CHUNK_SHIFT];
+                    if (getLong(chunk, UUID_HIGH, row & ROW_MASK) == high && getLong(chunk, UUID_LOW, row & ROW_MASK) == low) {
+                        return row;
+                    }
+                }
+            }
+
+            private void put(long high, long low, int row) {
+                int slot = hash(high, low) & mask;
+                while (slots.getInt(slot * 4) != 0) {
+                    slot = (slot + 1) & mask;
+                }
+                slots.putInt(slot * 4, row + 1);
+                count++;
+            }
+
+            // kept at most half full
+            private boolean isFull() {
+                return count * 2 >= mask + 1;
+            }
+
+            private UuidIndex grow() {
+                UuidIndex grown = new UuidIndex((mask + 1) * 2);
+                for (int slot = 0; slot <= mask; slot++) {
+                    int stored = slots.getInt(slot * 4);
+                    if (stored != 0) {
+                        ByteBuffer chunk = chunks[(stored - 1) >>> CHUNK_SHIFT];
+                        int index = (stored - 1) & ROW_MASK;
+                        grown.put(getLong(chunk, UUID_HIGH, index), getLong(chunk, UUID_LOW, index), stored - 1);
+                    }
+                }
+                return grown;
+            }
+
+            private long getBytes() {
+                return (long) (mask + 1) * 4;
+            }
+
+            private int hash(long high, long low) {
+                long mixed = (high ^ low) * 0x9E3779B97F4A7C15L;
+                return (int) (mixed ^ (mixed >>> 32));
+            }
+
+        }
+
+    }
+
+}
@@ -2,6 +2,7 @@ package com.revolut.dao.transation;
 
 import java.util.List;
 
+import com.revolut.dao.exception.DaoValidationException;
 import com.revolut.dao.model.Transaction;
 import com.revolut.dao.Dao;
 
@@ -9,4 +10,16 @@ public interface TransactionDao extends Dao<Transaction> {
 
     List<Transaction> getEntities(Long accountId);
 
+    // all stored transactions ordered by id, one leg per double-entry posting
+    List<Transaction> getAll();
+
+    // stores both legs of a transfer as one double-entry record, returns the stored leg of the owner account
+    Transaction post(Transaction leg) throws DaoValidationException;
+
+    // posts all legs in order or none of them if any is invalid
+    List<Transaction> postAll(List<Transaction> legs) throws DaoValidationException;
+
+    // page of account history ordered by id, starting right after the given id or from the beginning if it is null
+    List<Transaction> getEntities(Long accountId, Long afterId, int limit);
+
 }
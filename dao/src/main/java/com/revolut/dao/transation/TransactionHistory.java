@@ -0,0 +1,89 @@
+package com.revolut.dao.transation;
+
+import java.util.AbstractList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.RandomAccess;
+
+import com.revolut.dao.model.Transaction;
+
+import static java.util.Collections.emptyList;
+
+/**
+ * Append-only transactions of one account. Writers append under the history monitor, readers take immutable
+ * snapshots of the current prefix without locking or copying.
+ */
+class TransactionHistory {
+
+    private static final int INITIAL_CAPACITY = 8;
+
+    private volatile Transaction[] transactions = new Transaction[INITIAL_CAPACITY];
+
+    // published after the element, so every reader sees a fully written prefix
+    private volatile int size;
+
+    synchronized void add(Transaction transaction) {
+        Transaction[] current = transactions;
+        if (size == current.length) {
+            current = Arrays.copyOf(current, size * 2);
+            current[size] = transaction;
+            transactions = current;
+        } else {
+            current[size] = transaction;
+        }
+        size = size + 1;
+    }
+
+    List<Transaction> snapshot() {
+        int snapshotSize = size;
+        return snapshotSize == 0 ? emptyList() : new Snapshot(transactions, snapshotSize);
+    }
+
+    List<Transaction> page(Long afterId, int limit) {
+        List<Transaction> snapshot = snapshot();
+        int from = afterId != null ? indexAfter(snapshot, afterId) : 0;
+        return snapshot.subList(from, (int) Math.min((long) from + limit, snapshot.size()));
+    }
+
+    // binary search of the first transaction with id greater than the given one
+    private static int indexAfter(List<Transaction> transactions, long id) {
+        int low = 0;
+        int high = transactions.size();
+        while (low < high) {
+            int middle = (low + high) >>> 1;
+            if (transactions.get(middle).getId() <= id) {
+                low = middle + 1;
+            } else {
+                high = middle;
+            }
+        }
+        return low;
+    }
+
+    private static class Snapshot extends AbstractList<Transaction> implements RandomAccess {
+
+        private final Transaction[] transactions;
+
+        private final int size;
+
+        private Snapshot(Transaction[] transactions, int size) {
+            this.transactions = transactions;
+            this.size = size;
+        }
+
+        @Override
+        public Transaction get(int index) {
+            if (index < 0 || index >= size) {
+                throw new IndexOutOfBoundsException(String.format("Index: %d, Size: %d", index, size));
+            }
+            return transactions[index];
+        }
+
+        @Override
+        public int size() {
+            return size;
+        }
+
+    }
+
+}
@@ -0,0 +1,10 @@
+package com.revolut.dao.transation;
+
+public enum TransactionStore {
+
+    // transactions are objects in heap maps
+    HEAP,
+    // transactions are rows of primitive columns in direct memory
+    OFF_HEAP
+
+}
@@ -0,0 +1,60 @@
+package com.revolut.dao.transation;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import com.revolut.dao.exception.DaoValidationException;
+import com.revolut.dao.model.Transaction;
+
+// rules for new transactions shared by all transaction stores
+final class TransactionValidation {
+
+    private TransactionValidation() {
+    }
+
+    static void validate(Transaction transaction) throws DaoValidationException {
+        List<String> validationErrors = errors(transaction);
+        if (!validationErrors.isEmpty()) {
+            throw exception(validationErrors);
+        }
+    }
+
+    static void validatePosting(Transaction leg) throws DaoValidationException {
+        List<String> validationErrors = errors(leg);
+        if (leg.getOwnerAccountId() != null && leg.getOwnerAccountId().equals(leg.getOtherAccountId())) {
+            validationErrors.add("posting has same account on both sides");
+        }
+        if (!validationErrors.isEmpty()) {
+            throw exception(validationErrors);
+        }
+    }
+
+    private static List<String> errors(Transaction transaction) {
+        List<String> validationErrors = new ArrayList<>();
+        if (transaction.getId() != null) {
+            validationErrors.add("id is not null");
+        }
+        if (transaction.getCurrency() == null) {
+            validationErrors.add("currency is null");
+        }
+        if (transaction.getOwnerAccountId() == null) {
+            validationErrors.add("ownerAccountId is null");
+        }
+        if (transaction.getOtherAccountId() == null) {
+            validationErrors.add("otherAccountId is null");
+        }
+        if (transaction.getAmount() == 0) {
+            validationErrors.add("amount is zero");
+        }
+        if (transaction.getType() == null) {
+            validationErrors.add("transaction type is null");
+        }
+        return validationErrors;
+    }
+
+    private static DaoValidationException exception(List<String> validationErrors) {
+        return new DaoValidationException(String.format("Validation for transaction is failed cause: %s.",
+                String.join("; ", validationErrors)));
+    }
+
+}
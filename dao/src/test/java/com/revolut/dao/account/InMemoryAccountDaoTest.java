@@ -1,6 +1,6 @@
 package com.revolut.dao.account;
 
-import java.math.BigDecimal;
+import java.util.Arrays;
 import java.util.List;
 import java.util.Optional;
 
@@ -22,6 +22,8 @@ import static java.util.Collections.singletonList;
 
 import static org.assertj.core.api.Assertions.assertThat;
 import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
 
 @RunWith(PowerMockRunner.class)
@@ -30,8 +32,8 @@ public class InMemoryAccountDaoTest {
 
     private static final String UUID_1 = "account-1";
     private static final String UUID_2 = "account-2";
-    private static final BigDecimal TOTAL_1 = BigDecimal.valueOf(100);
-    private static final BigDecimal TOTAL_2 = BigDecimal.valueOf(200);
+    private static final long TOTAL_1 = 100L;
+    private static final long TOTAL_2 = 200L;
     private static final Currency CURRENCY_1 = Currency.USD;
     private static final Currency CURRENCY_2 = Currency.EUR;
     private static final List<Transaction> TRANSACTIONS_2 = singletonList(
@@ -73,7 +75,7 @@ public class InMemoryAccountDaoTest {
         Account newAccount = Account.builder()
                 .uuid("account-3")
                 .currency(Currency.USD)
-                .total(BigDecimal.ONE)
+                .total(1L)
                 .build();
 
         // when
@@ -88,7 +90,7 @@ public class InMemoryAccountDaoTest {
         // given
         Account updatedAccount = Account.builder()
                 .uuid(UUID_2)
-                .total(BigDecimal.ONE)
+                .total(1L)
                 .currency(Currency.USD)
                 .transactionHistory(emptyList())
                 .build();
@@ -98,8 +100,113 @@ public class InMemoryAccountDaoTest {
         Optional<Account> optionalAccount = accountDao.getEntity(UUID_2);
 
         // then
-        assertThat(updatedAccount).isEqualToIgnoringGivenFields(result, "id");
-        assertThat(optionalAccount).isPresent().get().isEqualToIgnoringGivenFields(updatedAccount, "id");
+        assertThat(updatedAccount).isEqualToIgnoringGivenFields(result, "id", "version");
+        assertThat(result.getVersion()).isEqualTo(account2.getVersion() + 1);
+        assertThat(optionalAccount).isPresent().get().isEqualTo(result);
+    }
+
+    @Test
+    public void shouldCompareAndSetAccounts() throws DaoValidationException {
+        // given
+        Account updatedAccount1 = account1.toBuilder().total(1L).build();
+        Account updatedAccount2 = account2.toBuilder().total(10L).build();
+
+        // when
+        boolean result = accountDao.compareAndSet(Arrays.asList(updatedAccount1, updatedAccount2));
+
+        // then
+        assertThat(result).isTrue();
+        assertThat(accountDao.getEntity(UUID_1)).isPresent().get()
+                .hasFieldOrPropertyWithValue("total", 1L)
+                .hasFieldOrPropertyWithValue("version", account1.getVersion() + 1);
+        assertThat(accountDao.getEntity(UUID_2)).isPresent().get()
+                .hasFieldOrPropertyWithValue("total", 10L)
+                .hasFieldOrPropertyWithValue("version", account2.getVersion() + 1);
+    }
+
+    @Test
+    public void shouldNotCompareAndSetStaleAccounts() throws DaoValidationException {
+        // given
+        accountDao.compareAndSet(singletonList(account2.toBuilder().total(1L).build()));
+        Account updatedAccount1 = account1.toBuilder().total(1L).build();
+        Account updatedAccount2 = account2.toBuilder().total(10L).build();
+
+        // when
+        boolean result = accountDao.compareAndSet(Arrays.asList(updatedAccount1, updatedAccount2));
+
+        // then
+        assertThat(result).isFalse();
+        assertThat(accountDao.getEntity(UUID_1)).isPresent().get()
+                .hasFieldOrPropertyWithValue("total", TOTAL_1)
+                .hasFieldOrPropertyWithValue("version", account1.getVersion());
+    }
+
+    @Test
+    public void shouldPostLegWithAccounts() throws DaoValidationException {
+        // given
+        Transaction leg = Transaction.builder()
+                .ownerAccountId(account1.getId())
+                .otherAccountId(account2.getId())
+                .amount(-1L)
+                .build();
+        Transaction posted = leg.toBuilder().id(1L).doubleEntry(true).build();
+        when(transactionDao.post(leg)).thenReturn(posted);
+
+        // when
+        Optional<Transaction> result = accountDao.post(Arrays.asList(account1.toBuilder().total(TOTAL_1 - 1).build(),
+                account2.toBuilder().total(TOTAL_2 + 1).build()), leg);
+
+        // then
+        assertThat(result).isPresent().get().isEqualTo(posted);
+        assertThat(accountDao.getEntity(UUID_1)).isPresent().get()
+                .hasFieldOrPropertyWithValue("total", TOTAL_1 - 1)
+                .hasFieldOrPropertyWithValue("version", account1.getVersion() + 1);
+        assertThat(accountDao.getEntity(UUID_2)).isPresent().get()
+                .hasFieldOrPropertyWithValue("total", TOTAL_2 + 1);
+    }
+
+    @Test
+    public void shouldNotPostLegWithStaleAccounts() throws DaoValidationException {
+        // given
+        accountDao.compareAndSet(singletonList(account2.toBuilder().total(1L).build()));
+        Transaction leg = Transaction.builder()
+                .ownerAccountId(account1.getId())
+                .otherAccountId(account2.getId())
+                .amount(-2L)
+                .build();
+
+        // when
+        Optional<Transaction> result = accountDao.post(Arrays.asList(account1, account2), leg);
+
+        // then
+        assertThat(result).isNotPresent();
+        verify(transactionDao, never()).post(leg);
+    }
+
+    @Test
+    public void shouldPostAllLegsWithAccountsOnce() throws DaoValidationException {
+        // given
+        Transaction leg = Transaction.builder()
+                .ownerAccountId(account1.getId())
+                .otherAccountId(account2.getId())
+                .amount(-3L)
+                .build();
+        Transaction nextLeg = leg.toBuilder().amount(-4L).build();
+        List<Transaction> posted = Arrays.asList(leg.toBuilder().id(1L).build(), nextLeg.toBuilder().id(2L).build());
+        when(transactionDao.postAll(Arrays.asList(leg, nextLeg))).thenReturn(posted);
+
+        // when
+        Optional<List<Transaction>> result = accountDao.postAll(Arrays.asList(account1.toBuilder().total(TOTAL_1 - 7).build(),
+                account2.toBuilder().total(TOTAL_2 + 7).build()), Arrays.asList(leg, nextLeg));
+
+        // then
+        assertThat(result).isPresent().get().isEqualTo(posted);
+        assertThat(accountDao.getEntity(UUID_1)).isPresent().get()
+                .hasFieldOrPropertyWithValue("total", TOTAL_1 - 7)
+                .hasFieldOrPropertyWithValue("version", account1.getVersion() + 1);
+        assertThat(accountDao.getEntity(UUID_2)).isPresent().get()
+                .hasFieldOrPropertyWithValue("total", TOTAL_2 + 7)
+                .hasFieldOrPropertyWithValue("version", account2.getVersion() + 1);
     }
 
     @Test(expected = DaoValidationException.class)
@@ -113,7 +220,7 @@ public class InMemoryAccountDaoTest {
         // given
         Account updatedAccount = Account.builder()
                 .uuid(UUID_2)
-                .total(BigDecimal.ONE)
+                .total(1L)
                 .currency(Currency.USD)
                 .transactionHistory(singletonList(Transaction.builder().build()))
                 .build();
@@ -137,6 +244,27 @@ public class InMemoryAccountDaoTest {
         assertThat(result).isPresent().get().isEqualTo(account1);
     }
 
+    @Test
+    public void shouldGetAccountById() {
+        // when
+        Optional<Account> result = accountDao.getEntityById(account2.getId());
+
+        // then
+        assertThat(result).isPresent().get().isEqualTo(account2);
+    }
+
+    @Test
+    public void shouldNotGetAccountByIdAfterDelete() {
+        // given
+        accountDao.delete(UUID_2);
+
+        // when
+        Optional<Account> result = accountDao.getEntityById(account2.getId());
+
+        // then
+        assertThat(result).isNotPresent();
+    }
+
     @Test
     public void shouldNotGetAccount() {
         // when
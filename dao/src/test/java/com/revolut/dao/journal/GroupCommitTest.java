@@ -0,0 +1,120 @@
+package com.revolut.dao.journal;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import com.revolut.dao.metrics.Histogram;
+import com.revolut.dao.metrics.Metrics;
+import com.revolut.dao.model.Account;
+import com.revolut.dao.model.Currency;
+import com.revolut.dao.model.Transaction;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import static java.util.Collections.singletonList;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class GroupCommitTest {
+
+    private static final int THREADS = 8;
+    private static final int COMMITS_PER_THREAD = 50;
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    private Path file;
+
+    @Before
+    public void setUp() {
+        file = folder.getRoot().toPath().resolve("journal.bin");
+    }
+
+    @Test
+    public void shouldMakeConcurrentCommitsDurable() throws Exception {
+        // given
+        Histogram batchSizes = Metrics.getInstance().histogram(GroupCommit.BATCH_SIZE_METRIC);
+        long batchesBefore = batchSizes.getCount();
+        ExecutorService executor = Executors.newFixedThreadPool(THREADS);
+        List<Future<?>> results = new ArrayList<>();
+
+        // when
+        try (Journal journal = Journal.open(file, new CountingListener())) {
+            GroupCommit groupCommit = new GroupCommit(journal, 16, 1000);
+            for (int thread = 0; thread < THREADS; thread++) {
+                int offset = thread * COMMITS_PER_THREAD;
+                results.add(executor.submit(() -> {
+                    for (int i = 0; i < COMMITS_PER_THREAD; i++) {
+                        Account account = account(offset + i);
+                        groupCommit.commit(unit -> unit.appendAccounts(singletonList(account)));
+                    }
+                }));
+            }
+            for (Future<?> result : results) {
+                result.get();
+            }
+            groupCommit.close();
+        } finally {
+            executor.shutdown();
+        }
+        CountingListener replayed = new CountingListener();
+        Journal.open(file, replayed).close();
+
+        // then
+        assertThat(replayed.accounts).isEqualTo(THREADS * COMMITS_PER_THREAD);
+        assertThat(batchSizes.getCount() - batchesBefore).isBetween(1L, (long) THREADS * COMMITS_PER_THREAD);
+        assertThat(batchSizes.getMax()).isLessThanOrEqualTo(16);
+    }
+
+    @Test(expected = IllegalStateException.class)
+    public void shouldRejectCommitAfterClose() throws IOException {
+        // given
+        try (Journal journal = Journal.open(file, new CountingListener())) {
+            GroupCommit groupCommit = new GroupCommit(journal, 1, 0);
+            groupCommit.close();
+
+            // when
+            groupCommit.commit(unit -> unit.appendAccountDeleted("account-1"));
+        }
+    }
+
+    private static Account account(int index) {
+        return Account.builder()
+                .id((long) index + 1)
+                .uuid("account-" + index)
+                .total(1L)
+                .currency(Currency.USD)
+                .build();
+    }
+
+    private static class CountingListener implements JournalListener {
+
+        private int accounts;
+
+        @Override
+        public void onAccount(Account account) {
+            accounts++;
+        }
+
+        @Override
+        public void onAccountDeleted(String uuid) {
+        }
+
+        @Override
+        public void onTransaction(Transaction transaction) {
+        }
+
+        @Override
+        public void onPosting(Transaction leg, Account ownerAccount, Account otherAccount) {
+        }
+
+    }
+
+}
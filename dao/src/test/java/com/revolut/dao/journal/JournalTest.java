@@ -0,0 +1,385 @@
+package com.revolut.dao.journal;
+
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.file.Path;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import com.revolut.dao.account.InMemoryAccountDao;
+import com.revolut.dao.exception.DaoValidationException;
+import com.revolut.dao.model.Account;
+import com.revolut.dao.model.Currency;
+import com.revolut.dao.model.Transaction;
+import com.revolut.dao.model.TransactionType;
+import com.revolut.dao.transation.InMemoryTransactionDao;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import static java.util.Collections.singletonList;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class JournalTest {
+
+    private static final Account ACCOUNT_1 = Account.builder()
+            .id(1L)
+            .version(3)
+            .uuid("account-1")
+            .total(10025L)
+            .currency(Currency.USD)
+            .build();
+    private static final Account ACCOUNT_2 = Account.builder()
+            .id(2L)
+            .uuid("account-2")
+            .total(1000L)
+            .currency(Currency.EUR)
+            .build();
+    private static final Transaction TRANSACTION = Transaction.builder()
+            .id(7L)
+            .uuid("transaction-1")
+            .ownerAccountId(1L)
+            .otherAccountId(2L)
+            .type(TransactionType.TRANSFER_BETWEEN_ACCOUNTS)
+            .currency(Currency.USD)
+            .amount(-1L)
+            .description("\u041f\u0435\u0440\u0435\u0432\u043e\u0434")
+            .createdAt(LocalDateTime.of(2019, 11, 20, 10, 15, 30, 123456789))
+            .build();
+
+    private static final int TRANSFERS = 200;
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    private Path file;
+
+    private RecordingListener listener;
+
+    @Before
+    public void setUp() throws IOException {
+        file = folder.getRoot().toPath().resolve("journal.bin");
+        listener = new RecordingListener();
+    }
+
+    @Test
+    public void shouldReplayAppendedRecords() throws IOException {
+        // given
+        try (Journal journal = Journal.open(file, listener)) {
+            journal.appendAccounts(Arrays.asList(ACCOUNT_1, ACCOUNT_2));
+            journal.appendTransaction(TRANSACTION);
+            journal.appendAccountDeleted(ACCOUNT_2.getUuid());
+        }
+
+        // when
+        Journal.open(file, listener).close();
+
+        // then
+        assertThat(listener.events).containsExactly(ACCOUNT_1, ACCOUNT_2, TRANSACTION, "deleted " + ACCOUNT_2.getUuid());
+    }
+
+    @Test
+    public void shouldDropTornTailAndAppendAfterLastUnit() throws IOException {
+        // given
+        try (Journal journal = Journal.open(file, listener)) {
+            journal.appendTransaction(TRANSACTION);
+            journal.appendAccounts(Arrays.asList(ACCOUNT_1, ACCOUNT_2));
+        }
+        try (RandomAccessFile raw = new RandomAccessFile(file.toFile(), "rw")) {
+            // second record of the accounts unit was written only partly
+            raw.seek(Journal.HEADER_SIZE + 2 * Journal.RECORD_SIZE + 20);
+            raw.write(0x5A);
+        }
+        try (Journal journal = Journal.open(file, new RecordingListener())) {
+            journal.appendAccounts(singletonList(ACCOUNT_2));
+        }
+
+        // when
+        Journal.open(file, listener).close();
+
+        // then
+        assertThat(listener.events).containsExactly(TRANSACTION, ACCOUNT_2);
+    }
+
+    @Test
+    public void shouldReplayOnlyRecordsAfterPosition() throws IOException {
+        // given
+        long position;
+        try (Journal journal = Journal.open(file, listener)) {
+            journal.appendAccounts(singletonList(ACCOUNT_1));
+            position = journal.getPosition();
+            journal.appendTransaction(TRANSACTION);
+        }
+
+        // when
+        Journal.open(file, listener, position).close();
+
+        // then
+        assertThat(listener.events).containsExactly(TRANSACTION);
+    }
+
+    @Test
+    public void shouldReplayPostingAsOneRecord() throws IOException {
+        // given
+        Transaction leg = TRANSACTION.toBuilder()
+                .uuid(String.format("%64s", "transaction"))
+                .description(String.format("%64s", "description"))
+                .doubleEntry(true)
+                .build();
+        Account ownerAccount = Account.builder().id(1L).version(4).total(10024L).build();
+        Account otherAccount = Account.builder().id(2L).version(1).total(1001L).build();
+        long position;
+        try (Journal journal = Journal.open(file, listener)) {
+            journal.appendPosting(leg, ACCOUNT_1.toBuilder().version(4).total(10024L).build(),
+                    ACCOUNT_2.toBuilder().version(1).total(1001L).build());
+            position = journal.getPosition();
+        }
+
+        // when
+        Journal.open(file, listener).close();
+
+        // then
+        assertThat(position).isEqualTo(Journal.HEADER_SIZE + Journal.RECORD_SIZE);
+        assertThat(listener.events).containsExactly(leg, ownerAccount, otherAccount);
+    }
+
+    @Test
+    public void shouldDropUnfinishedBatchOfPostings() throws IOException {
+        // given
+        Transaction leg = TRANSACTION.toBuilder().doubleEntry(true).build();
+        Transaction nextLeg = leg.toBuilder().id(8L).uuid("transaction-2").build();
+        try (Journal journal = Journal.open(file, listener)) {
+            journal.appendPostings(Arrays.asList(leg, nextLeg), singletonList(ACCOUNT_1));
+            journal.appendPostings(Arrays.asList(leg, nextLeg), singletonList(ACCOUNT_1));
+        }
+        try (RandomAccessFile raw = new RandomAccessFile(file.toFile(), "rw")) {
+            // account record closing the second batch was written only partly
+            raw.seek(Journal.HEADER_SIZE + 5 * Journal.RECORD_SIZE + 20);
+            raw.write(0x5A);
+        }
+
+        // when
+        Journal.open(file, listener).close();
+
+        // then
+        assertThat(listener.events).containsExactly(leg, nextLeg, ACCOUNT_1);
+    }
+
+    @Test
+    public void shouldNotReplayRecordsLeftAfterTornOne() throws IOException {
+        // given
+        try (Journal journal = Journal.open(file, listener)) {
+            journal.appendTransaction(TRANSACTION);
+            journal.appendAccounts(singletonList(ACCOUNT_1));
+            journal.appendAccounts(singletonList(ACCOUNT_2));
+        }
+        try (RandomAccessFile raw = new RandomAccessFile(file.toFile(), "rw")) {
+            // second record reached the disk only partly, the third one in full
+            raw.seek(Journal.HEADER_SIZE + Journal.RECORD_SIZE + 20);
+            raw.write(0x5A);
+        }
+        Journal.open(file, new RecordingListener()).close();
+        try (Journal journal = Journal.open(file, new RecordingListener())) {
+            // fills the place of the torn record, the one after it has to stay wiped
+            journal.appendAccountDeleted(ACCOUNT_1.getUuid());
+        }
+
+        // when
+        Journal.open(file, listener).close();
+
+        // then
+        assertThat(listener.events).containsExactly(TRANSACTION, "deleted " + ACCOUNT_1.getUuid());
+    }
+
+    @Test(expected = IOException.class)
+    public void shouldRejectFileOfUnknownFormat() throws IOException {
+        // given
+        try (RandomAccessFile raw = new RandomAccessFile(file.toFile(), "rw")) {
+            raw.writeInt(0x12345678);
+            raw.writeInt(1);
+        }
+
+        // when
+        Journal.open(file, listener).close();
+    }
+
+    @Test(expected = IOException.class)
+    public void shouldRejectJournalOfOtherVersion() throws IOException {
+        // given
+        try (Journal journal = Journal.open(file, listener)) {
+            journal.appendTransaction(TRANSACTION);
+        }
+        try (RandomAccessFile raw = new RandomAccessFile(file.toFile(), "rw")) {
+            raw.seek(Integer.BYTES);
+            raw.writeInt(99);
+        }
+
+        // when
+        Journal.open(file, listener).close();
+    }
+
+    @Test
+    public void shouldReplayInterleavedPostingsOfOneAccountInOrderTheyWereApplied() throws Exception {
+        // given
+        InMemoryAccountDao accounts = InMemoryAccountDao.getInstance();
+        accounts.setTransactionDao(InMemoryTransactionDao.getInstance());
+        accounts.deleteAll();
+        InMemoryTransactionDao.getInstance().deleteAll();
+        Account source = accounts.save(ACCOUNT_1.toBuilder().id(null).version(0).total(TRANSFERS * 2L).build());
+        Account first = accounts.save(ACCOUNT_2.toBuilder().uuid("account-first").currency(Currency.USD).build());
+        Account second = accounts.save(ACCOUNT_2.toBuilder().uuid("account-second").currency(Currency.USD).build());
+        ExecutorService executor = Executors.newFixedThreadPool(2);
+
+        // when
+        try (Journal journal = Journal.open(file, listener)) {
+            GroupCommit groupCommit = new GroupCommit(journal, 16, 0);
+            JournaledAccountDao accountDao = new JournaledAccountDao(accounts, groupCommit);
+            Future<?> toFirst = executor.submit(() -> transferOneByOne(accounts, accountDao, source.getUuid(), first.getUuid()));
+            Future<?> toSecond = executor.submit(() -> transferOneByOne(accounts, accountDao, source.getUuid(), second.getUuid()));
+            toFirst.get();
+            toSecond.get();
+            groupCommit.close();
+        } finally {
+            executor.shutdown();
+        }
+        RecordingListener replayed = new RecordingListener();
+        Journal.open(file, replayed).close();
+
+        // then
+        List<Account> sourceBalances = new ArrayList<>();
+        for (Object event : replayed.events) {
+            if (event instanceof Account && ((Account) event).getId().equals(source.getId())) {
+                sourceBalances.add((Account) event);
+            }
+        }
+        assertThat(sourceBalances).hasSize(TRANSFERS * 2);
+        for (int i = 0; i < sourceBalances.size(); i++) {
+            assertThat(sourceBalances.get(i).getVersion()).isEqualTo(i + 1);
+            assertThat(sourceBalances.get(i).getTotal()).isEqualTo(TRANSFERS * 2L - i - 1);
+        }
+        assertThat(accounts.getEntityWithoutHistory(source.getUuid())).get().extracting(Account::getTotal).isEqualTo(0L);
+    }
+
+    @Test
+    public void shouldJournalInterleavedSavesOfOneAccountInOrderTheyWereApplied() throws Exception {
+        // given
+        InMemoryAccountDao accounts = InMemoryAccountDao.getInstance();
+        accounts.setTransactionDao(InMemoryTransactionDao.getInstance());
+        accounts.deleteAll();
+        Account account = accounts.save(ACCOUNT_1.toBuilder().id(null).version(0).total(0L).build());
+        ExecutorService executor = Executors.newFixedThreadPool(2);
+
+        // when
+        try (Journal journal = Journal.open(file, listener)) {
+            GroupCommit groupCommit = new GroupCommit(journal, 16, 0);
+            JournaledAccountDao accountDao = new JournaledAccountDao(accounts, groupCommit);
+            Future<?> saving = executor.submit(() -> saveOneByOne(accounts, accountDao, account.getUuid()));
+            Future<?> setting = executor.submit(() -> compareAndSetOneByOne(accounts, accountDao, account.getUuid()));
+            saving.get();
+            setting.get();
+            groupCommit.close();
+        } finally {
+            executor.shutdown();
+        }
+        RecordingListener replayed = new RecordingListener();
+        Journal.open(file, replayed).close();
+
+        // then
+        assertThat(replayed.events).hasSize(TRANSFERS * 2);
+        for (int i = 0; i < replayed.events.size(); i++) {
+            assertThat(((Account) replayed.events.get(i)).getVersion()).isEqualTo(i + 1);
+        }
+        assertThat(replayed.events.get(replayed.events.size() - 1))
+                .isEqualTo(accounts.getEntityWithoutHistory(account.getUuid()).get());
+    }
+
+    @Test(expected = DaoValidationException.class)
+    public void shouldRejectTooLongUuid() throws DaoValidationException {
+        // when
+        Journal.validate(ACCOUNT_1.toBuilder().uuid(String.format("%100s", "account")).build());
+    }
+
+    // moves one unit at a time, retrying whenever the other thread changed the source account in between
+    private static void transferOneByOne(InMemoryAccountDao accounts, JournaledAccountDao accountDao, String sourceUuid,
+                                         String targetUuid) {
+        try {
+            for (int i = 0; i < TRANSFERS; ) {
+                Account source = accounts.getEntityWithoutHistory(sourceUuid).get();
+                Account target = accounts.getEntityWithoutHistory(targetUuid).get();
+                Transaction leg = Transaction.builder()
+                        .ownerAccountId(source.getId())
+                        .otherAccountId(target.getId())
+                        .amount(-1L)
+                        .currency(Currency.USD)
+                        .type(TransactionType.TRANSFER_BETWEEN_ACCOUNTS)
+                        .build();
+                if (accountDao.post(Arrays.asList(source.toBuilder().total(source.getTotal() - 1).build(),
+                        target.toBuilder().total(target.getTotal() + 1).build()), leg).isPresent()) {
+                    i++;
+                }
+            }
+        } catch (DaoValidationException ex) {
+            throw new IllegalStateException(ex);
+        }
+    }
+
+    private static void saveOneByOne(InMemoryAccountDao accounts, JournaledAccountDao accountDao, String uuid) {
+        try {
+            for (int i = 0; i < TRANSFERS; i++) {
+                accountDao.save(accounts.getEntityWithoutHistory(uuid).get());
+            }
+        } catch (DaoValidationException ex) {
+            throw new IllegalStateException(ex);
+        }
+    }
+
+    // retries whenever the other thread saved the account in between
+    private static void compareAndSetOneByOne(InMemoryAccountDao accounts, JournaledAccountDao accountDao, String uuid) {
+        try {
+            for (int i = 0; i < TRANSFERS; ) {
+                Account stored = accounts.getEntityWithoutHistory(uuid).get();
+                if (accountDao.compareAndSet(singletonList(stored.toBuilder().total(stored.getTotal() + 1).build()))) {
+                    i++;
+                }
+            }
+        } catch (DaoValidationException ex) {
+            throw new IllegalStateException(ex);
+        }
+    }
+
+    private static class RecordingListener implements JournalListener {
+
+        private final List<Object> events = new ArrayList<>();
+
+        @Override
+        public void onAccount(Account account) {
+            events.add(account);
+        }
+
+        @Override
+        public void onAccountDeleted(String uuid) {
+            events.add("deleted " + uuid);
+        }
+
+        @Override
+        public void onTransaction(Transaction transaction) {
+            events.add(transaction);
+        }
+
+        @Override
+        public void onPosting(Transaction leg, Account ownerAccount, Account otherAccount) {
+            events.add(leg);
+            events.add(ownerAccount);
+            events.add(otherAccount);
+        }
+
+    }
+
+}
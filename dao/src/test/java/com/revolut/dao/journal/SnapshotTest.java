@@ -0,0 +1,124 @@
+package com.revolut.dao.journal;
+
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.file.Path;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+
+import com.revolut.dao.model.Account;
+import com.revolut.dao.model.Currency;
+import com.revolut.dao.model.Transaction;
+import com.revolut.dao.model.TransactionType;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class SnapshotTest {
+
+    // enough to span several chunks
+    private static final int ACCOUNTS = 50000;
+    private static final int TRANSACTIONS = 20000;
+    private static final long JOURNAL_POSITION = 42 * Journal.RECORD_SIZE;
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    private Path file;
+
+    private List<Account> accounts;
+
+    private List<Transaction> transactions;
+
+    @Before
+    public void setUp() {
+        file = folder.getRoot().toPath().resolve("snapshot.bin");
+        accounts = new ArrayList<>(ACCOUNTS);
+        for (int i = 0; i < ACCOUNTS; i++) {
+            accounts.add(Account.builder()
+                    .id((long) i + 1)
+                    .version(i % 7)
+                    .uuid("account-" + i)
+                    .total(i)
+                    .currency(Currency.EUR)
+                    .build());
+        }
+        transactions = new ArrayList<>(TRANSACTIONS);
+        for (int i = 0; i < TRANSACTIONS; i++) {
+            transactions.add(Transaction.builder()
+                    .id((long) i + 1)
+                    .uuid("transaction-" + i)
+                    .ownerAccountId((long) i % ACCOUNTS + 1)
+                    .otherAccountId((long) (i + 1) % ACCOUNTS + 1)
+                    .type(TransactionType.TRANSFER_BETWEEN_ACCOUNTS)
+                    .currency(Currency.EUR)
+                    .amount(-i - 1)
+                    .createdAt(LocalDateTime.of(2019, 11, 20, 10, 15).plusSeconds(i))
+                    .build());
+        }
+    }
+
+    @Test
+    public void shouldLoadWrittenSnapshot() throws IOException {
+        // given
+        Snapshot.write(file, JOURNAL_POSITION, accounts, transactions);
+        CollectingListener listener = new CollectingListener();
+
+        // when
+        long result = Snapshot.load(file, listener);
+
+        // then
+        assertThat(result).isEqualTo(JOURNAL_POSITION);
+        listener.accounts.sort(Comparator.comparing(Account::getId));
+        assertThat(listener.accounts).containsExactlyElementsOf(accounts);
+        assertThat(listener.transactions).containsExactlyElementsOf(transactions);
+    }
+
+    @Test(expected = IOException.class)
+    public void shouldRejectCorruptedSnapshot() throws IOException {
+        // given
+        Snapshot.write(file, JOURNAL_POSITION, accounts, transactions);
+        try (RandomAccessFile raw = new RandomAccessFile(file.toFile(), "rw")) {
+            raw.seek(raw.length() / 2);
+            raw.write(~raw.read());
+        }
+
+        // when
+        Snapshot.load(file, new CollectingListener());
+    }
+
+    private static class CollectingListener implements JournalListener {
+
+        // accounts come from several threads
+        private final List<Account> accounts = Collections.synchronizedList(new ArrayList<>());
+
+        private final List<Transaction> transactions = new ArrayList<>();
+
+        @Override
+        public void onAccount(Account account) {
+            accounts.add(account);
+        }
+
+        @Override
+        public void onAccountDeleted(String uuid) {
+        }
+
+        @Override
+        public void onTransaction(Transaction transaction) {
+            transactions.add(transaction);
+        }
+
+        @Override
+        public void onPosting(Transaction leg, Account ownerAccount, Account otherAccount) {
+            transactions.add(leg);
+        }
+
+    }
+
+}
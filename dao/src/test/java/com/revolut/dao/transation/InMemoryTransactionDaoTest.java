@@ -1,6 +1,5 @@
 package com.revolut.dao.transation;
 
-import java.math.BigDecimal;
 import java.util.List;
 import java.util.Optional;
 
@@ -12,6 +11,7 @@ import org.junit.Before;
 import org.junit.Test;
 
 import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
 
 public class InMemoryTransactionDaoTest {
 
@@ -23,9 +23,9 @@ public class InMemoryTransactionDaoTest {
     private static final String DESCRIPTION_1 = "desc-1";
     private static final String DESCRIPTION_2 = "desc-2";
     private static final String DESCRIPTION_3 = "desc-3";
-    private static final BigDecimal AMOUNT_1 = BigDecimal.valueOf(100);
-    private static final BigDecimal AMOUNT_2 = BigDecimal.valueOf(200);
-    private static final BigDecimal AMOUNT_3 = BigDecimal.valueOf(-100);
+    private static final long AMOUNT_1 = 100L;
+    private static final long AMOUNT_2 = 200L;
+    private static final long AMOUNT_3 = -100L;
     private static final Currency CURRENCY_1 = Currency.USD;
     private static final Currency CURRENCY_2 = Currency.EUR;
     private static final Currency CURRENCY_3 = Currency.USD;
@@ -69,7 +69,7 @@ public class InMemoryTransactionDaoTest {
                 .uuid(UUID_3)
                 .ownerAccountId(ACCOUNT_ID_1)
                 .otherAccountId(ACCOUNT_ID_2)
-                .amount(BigDecimal.ONE)
+                .amount(1L)
                 .description(DESCRIPTION_3)
                 .currency(CURRENCY_3)
                 .type(TYPE_3)
@@ -162,6 +162,84 @@ public class InMemoryTransactionDaoTest {
         assertThat(resultList).containsExactlyInAnyOrder(transaction, transaction1);
     }
 
+    @Test
+    public void shouldKeepAccountHistoryOrderedById() throws DaoValidationException {
+        // given
+        Transaction transaction = transactionDao.save(Transaction.builder()
+                .ownerAccountId(ACCOUNT_ID_1)
+                .otherAccountId(ACCOUNT_ID_2)
+                .amount(AMOUNT_3)
+                .currency(CURRENCY_3)
+                .type(TYPE_3)
+                .build());
+
+        // when
+        List<Transaction> resultList = transactionDao.getEntities(ACCOUNT_ID_1);
+
+        // then
+        assertThat(transaction.getUuid()).isNotNull();
+        assertThat(resultList).containsExactly(transaction1, transaction);
+        assertThatThrownBy(resultList::clear).isInstanceOf(UnsupportedOperationException.class);
+    }
+
+    @Test
+    public void shouldPageTransactionsByAccountId() throws DaoValidationException {
+        // given
+        Transaction transaction = transactionDao.save(Transaction.builder()
+                .ownerAccountId(ACCOUNT_ID_1)
+                .otherAccountId(ACCOUNT_ID_2)
+                .amount(AMOUNT_3)
+                .currency(CURRENCY_3)
+                .type(TYPE_3)
+                .build());
+
+        // when
+        List<Transaction> firstPage = transactionDao.getEntities(ACCOUNT_ID_1, null, 1);
+        List<Transaction> secondPage = transactionDao.getEntities(ACCOUNT_ID_1, firstPage.get(0).getId(), 5);
+        List<Transaction> lastPage = transactionDao.getEntities(ACCOUNT_ID_1, transaction.getId(), 5);
+
+        // then
+        assertThat(firstPage).containsExactly(transaction1);
+        assertThat(secondPage).containsExactly(transaction);
+        assertThat(lastPage).isEmpty();
+    }
+
+    @Test
+    public void shouldPostOneRecordVisibleInBothHistories() throws DaoValidationException {
+        // given
+        Transaction leg = Transaction.builder()
+                .uuid(UUID_3)
+                .ownerAccountId(ACCOUNT_ID_1)
+                .otherAccountId(ACCOUNT_ID_2)
+                .amount(AMOUNT_3)
+                .currency(CURRENCY_3)
+                .type(TYPE_3)
+                .build();
+
+        // when
+        Transaction posted = transactionDao.post(leg);
+
+        // then
+        assertThat(posted.isDoubleEntry()).isTrue();
+        assertThat(transactionDao.getEntities(ACCOUNT_ID_1)).containsExactly(transaction1, posted);
+        assertThat(transactionDao.getEntities(ACCOUNT_ID_2)).containsExactly(transaction2, posted.otherLeg());
+        assertThat(posted.otherLeg().getOwnerAccountId()).isEqualTo(ACCOUNT_ID_2);
+        assertThat(posted.otherLeg().getAmount()).isEqualTo(-AMOUNT_3);
+        assertThat(transactionDao.getAll()).containsExactly(transaction1, transaction2, posted);
+    }
+
+    @Test(expected = DaoValidationException.class)
+    public void shouldNotPostToSameAccount() throws DaoValidationException {
+        // when
+        transactionDao.post(Transaction.builder()
+                .ownerAccountId(ACCOUNT_ID_1)
+                .otherAccountId(ACCOUNT_ID_1)
+                .amount(AMOUNT_3)
+                .currency(CURRENCY_3)
+                .type(TYPE_3)
+                .build());
+    }
+
     @Test
     public void shouldNotFindTransactionsByAccountId() {
         // when
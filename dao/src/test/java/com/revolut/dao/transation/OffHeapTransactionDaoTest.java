@@ -0,0 +1,205 @@
+package com.revolut.dao.transation;
+
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Optional;
+import java.util.UUID;
+
+import com.revolut.dao.exception.DaoValidationException;
+import com.revolut.dao.model.Currency;
+import com.revolut.dao.model.Transaction;
+import com.revolut.dao.model.TransactionType;
+import org.junit.Before;
+import org.junit.Test;
+
+import static java.util.Arrays.asList;
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.catchThrowable;
+
+public class OffHeapTransactionDaoTest {
+
+    private static final String UUID_1 = "transaction-1";
+    private static final String UUID_2 = UUID.randomUUID().toString();
+    private static final Long ACCOUNT_ID_1 = 1L;
+    private static final Long ACCOUNT_ID_2 = 2L;
+    private static final String DESCRIPTION = "desc";
+
+    private OffHeapTransactionDao transactionDao;
+
+    private Transaction transaction1;
+    private Transaction transaction2;
+
+    @Before
+    public void setUp() throws DaoValidationException {
+        transactionDao = OffHeapTransactionDao.getInstance();
+        transactionDao.deleteAll();
+        transaction1 = transactionDao.save(transaction(ACCOUNT_ID_1, ACCOUNT_ID_2, 100L)
+                .uuid(UUID_1)
+                .build());
+        transaction2 = transactionDao.save(transaction(ACCOUNT_ID_2, ACCOUNT_ID_1, -100L)
+                .uuid(UUID_2)
+                .currency(Currency.EUR)
+                .type(TransactionType.CONVERTATION)
+                .description(null)
+                .build());
+    }
+
+    @Test
+    public void shouldAddNewTransaction() throws DaoValidationException {
+        // given
+        Transaction newTransaction = transaction(ACCOUNT_ID_1, ACCOUNT_ID_2, 1L).build();
+
+        // when
+        Transaction result = transactionDao.save(newTransaction);
+
+        // then
+        assertThat(newTransaction).isEqualToIgnoringGivenFields(result, "id", "uuid", "createdAt");
+        assertThat(result.getId()).isEqualTo(transaction2.getId() + 1);
+        assertThat(result.getCreatedAt()).isNotNull();
+        assertThat(transactionDao.getEntity(result.getUuid())).isPresent().get().isEqualTo(result);
+    }
+
+    @Test
+    public void shouldFindTransactionsByUuid() {
+        // when
+        Optional<Transaction> irregular = transactionDao.getEntity(UUID_1);
+        Optional<Transaction> canonical = transactionDao.getEntity(UUID_2);
+        Optional<Transaction> missing = transactionDao.getEntity(UUID.randomUUID().toString());
+
+        // then
+        assertThat(irregular).isPresent().get().isEqualTo(transaction1);
+        assertThat(canonical).isPresent().get().isEqualTo(transaction2);
+        assertThat(missing).isNotPresent();
+    }
+
+    @Test
+    public void shouldPageTransactionsByAccountId() throws DaoValidationException {
+        // given
+        Transaction transaction = transactionDao.save(transaction(ACCOUNT_ID_1, ACCOUNT_ID_2, -1L).build());
+
+        // when
+        List<Transaction> history = transactionDao.getEntities(ACCOUNT_ID_1);
+        List<Transaction> secondPage = transactionDao.getEntities(ACCOUNT_ID_1, transaction1.getId(), 5);
+        List<Transaction> lastPage = transactionDao.getEntities(ACCOUNT_ID_1, transaction.getId(), 5);
+
+        // then
+        assertThat(history).containsExactly(transaction1, transaction);
+        assertThat(secondPage).containsExactly(transaction);
+        assertThat(lastPage).isEmpty();
+        assertThat(transactionDao.getEntities(12L)).isEmpty();
+    }
+
+    @Test
+    public void shouldPostOneRowVisibleInBothHistories() throws DaoValidationException {
+        // given
+        Transaction leg = transaction(ACCOUNT_ID_1, ACCOUNT_ID_2, -50L).build();
+
+        // when
+        Transaction posted = transactionDao.post(leg);
+        List<Transaction> otherPage = transactionDao.getEntities(ACCOUNT_ID_2, transaction2.getId(), 5);
+
+        // then
+        assertThat(posted.isDoubleEntry()).isTrue();
+        assertThat(transactionDao.getEntities(ACCOUNT_ID_1)).containsExactly(transaction1, posted);
+        assertThat(transactionDao.getEntities(ACCOUNT_ID_2)).containsExactly(transaction2, posted.otherLeg());
+        assertThat(otherPage).containsExactly(posted.otherLeg());
+        assertThat(otherPage.get(0).getAmount()).isEqualTo(50L);
+        assertThat(transactionDao.getAll()).containsExactly(transaction1, transaction2, posted);
+        assertThat(transactionDao.size()).isEqualTo(3);
+    }
+
+    @Test
+    public void shouldKeepRowsOfManyChunksAndGrownIndex() throws DaoValidationException {
+        // given
+        int count = 100000;
+        Transaction last = null;
+        for (int i = 0; i < count; i++) {
+            last = transactionDao.save(transaction(ACCOUNT_ID_2, ACCOUNT_ID_1, i + 1).build());
+        }
+
+        // when
+        List<Transaction> all = transactionDao.getAll();
+
+        // then
+        assertThat(all).hasSize(count + 2);
+        assertThat(all.get(count + 1)).isEqualTo(last);
+        assertThat(transactionDao.getEntity(last.getUuid())).isPresent().get().isEqualTo(last);
+        assertThat(transactionDao.getOffHeapBytes() / transactionDao.size()).isLessThan(200);
+    }
+
+    @Test
+    public void shouldRestoreTransactionWithItsIdAndTime() {
+        // given
+        Transaction restored = transaction(ACCOUNT_ID_1, ACCOUNT_ID_2, 5L)
+                .id(transaction2.getId() + 10)
+                .uuid(UUID.randomUUID().toString())
+                .createdAt(LocalDateTime.of(2019, 11, 20, 10, 15, 30, 123456789))
+                .build();
+
+        // when
+        transactionDao.restore(restored);
+
+        // then
+        assertThat(transactionDao.getEntity(restored.getUuid())).isPresent().get().isEqualTo(restored);
+        assertThat(transactionDao.getEntities(ACCOUNT_ID_1)).containsExactly(transaction1, restored);
+    }
+
+    @Test(expected = DaoValidationException.class)
+    public void shouldThrowValidationExceptionCauseIdIsNotNull() throws DaoValidationException {
+        // when
+        transactionDao.save(transaction1);
+    }
+
+    @Test
+    public void shouldRejectExistingUuids() {
+        // given
+        Transaction canonical = transaction(ACCOUNT_ID_1, ACCOUNT_ID_2, -1L).uuid(UUID_2).build();
+        Transaction irregular = transaction(ACCOUNT_ID_1, ACCOUNT_ID_2, -1L).uuid(UUID_1).build();
+        Transaction fresh = transaction(ACCOUNT_ID_1, ACCOUNT_ID_2, -1L).uuid(UUID.randomUUID().toString()).build();
+
+        // when
+        Throwable saved = catchThrowable(() -> transactionDao.save(transaction(ACCOUNT_ID_1, ACCOUNT_ID_2, 1L)
+                .uuid(UUID_2)
+                .build()));
+        Throwable posted = catchThrowable(() -> transactionDao.post(irregular));
+        Throwable postedAll = catchThrowable(() -> transactionDao.postAll(asList(fresh, canonical)));
+        Throwable postedTwice = catchThrowable(() -> transactionDao.postAll(asList(fresh, fresh)));
+
+        // then
+        assertThat(saved).isInstanceOf(DaoValidationException.class);
+        assertThat(posted).isInstanceOf(DaoValidationException.class);
+        assertThat(postedAll).isInstanceOf(DaoValidationException.class);
+        assertThat(postedTwice).isInstanceOf(DaoValidationException.class);
+        assertThat(transactionDao.getAll()).containsExactly(transaction1, transaction2);
+        assertThat(transactionDao.getEntity(fresh.getUuid())).isNotPresent();
+    }
+
+    @Test
+    public void shouldKeepRowsReadBeforeDeleteAll() throws DaoValidationException {
+        // given
+        List<Transaction> all = transactionDao.getAll();
+        List<Transaction> history = transactionDao.getEntities(ACCOUNT_ID_1);
+
+        // when
+        transactionDao.deleteAll();
+        Transaction saved = transactionDao.save(transaction(ACCOUNT_ID_1, ACCOUNT_ID_2, 7L).build());
+
+        // then
+        assertThat(all).containsExactly(transaction1, transaction2);
+        assertThat(history).containsExactly(transaction1);
+        assertThat(transactionDao.getAll()).containsExactly(saved);
+        assertThat(saved.getId()).isEqualTo(1L);
+        assertThat(transactionDao.getEntity(UUID_1)).isNotPresent();
+    }
+
+    private static Transaction.TransactionBuilder<?, ?> transaction(Long ownerAccountId, Long otherAccountId, long amount) {
+        return Transaction.builder()
+                .ownerAccountId(ownerAccountId)
+                .otherAccountId(otherAccountId)
+                .amount(amount)
+                .description(DESCRIPTION)
+                .currency(Currency.USD)
+                .type(TransactionType.TRANSFER_BETWEEN_ACCOUNTS);
+    }
+
+}
@@ -0,0 +1,116 @@
+package com.revolut.dao.transation;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.UUID;
+
+import com.revolut.dao.exception.DaoValidationException;
+import com.revolut.dao.model.Currency;
+import com.revolut.dao.model.Transaction;
+import com.revolut.dao.model.TransactionType;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.junit.runners.Parameterized;
+
+import static java.util.Arrays.asList;
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.catchThrowable;
+
+// behaviour both engines share behind the transaction dao contract
+@RunWith(Parameterized.class)
+public class TransactionStoreTest {
+
+    private static final String UUID_1 = "transaction-1";
+    private static final String UUID_2 = UUID.randomUUID().toString();
+    private static final Long ACCOUNT_ID_1 = 1L;
+    private static final Long ACCOUNT_ID_2 = 2L;
+    private static final Long ACCOUNT_ID_3 = 3L;
+
+    @Parameterized.Parameter
+    public TransactionStore store;
+
+    private TransactionDao transactionDao;
+
+    private Transaction saved;
+    private Transaction posted;
+
+    @Parameterized.Parameters(name = "{0}")
+    public static Collection<Object[]> stores() {
+        List<Object[]> stores = new ArrayList<>();
+        for (TransactionStore store : TransactionStore.values()) {
+            stores.add(new Object[]{store});
+        }
+        return stores;
+    }
+
+    @Before
+    public void setUp() throws DaoValidationException {
+        transactionDao = store == TransactionStore.OFF_HEAP
+                ? OffHeapTransactionDao.getInstance()
+                : InMemoryTransactionDao.getInstance();
+        transactionDao.deleteAll();
+        saved = transactionDao.save(transaction(ACCOUNT_ID_1, ACCOUNT_ID_2, 100L).uuid(UUID_1).build());
+        posted = transactionDao.post(transaction(ACCOUNT_ID_1, ACCOUNT_ID_2, -1L).uuid(UUID_2).build());
+    }
+
+    @Test
+    public void shouldRejectExistingUuids() {
+        // given
+        Transaction fresh = transaction(ACCOUNT_ID_3, ACCOUNT_ID_2, -1L).uuid(UUID.randomUUID().toString()).build();
+        List<Transaction> history1 = transactionDao.getEntities(ACCOUNT_ID_1);
+        List<Transaction> history2 = transactionDao.getEntities(ACCOUNT_ID_2);
+
+        // when
+        Throwable savedAgain = catchThrowable(() -> transactionDao.save(transaction(ACCOUNT_ID_3, ACCOUNT_ID_1, 1L)
+                .uuid(UUID_2)
+                .build()));
+        Throwable postedAgain = catchThrowable(() -> transactionDao.post(transaction(ACCOUNT_ID_3, ACCOUNT_ID_2, -1L)
+                .uuid(UUID_1)
+                .build()));
+        Throwable postedAllAgain = catchThrowable(() -> transactionDao.postAll(asList(fresh,
+                transaction(ACCOUNT_ID_2, ACCOUNT_ID_3, -1L).uuid(UUID_2).build())));
+        Throwable postedTwice = catchThrowable(() -> transactionDao.postAll(asList(fresh, fresh)));
+
+        // then
+        assertThat(savedAgain).isInstanceOf(DaoValidationException.class).hasMessage("Transaction " + UUID_2 + " already exists");
+        assertThat(postedAgain).isInstanceOf(DaoValidationException.class).hasMessage("Transaction " + UUID_1 + " already exists");
+        assertThat(postedAllAgain).isInstanceOf(DaoValidationException.class).hasMessage("Transaction " + UUID_2 + " already exists");
+        assertThat(postedTwice).isInstanceOf(DaoValidationException.class).hasMessage("Transaction " + fresh.getUuid() + " is posted twice");
+        assertThat(transactionDao.getAll()).containsExactly(saved, posted);
+        assertThat(transactionDao.getEntity(UUID_1)).contains(saved);
+        assertThat(transactionDao.getEntity(UUID_2)).contains(posted);
+        assertThat(transactionDao.getEntity(fresh.getUuid())).isNotPresent();
+        assertThat(transactionDao.getEntities(ACCOUNT_ID_1)).isEqualTo(history1);
+        assertThat(transactionDao.getEntities(ACCOUNT_ID_2)).isEqualTo(history2);
+        assertThat(transactionDao.getEntities(ACCOUNT_ID_3)).isEmpty();
+    }
+
+    @Test
+    public void shouldPostBatchOnceItsUuidIsFreedByRejectedOne() throws DaoValidationException {
+        // given
+        Transaction fresh = transaction(ACCOUNT_ID_3, ACCOUNT_ID_2, -1L).uuid(UUID.randomUUID().toString()).build();
+        catchThrowable(() -> transactionDao.postAll(asList(fresh, transaction(ACCOUNT_ID_2, ACCOUNT_ID_3, -1L)
+                .uuid(UUID_1)
+                .build())));
+
+        // when
+        List<Transaction> result = transactionDao.postAll(asList(fresh));
+
+        // then
+        assertThat(result).hasSize(1);
+        assertThat(transactionDao.getEntity(fresh.getUuid())).contains(result.get(0));
+        assertThat(transactionDao.getEntities(ACCOUNT_ID_3)).containsExactly(result.get(0));
+    }
+
+    private static Transaction.TransactionBuilder<?, ?> transaction(Long ownerAccountId, Long otherAccountId, long amount) {
+        return Transaction.builder()
+                .ownerAccountId(ownerAccountId)
+                .otherAccountId(otherAccountId)
+                .amount(amount)
+                .currency(Currency.USD)
+                .type(TransactionType.TRANSFER_BETWEEN_ACCOUNTS);
+    }
+
+}
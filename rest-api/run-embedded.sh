@@ -0,0 +1,3 @@
+mvn clean install
+
+java $JAVA_OPTS -cp "target/classes:target/rest-api-1.0-SNAPSHOT/WEB-INF/lib/*" com.revolut.web.EmbeddedServer
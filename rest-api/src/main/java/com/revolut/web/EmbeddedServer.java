@@ -0,0 +1,96 @@
+package com.revolut.web;
+
+import java.io.IOException;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.logging.Logger;
+
+import com.revolut.web.config.SampleData;
+import com.revolut.web.config.ServiceConfiguration;
+import com.sun.jersey.api.container.httpserver.HttpServerFactory;
+import com.sun.net.httpserver.HttpServer;
+
+/**
+ * Serves the same {@code /v1} resources as the web application on the http server of the JDK, without a servlet
+ * container. Parameters of web.xml are read from system properties of the same names and default to the values of
+ * web.xml, {@code port} and {@code httpThreads} size the server itself.
+ * <p>
+ * Transfers are handled by threads of the server, the servlet filter which hands them to transfer threads isn't used.
+ */
+public final class EmbeddedServer {
+
+    private static final Logger LOGGER = Logger.getLogger(EmbeddedServer.class.getName());
+
+    private final static String PORT_PARAMETER = "port";
+
+    private final static String HTTP_THREADS_PARAMETER = "httpThreads";
+
+    // without it responses on kept alive connections wait for delayed acknowledgements of the client
+    private final static String NO_DELAY_PROPERTY = "sun.net.httpserver.nodelay";
+
+    private final static String DEFAULT_PORT = "8080";
+
+    private final static String DEFAULT_HTTP_THREADS = String.valueOf(Runtime.getRuntime().availableProcessors() * 4);
+
+    private final static int STOP_DELAY_SECONDS = 1;
+
+    private final static Map<String, String> DEFAULTS = new HashMap<>();
+
+    static {
+        DEFAULTS.put("insertSampleData", "true");
+        DEFAULTS.put("transactionStore", "HEAP");
+        DEFAULTS.put("journalBatchSize", "256");
+        DEFAULTS.put("journalMaxWaitMicros", "100");
+        DEFAULTS.put("snapshotIntervalSeconds", "300");
+        DEFAULTS.put("transferMode", "STRIPED_LOCK");
+        DEFAULTS.put("transferBatchSize", "256");
+        DEFAULTS.put("transferBatchMaxWaitMicros", "100");
+        DEFAULTS.put("asyncTransactionQueueSize", "10000");
+        DEFAULTS.put("accountCacheSize", "10000");
+        DEFAULTS.put("compressionThresholdBytes", "1024");
+    }
+
+    private EmbeddedServer() {
+    }
+
+    public static void main(String[] args) throws IOException {
+        long startedAt = System.nanoTime();
+        ServiceConfiguration.configure(EmbeddedServer::getParameter);
+        SampleData.insert(EmbeddedServer::getParameter);
+
+        if (System.getProperty(NO_DELAY_PROPERTY) == null) {
+            System.setProperty(NO_DELAY_PROPERTY, "true");
+        }
+        int port = Integer.parseInt(System.getProperty(PORT_PARAMETER, DEFAULT_PORT).trim());
+        int httpThreads = Integer.parseInt(System.getProperty(HTTP_THREADS_PARAMETER, DEFAULT_HTTP_THREADS).trim());
+        HttpServer server = HttpServerFactory.create(String.format("http://0.0.0.0:%d/v1/", port), new RestApplication());
+        AtomicInteger threads = new AtomicInteger();
+        ExecutorService executor = Executors.newFixedThreadPool(httpThreads,
+                runnable -> new Thread(runnable, "http-" + threads.getAndIncrement()));
+        server.setExecutor(executor);
+        server.start();
+
+        // requests in progress get a moment to finish before services are closed
+        Runtime.getRuntime().addShutdownHook(new Thread(() -> {
+            server.stop(STOP_DELAY_SECONDS);
+            executor.shutdown();
+            try {
+                executor.awaitTermination(STOP_DELAY_SECONDS, TimeUnit.SECONDS);
+            } catch (InterruptedException ex) {
+                Thread.currentThread().interrupt();
+            }
+            ServiceConfiguration.close();
+        }, "embedded-server-stop"));
+        LOGGER.info(String.format("Listening on http://localhost:%d/v1/ with %d threads, started in %d ms",
+                port, httpThreads, TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - startedAt)));
+    }
+
+    private static String getParameter(String name) {
+        return System.getProperty(name, DEFAULTS.get(name));
+    }
+
+}
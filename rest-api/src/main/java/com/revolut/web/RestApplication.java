@@ -0,0 +1,41 @@
+package com.revolut.web;
+
+import com.revolut.web.controller.AccountController;
+import com.revolut.web.controller.AccountTransactionController;
+import com.revolut.web.controller.MetricsController;
+import com.revolut.web.controller.TransactionController;
+import com.revolut.web.exception.DefaultExceptionHandler;
+import com.revolut.web.exception.NotFoundExceptionHandler;
+import com.revolut.web.exception.OverloadedExceptionHandler;
+import com.revolut.web.exception.TransactionFailedExceptionHandler;
+import com.revolut.web.exception.ValidationExceptionHandler;
+import com.revolut.web.filter.ContentEncodingFilter;
+import com.revolut.web.provider.GsonProvider;
+import com.revolut.web.provider.TransferCodecProvider;
+import com.sun.jersey.api.core.DefaultResourceConfig;
+import com.sun.jersey.api.core.ResourceConfig;
+
+import static java.util.Collections.singletonList;
+
+// resources are listed explicitly, class scanning of jersey 1.x can't read classes with lambdas
+public class RestApplication extends DefaultResourceConfig {
+
+    public RestApplication() {
+        super(
+                AccountController.class,
+                AccountTransactionController.class,
+                MetricsController.class,
+                TransactionController.class,
+                DefaultExceptionHandler.class,
+                NotFoundExceptionHandler.class,
+                OverloadedExceptionHandler.class,
+                TransactionFailedExceptionHandler.class,
+                ValidationExceptionHandler.class,
+                GsonProvider.class,
+                TransferCodecProvider.class);
+        // filters of jersey 1.x are configured as properties, they aren't found among the classes
+        getProperties().put(ResourceConfig.PROPERTY_CONTAINER_REQUEST_FILTERS, singletonList(ContentEncodingFilter.getInstance()));
+        getProperties().put(ResourceConfig.PROPERTY_CONTAINER_RESPONSE_FILTERS, singletonList(ContentEncodingFilter.getInstance()));
+    }
+
+}
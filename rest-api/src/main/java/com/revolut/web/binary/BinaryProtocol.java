@@ -0,0 +1,89 @@
+package com.revolut.web.binary;
+
+import java.math.BigDecimal;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+
+import com.revolut.core.exception.ValidationException;
+
+/**
+ * Length prefixed protocol of internal clients, every number is big endian and the length counts the bytes after it.
+ * <pre>
+ * request         := length:int requestId:long command:byte payload
+ * response        := length:int requestId:long status:byte payload
+ * string          := length:unsigned short utf-8 bytes
+ * amount          := unscaled:long scale:byte
+ *
+ * TRANSFER        accountId:string destinationAccountId:string amount:amount
+ *     OK          transactionId:string amount:amount
+ * GET_BALANCE     accountId:string
+ *     OK          currency:string total:amount
+ * BATCH_TRANSFER  mode:byte count:int (accountId:string destinationAccountId:string amount:amount){count}
+ *     OK          applied:int failed:int count:int (APPLIED transactionId:string amount:amount | FAILED error:string | NOT_APPLIED){count}
+ * any command
+ *     not OK      message:string
+ * </pre>
+ * Responses of a connection come in the order of its requests, so a client may send many requests without waiting.
+ */
+public final class BinaryProtocol {
+
+    public static final byte TRANSFER = 1;
+    public static final byte GET_BALANCE = 2;
+    public static final byte BATCH_TRANSFER = 3;
+
+    public static final byte OK = 0;
+    public static final byte INVALID = 1;
+    public static final byte NOT_FOUND = 2;
+    public static final byte FAILED = 3;
+    public static final byte OVERLOADED = 4;
+    public static final byte ERROR = 5;
+
+    // modes of a batch
+    public static final byte ALL_OR_NOTHING = 0;
+    public static final byte BEST_EFFORT = 1;
+
+    // outcome of every transfer of a batch
+    public static final byte RESULT_APPLIED = 0;
+    public static final byte RESULT_FAILED = 1;
+    public static final byte RESULT_NOT_APPLIED = 2;
+
+    // request id and command
+    public static final int MIN_REQUEST_LENGTH = 9;
+
+    // a batch of the biggest size with long ids fits
+    public static final int MAX_REQUEST_LENGTH = 4 * 1024 * 1024;
+
+    private static final int MAX_STRING_LENGTH = 0xffff;
+
+    private BinaryProtocol() {
+    }
+
+    public static void putString(ByteBuffer buffer, String value) {
+        byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+        if (bytes.length > MAX_STRING_LENGTH) {
+            throw new ValidationException(String.format("String should be at most %d bytes long", MAX_STRING_LENGTH));
+        }
+        buffer.putShort((short) bytes.length);
+        buffer.put(bytes);
+    }
+
+    public static String getString(ByteBuffer buffer) {
+        byte[] bytes = new byte[buffer.getShort() & MAX_STRING_LENGTH];
+        buffer.get(bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    public static void putAmount(ByteBuffer buffer, BigDecimal amount) {
+        if (amount.scale() < Byte.MIN_VALUE || amount.scale() > Byte.MAX_VALUE) {
+            throw new ValidationException("Amount scale doesn't fit a byte");
+        }
+        buffer.putLong(amount.unscaledValue().longValueExact());
+        buffer.put((byte) amount.scale());
+    }
+
+    public static BigDecimal getAmount(ByteBuffer buffer) {
+        long unscaled = buffer.getLong();
+        return BigDecimal.valueOf(unscaled, buffer.get());
+    }
+
+}
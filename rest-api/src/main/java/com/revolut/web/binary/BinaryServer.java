@@ -0,0 +1,531 @@
+package com.revolut.web.binary;
+
+import java.io.IOException;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.nio.BufferOverflowException;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.nio.channels.ClosedSelectorException;
+import java.nio.channels.SelectionKey;
+import java.nio.channels.Selector;
+import java.nio.channels.ServerSocketChannel;
+import java.nio.channels.SocketChannel;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Queue;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import com.revolut.core.dto.AccountDto;
+import com.revolut.core.dto.BatchMode;
+import com.revolut.core.dto.TransactionBatchCreateDto;
+import com.revolut.core.dto.TransactionBatchDto;
+import com.revolut.core.dto.TransactionCreateDto;
+import com.revolut.core.dto.TransactionDto;
+import com.revolut.core.dto.TransactionResultDto;
+import com.revolut.core.dto.TransferTransactionCreateDto;
+import com.revolut.core.exception.NotFoundException;
+import com.revolut.core.exception.OverloadedException;
+import com.revolut.core.exception.TransactionFailedException;
+import com.revolut.core.exception.ValidationException;
+import com.revolut.core.service.AccountService;
+import com.revolut.core.service.impl.DefaultAccountService;
+import com.revolut.core.strategy.TransactionStrategy;
+
+import static com.revolut.web.binary.BinaryProtocol.ALL_OR_NOTHING;
+import static com.revolut.web.binary.BinaryProtocol.BATCH_TRANSFER;
+import static com.revolut.web.binary.BinaryProtocol.BEST_EFFORT;
+import static com.revolut.web.binary.BinaryProtocol.ERROR;
+import static com.revolut.web.binary.BinaryProtocol.FAILED;
+import static com.revolut.web.binary.BinaryProtocol.GET_BALANCE;
+import static com.revolut.web.binary.BinaryProtocol.INVALID;
+import static com.revolut.web.binary.BinaryProtocol.MAX_REQUEST_LENGTH;
+import static com.revolut.web.binary.BinaryProtocol.MIN_REQUEST_LENGTH;
+import static com.revolut.web.binary.BinaryProtocol.NOT_FOUND;
+import static com.revolut.web.binary.BinaryProtocol.OK;
+import static com.revolut.web.binary.BinaryProtocol.OVERLOADED;
+import static com.revolut.web.binary.BinaryProtocol.RESULT_APPLIED;
+import static com.revolut.web.binary.BinaryProtocol.RESULT_FAILED;
+import static com.revolut.web.binary.BinaryProtocol.RESULT_NOT_APPLIED;
+import static com.revolut.web.binary.BinaryProtocol.TRANSFER;
+
+/**
+ * Serves {@link BinaryProtocol} over plain tcp, on the loopback interface unless another address is given. A single
+ * selector thread reads requests and writes responses through direct buffers of every connection. Requests are only
+ * decoded there, every command runs on worker threads and its response is written once its future completes.
+ * <p>
+ * Responses are written in the order of requests as soon as every response before them is ready. A connection with
+ * too many requests in progress isn't read until some of them are answered. Buffers of a connection grow as a big
+ * request arrives or a big response is written, and go back to their usual size once it is done.
+ */
+public class BinaryServer {
+
+    // usual size of buffers of a connection
+    private static final int BUFFER_SIZE = 64 * 1024;
+
+    private static final int MAX_IN_FLIGHT = 1024;
+
+    // least bytes of a transfer of a batch, limits the list allocated for a count
+    private static final int MIN_BATCH_TRANSFER_LENGTH = 2 + 2 + 9;
+
+    private final Selector selector;
+
+    private final ServerSocketChannel serverChannel;
+
+    private final ExecutorService workers;
+
+    private final Thread selectorThread;
+
+    // connections with responses completed outside of the selector thread
+    private final Queue<Connection> completed = new ConcurrentLinkedQueue<>();
+
+    private final List<Connection> connections = new ArrayList<>();
+
+    private TransactionStrategy transactionStrategy = TransactionStrategy.getInstance();
+
+    private AccountService accountService = DefaultAccountService.getInstance();
+
+    private volatile boolean closed;
+
+    public BinaryServer(int port, int workerCount) throws IOException {
+        this(InetAddress.getLoopbackAddress(), port, workerCount);
+    }
+
+    public BinaryServer(InetAddress bindAddress, int port, int workerCount) throws IOException {
+        selector = Selector.open();
+        serverChannel = ServerSocketChannel.open();
+        serverChannel.bind(new InetSocketAddress(bindAddress, port));
+        serverChannel.configureBlocking(false);
+        serverChannel.register(selector, SelectionKey.OP_ACCEPT);
+        AtomicInteger threads = new AtomicInteger();
+        workers = Executors.newFixedThreadPool(workerCount, runnable -> {
+            Thread thread = new Thread(runnable, "binary-worker-" + threads.getAndIncrement());
+            thread.setDaemon(true);
+            return thread;
+        });
+        selectorThread = new Thread(this::selectLoop, "binary-selector");
+        selectorThread.setDaemon(true);
+        selectorThread.start();
+    }
+
+    // bound port, useful when the server was asked for any free one
+    public int getPort() {
+        return serverChannel.socket().getLocalPort();
+    }
+
+    // connections are dropped, requests in progress are left to finish without responses
+    public void close() {
+        closed = true;
+        selector.wakeup();
+        try {
+            selectorThread.join();
+        } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+        }
+        workers.shutdown();
+    }
+
+    private void selectLoop() {
+        try {
+            while (!closed) {
+                selector.select();
+                Connection connection;
+                while ((connection = completed.poll()) != null) {
+                    connection.scheduled.set(false);
+                    if (connection.key.isValid()) {
+                        process(connection);
+                    }
+                }
+                Iterator<SelectionKey> keys = selector.selectedKeys().iterator();
+                while (keys.hasNext()) {
+                    SelectionKey key = keys.next();
+                    keys.remove();
+                    if (!key.isValid()) {
+                        continue;
+                    }
+                    if (key.isAcceptable()) {
+                        acceptQuietly();
+                    } else {
+                        handle((Connection) key.attachment(), key);
+                    }
+                }
+            }
+        } catch (IOException | ClosedSelectorException ex) {
+            // server is going down
+        } finally {
+            new ArrayList<>(connections).forEach(Connection::close);
+            try {
+                serverChannel.close();
+                selector.close();
+            } catch (IOException ex) {
+                // nothing left to release
+            }
+        }
+    }
+
+    // a client which has gone before it is accepted doesn't stop the server
+    private void acceptQuietly() {
+        SocketChannel channel = null;
+        try {
+            channel = serverChannel.accept();
+            if (channel == null) {
+                return;
+            }
+            channel.configureBlocking(false);
+            channel.socket().setTcpNoDelay(true);
+            Connection connection = new Connection(channel);
+            connection.key = channel.register(selector, SelectionKey.OP_READ, connection);
+            connections.add(connection);
+        } catch (IOException ex) {
+            if (channel != null) {
+                try {
+                    channel.close();
+                } catch (IOException closeEx) {
+                    // already gone
+                }
+            }
+        }
+    }
+
+    private void handle(Connection connection, SelectionKey key) {
+        try {
+            if (key.isReadable() && !connection.read()) {
+                connection.close();
+                return;
+            }
+        } catch (IOException ex) {
+            connection.close();
+            return;
+        }
+        process(connection);
+    }
+
+    private void process(Connection connection) {
+        try {
+            connection.process();
+        } catch (IOException ex) {
+            connection.close();
+        }
+    }
+
+    // called by the thread which completed a response
+    private void schedule(Connection connection) {
+        if (connection.scheduled.compareAndSet(false, true)) {
+            completed.add(connection);
+            selector.wakeup();
+        }
+    }
+
+    // decoded on the selector thread, which owns the buffer, and run by workers so that no command holds the selector
+    private CompletableFuture<?> dispatch(byte command, ByteBuffer request) {
+        switch (command) {
+            case TRANSFER:
+                TransferTransactionCreateDto transfer = getTransfer(request);
+                return CompletableFuture.supplyAsync(() -> transactionStrategy.createTransactionAsync(transfer), workers)
+                        .thenCompose(result -> result);
+            case GET_BALANCE:
+                String accountId = BinaryProtocol.getString(request);
+                return CompletableFuture.supplyAsync(() -> accountService.getById(accountId, false), workers);
+            case BATCH_TRANSFER:
+                TransactionBatchCreateDto batch = getBatch(request);
+                return CompletableFuture.supplyAsync(() -> transactionStrategy.createTransactions(batch), workers);
+            default:
+                throw new ValidationException(String.format("Command %d is not supported", command));
+        }
+    }
+
+    private TransactionBatchCreateDto getBatch(ByteBuffer request) {
+        byte mode = request.get();
+        if (mode != ALL_OR_NOTHING && mode != BEST_EFFORT) {
+            throw new ValidationException(String.format("Batch mode %d is not supported", mode));
+        }
+        int count = request.getInt();
+        if (count < 0 || count > request.remaining() / MIN_BATCH_TRANSFER_LENGTH) {
+            throw new ValidationException("Batch count doesn't match its transfers");
+        }
+        List<TransactionCreateDto> transfers = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            transfers.add(getTransfer(request));
+        }
+        return TransactionBatchCreateDto.builder()
+                .mode(mode == ALL_OR_NOTHING ? BatchMode.ALL_OR_NOTHING : BatchMode.BEST_EFFORT)
+                .transactions(transfers)
+                .build();
+    }
+
+    private static TransferTransactionCreateDto getTransfer(ByteBuffer request) {
+        TransferTransactionCreateDto createDto = new TransferTransactionCreateDto();
+        createDto.setAccountId(BinaryProtocol.getString(request));
+        createDto.setDestinationAccountId(BinaryProtocol.getString(request));
+        createDto.setAmount(BinaryProtocol.getAmount(request));
+        return createDto;
+    }
+
+    private static void putResponse(ByteBuffer buffer, PendingResponse response) {
+        int start = buffer.position();
+        buffer.putInt(0);
+        buffer.putLong(response.requestId);
+        Object result = null;
+        Throwable failure = null;
+        try {
+            result = response.result.getNow(null);
+        } catch (CompletionException ex) {
+            failure = ex.getCause();
+        } catch (CancellationException ex) {
+            failure = ex;
+        }
+        if (failure != null) {
+            buffer.put(getStatus(failure));
+            BinaryProtocol.putString(buffer, failure.getMessage() != null ? failure.getMessage() : "");
+        } else {
+            buffer.put(OK);
+            putResult(buffer, response.command, result);
+        }
+        buffer.putInt(start, buffer.position() - start - 4);
+    }
+
+    private static void putResult(ByteBuffer buffer, byte command, Object result) {
+        if (command == TRANSFER) {
+            putTransaction(buffer, (TransactionDto) result);
+        } else if (command == GET_BALANCE) {
+            AccountDto account = (AccountDto) result;
+            BinaryProtocol.putString(buffer, account.getCurrency().name());
+            BinaryProtocol.putAmount(buffer, account.getTotal());
+        } else {
+            TransactionBatchDto batch = (TransactionBatchDto) result;
+            buffer.putInt(batch.getApplied());
+            buffer.putInt(batch.getFailed());
+            buffer.putInt(batch.getResults().size());
+            for (TransactionResultDto transfer : batch.getResults()) {
+                if (transfer.getStatus() == TransactionResultDto.Status.APPLIED) {
+                    buffer.put(RESULT_APPLIED);
+                    putTransaction(buffer, transfer.getTransaction());
+                } else if (transfer.getStatus() == TransactionResultDto.Status.FAILED) {
+                    buffer.put(RESULT_FAILED);
+                    BinaryProtocol.putString(buffer, transfer.getError() != null ? transfer.getError() : "");
+                } else {
+                    buffer.put(RESULT_NOT_APPLIED);
+                }
+            }
+        }
+    }
+
+    private static void putTransaction(ByteBuffer buffer, TransactionDto transaction) {
+        BinaryProtocol.putString(buffer, transaction.getId());
+        BinaryProtocol.putAmount(buffer, transaction.getAmount());
+    }
+
+    private static byte getStatus(Throwable failure) {
+        if (failure instanceof ValidationException) {
+            return INVALID;
+        } else if (failure instanceof NotFoundException) {
+            return NOT_FOUND;
+        } else if (failure instanceof TransactionFailedException) {
+            return FAILED;
+        } else if (failure instanceof OverloadedException) {
+            return OVERLOADED;
+        }
+        return ERROR;
+    }
+
+    private static CompletableFuture<?> failed(RuntimeException ex) {
+        CompletableFuture<Object> failed = new CompletableFuture<>();
+        failed.completeExceptionally(ex);
+        return failed;
+    }
+
+    private static class PendingResponse {
+
+        private final long requestId;
+
+        private final byte command;
+
+        private final CompletableFuture<?> result;
+
+        private PendingResponse(long requestId, byte command, CompletableFuture<?> result) {
+            this.requestId = requestId;
+            this.command = command;
+            this.result = result;
+        }
+
+    }
+
+    // buffers and responses are touched by the selector thread only
+    private class Connection {
+
+        private final SocketChannel channel;
+
+        private SelectionKey key;
+
+        private final ByteBuffer directInbound = ByteBuffer.allocateDirect(BUFFER_SIZE);
+
+        private final ByteBuffer directOutbound = ByteBuffer.allocateDirect(BUFFER_SIZE);
+
+        // kept in write mode between reads, a grown one is on the heap until what it holds fits the direct one again
+        private ByteBuffer inbound = directInbound;
+
+        private ByteBuffer outbound = directOutbound;
+
+        // in the order of requests
+        private final Deque<PendingResponse> responses = new ArrayDeque<>();
+
+        private final AtomicBoolean scheduled = new AtomicBoolean();
+
+        private Connection(SocketChannel channel) {
+            this.channel = channel;
+        }
+
+        // returns false once the client has closed the connection
+        private boolean read() throws IOException {
+            if (!inbound.hasRemaining()) {
+                // a frame bigger than the buffer waits for it to grow
+                return true;
+            }
+            return channel.read(inbound) >= 0;
+        }
+
+        private void process() throws IOException {
+            readRequests();
+            writeResponses();
+            // responses written above make room for requests left in the buffer
+            if (inbound.position() > 0 && responses.size() < MAX_IN_FLIGHT) {
+                readRequests();
+                writeResponses();
+            }
+            int interest = responses.size() < MAX_IN_FLIGHT ? SelectionKey.OP_READ : 0;
+            if (outbound.position() > 0) {
+                interest |= SelectionKey.OP_WRITE;
+            }
+            key.interestOps(interest);
+        }
+
+        private void readRequests() throws IOException {
+            inbound.flip();
+            while (responses.size() < MAX_IN_FLIGHT && inbound.remaining() >= 4) {
+                int length = inbound.getInt(inbound.position());
+                if (length < MIN_REQUEST_LENGTH || length > MAX_REQUEST_LENGTH) {
+                    throw new IOException(String.format("Malformed request of %d bytes", length));
+                }
+                if (inbound.remaining() < 4 + length) {
+                    // grown only while the frame keeps arriving, not for the length it claims
+                    if (inbound.position() == 0 && inbound.limit() == inbound.capacity()) {
+                        ByteBuffer grown = ByteBuffer.allocate(Math.min(inbound.capacity() * 2, 4 + length));
+                        grown.put(inbound);
+                        inbound = grown;
+                        return;
+                    }
+                    break;
+                }
+                int limit = inbound.limit();
+                int end = inbound.position() + 4 + length;
+                inbound.position(inbound.position() + 4);
+                inbound.limit(end);
+                readRequest(inbound);
+                inbound.limit(limit);
+                inbound.position(end);
+            }
+            inbound.compact();
+            inbound = shrink(inbound, directInbound);
+        }
+
+        private void readRequest(ByteBuffer request) {
+            long requestId = request.getLong();
+            byte command = request.get();
+            CompletableFuture<?> result;
+            try {
+                result = dispatch(command, request);
+            } catch (BufferUnderflowException ex) {
+                result = failed(new ValidationException("Request is shorter than its command needs"));
+            } catch (RuntimeException ex) {
+                result = failed(ex);
+            }
+            responses.add(new PendingResponse(requestId, command, result));
+            if (!result.isDone()) {
+                result.whenComplete((value, failure) -> schedule(this));
+            }
+        }
+
+        private void writeResponses() throws IOException {
+            while (!responses.isEmpty() && responses.peek().result.isDone()) {
+                if (putResponse(responses.peek())) {
+                    responses.poll();
+                    continue;
+                }
+                // buffer is full, it is sent before anything else is put
+                int buffered = outbound.position();
+                send();
+                if (outbound.position() == buffered) {
+                    break;
+                }
+            }
+            send();
+        }
+
+        // returns false if the response doesn't fit after what is already buffered
+        private boolean putResponse(PendingResponse response) {
+            while (true) {
+                int start = outbound.position();
+                try {
+                    BinaryServer.putResponse(outbound, response);
+                    return true;
+                } catch (BufferOverflowException ex) {
+                    outbound.position(start);
+                } catch (RuntimeException ex) {
+                    // result can't be encoded, the client gets the reason instead
+                    outbound.position(start);
+                    response = new PendingResponse(response.requestId, response.command, failed(ex));
+                    continue;
+                }
+                if (start > 0) {
+                    return false;
+                }
+                // response of a big batch
+                outbound = ByteBuffer.allocate(outbound.capacity() * 2);
+            }
+        }
+
+        private void send() throws IOException {
+            if (outbound.position() == 0) {
+                return;
+            }
+            outbound.flip();
+            channel.write(outbound);
+            outbound.compact();
+            outbound = shrink(outbound, directOutbound);
+        }
+
+        // returns the direct buffer with the bytes of a grown one once they fit it with room to spare, a buffer grown
+        // because it was full is never shrunk before more bytes come in
+        private ByteBuffer shrink(ByteBuffer buffer, ByteBuffer direct) {
+            if (buffer == direct || buffer.position() >= direct.capacity()) {
+                return buffer;
+            }
+            buffer.flip();
+            direct.clear();
+            direct.put(buffer);
+            return direct;
+        }
+
+        private void close() {
+            key.cancel();
+            try {
+                channel.close();
+            } catch (IOException ex) {
+                // already gone
+            }
+            connections.remove(this);
+        }
+
+    }
+
+}
@@ -0,0 +1,83 @@
+package com.revolut.web.config;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import java.util.function.Function;
+
+import com.revolut.dao.DaoFactory;
+import com.revolut.dao.account.AccountDao;
+import com.revolut.dao.exception.DaoValidationException;
+import com.revolut.dao.model.Account;
+import com.revolut.dao.model.Currency;
+import com.revolut.dao.model.Transaction;
+import com.revolut.dao.model.TransactionType;
+import com.revolut.dao.transation.TransactionDao;
+
+public final class SampleData {
+
+    private final static String INSERT_SAMPLE_DATA_PARAMETER = "insertSampleData";
+
+    private final static String SAMPLE_ACCOUNT_ID = "account-1";
+
+    private SampleData() {
+    }
+
+    public static void insert(Function<String, String> parameters) {
+        try {
+            initData(parameters.apply(INSERT_SAMPLE_DATA_PARAMETER));
+        } catch (DaoValidationException ex) {
+            throw new RuntimeException("Problems during init db");
+        }
+    }
+
+    private static void initData(String insertSampleData) throws DaoValidationException {
+        AccountDao accountDao = DaoFactory.getAccountDao();
+        TransactionDao transactionDao = DaoFactory.getTransactionDao();
+        // sample data restored from the journal is kept as is
+        if (Boolean.valueOf(insertSampleData) && !accountDao.getEntityWithoutHistory(SAMPLE_ACCOUNT_ID).isPresent()) {
+            Account account1 = accountDao.save(Account.builder()
+                    .uuid(SAMPLE_ACCOUNT_ID)
+                    .total(Currency.USD.toMinorUnits(BigDecimal.valueOf(1000L)))
+                    .currency(Currency.USD)
+                    .build());
+            Account account2 = accountDao.save(Account.builder()
+                    .uuid("account-2")
+                    .total(Currency.USD.toMinorUnits(BigDecimal.valueOf(2000L)))
+                    .currency(Currency.USD)
+                    .build());
+
+            transactionDao.save(Transaction.builder()
+                    .uuid("transfer-1")
+                    .ownerAccountId(account1.getId())
+                    .otherAccountId(account2.getId())
+                    .currency(Currency.USD)
+                    .createdAt(LocalDateTime.now())
+                    .amount(Currency.USD.toMinorUnits(BigDecimal.valueOf(100L)))
+                    .type(TransactionType.TRANSFER_BETWEEN_ACCOUNTS)
+                    .description("Transfer")
+                    .build());
+            transactionDao.save(Transaction.builder()
+                    .uuid("transfer-2")
+                    .ownerAccountId(account1.getId())
+                    .otherAccountId(account2.getId())
+                    .currency(Currency.USD)
+                    .createdAt(LocalDateTime.now())
+                    .amount(Currency.USD.toMinorUnits(BigDecimal.valueOf(10L)))
+                    .type(TransactionType.TRANSFER_BETWEEN_ACCOUNTS)
+                    .description("Transfer")
+                    .build());
+
+            transactionDao.save(Transaction.builder()
+                    .uuid("transfer-3")
+                    .ownerAccountId(account2.getId())
+                    .otherAccountId(account1.getId())
+                    .currency(Currency.USD)
+                    .createdAt(LocalDateTime.now())
+                    .amount(Currency.USD.toMinorUnits(BigDecimal.valueOf(500L)))
+                    .type(TransactionType.TRANSFER_BETWEEN_ACCOUNTS)
+                    .description("Transfer")
+                    .build());
+        }
+    }
+
+}
@@ -0,0 +1,146 @@
+package com.revolut.web.config;
+
+import java.io.IOException;
+import java.net.InetAddress;
+import java.nio.file.Paths;
+import java.util.Optional;
+import java.util.function.Function;
+
+import com.revolut.core.cache.AccountCache;
+import com.revolut.core.service.impl.AsyncTransactionService;
+import com.revolut.core.service.impl.TransferMode;
+import com.revolut.core.service.impl.TransferTransactionService;
+import com.revolut.dao.DaoFactory;
+import com.revolut.dao.StorageConfig;
+import com.revolut.dao.transation.TransactionStore;
+import com.revolut.web.binary.BinaryServer;
+import com.revolut.web.filter.ContentEncodingFilter;
+
+// sets storage and services up from named parameters, servlet context parameters or system properties
+public final class ServiceConfiguration {
+
+    private final static String TRANSACTION_STORE_PARAMETER = "transactionStore";
+
+    private final static String JOURNAL_FILE_PARAMETER = "journalFile";
+
+    private final static String JOURNAL_BATCH_SIZE_PARAMETER = "journalBatchSize";
+
+    private final static String JOURNAL_MAX_WAIT_PARAMETER = "journalMaxWaitMicros";
+
+    private final static String SNAPSHOT_FILE_PARAMETER = "snapshotFile";
+
+    private final static String SNAPSHOT_INTERVAL_PARAMETER = "snapshotIntervalSeconds";
+
+    private final static String TRANSFER_MODE_PARAMETER = "transferMode";
+
+    private final static String TRANSFER_SHARDS_PARAMETER = "transferShards";
+
+    private final static String TRANSFER_BATCH_SIZE_PARAMETER = "transferBatchSize";
+
+    private final static String TRANSFER_BATCH_WAIT_PARAMETER = "transferBatchMaxWaitMicros";
+
+    private final static String ASYNC_WORKERS_PARAMETER = "asyncTransactionWorkers";
+
+    private final static String ASYNC_QUEUE_SIZE_PARAMETER = "asyncTransactionQueueSize";
+
+    private final static String BINARY_PORT_PARAMETER = "binaryPort";
+
+    private final static String BINARY_WORKERS_PARAMETER = "binaryWorkers";
+
+    private final static String BINARY_BIND_ADDRESS_PARAMETER = "binaryBindAddress";
+
+    private final static String ACCOUNT_CACHE_SIZE_PARAMETER = "accountCacheSize";
+
+    private final static String COMPRESSION_THRESHOLD_PARAMETER = "compressionThresholdBytes";
+
+    private final static int DEFAULT_BINARY_WORKERS = Runtime.getRuntime().availableProcessors();
+
+    // started when its port is set
+    private static BinaryServer binaryServer;
+
+    private ServiceConfiguration() {
+    }
+
+    public static void configure(Function<String, String> parameters) {
+        // storage goes first, services take their daos when they are created
+        String transactionStore = parameters.apply(TRANSACTION_STORE_PARAMETER);
+        if (transactionStore != null) {
+            DaoFactory.setTransactionStore(TransactionStore.valueOf(transactionStore.trim()));
+        }
+        String journalFile = parameters.apply(JOURNAL_FILE_PARAMETER);
+        if (journalFile != null && !journalFile.trim().isEmpty()) {
+            try {
+                StorageConfig.StorageConfigBuilder config = StorageConfig.builder()
+                        .journalFile(Paths.get(journalFile.trim()));
+                String snapshotFile = parameters.apply(SNAPSHOT_FILE_PARAMETER);
+                if (snapshotFile != null && !snapshotFile.trim().isEmpty()) {
+                    config.snapshotFile(Paths.get(snapshotFile.trim()));
+                }
+                getLongParameter(parameters, JOURNAL_BATCH_SIZE_PARAMETER).ifPresent(value -> config.commitBatchSize(value.intValue()));
+                getLongParameter(parameters, JOURNAL_MAX_WAIT_PARAMETER).ifPresent(config::commitMaxWaitMicros);
+                getLongParameter(parameters, SNAPSHOT_INTERVAL_PARAMETER).ifPresent(config::snapshotIntervalSeconds);
+                DaoFactory.enableJournal(config.build());
+            } catch (IOException ex) {
+                throw new RuntimeException("Problems during journal replay", ex);
+            }
+        }
+        getLongParameter(parameters, TRANSFER_SHARDS_PARAMETER)
+                .ifPresent(value -> TransferTransactionService.getInstance().setTransferShards(value.intValue()));
+        getLongParameter(parameters, TRANSFER_BATCH_SIZE_PARAMETER)
+                .ifPresent(value -> TransferTransactionService.getInstance().setTransferBatchSize(value.intValue()));
+        getLongParameter(parameters, TRANSFER_BATCH_WAIT_PARAMETER)
+                .ifPresent(TransferTransactionService.getInstance()::setTransferBatchWaitMicros);
+        getLongParameter(parameters, ASYNC_WORKERS_PARAMETER)
+                .ifPresent(value -> AsyncTransactionService.getInstance().setWorkers(value.intValue()));
+        getLongParameter(parameters, ASYNC_QUEUE_SIZE_PARAMETER)
+                .ifPresent(value -> AsyncTransactionService.getInstance().setQueueSize(value.intValue()));
+        String transferMode = parameters.apply(TRANSFER_MODE_PARAMETER);
+        if (transferMode != null) {
+            TransferTransactionService.getInstance().setTransferMode(TransferMode.valueOf(transferMode.trim()));
+        }
+        getLongParameter(parameters, ACCOUNT_CACHE_SIZE_PARAMETER)
+                .ifPresent(value -> AccountCache.getInstance().setMaxSize(value.intValue()));
+        getLongParameter(parameters, COMPRESSION_THRESHOLD_PARAMETER)
+                .ifPresent(value -> ContentEncodingFilter.getInstance().setThresholdBytes(value.intValue()));
+        // services are set up before the first binary request
+        Optional<Long> binaryPort = getLongParameter(parameters, BINARY_PORT_PARAMETER);
+        if (binaryPort.isPresent()) {
+            int binaryWorkers = getLongParameter(parameters, BINARY_WORKERS_PARAMETER)
+                    .map(Long::intValue)
+                    .orElse(DEFAULT_BINARY_WORKERS);
+            String bindAddress = parameters.apply(BINARY_BIND_ADDRESS_PARAMETER);
+            try {
+                // internal clients only, so nothing outside the host reaches the port unless it is asked for
+                InetAddress address = bindAddress == null || bindAddress.trim().isEmpty()
+                        ? InetAddress.getLoopbackAddress()
+                        : InetAddress.getByName(bindAddress.trim());
+                binaryServer = new BinaryServer(address, binaryPort.get().intValue(), binaryWorkers);
+            } catch (IOException ex) {
+                throw new RuntimeException("Problems during binary server start", ex);
+            }
+        }
+    }
+
+    // binary clients are dropped first, queued and transfer threads finish their work before the journal is closed
+    public static void close() {
+        if (binaryServer != null) {
+            binaryServer.close();
+            binaryServer = null;
+        }
+        AsyncTransactionService.getInstance().close();
+        TransferTransactionService.getInstance().setTransferMode(TransferMode.OPTIMISTIC);
+        try {
+            DaoFactory.close();
+        } catch (IOException ex) {
+            throw new RuntimeException("Problems during journal close", ex);
+        }
+    }
+
+    private static Optional<Long> getLongParameter(Function<String, String> parameters, String name) {
+        return Optional.ofNullable(parameters.apply(name))
+                .map(String::trim)
+                .filter(value -> !value.isEmpty())
+                .map(Long::valueOf);
+    }
+
+}
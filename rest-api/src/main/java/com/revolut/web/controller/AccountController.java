@@ -2,15 +2,20 @@ package com.revolut.web.controller;
 
 import java.util.List;
 import javax.ws.rs.Consumes;
+import javax.ws.rs.DefaultValue;
 import javax.ws.rs.GET;
 import javax.ws.rs.POST;
 import javax.ws.rs.Path;
 import javax.ws.rs.PathParam;
 import javax.ws.rs.Produces;
+import javax.ws.rs.QueryParam;
+import javax.ws.rs.core.Context;
+import javax.ws.rs.core.EntityTag;
+import javax.ws.rs.core.GenericEntity;
 import javax.ws.rs.core.MediaType;
+import javax.ws.rs.core.Request;
 import javax.ws.rs.core.Response;
 
-import com.google.gson.Gson;
 import com.revolut.core.dto.AccountCreateDto;
 import com.revolut.core.dto.AccountDto;
 import com.revolut.core.service.AccountService;
@@ -21,37 +26,44 @@ import static javax.ws.rs.core.Response.Status.OK;
 @Path("/accounts")
 public class AccountController {
 
-    private final Gson json = new Gson();
-
     private AccountService accountService = DefaultAccountService.getInstance();
 
     @GET
     @Produces(MediaType.APPLICATION_JSON)
-    public Response get() {
-        List<AccountDto> accounts = accountService.getAll();
+    public Response get(@QueryParam("history") @DefaultValue("true") boolean history) {
+        List<AccountDto> accounts = accountService.getAll(history);
         return Response.status(OK)
-                .entity(json.toJson(accounts))
+                .entity(new GenericEntity<List<AccountDto>>(accounts) {
+                })
                 .build();
     }
 
     @GET
     @Path("/{accountId}")
     @Produces(MediaType.APPLICATION_JSON)
-    public Response getAccount(@PathParam("accountId") String accountId) {
-        AccountDto account = accountService.getById(accountId);
+    public Response getAccount(@PathParam("accountId") String accountId,
+                               @QueryParam("history") @DefaultValue("true") boolean history,
+                               @Context Request request) {
+        // version is read before the account, so the tag is never newer than the body sent with it
+        EntityTag tag = new EntityTag(accountService.getVersion(accountId) + (history ? "" : ".summary"));
+        Response.ResponseBuilder notModified = request.evaluatePreconditions(tag);
+        if (notModified != null) {
+            return notModified.build();
+        }
+        AccountDto account = accountService.getById(accountId, history);
         return Response.status(OK)
-                .entity(json.toJson(account))
+                .tag(tag)
+                .entity(account)
                 .build();
     }
 
     @POST
     @Consumes(MediaType.APPLICATION_JSON)
     @Produces(MediaType.APPLICATION_JSON)
-    public Response createAccount(String body) {
-        AccountCreateDto accountCreateDto = json.fromJson(body, AccountCreateDto.class);
+    public Response createAccount(AccountCreateDto accountCreateDto) {
         AccountDto newAccount = accountService.createAccount(accountCreateDto);
         return Response.status(OK)
-                .entity(json.toJson(newAccount))
+                .entity(newAccount)
                 .build();
     }
 
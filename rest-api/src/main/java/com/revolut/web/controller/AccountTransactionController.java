@@ -1,39 +1,73 @@
 package com.revolut.web.controller;
 
 import javax.ws.rs.Consumes;
+import javax.ws.rs.GET;
 import javax.ws.rs.POST;
 import javax.ws.rs.Path;
 import javax.ws.rs.PathParam;
 import javax.ws.rs.Produces;
+import javax.ws.rs.QueryParam;
+import javax.ws.rs.core.Context;
 import javax.ws.rs.core.MediaType;
 import javax.ws.rs.core.Response;
+import javax.ws.rs.core.UriInfo;
 
-import com.google.gson.Gson;
 import com.revolut.core.dto.TransactionDto;
+import com.revolut.core.dto.TransactionPageDto;
+import com.revolut.core.dto.TransactionStatusDto;
 import com.revolut.core.dto.TransferTransactionCreateDto;
+import com.revolut.core.service.AccountService;
+import com.revolut.core.service.impl.AsyncTransactionService;
+import com.revolut.core.service.impl.DefaultAccountService;
 import com.revolut.core.strategy.TransactionStrategy;
-import com.revolut.web.request.TransferTransactionCreateRequest;
 
 @Path("/accounts/{accountId}/transactions")
 public class AccountTransactionController {
 
-    private final Gson json = new Gson();
-
     private TransactionStrategy transactionStrategy = TransactionStrategy.getInstance();
 
+    private AccountService accountService = DefaultAccountService.getInstance();
+
+    private AsyncTransactionService asyncTransactionService = AsyncTransactionService.getInstance();
+
+    @GET
+    @Produces(MediaType.APPLICATION_JSON)
+    public Response getTransactions(@PathParam("accountId") String accountId,
+                                    @QueryParam("cursor") String cursor,
+                                    @QueryParam("limit") Integer limit) {
+        TransactionPageDto page = accountService.getTransactions(accountId, cursor, limit);
+        return Response.status(Response.Status.OK)
+                .entity(page)
+                .build();
+    }
+
     @POST
     @Path("/transfer")
     @Consumes(MediaType.APPLICATION_JSON)
     @Produces(MediaType.APPLICATION_JSON)
-    public Response transferMoney(@PathParam("accountId") String accountId, String body) {
-        TransferTransactionCreateRequest createRequest = json.fromJson(body, TransferTransactionCreateRequest.class);
-        TransferTransactionCreateDto createDto = new TransferTransactionCreateDto();
+    public Response transferMoney(@PathParam("accountId") String accountId,
+                                  @QueryParam("async") boolean async,
+                                  @Context UriInfo uriInfo,
+                                  TransferTransactionCreateDto createDto) {
+        // body is read straight into the dto, the account comes from the path
+        if (createDto == null) {
+            createDto = new TransferTransactionCreateDto();
+        }
         createDto.setAccountId(accountId);
-        createDto.setAmount(createRequest.getAmount());
-        createDto.setDestinationAccountId(createRequest.getDestinationAccountId());
+        if (async) {
+            // outcome is polled by the status link
+            TransactionStatusDto status = asyncTransactionService.submit(createDto);
+            return Response.status(Response.Status.ACCEPTED)
+                    .location(uriInfo.getBaseUriBuilder()
+                            .path(TransactionController.class)
+                            .path(TransactionController.class, "getStatus")
+                            .build(status.getId()))
+                    .entity(status)
+                    .build();
+        }
         TransactionDto transactionDto = transactionStrategy.createTransaction(createDto);
         return Response.status(Response.Status.OK)
-                .entity(json.toJson(transactionDto))
+                .entity(transactionDto)
                 .build();
     }
 
@@ -0,0 +1,54 @@
+package com.revolut.web.controller;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import javax.ws.rs.GET;
+import javax.ws.rs.Path;
+import javax.ws.rs.Produces;
+import javax.ws.rs.core.GenericEntity;
+import javax.ws.rs.core.MediaType;
+import javax.ws.rs.core.Response;
+
+import com.revolut.core.cache.AccountCache;
+import com.revolut.core.converter.HistogramToDtoConverter;
+import com.revolut.core.dto.CacheStatsDto;
+import com.revolut.core.dto.HistogramDto;
+import com.revolut.dao.metrics.Histogram;
+import com.revolut.dao.metrics.Metrics;
+
+import static javax.ws.rs.core.Response.Status.OK;
+
+@Path("/metrics")
+public class MetricsController {
+
+    private final HistogramToDtoConverter converter = new HistogramToDtoConverter();
+
+    private Metrics metrics = Metrics.getInstance();
+
+    private AccountCache accountCache = AccountCache.getInstance();
+
+    @GET
+    @Produces(MediaType.APPLICATION_JSON)
+    public Response get() {
+        Map<String, HistogramDto> histograms = new LinkedHashMap<>();
+        // no lambdas in resource classes, the class reader of jersey 1.x fails on them while scanning packages
+        for (Map.Entry<String, Histogram> histogram : metrics.getHistograms().entrySet()) {
+            histograms.put(histogram.getKey(), converter.convert(histogram.getValue()));
+        }
+        return Response.status(OK)
+                .entity(new GenericEntity<Map<String, HistogramDto>>(histograms) {
+                })
+                .build();
+    }
+
+    @GET
+    @Path("/accountCache")
+    @Produces(MediaType.APPLICATION_JSON)
+    public Response getAccountCache() {
+        CacheStatsDto stats = accountCache.getStats();
+        return Response.status(OK)
+                .entity(stats)
+                .build();
+    }
+
+}
@@ -0,0 +1,73 @@
+package com.revolut.web.controller;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import javax.ws.rs.Consumes;
+import javax.ws.rs.GET;
+import javax.ws.rs.POST;
+import javax.ws.rs.Path;
+import javax.ws.rs.PathParam;
+import javax.ws.rs.Produces;
+import javax.ws.rs.core.MediaType;
+import javax.ws.rs.core.Response;
+
+import com.revolut.core.dto.BatchMode;
+import com.revolut.core.dto.TransactionBatchCreateDto;
+import com.revolut.core.dto.TransactionBatchDto;
+import com.revolut.core.dto.TransactionCreateDto;
+import com.revolut.core.dto.TransactionStatusDto;
+import com.revolut.core.dto.TransferTransactionCreateDto;
+import com.revolut.core.exception.ValidationException;
+import com.revolut.core.service.impl.AsyncTransactionService;
+import com.revolut.core.strategy.TransactionStrategy;
+import com.revolut.web.request.BatchTransferCreateRequest;
+import com.revolut.web.request.TransactionBatchCreateRequest;
+
+@Path("/transactions")
+public class TransactionController {
+
+    private TransactionStrategy transactionStrategy = TransactionStrategy.getInstance();
+
+    private AsyncTransactionService asyncTransactionService = AsyncTransactionService.getInstance();
+
+    // outcome of a transaction submitted with async flag
+    @GET
+    @Path("/{transactionId}/status")
+    @Produces(MediaType.APPLICATION_JSON)
+    public Response getStatus(@PathParam("transactionId") String transactionId) {
+        TransactionStatusDto status = asyncTransactionService.getStatus(transactionId);
+        return Response.status(Response.Status.OK)
+                .entity(status)
+                .build();
+    }
+
+    // transfers between any accounts, result of every transfer is reported in the order they were sent
+    @POST
+    @Path("/batch")
+    @Consumes(MediaType.APPLICATION_JSON)
+    @Produces(MediaType.APPLICATION_JSON)
+    public Response transferMoney(TransactionBatchCreateRequest createRequest) {
+        if (createRequest == null || createRequest.getTransfers() == null) {
+            throw new ValidationException("Batch should contain at least one transfer");
+        }
+        List<TransactionCreateDto> createDtos = new ArrayList<>(createRequest.getTransfers().size());
+        for (BatchTransferCreateRequest transferRequest : createRequest.getTransfers()) {
+            TransferTransactionCreateDto createDto = new TransferTransactionCreateDto();
+            if (transferRequest != null) {
+                createDto.setAccountId(transferRequest.getAccountId());
+                createDto.setAmount(transferRequest.getAmount());
+                createDto.setDestinationAccountId(transferRequest.getDestinationAccountId());
+            }
+            createDtos.add(createDto);
+        }
+        TransactionBatchDto batchDto = transactionStrategy.createTransactions(TransactionBatchCreateDto.builder()
+                .mode(createRequest.getMode() != null ? createRequest.getMode() : BatchMode.ALL_OR_NOTHING)
+                .transactions(createDtos)
+                .build());
+        return Response.status(Response.Status.OK)
+                .entity(batchDto)
+                .build();
+    }
+
+}
@@ -0,0 +1,22 @@
+package com.revolut.web.exception;
+
+import javax.ws.rs.core.Response;
+import javax.ws.rs.ext.ExceptionMapper;
+import javax.ws.rs.ext.Provider;
+
+import com.revolut.core.exception.OverloadedException;
+
+@Provider
+public class OverloadedExceptionHandler implements ExceptionMapper<OverloadedException> {
+
+    private static final String RETRY_AFTER_SECONDS = "1";
+
+    @Override
+    public Response toResponse(OverloadedException e) {
+        return Response.status(Response.Status.SERVICE_UNAVAILABLE)
+                .header("Retry-After", RETRY_AFTER_SECONDS)
+                .entity(e.getMessage())
+                .build();
+    }
+
+}
@@ -0,0 +1,198 @@
+package com.revolut.web.filter;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+import javax.servlet.AsyncContext;
+import javax.servlet.AsyncEvent;
+import javax.servlet.AsyncListener;
+import javax.servlet.Filter;
+import javax.servlet.FilterChain;
+import javax.servlet.FilterConfig;
+import javax.servlet.ServletException;
+import javax.servlet.ServletRequest;
+import javax.servlet.ServletResponse;
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+import javax.ws.rs.core.MediaType;
+import javax.ws.rs.core.Response;
+
+import com.revolut.core.dto.TransactionDto;
+import com.revolut.core.dto.TransferTransactionCreateDto;
+import com.revolut.core.exception.NotFoundException;
+import com.revolut.core.exception.OverloadedException;
+import com.revolut.core.exception.TransactionFailedException;
+import com.revolut.core.exception.ValidationException;
+import com.revolut.core.strategy.TransactionStrategy;
+import com.revolut.web.exception.DefaultExceptionHandler;
+import com.revolut.web.exception.NotFoundExceptionHandler;
+import com.revolut.web.exception.OverloadedExceptionHandler;
+import com.revolut.web.exception.TransactionFailedExceptionHandler;
+import com.revolut.web.exception.ValidationExceptionHandler;
+import com.revolut.web.provider.TransferJsonCodec;
+
+/**
+ * Serves transfers through a Servlet 3 async context, so the container thread goes back to the pool while the transfer
+ * waits for transfer threads or the journal. Jersey 1 can't suspend a request, so the transfer path is served here in
+ * front of it with the same responses as {@code AccountTransactionController}, every other request goes on to jersey.
+ * Failures are answered by the exception handlers jersey uses, a transfer not finished in time is answered with 503.
+ */
+public class AsyncTransferFilter implements Filter {
+
+    private final static String ASYNC_TRANSFERS_PARAMETER = "asyncTransfers";
+
+    private static final Pattern TRANSFER_PATH = Pattern.compile("/accounts/([^/]+)/transactions/transfer/?");
+
+    private final static String TIMEOUT_PARAMETER = "asyncTransferTimeoutMillis";
+
+    private static final long DEFAULT_TIMEOUT_MILLIS = 30000;
+
+    private TransactionStrategy transactionStrategy = TransactionStrategy.getInstance();
+
+    private boolean enabled;
+
+    private long timeoutMillis = DEFAULT_TIMEOUT_MILLIS;
+
+    @Override
+    public void init(FilterConfig filterConfig) {
+        String asyncTransfers = filterConfig.getServletContext().getInitParameter(ASYNC_TRANSFERS_PARAMETER);
+        enabled = asyncTransfers == null || Boolean.parseBoolean(asyncTransfers.trim());
+        String timeout = filterConfig.getServletContext().getInitParameter(TIMEOUT_PARAMETER);
+        if (timeout != null && !timeout.trim().isEmpty()) {
+            timeoutMillis = Long.parseLong(timeout.trim());
+        }
+    }
+
+    @Override
+    public void doFilter(ServletRequest servletRequest, ServletResponse servletResponse, FilterChain chain)
+            throws IOException, ServletException {
+        HttpServletRequest request = (HttpServletRequest) servletRequest;
+        Matcher transferPath = request.getPathInfo() != null ? TRANSFER_PATH.matcher(request.getPathInfo()) : null;
+        // queued transfers answer right away and are left to the controller
+        if (!enabled || !request.isAsyncSupported() || !"POST".equals(request.getMethod())
+                || transferPath == null || !transferPath.matches() || Boolean.parseBoolean(request.getParameter("async"))) {
+            chain.doFilter(servletRequest, servletResponse);
+            return;
+        }
+        HttpServletResponse response = (HttpServletResponse) servletResponse;
+        TransferTransactionCreateDto createDto;
+        try (InputStream body = request.getInputStream()) {
+            createDto = TransferJsonCodec.readTransfer(body);
+        } catch (RuntimeException ex) {
+            write(response, null, ex);
+            return;
+        }
+        if (createDto == null) {
+            createDto = new TransferTransactionCreateDto();
+        }
+        createDto.setAccountId(transferPath.group(1));
+        AsyncContext asyncContext = request.startAsync();
+        // either the transfer or the timeout answers, whichever comes first
+        AtomicBoolean answered = new AtomicBoolean();
+        asyncContext.setTimeout(timeoutMillis);
+        asyncContext.addListener(new TimeoutListener(answered));
+        transactionStrategy.createTransactionAsync(createDto)
+                .whenComplete((transactionDto, failure) -> {
+                    if (!answered.compareAndSet(false, true)) {
+                        return;
+                    }
+                    try {
+                        // written on a container thread, not on the one which completed the transfer
+                        asyncContext.start(() -> answer(asyncContext, transactionDto, failure));
+                    } catch (IllegalStateException ex) {
+                        // timed out meanwhile, the container has answered
+                    }
+                });
+    }
+
+    @Override
+    public void destroy() {
+    }
+
+    private static void answer(AsyncContext asyncContext, TransactionDto transactionDto, Throwable failure) {
+        try {
+            write((HttpServletResponse) asyncContext.getResponse(), transactionDto, failure);
+        } catch (IOException ex) {
+            // client has gone away
+        } finally {
+            asyncContext.complete();
+        }
+    }
+
+    private static void write(HttpServletResponse response, TransactionDto transactionDto, Throwable failure) throws IOException {
+        Throwable cause = failure instanceof CompletionException ? failure.getCause() : failure;
+        if (cause == null) {
+            response.setStatus(HttpServletResponse.SC_OK);
+            response.setContentType(MediaType.APPLICATION_JSON);
+            response.setCharacterEncoding(StandardCharsets.UTF_8.name());
+            TransferJsonCodec.writeTransaction(transactionDto, response.getOutputStream());
+            return;
+        }
+        Response error = toResponse(cause);
+        response.setStatus(error.getStatus());
+        for (Map.Entry<String, List<Object>> header : error.getMetadata().entrySet()) {
+            for (Object value : header.getValue()) {
+                response.addHeader(header.getKey(), String.valueOf(value));
+            }
+        }
+        if (error.getEntity() != null) {
+            response.setContentType(MediaType.APPLICATION_JSON);
+            response.setCharacterEncoding(StandardCharsets.UTF_8.name());
+            response.getWriter().write(String.valueOf(error.getEntity()));
+        }
+    }
+
+    // the handler jersey would pick for the exception thrown by a controller
+    private static Response toResponse(Throwable cause) {
+        if (cause instanceof ValidationException) {
+            return new ValidationExceptionHandler().toResponse((ValidationException) cause);
+        } else if (cause instanceof NotFoundException) {
+            return new NotFoundExceptionHandler().toResponse((NotFoundException) cause);
+        } else if (cause instanceof TransactionFailedException) {
+            return new TransactionFailedExceptionHandler().toResponse((TransactionFailedException) cause);
+        } else if (cause instanceof OverloadedException) {
+            return new OverloadedExceptionHandler().toResponse((OverloadedException) cause);
+        } else if (cause instanceof Exception) {
+            return new DefaultExceptionHandler().toResponse((Exception) cause);
+        }
+        return Response.status(Response.Status.INTERNAL_SERVER_ERROR).build();
+    }
+
+    private static class TimeoutListener implements AsyncListener {
+
+        private final AtomicBoolean answered;
+
+        private TimeoutListener(AtomicBoolean answered) {
+            this.answered = answered;
+        }
+
+        @Override
+        public void onTimeout(AsyncEvent event) {
+            if (answered.compareAndSet(false, true)) {
+                // the transfer may still be applied, so the client checks the account before sending it again
+                answer(event.getAsyncContext(), null,
+                        new OverloadedException("Transaction is not finished in time, check the account before retrying"));
+            }
+        }
+
+        @Override
+        public void onComplete(AsyncEvent event) {
+        }
+
+        @Override
+        public void onError(AsyncEvent event) {
+        }
+
+        @Override
+        public void onStartAsync(AsyncEvent event) {
+        }
+
+    }
+
+}
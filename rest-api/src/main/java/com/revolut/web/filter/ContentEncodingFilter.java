@@ -0,0 +1,284 @@
+package com.revolut.web.filter;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.zip.Deflater;
+import java.util.zip.DeflaterOutputStream;
+import java.util.zip.GZIPOutputStream;
+import javax.ws.rs.core.EntityTag;
+import javax.ws.rs.core.HttpHeaders;
+import javax.ws.rs.core.MultivaluedMap;
+
+import com.sun.jersey.spi.container.ContainerRequest;
+import com.sun.jersey.spi.container.ContainerRequestFilter;
+import com.sun.jersey.spi.container.ContainerResponse;
+import com.sun.jersey.spi.container.ContainerResponseFilter;
+import com.sun.jersey.spi.container.ContainerResponseWriter;
+
+/**
+ * Compresses responses with gzip or deflate, whichever {@code Accept-Encoding} prefers, while the entity is written.
+ * The first bytes of a response are held back up to the threshold, a response which ends before it is sent as it is
+ * with its length, a longer one is compressed from its first byte. Compressed responses get the encoding appended to
+ * their {@code ETag}, it is taken off {@code If-None-Match} again before the resource compares its tag.
+ */
+public class ContentEncodingFilter implements ContainerRequestFilter, ContainerResponseFilter {
+
+    public static final int DEFAULT_THRESHOLD_BYTES = 1024;
+
+    private static final String GZIP = "gzip";
+
+    private static final String DEFLATE = "deflate";
+
+    private static final String VARY = "Vary";
+
+    // tags of the request before encodings were taken off, 304 answers with the tag the client has
+    private static final String IF_NONE_MATCH_PROPERTY = ContentEncodingFilter.class.getName() + ".ifNoneMatch";
+
+    // json compresses almost as well on the fastest level, higher ones cost several times the cpu
+    private static final int LEVEL = Deflater.BEST_SPEED;
+
+    private static final int BUFFER_SIZE = 8 * 1024;
+
+    private static ContentEncodingFilter instance;
+
+    private volatile int thresholdBytes = DEFAULT_THRESHOLD_BYTES;
+
+    public synchronized static ContentEncodingFilter getInstance() {
+        if (instance == null) {
+            instance = new ContentEncodingFilter();
+        }
+        return instance;
+    }
+
+    private ContentEncodingFilter() {
+    }
+
+    // responses shorter than the threshold aren't compressed, 0 compresses every response with an entity
+    public void setThresholdBytes(int thresholdBytes) {
+        this.thresholdBytes = thresholdBytes;
+    }
+
+    @Override
+    public ContainerRequest filter(ContainerRequest request) {
+        String ifNoneMatch = request.getHeaderValue(HttpHeaders.IF_NONE_MATCH);
+        if (ifNoneMatch != null && (ifNoneMatch.contains("-" + GZIP + "\"") || ifNoneMatch.contains("-" + DEFLATE + "\""))) {
+            request.getProperties().put(IF_NONE_MATCH_PROPERTY, ifNoneMatch);
+            request.getRequestHeaders().putSingle(HttpHeaders.IF_NONE_MATCH, ifNoneMatch
+                    .replace("-" + GZIP + "\"", "\"")
+                    .replace("-" + DEFLATE + "\"", "\""));
+        }
+        return request;
+    }
+
+    @Override
+    public ContainerResponse filter(ContainerRequest request, ContainerResponse response) {
+        MultivaluedMap<String, Object> headers = response.getHttpHeaders();
+        if (response.getStatus() == 304) {
+            restoreTag(request, headers);
+            headers.add(VARY, HttpHeaders.ACCEPT_ENCODING);
+            return response;
+        }
+        if (response.getEntity() == null || headers.containsKey(HttpHeaders.CONTENT_ENCODING)) {
+            return response;
+        }
+        headers.add(VARY, HttpHeaders.ACCEPT_ENCODING);
+        String encoding = negotiate(request.getHeaderValue(HttpHeaders.ACCEPT_ENCODING));
+        if (encoding != null) {
+            response.setContainerResponseWriter(new EncodingWriter(response.getContainerResponseWriter(), encoding,
+                    thresholdBytes));
+        }
+        return response;
+    }
+
+    // the highest quality of gzip and deflate wins, gzip on a tie, null when the client takes neither
+    static String negotiate(String acceptEncoding) {
+        if (acceptEncoding == null) {
+            return null;
+        }
+        // -1 stands for a coding the client didn't name
+        float gzip = -1;
+        float deflate = -1;
+        float any = -1;
+        for (String coding : acceptEncoding.split(",")) {
+            String[] parts = coding.split(";");
+            String name = parts[0].trim().toLowerCase();
+            float quality = 1;
+            for (int i = 1; i < parts.length; i++) {
+                String parameter = parts[i].trim();
+                if (parameter.startsWith("q=")) {
+                    try {
+                        quality = Float.parseFloat(parameter.substring(2).trim());
+                    } catch (NumberFormatException ex) {
+                        quality = 0;
+                    }
+                }
+            }
+            if (GZIP.equals(name) || "x-gzip".equals(name)) {
+                gzip = quality;
+            } else if (DEFLATE.equals(name)) {
+                deflate = quality;
+            } else if ("*".equals(name)) {
+                any = quality;
+            }
+        }
+        gzip = gzip < 0 ? any : gzip;
+        deflate = deflate < 0 ? any : deflate;
+        if (gzip > 0 && gzip >= deflate) {
+            return GZIP;
+        }
+        return deflate > 0 ? DEFLATE : null;
+    }
+
+    private static void restoreTag(ContainerRequest request, MultivaluedMap<String, Object> headers) {
+        String ifNoneMatch = (String) request.getProperties().get(IF_NONE_MATCH_PROPERTY);
+        Object tag = headers.getFirst(HttpHeaders.ETAG);
+        if (ifNoneMatch == null || tag == null) {
+            return;
+        }
+        for (String encoding : new String[]{GZIP, DEFLATE}) {
+            EntityTag encodedTag = encode(EntityTag.valueOf(tag.toString()), encoding);
+            if (ifNoneMatch.contains(encodedTag.toString())) {
+                headers.putSingle(HttpHeaders.ETAG, encodedTag);
+                return;
+            }
+        }
+    }
+
+    private static EntityTag encode(EntityTag tag, String encoding) {
+        return new EntityTag(tag.getValue() + "-" + encoding, tag.isWeak());
+    }
+
+    // picks between plain and compressed response once the threshold is passed or the entity is written
+    private static final class EncodingWriter implements ContainerResponseWriter {
+
+        private final ContainerResponseWriter writer;
+
+        private final String encoding;
+
+        private final int thresholdBytes;
+
+        private ContainerResponse response;
+
+        private ThresholdOutputStream held;
+
+        private DeflaterOutputStream compressed;
+
+        private Deflater deflater;
+
+        private EncodingWriter(ContainerResponseWriter writer, String encoding, int thresholdBytes) {
+            this.writer = writer;
+            this.encoding = encoding;
+            this.thresholdBytes = thresholdBytes;
+        }
+
+        @Override
+        public OutputStream writeStatusAndHeaders(long contentLength, ContainerResponse response) throws IOException {
+            this.response = response;
+            if (contentLength >= 0 && contentLength < thresholdBytes) {
+                return writer.writeStatusAndHeaders(contentLength, response);
+            }
+            if (contentLength >= thresholdBytes) {
+                return compress();
+            }
+            held = new ThresholdOutputStream();
+            return held;
+        }
+
+        @Override
+        public void finish() throws IOException {
+            try {
+                if (held != null && compressed == null) {
+                    // the whole entity is held, it goes out with its length
+                    OutputStream out = writer.writeStatusAndHeaders(held.count, response);
+                    out.write(held.buffer, 0, held.count);
+                } else if (compressed != null) {
+                    compressed.finish();
+                }
+            } finally {
+                if (deflater != null) {
+                    deflater.end();
+                }
+            }
+            writer.finish();
+        }
+
+        private OutputStream compress() throws IOException {
+            MultivaluedMap<String, Object> headers = response.getHttpHeaders();
+            headers.putSingle(HttpHeaders.CONTENT_ENCODING, encoding);
+            Object tag = headers.getFirst(HttpHeaders.ETAG);
+            if (tag != null) {
+                headers.putSingle(HttpHeaders.ETAG, encode(EntityTag.valueOf(tag.toString()), encoding));
+            }
+            OutputStream out = writer.writeStatusAndHeaders(-1, response);
+            if (GZIP.equals(encoding)) {
+                GzipOutputStream gzip = new GzipOutputStream(out);
+                deflater = gzip.deflater();
+                compressed = gzip;
+            } else {
+                deflater = new Deflater(LEVEL);
+                compressed = new DeflaterOutputStream(out, deflater, BUFFER_SIZE);
+            }
+            return compressed;
+        }
+
+        // holds the first bytes of the entity, the headers aren't sent until it is full or the entity is written
+        private final class ThresholdOutputStream extends OutputStream {
+
+            private byte[] buffer = new byte[0];
+
+            private int count;
+
+            @Override
+            public void write(int b) throws IOException {
+                write(new byte[]{(byte) b}, 0, 1);
+            }
+
+            @Override
+            public void write(byte[] bytes, int offset, int length) throws IOException {
+                if (compressed != null) {
+                    compressed.write(bytes, offset, length);
+                    return;
+                }
+                if (count + length >= thresholdBytes) {
+                    compress();
+                    compressed.write(buffer, 0, count);
+                    compressed.write(bytes, offset, length);
+                    buffer = null;
+                    return;
+                }
+                if (count + length > buffer.length) {
+                    byte[] grown = new byte[Math.min(thresholdBytes, Math.max(count + length, buffer.length * 2))];
+                    System.arraycopy(buffer, 0, grown, 0, count);
+                    buffer = grown;
+                }
+                System.arraycopy(bytes, offset, buffer, count, length);
+                count += length;
+            }
+
+            @Override
+            public void flush() throws IOException {
+                // held bytes wait for the threshold, flushing them would send a response without a length
+                if (compressed != null) {
+                    compressed.flush();
+                }
+            }
+
+        }
+
+    }
+
+    // gzip on the level of the filter, its deflater is ended by the writer
+    private static final class GzipOutputStream extends GZIPOutputStream {
+
+        private GzipOutputStream(OutputStream out) throws IOException {
+            super(out, BUFFER_SIZE);
+            def.setLevel(LEVEL);
+        }
+
+        private Deflater deflater() {
+            return def;
+        }
+
+    }
+
+}
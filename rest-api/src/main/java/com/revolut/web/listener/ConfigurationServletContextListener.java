@@ -0,0 +1,22 @@
+package com.revolut.web.listener;
+
+import javax.servlet.ServletContext;
+import javax.servlet.ServletContextEvent;
+import javax.servlet.ServletContextListener;
+
+import com.revolut.web.config.ServiceConfiguration;
+
+public class ConfigurationServletContextListener implements ServletContextListener {
+
+    @Override
+    public void contextInitialized(ServletContextEvent servletContextEvent) {
+        ServletContext context = servletContextEvent.getServletContext();
+        ServiceConfiguration.configure(context::getInitParameter);
+    }
+
+    @Override
+    public void contextDestroyed(ServletContextEvent servletContextEvent) {
+        ServiceConfiguration.close();
+    }
+
+}
@@ -0,0 +1,56 @@
+package com.revolut.web.provider;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.lang.annotation.Annotation;
+import java.lang.reflect.Type;
+import javax.ws.rs.Consumes;
+import javax.ws.rs.Produces;
+import javax.ws.rs.core.MediaType;
+import javax.ws.rs.core.MultivaluedMap;
+import javax.ws.rs.ext.MessageBodyReader;
+import javax.ws.rs.ext.MessageBodyWriter;
+import javax.ws.rs.ext.Provider;
+
+import com.revolut.core.dto.TransactionDto;
+import com.revolut.core.dto.TransferTransactionCreateDto;
+
+// transfer request and the transaction it posts go through the hand written codec, everything else through gson
+@Provider
+@Consumes(MediaType.APPLICATION_JSON)
+@Produces(MediaType.APPLICATION_JSON)
+public class TransferCodecProvider implements MessageBodyReader<TransferTransactionCreateDto>, MessageBodyWriter<TransactionDto> {
+
+    @Override
+    public boolean isReadable(Class<?> type, Type genericType, Annotation[] annotations, MediaType mediaType) {
+        return type == TransferTransactionCreateDto.class;
+    }
+
+    @Override
+    public TransferTransactionCreateDto readFrom(Class<TransferTransactionCreateDto> type, Type genericType,
+                                                 Annotation[] annotations, MediaType mediaType,
+                                                 MultivaluedMap<String, String> httpHeaders, InputStream entityStream)
+            throws IOException {
+        return TransferJsonCodec.readTransfer(entityStream);
+    }
+
+    @Override
+    public boolean isWriteable(Class<?> type, Type genericType, Annotation[] annotations, MediaType mediaType) {
+        return type == TransactionDto.class;
+    }
+
+    @Override
+    public long getSize(TransactionDto transactionDto, Class<?> type, Type genericType, Annotation[] annotations,
+                        MediaType mediaType) {
+        return -1;
+    }
+
+    @Override
+    public void writeTo(TransactionDto transactionDto, Class<?> type, Type genericType, Annotation[] annotations,
+                        MediaType mediaType, MultivaluedMap<String, Object> httpHeaders, OutputStream entityStream)
+            throws IOException {
+        TransferJsonCodec.writeTransaction(transactionDto, entityStream);
+    }
+
+}
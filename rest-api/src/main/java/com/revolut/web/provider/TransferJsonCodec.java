@@ -0,0 +1,538 @@
+package com.revolut.web.provider;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDateTime;
+
+import com.google.gson.JsonSyntaxException;
+import com.revolut.core.dto.TransactionDto;
+import com.revolut.core.dto.TransferTransactionCreateDto;
+
+/**
+ * Hand written json of a transfer request and of the transaction it posts, read and written the same way gson does
+ * it, but without reflection. Bytes are parsed and encoded in buffers kept by every thread, so a request allocates
+ * only its dto, destination id and amount, and a response allocates nothing but the string of its amount.
+ * <p>
+ * Requests should be strict json, lenient syntax accepted by gson such as comments or unquoted names is rejected.
+ */
+public final class TransferJsonCodec {
+
+    private static final int INITIAL_BUFFER_SIZE = 512;
+
+    // transfer request is a few dozen bytes, anything bigger is not one
+    private static final int MAX_REQUEST_SIZE = 64 * 1024;
+
+    private static final byte[] AMOUNT = "amount".getBytes(StandardCharsets.US_ASCII);
+
+    private static final byte[] DESTINATION_ACCOUNT_ID = "destinationAccountId".getBytes(StandardCharsets.US_ASCII);
+
+    private static final byte[] NULL = "null".getBytes(StandardCharsets.US_ASCII);
+
+    // javascript line terminators, escaped by gson
+    private static final char LINE_SEPARATOR = 0x2028;
+
+    private static final char PARAGRAPH_SEPARATOR = 0x2029;
+
+    private static final byte[] HEX = "0123456789abcdef".getBytes(StandardCharsets.US_ASCII);
+
+    // unscaled amounts of up to 18 digits fit a long
+    private static final int MAX_LONG_DIGITS = 18;
+
+    private static final ThreadLocal<Buffer> INPUT = ThreadLocal.withInitial(Buffer::new);
+
+    private static final ThreadLocal<Buffer> OUTPUT = ThreadLocal.withInitial(Buffer::new);
+
+    private TransferJsonCodec() {
+    }
+
+    // returns null for an empty or null body, as gson does
+    public static TransferTransactionCreateDto readTransfer(InputStream entityStream) throws IOException {
+        Buffer in = INPUT.get();
+        in.fill(entityStream);
+        in.skipWhitespace();
+        if (in.position == in.length || in.skipNull()) {
+            in.expectEnd();
+            return null;
+        }
+        TransferTransactionCreateDto createDto = new TransferTransactionCreateDto();
+        in.expect('{');
+        in.skipWhitespace();
+        if (in.peek() == '}') {
+            in.position++;
+        } else {
+            while (true) {
+                in.skipWhitespace();
+                int nameStart = in.position + 1;
+                int nameEnd = in.skipString();
+                in.skipWhitespace();
+                in.expect(':');
+                in.skipWhitespace();
+                if (in.nameEquals(nameStart, nameEnd, AMOUNT)) {
+                    createDto.setAmount(in.readDecimal());
+                } else if (in.nameEquals(nameStart, nameEnd, DESTINATION_ACCOUNT_ID)) {
+                    createDto.setDestinationAccountId(in.readString());
+                } else {
+                    // unknown names are ignored, the account comes from the path
+                    in.skipValue();
+                }
+                in.skipWhitespace();
+                if (in.peek() == '}') {
+                    in.position++;
+                    break;
+                }
+                in.expect(',');
+            }
+        }
+        in.expectEnd();
+        return createDto;
+    }
+
+    // fields go in the order of declaration and nulls are left out, as gson does
+    public static void writeTransaction(TransactionDto transactionDto, OutputStream entityStream) throws IOException {
+        Buffer out = OUTPUT.get();
+        out.length = 0;
+        if (transactionDto == null) {
+            out.put(NULL);
+        } else {
+            out.put('{');
+            boolean first = true;
+            if (transactionDto.getId() != null) {
+                first = out.putName("id", first);
+                out.putString(transactionDto.getId());
+            }
+            if (transactionDto.getType() != null) {
+                first = out.putName("type", first);
+                out.putString(transactionDto.getType().name());
+            }
+            if (transactionDto.getDescription() != null) {
+                first = out.putName("description", first);
+                out.putString(transactionDto.getDescription());
+            }
+            if (transactionDto.getAmount() != null) {
+                first = out.putName("amount", first);
+                // string is cached by the amount
+                out.putAscii(transactionDto.getAmount().toString());
+            }
+            if (transactionDto.getCurrency() != null) {
+                first = out.putName("currency", first);
+                out.putString(transactionDto.getCurrency().name());
+            }
+            if (transactionDto.getCreatedAt() != null) {
+                out.putName("createdAt", first);
+                out.putDateTime(transactionDto.getCreatedAt());
+            }
+            out.put('}');
+        }
+        entityStream.write(out.bytes, 0, out.length);
+    }
+
+    // bytes of one request or response, parsing state is kept here so that nothing else is allocated
+    private static class Buffer {
+
+        private byte[] bytes = new byte[INITIAL_BUFFER_SIZE];
+
+        private int length;
+
+        private int position;
+
+        private StringBuilder escaped;
+
+        private void fill(InputStream entityStream) throws IOException {
+            length = 0;
+            position = 0;
+            while (true) {
+                if (length == bytes.length) {
+                    if (bytes.length >= MAX_REQUEST_SIZE) {
+                        throw new JsonSyntaxException("Transfer request is too big");
+                    }
+                    grow(bytes.length * 2);
+                }
+                int read = entityStream.read(bytes, length, bytes.length - length);
+                if (read < 0) {
+                    return;
+                }
+                length += read;
+            }
+        }
+
+        private byte peek() {
+            if (position == length) {
+                throw syntaxError("Unexpected end of transfer request");
+            }
+            return bytes[position];
+        }
+
+        private void expect(char expected) {
+            if (peek() != expected) {
+                throw syntaxError(String.format("Expected '%s'", expected));
+            }
+            position++;
+        }
+
+        private void expectEnd() {
+            skipWhitespace();
+            if (position != length) {
+                throw syntaxError("Transfer request was not fully consumed");
+            }
+        }
+
+        private void skipWhitespace() {
+            while (position < length) {
+                byte b = bytes[position];
+                if (b != ' ' && b != '\n' && b != '\r' && b != '\t') {
+                    return;
+                }
+                position++;
+            }
+        }
+
+        private boolean skipNull() {
+            if (length - position < NULL.length) {
+                return false;
+            }
+            for (int i = 0; i < NULL.length; i++) {
+                if (bytes[position + i] != NULL[i]) {
+                    return false;
+                }
+            }
+            position += NULL.length;
+            return true;
+        }
+
+        // name with escapes is decoded before it is compared
+        private boolean nameEquals(int start, int end, byte[] name) {
+            for (int i = start; i < end; i++) {
+                if (bytes[i] == '\\') {
+                    return decode(start, end).equals(new String(name, StandardCharsets.US_ASCII));
+                }
+            }
+            if (end - start != name.length) {
+                return false;
+            }
+            for (int i = 0; i < name.length; i++) {
+                if (bytes[start + i] != name[i]) {
+                    return false;
+                }
+            }
+            return true;
+        }
+
+        // returns the end of the string content, position is right after the closing quote
+        private int skipString() {
+            expect('"');
+            while (position < length) {
+                byte b = bytes[position++];
+                if (b == '"') {
+                    return position - 1;
+                } else if (b == '\\') {
+                    position++;
+                }
+            }
+            throw syntaxError("Unterminated string");
+        }
+
+        private String readString() {
+            if (skipNull()) {
+                return null;
+            }
+            if (peek() != '"') {
+                // numbers and booleans are taken as strings, as gson does
+                int start = position;
+                skipValue();
+                return new String(bytes, start, position - start, StandardCharsets.US_ASCII);
+            }
+            int start = position + 1;
+            int end = skipString();
+            for (int i = start; i < end; i++) {
+                if (bytes[i] == '\\') {
+                    return decode(start, end);
+                }
+            }
+            return new String(bytes, start, end - start, StandardCharsets.UTF_8);
+        }
+
+        // amount is taken as a number or as a string, as gson does for big decimals
+        private BigDecimal readDecimal() {
+            if (skipNull()) {
+                return null;
+            }
+            if (peek() == '"') {
+                return parseDecimal(readString());
+            }
+            int start = position;
+            while (position < length && isNumberByte(bytes[position])) {
+                position++;
+            }
+            if (position == start) {
+                throw syntaxError("Expected a number");
+            }
+            int index = start;
+            boolean negative = bytes[index] == '-';
+            if (negative) {
+                index++;
+            }
+            long unscaled = 0;
+            int digits = 0;
+            int scale = -1;
+            for (; index < position; index++) {
+                byte b = bytes[index];
+                if (b >= '0' && b <= '9') {
+                    unscaled = unscaled * 10 + (b - '0');
+                    digits++;
+                    if (scale >= 0) {
+                        scale++;
+                    }
+                } else if (b == '.' && scale < 0 && digits > 0) {
+                    scale = 0;
+                } else {
+                    break;
+                }
+            }
+            if (index == position && digits > 0 && digits <= MAX_LONG_DIGITS && scale != 0) {
+                return BigDecimal.valueOf(negative ? -unscaled : unscaled, Math.max(scale, 0));
+            }
+            // exponent or too many digits
+            return parseDecimal(new String(bytes, start, position - start, StandardCharsets.US_ASCII));
+        }
+
+        private void skipValue() {
+            byte first = peek();
+            if (first == '"') {
+                skipString();
+                return;
+            } else if (first != '{' && first != '[') {
+                int start = position;
+                while (position < length && bytes[position] != ',' && bytes[position] != '}' && bytes[position] != ']'
+                        && bytes[position] != ' ' && bytes[position] != '\n' && bytes[position] != '\r' && bytes[position] != '\t') {
+                    position++;
+                }
+                if (position == start) {
+                    throw syntaxError("Expected a value");
+                }
+                return;
+            }
+            int depth = 0;
+            do {
+                byte b = peek();
+                if (b == '"') {
+                    skipString();
+                    continue;
+                } else if (b == '{' || b == '[') {
+                    depth++;
+                } else if (b == '}' || b == ']') {
+                    depth--;
+                }
+                position++;
+            } while (depth > 0);
+        }
+
+        // slow path, escapes are rare in ids
+        private String decode(int start, int end) {
+            if (escaped == null) {
+                escaped = new StringBuilder();
+            }
+            escaped.setLength(0);
+            int segment = start;
+            for (int i = start; i < end; i++) {
+                if (bytes[i] != '\\') {
+                    continue;
+                }
+                escaped.append(new String(bytes, segment, i - segment, StandardCharsets.UTF_8));
+                byte escape = bytes[++i];
+                switch (escape) {
+                    case 'b':
+                        escaped.append('\b');
+                        break;
+                    case 'f':
+                        escaped.append('\f');
+                        break;
+                    case 'n':
+                        escaped.append('\n');
+                        break;
+                    case 'r':
+                        escaped.append('\r');
+                        break;
+                    case 't':
+                        escaped.append('\t');
+                        break;
+                    case 'u':
+                        if (i + 4 >= end) {
+                            throw syntaxError("Unterminated escape sequence");
+                        }
+                        try {
+                            escaped.append((char) Integer.parseInt(new String(bytes, i + 1, 4, StandardCharsets.US_ASCII), 16));
+                        } catch (NumberFormatException ex) {
+                            throw syntaxError("Malformed unicode escape");
+                        }
+                        i += 4;
+                        break;
+                    default:
+                        escaped.append((char) escape);
+                }
+                segment = i + 1;
+            }
+            escaped.append(new String(bytes, segment, end - segment, StandardCharsets.UTF_8));
+            return escaped.toString();
+        }
+
+        private boolean putName(String name, boolean first) {
+            if (!first) {
+                put(',');
+            }
+            putString(name);
+            put(':');
+            return false;
+        }
+
+        // escaped the way gson does it by default, html characters included
+        private void putString(String value) {
+            put('"');
+            for (int i = 0; i < value.length(); i++) {
+                char c = value.charAt(i);
+                if (c == '"' || c == '\\') {
+                    put('\\');
+                    put(c);
+                } else if (c == '\t') {
+                    putEscape('t');
+                } else if (c == '\b') {
+                    putEscape('b');
+                } else if (c == '\n') {
+                    putEscape('n');
+                } else if (c == '\r') {
+                    putEscape('r');
+                } else if (c == '\f') {
+                    putEscape('f');
+                } else if (c < 0x20 || c == '<' || c == '>' || c == '&' || c == '=' || c == '\''
+                        || c == LINE_SEPARATOR || c == PARAGRAPH_SEPARATOR) {
+                    putUnicodeEscape(c);
+                } else if (c < 0x80) {
+                    put(c);
+                } else if (c < 0x800) {
+                    put(0xc0 | (c >> 6));
+                    put(0x80 | (c & 0x3f));
+                } else if (Character.isHighSurrogate(c) && i + 1 < value.length() && Character.isLowSurrogate(value.charAt(i + 1))) {
+                    int codePoint = Character.toCodePoint(c, value.charAt(++i));
+                    put(0xf0 | (codePoint >> 18));
+                    put(0x80 | ((codePoint >> 12) & 0x3f));
+                    put(0x80 | ((codePoint >> 6) & 0x3f));
+                    put(0x80 | (codePoint & 0x3f));
+                } else if (Character.isSurrogate(c)) {
+                    // unpaired surrogate is replaced, as the utf-8 writer of gson does
+                    put('?');
+                } else {
+                    put(0xe0 | (c >> 12));
+                    put(0x80 | ((c >> 6) & 0x3f));
+                    put(0x80 | (c & 0x3f));
+                }
+            }
+            put('"');
+        }
+
+        private void putEscape(char escape) {
+            put('\\');
+            put(escape);
+        }
+
+        private void putUnicodeEscape(char c) {
+            put('\\');
+            put('u');
+            put(HEX[(c >> 12) & 0xf]);
+            put(HEX[(c >> 8) & 0xf]);
+            put(HEX[(c >> 4) & 0xf]);
+            put(HEX[c & 0xf]);
+        }
+
+        private void putAscii(String value) {
+            for (int i = 0; i < value.length(); i++) {
+                put(value.charAt(i));
+            }
+        }
+
+        // fields of java time classes, as gson writes them by reflection
+        private void putDateTime(LocalDateTime dateTime) {
+            put('{');
+            putName("date", true);
+            put('{');
+            putName("year", true);
+            putLong(dateTime.getYear());
+            putName("month", false);
+            putLong(dateTime.getMonthValue());
+            putName("day", false);
+            putLong(dateTime.getDayOfMonth());
+            put('}');
+            putName("time", false);
+            put('{');
+            putName("hour", true);
+            putLong(dateTime.getHour());
+            putName("minute", false);
+            putLong(dateTime.getMinute());
+            putName("second", false);
+            putLong(dateTime.getSecond());
+            putName("nano", false);
+            putLong(dateTime.getNano());
+            put('}');
+            put('}');
+        }
+
+        private void putLong(long value) {
+            if (value < 0) {
+                put('-');
+                value = -value;
+            }
+            int digits = 1;
+            for (long rest = value / 10; rest > 0; rest /= 10) {
+                digits++;
+            }
+            ensureCapacity(digits);
+            for (int i = length + digits - 1; i >= length; i--) {
+                bytes[i] = (byte) ('0' + value % 10);
+                value /= 10;
+            }
+            length += digits;
+        }
+
+        private void put(byte[] value) {
+            ensureCapacity(value.length);
+            System.arraycopy(value, 0, bytes, length, value.length);
+            length += value.length;
+        }
+
+        private void put(int b) {
+            ensureCapacity(1);
+            bytes[length++] = (byte) b;
+        }
+
+        private void ensureCapacity(int extra) {
+            if (length + extra > bytes.length) {
+                grow(Math.max(bytes.length * 2, length + extra));
+            }
+        }
+
+        private void grow(int size) {
+            byte[] grown = new byte[size];
+            System.arraycopy(bytes, 0, grown, 0, length);
+            bytes = grown;
+        }
+
+        private JsonSyntaxException syntaxError(String message) {
+            return new JsonSyntaxException(String.format("%s at %d", message, position));
+        }
+
+        private static boolean isNumberByte(byte b) {
+            return (b >= '0' && b <= '9') || b == '-' || b == '+' || b == '.' || b == 'e' || b == 'E';
+        }
+
+        private static BigDecimal parseDecimal(String value) {
+            try {
+                return new BigDecimal(value);
+            } catch (NumberFormatException ex) {
+                throw new JsonSyntaxException(ex);
+            }
+        }
+
+    }
+
+}
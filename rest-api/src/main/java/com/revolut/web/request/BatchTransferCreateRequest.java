@@ -0,0 +1,14 @@
+package com.revolut.web.request;
+
+import lombok.Builder;
+import lombok.Getter;
+import lombok.Setter;
+
+@Getter
+@Setter
+@Builder
+public class BatchTransferCreateRequest extends TransactionCreateRequest {
+
+    private String accountId;
+
+}
@@ -0,0 +1,24 @@
+package com.revolut.web.request;
+
+import java.util.List;
+
+import com.revolut.core.dto.BatchMode;
+import lombok.AccessLevel;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+import lombok.Setter;
+
+@Builder
+@Getter
+@Setter
+@NoArgsConstructor(access = AccessLevel.PRIVATE)
+@AllArgsConstructor(access = AccessLevel.PRIVATE)
+public class TransactionBatchCreateRequest {
+
+    // all or nothing if not set
+    private BatchMode mode;
+    private List<BatchTransferCreateRequest> transfers;
+
+}
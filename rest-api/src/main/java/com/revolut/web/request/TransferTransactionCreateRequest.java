@@ -1,7 +0,0 @@
-package com.revolut.web.request;
-
-import lombok.Builder;
-
-@Builder
-public class TransferTransactionCreateRequest extends TransactionCreateRequest {
-}
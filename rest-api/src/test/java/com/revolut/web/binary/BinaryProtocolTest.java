@@ -0,0 +1,88 @@
+package com.revolut.web.binary;
+
+import java.math.BigDecimal;
+import java.nio.ByteBuffer;
+
+import com.revolut.core.exception.ValidationException;
+import org.junit.Test;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class BinaryProtocolTest {
+
+    @Test
+    public void shouldReadStringsBackAsTheyWereWritten() {
+        // given
+        String[] values = {"", "account-1", "\u0441\u0447\u0451\u0442 \u20ac \ud83d\ude00", new String(new char[0xffff]).replace('\0', 'a')};
+        ByteBuffer buffer = ByteBuffer.allocate(128 * 1024);
+
+        // when
+        for (String value : values) {
+            BinaryProtocol.putString(buffer, value);
+        }
+        buffer.flip();
+
+        // then
+        for (String value : values) {
+            assertThat(BinaryProtocol.getString(buffer)).isEqualTo(value);
+        }
+        assertThat(buffer.hasRemaining()).isFalse();
+    }
+
+    @Test
+    public void shouldPrefixStringWithLengthOfItsUtf8Bytes() {
+        // given
+        ByteBuffer buffer = ByteBuffer.allocate(16);
+
+        // when
+        BinaryProtocol.putString(buffer, "\u20ac");
+
+        // then
+        assertThat(buffer.position()).isEqualTo(2 + 3);
+        assertThat(buffer.getShort(0)).isEqualTo((short) 3);
+    }
+
+    @Test(expected = ValidationException.class)
+    public void shouldRejectTooLongString() {
+        // when
+        BinaryProtocol.putString(ByteBuffer.allocate(128 * 1024), new String(new char[0x10000]).replace('\0', 'a'));
+    }
+
+    @Test
+    public void shouldReadAmountsBackWithTheirScale() {
+        // given
+        BigDecimal[] amounts = {
+                new BigDecimal("0"),
+                new BigDecimal("10.50"),
+                new BigDecimal("-0.01"),
+                new BigDecimal("1E+3"),
+                BigDecimal.valueOf(Long.MAX_VALUE, 127),
+                BigDecimal.valueOf(Long.MIN_VALUE, -128)
+        };
+        ByteBuffer buffer = ByteBuffer.allocate(amounts.length * 9);
+
+        // when
+        for (BigDecimal amount : amounts) {
+            BinaryProtocol.putAmount(buffer, amount);
+        }
+        buffer.flip();
+
+        // then
+        for (BigDecimal amount : amounts) {
+            assertThat(BinaryProtocol.getAmount(buffer)).isEqualTo(amount);
+        }
+    }
+
+    @Test(expected = ValidationException.class)
+    public void shouldRejectAmountWithScaleNotFittingByte() {
+        // when
+        BinaryProtocol.putAmount(ByteBuffer.allocate(9), BigDecimal.valueOf(1, 128));
+    }
+
+    @Test(expected = ArithmeticException.class)
+    public void shouldRejectAmountNotFittingLong() {
+        // when
+        BinaryProtocol.putAmount(ByteBuffer.allocate(9), new BigDecimal("9223372036854775808"));
+    }
+
+}
@@ -0,0 +1,274 @@
+package com.revolut.web.binary;
+
+import java.io.EOFException;
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.net.InetSocketAddress;
+import java.nio.ByteBuffer;
+import java.nio.channels.ServerSocketChannel;
+import java.nio.channels.SocketChannel;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+
+import com.revolut.core.dto.AccountDto;
+import com.revolut.core.dto.TransactionBatchCreateDto;
+import com.revolut.core.dto.TransactionBatchDto;
+import com.revolut.core.dto.TransactionDto;
+import com.revolut.core.dto.TransactionResultDto;
+import com.revolut.core.dto.TransferTransactionCreateDto;
+import com.revolut.core.exception.NotFoundException;
+import com.revolut.core.service.AccountService;
+import com.revolut.core.strategy.TransactionStrategy;
+import com.revolut.dao.model.Currency;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.powermock.reflect.Whitebox;
+
+import static com.revolut.web.binary.BinaryProtocol.ALL_OR_NOTHING;
+import static com.revolut.web.binary.BinaryProtocol.BATCH_TRANSFER;
+import static com.revolut.web.binary.BinaryProtocol.GET_BALANCE;
+import static com.revolut.web.binary.BinaryProtocol.INVALID;
+import static com.revolut.web.binary.BinaryProtocol.NOT_FOUND;
+import static com.revolut.web.binary.BinaryProtocol.OK;
+import static com.revolut.web.binary.BinaryProtocol.RESULT_APPLIED;
+import static com.revolut.web.binary.BinaryProtocol.TRANSFER;
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyBoolean;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+public class BinaryServerTest {
+
+    private static final String UUID_1 = "account-1";
+    private static final String UUID_2 = "account-2";
+    private static final String MISSING_UUID = "account-4";
+
+    private TransactionStrategy transactionStrategy;
+
+    private AccountService accountService;
+
+    private BinaryServer server;
+
+    private SocketChannel client;
+
+    // threads which ran commands
+    private final List<String> threads = new ArrayList<>();
+
+    @Before
+    public void setUp() throws IOException {
+        transactionStrategy = mock(TransactionStrategy.class);
+        accountService = mock(AccountService.class);
+        server = new BinaryServer(0, 2);
+        Whitebox.setInternalState(server, "transactionStrategy", transactionStrategy);
+        Whitebox.setInternalState(server, "accountService", accountService);
+        client = SocketChannel.open(new InetSocketAddress("127.0.0.1", server.getPort()));
+    }
+
+    @After
+    public void tearDown() throws IOException {
+        client.close();
+        server.close();
+    }
+
+    @Test
+    public void shouldListenOnLoopbackOnly() throws IOException {
+        // when
+        ServerSocketChannel serverChannel = Whitebox.getInternalState(server, "serverChannel");
+
+        // then
+        assertThat(((InetSocketAddress) serverChannel.getLocalAddress()).getAddress().isLoopbackAddress()).isTrue();
+    }
+
+    @Test
+    public void shouldAnswerTransferAndBalanceFromWorkerThreads() throws IOException {
+        // given
+        when(transactionStrategy.createTransactionAsync(any())).thenAnswer(invocation -> {
+            record();
+            TransferTransactionCreateDto createDto = invocation.getArgument(0);
+            return CompletableFuture.completedFuture(TransactionDto.builder()
+                    .id("transaction-" + createDto.getDestinationAccountId())
+                    .amount(createDto.getAmount().negate())
+                    .build());
+        });
+        when(accountService.getById(eq(UUID_1), anyBoolean())).thenAnswer(invocation -> {
+            record();
+            return AccountDto.builder()
+                    .id(UUID_1)
+                    .total(new BigDecimal("99.90"))
+                    .currency(Currency.EUR)
+                    .build();
+        });
+
+        // when
+        send(transfer(1, UUID_1, UUID_2, new BigDecimal("0.10")), balance(2, UUID_1));
+        ByteBuffer transfer = receive();
+        ByteBuffer balance = receive();
+
+        // then
+        assertThat(transfer.getLong()).isEqualTo(1);
+        assertThat(transfer.get()).isEqualTo(OK);
+        assertThat(BinaryProtocol.getString(transfer)).isEqualTo("transaction-account-2");
+        assertThat(BinaryProtocol.getAmount(transfer)).isEqualTo(new BigDecimal("-0.10"));
+        assertThat(balance.getLong()).isEqualTo(2);
+        assertThat(balance.get()).isEqualTo(OK);
+        assertThat(BinaryProtocol.getString(balance)).isEqualTo("EUR");
+        assertThat(BinaryProtocol.getAmount(balance)).isEqualTo(new BigDecimal("99.90"));
+        synchronized (threads) {
+            assertThat(threads).hasSize(2).allMatch(thread -> thread.startsWith("binary-worker-"));
+        }
+    }
+
+    @Test
+    public void shouldAnswerInOrderOfRequests() throws IOException {
+        // given
+        CompletableFuture<TransactionDto> slow = new CompletableFuture<>();
+        when(transactionStrategy.createTransactionAsync(any())).thenReturn(slow);
+        when(accountService.getById(eq(MISSING_UUID), anyBoolean()))
+                .thenThrow(new NotFoundException("Account with id account-4 not found"));
+
+        // when
+        send(transfer(1, UUID_1, UUID_2, BigDecimal.ONE), balance(2, MISSING_UUID), command(3, (byte) 99));
+        client.configureBlocking(false);
+        int readBeforeTransfer = client.read(ByteBuffer.allocate(1));
+        client.configureBlocking(true);
+        slow.complete(TransactionDto.builder()
+                .id("transaction-1")
+                .amount(BigDecimal.ONE.negate())
+                .build());
+        ByteBuffer transfer = receive();
+        ByteBuffer missing = receive();
+        ByteBuffer unsupported = receive();
+
+        // then
+        assertThat(readBeforeTransfer).isEqualTo(0);
+        assertThat(transfer.getLong()).isEqualTo(1);
+        assertThat(transfer.get()).isEqualTo(OK);
+        assertThat(missing.getLong()).isEqualTo(2);
+        assertThat(missing.get()).isEqualTo(NOT_FOUND);
+        assertThat(BinaryProtocol.getString(missing)).isEqualTo("Account with id account-4 not found");
+        assertThat(unsupported.getLong()).isEqualTo(3);
+        assertThat(unsupported.get()).isEqualTo(INVALID);
+    }
+
+    @Test
+    public void shouldServeBatchBiggerThanConnectionBuffers() throws IOException {
+        // given
+        int count = 10000;
+        when(transactionStrategy.createTransactions(any())).thenAnswer(invocation -> {
+            TransactionBatchCreateDto batch = invocation.getArgument(0);
+            List<TransactionResultDto> results = new ArrayList<>();
+            for (int i = 0; i < batch.getTransactions().size(); i++) {
+                results.add(TransactionResultDto.builder()
+                        .status(TransactionResultDto.Status.APPLIED)
+                        .transaction(TransactionDto.builder()
+                                .id("transaction-" + i)
+                                .amount(batch.getTransactions().get(i).getAmount().negate())
+                                .build())
+                        .build());
+            }
+            return TransactionBatchDto.builder()
+                    .applied(results.size())
+                    .results(results)
+                    .build();
+        });
+        ByteBuffer request = ByteBuffer.allocate(4 + 8 + 1 + 1 + 4 + count * (2 + UUID_1.length() + 2 + UUID_2.length() + 9));
+        request.putInt(request.capacity() - 4);
+        request.putLong(1);
+        request.put(BATCH_TRANSFER);
+        request.put(ALL_OR_NOTHING);
+        request.putInt(count);
+        for (int i = 0; i < count; i++) {
+            BinaryProtocol.putString(request, UUID_1);
+            BinaryProtocol.putString(request, UUID_2);
+            BinaryProtocol.putAmount(request, BigDecimal.valueOf(i, 2));
+        }
+        request.flip();
+
+        // when
+        send(request, balance(2, UUID_1));
+        ByteBuffer batch = receive();
+        ByteBuffer next = receive();
+
+        // then
+        assertThat(batch.getLong()).isEqualTo(1);
+        assertThat(batch.get()).isEqualTo(OK);
+        assertThat(batch.getInt()).isEqualTo(count);
+        assertThat(batch.getInt()).isEqualTo(0);
+        assertThat(batch.getInt()).isEqualTo(count);
+        for (int i = 0; i < count; i++) {
+            assertThat(batch.get()).isEqualTo(RESULT_APPLIED);
+            assertThat(BinaryProtocol.getString(batch)).isEqualTo("transaction-" + i);
+            assertThat(BinaryProtocol.getAmount(batch)).isEqualTo(BigDecimal.valueOf(-i, 2));
+        }
+        assertThat(next.getLong()).isEqualTo(2);
+    }
+
+    private void record() {
+        synchronized (threads) {
+            threads.add(Thread.currentThread().getName());
+        }
+    }
+
+    private void send(ByteBuffer... requests) throws IOException {
+        for (ByteBuffer request : requests) {
+            while (request.hasRemaining()) {
+                client.write(request);
+            }
+        }
+    }
+
+    // payload of the next response, after its length
+    private ByteBuffer receive() throws IOException {
+        ByteBuffer length = read(ByteBuffer.allocate(4));
+        return read(ByteBuffer.allocate(length.getInt()));
+    }
+
+    private ByteBuffer read(ByteBuffer buffer) throws IOException {
+        while (buffer.hasRemaining()) {
+            if (client.read(buffer) < 0) {
+                throw new EOFException();
+            }
+        }
+        buffer.flip();
+        return buffer;
+    }
+
+    private static ByteBuffer transfer(long requestId, String from, String to, BigDecimal amount) {
+        ByteBuffer request = ByteBuffer.allocate(256);
+        request.putInt(0);
+        request.putLong(requestId);
+        request.put(TRANSFER);
+        BinaryProtocol.putString(request, from);
+        BinaryProtocol.putString(request, to);
+        BinaryProtocol.putAmount(request, amount);
+        return frame(request);
+    }
+
+    private static ByteBuffer balance(long requestId, String accountId) {
+        ByteBuffer request = ByteBuffer.allocate(256);
+        request.putInt(0);
+        request.putLong(requestId);
+        request.put(GET_BALANCE);
+        BinaryProtocol.putString(request, accountId);
+        return frame(request);
+    }
+
+    private static ByteBuffer command(long requestId, byte command) {
+        ByteBuffer request = ByteBuffer.allocate(256);
+        request.putInt(0);
+        request.putLong(requestId);
+        request.put(command);
+        return frame(request);
+    }
+
+    private static ByteBuffer frame(ByteBuffer request) {
+        request.putInt(0, request.position() - 4);
+        request.flip();
+        return request;
+    }
+
+}
@@ -0,0 +1,92 @@
+package com.revolut.web.controller;
+
+import java.math.BigDecimal;
+import java.net.URI;
+import javax.ws.rs.core.Response;
+import javax.ws.rs.core.UriBuilder;
+import javax.ws.rs.core.UriInfo;
+
+import com.revolut.core.dto.TransactionStatusDto;
+import com.revolut.core.dto.TransferTransactionCreateDto;
+import com.revolut.core.exception.OverloadedException;
+import com.revolut.core.service.impl.AsyncTransactionService;
+import com.revolut.web.exception.OverloadedExceptionHandler;
+import org.junit.Before;
+import org.junit.Test;
+import org.mockito.ArgumentCaptor;
+import org.powermock.reflect.Whitebox;
+
+import static com.revolut.core.dto.TransactionStatusDto.Status.QUEUED;
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.catchThrowable;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+public class AccountTransactionControllerTest {
+
+    private static final String UUID_1 = "account-1";
+    private static final String UUID_2 = "account-2";
+    private static final String STATUS_UUID = "status-1";
+
+    private AccountTransactionController controller = new AccountTransactionController();
+
+    private AsyncTransactionService asyncTransactionService;
+
+    private UriInfo uriInfo;
+
+    @Before
+    public void setUp() {
+        asyncTransactionService = mock(AsyncTransactionService.class);
+        Whitebox.setInternalState(controller, "asyncTransactionService", asyncTransactionService);
+        uriInfo = mock(UriInfo.class);
+        when(uriInfo.getBaseUriBuilder()).thenAnswer(invocation -> UriBuilder.fromUri("http://localhost:8080/v1/"));
+    }
+
+    @Test
+    public void shouldAcceptAsyncTransferWithStatusLocation() {
+        // given
+        TransactionStatusDto queued = TransactionStatusDto.builder()
+                .id(STATUS_UUID)
+                .status(QUEUED)
+                .build();
+        when(asyncTransactionService.submit(any())).thenReturn(queued);
+
+        // when
+        Response response = controller.transferMoney(UUID_1, true, uriInfo, transfer(UUID_2, "10"));
+
+        // then
+        assertThat(response.getStatus()).isEqualTo(Response.Status.ACCEPTED.getStatusCode());
+        assertThat(response.getMetadata().getFirst("Location"))
+                .isEqualTo(URI.create("http://localhost:8080/v1/transactions/status-1/status"));
+        assertThat(response.getEntity()).isSameAs(queued);
+        ArgumentCaptor<TransferTransactionCreateDto> submitted = ArgumentCaptor.forClass(TransferTransactionCreateDto.class);
+        verify(asyncTransactionService).submit(submitted.capture());
+        assertThat(submitted.getValue().getAccountId()).isEqualTo(UUID_1);
+        assertThat(submitted.getValue().getDestinationAccountId()).isEqualTo(UUID_2);
+    }
+
+    @Test
+    public void shouldAnswerServiceUnavailableWithRetryAfterWhenQueueIsFull() {
+        // given
+        when(asyncTransactionService.submit(any())).thenThrow(new OverloadedException("Transaction queue is full, try again later"));
+
+        // when
+        Throwable overloaded = catchThrowable(() -> controller.transferMoney(UUID_1, true, uriInfo, transfer(UUID_2, "10")));
+        Response response = new OverloadedExceptionHandler().toResponse((OverloadedException) overloaded);
+
+        // then
+        assertThat(response.getStatus()).isEqualTo(Response.Status.SERVICE_UNAVAILABLE.getStatusCode());
+        assertThat(response.getMetadata().getFirst("Retry-After")).isEqualTo("1");
+        assertThat(response.getEntity()).isEqualTo("Transaction queue is full, try again later");
+    }
+
+    private static TransferTransactionCreateDto transfer(String to, String amount) {
+        TransferTransactionCreateDto createDto = new TransferTransactionCreateDto();
+        createDto.setDestinationAccountId(to);
+        createDto.setAmount(new BigDecimal(amount));
+        return createDto;
+    }
+
+}
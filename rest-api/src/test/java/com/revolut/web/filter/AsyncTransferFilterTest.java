@@ -0,0 +1,261 @@
+package com.revolut.web.filter;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.PrintWriter;
+import java.io.StringWriter;
+import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.CompletableFuture;
+import javax.servlet.AsyncContext;
+import javax.servlet.AsyncEvent;
+import javax.servlet.AsyncListener;
+import javax.servlet.FilterChain;
+import javax.servlet.FilterConfig;
+import javax.servlet.ReadListener;
+import javax.servlet.ServletContext;
+import javax.servlet.ServletInputStream;
+import javax.servlet.ServletOutputStream;
+import javax.servlet.WriteListener;
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+
+import com.revolut.core.dto.TransactionDto;
+import com.revolut.core.dto.TransferTransactionCreateDto;
+import com.revolut.core.exception.NotFoundException;
+import com.revolut.core.exception.OverloadedException;
+import com.revolut.core.strategy.TransactionStrategy;
+import org.junit.Before;
+import org.junit.Test;
+import org.mockito.ArgumentCaptor;
+import org.powermock.reflect.Whitebox;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+public class AsyncTransferFilterTest {
+
+    private static final String UUID_1 = "account-1";
+    private static final String UUID_2 = "account-2";
+    private static final String TRANSFER_BODY = "{\"destinationAccountId\":\"account-2\",\"amount\":10}";
+    private static final long TIMEOUT_MILLIS = 250;
+
+    private AsyncTransferFilter filter = new AsyncTransferFilter();
+
+    private TransactionStrategy transactionStrategy;
+
+    private HttpServletRequest request;
+
+    private HttpServletResponse response;
+
+    private AsyncContext asyncContext;
+
+    private FilterChain chain;
+
+    private ByteArrayOutputStream body;
+
+    private StringWriter text;
+
+    @Before
+    public void setUp() throws Exception {
+        ServletContext servletContext = mock(ServletContext.class);
+        when(servletContext.getInitParameter("asyncTransferTimeoutMillis")).thenReturn(String.valueOf(TIMEOUT_MILLIS));
+        FilterConfig filterConfig = mock(FilterConfig.class);
+        when(filterConfig.getServletContext()).thenReturn(servletContext);
+        filter.init(filterConfig);
+        transactionStrategy = mock(TransactionStrategy.class);
+        Whitebox.setInternalState(filter, "transactionStrategy", transactionStrategy);
+
+        request = mock(HttpServletRequest.class);
+        when(request.getMethod()).thenReturn("POST");
+        when(request.isAsyncSupported()).thenReturn(true);
+        when(request.getPathInfo()).thenReturn("/accounts/" + UUID_1 + "/transactions/transfer");
+        response = mock(HttpServletResponse.class);
+        body = new ByteArrayOutputStream();
+        text = new StringWriter();
+        when(response.getOutputStream()).thenReturn(outputStream(body));
+        when(response.getWriter()).thenReturn(new PrintWriter(text, true));
+        asyncContext = mock(AsyncContext.class);
+        when(request.startAsync()).thenReturn(asyncContext);
+        when(asyncContext.getResponse()).thenReturn(response);
+        // container thread is the calling one
+        doAnswer(invocation -> {
+            ((Runnable) invocation.getArgument(0)).run();
+            return null;
+        }).when(asyncContext).start(any(Runnable.class));
+        chain = mock(FilterChain.class);
+    }
+
+    @Test
+    public void shouldAnswerAppliedTransfer() throws Exception {
+        // given
+        request(TRANSFER_BODY);
+        when(transactionStrategy.createTransactionAsync(any())).thenReturn(CompletableFuture.completedFuture(TransactionDto.builder()
+                .id("transaction-1")
+                .amount(new BigDecimal("-10"))
+                .build()));
+
+        // when
+        filter.doFilter(request, response, chain);
+
+        // then
+        verify(asyncContext).setTimeout(TIMEOUT_MILLIS);
+        verify(response).setStatus(HttpServletResponse.SC_OK);
+        verify(asyncContext).complete();
+        assertThat(new String(body.toByteArray(), StandardCharsets.UTF_8)).contains("\"id\":\"transaction-1\"");
+        ArgumentCaptor<TransferTransactionCreateDto> submitted = ArgumentCaptor.forClass(TransferTransactionCreateDto.class);
+        verify(transactionStrategy).createTransactionAsync(submitted.capture());
+        assertThat(submitted.getValue().getAccountId()).isEqualTo(UUID_1);
+        assertThat(submitted.getValue().getDestinationAccountId()).isEqualTo(UUID_2);
+        verify(chain, never()).doFilter(any(), any());
+    }
+
+    @Test
+    public void shouldAnswerFailedTransferAsExceptionHandlerDoes() throws Exception {
+        // given
+        request(TRANSFER_BODY);
+        when(transactionStrategy.createTransactionAsync(any())).thenReturn(failed(new NotFoundException("Account with id account-2 not found")));
+
+        // when
+        filter.doFilter(request, response, chain);
+
+        // then
+        verify(response).setStatus(HttpServletResponse.SC_NOT_FOUND);
+        verify(asyncContext).complete();
+        assertThat(text.toString()).isEqualTo("Account with id account-2 not found");
+    }
+
+    @Test
+    public void shouldAnswerOverloadedTransferWithRetryAfter() throws Exception {
+        // given
+        request(TRANSFER_BODY);
+        when(transactionStrategy.createTransactionAsync(any())).thenReturn(failed(new OverloadedException("Transfer queue is full")));
+
+        // when
+        filter.doFilter(request, response, chain);
+
+        // then
+        verify(response).setStatus(HttpServletResponse.SC_SERVICE_UNAVAILABLE);
+        verify(response).addHeader("Retry-After", "1");
+    }
+
+    @Test
+    public void shouldAnswerMalformedBodyWithoutTransfer() throws Exception {
+        // given
+        request("{\"amount\":");
+
+        // when
+        filter.doFilter(request, response, chain);
+
+        // then
+        verify(response).setStatus(HttpServletResponse.SC_INTERNAL_SERVER_ERROR);
+        verify(request, never()).startAsync();
+        verify(transactionStrategy, never()).createTransactionAsync(any());
+    }
+
+    @Test
+    public void shouldAnswerServiceUnavailableWhenTransferTimesOut() throws Exception {
+        // given
+        request(TRANSFER_BODY);
+        CompletableFuture<TransactionDto> transfer = new CompletableFuture<>();
+        when(transactionStrategy.createTransactionAsync(any())).thenReturn(transfer);
+        filter.doFilter(request, response, chain);
+        ArgumentCaptor<AsyncListener> listener = ArgumentCaptor.forClass(AsyncListener.class);
+        verify(asyncContext).addListener(listener.capture());
+
+        // when
+        listener.getValue().onTimeout(new AsyncEvent(asyncContext));
+        transfer.complete(TransactionDto.builder().build());
+
+        // then
+        verify(response).setStatus(HttpServletResponse.SC_SERVICE_UNAVAILABLE);
+        verify(response).addHeader("Retry-After", "1");
+        verify(response, never()).setStatus(HttpServletResponse.SC_OK);
+        verify(asyncContext).complete();
+        verify(asyncContext, never()).start(any(Runnable.class));
+    }
+
+    @Test
+    public void shouldPassOtherRequestsToJersey() throws Exception {
+        // given
+        when(request.getPathInfo()).thenReturn("/accounts/" + UUID_1 + "/transactions");
+
+        // when
+        filter.doFilter(request, response, chain);
+
+        // then
+        verify(chain).doFilter(request, response);
+        verify(request, never()).startAsync();
+        verify(response, never()).addHeader(anyString(), anyString());
+    }
+
+    private void request(String json) throws IOException {
+        ByteArrayInputStream in = new ByteArrayInputStream(json.getBytes(StandardCharsets.UTF_8));
+        when(request.getInputStream()).thenReturn(new ServletInputStream() {
+
+            @Override
+            public int read() {
+                return in.read();
+            }
+
+            @Override
+            public int read(byte[] bytes, int offset, int length) {
+                return in.read(bytes, offset, length);
+            }
+
+            @Override
+            public boolean isFinished() {
+                return in.available() == 0;
+            }
+
+            @Override
+            public boolean isReady() {
+                return true;
+            }
+
+            @Override
+            public void setReadListener(ReadListener readListener) {
+            }
+
+        });
+    }
+
+    private static CompletableFuture<TransactionDto> failed(RuntimeException ex) {
+        CompletableFuture<TransactionDto> failed = new CompletableFuture<>();
+        failed.completeExceptionally(ex);
+        return failed;
+    }
+
+    private static ServletOutputStream outputStream(ByteArrayOutputStream out) {
+        return new ServletOutputStream() {
+
+            @Override
+            public void write(int b) {
+                out.write(b);
+            }
+
+            @Override
+            public void write(byte[] bytes, int offset, int length) {
+                out.write(bytes, offset, length);
+            }
+
+            @Override
+            public boolean isReady() {
+                return true;
+            }
+
+            @Override
+            public void setWriteListener(WriteListener writeListener) {
+            }
+
+        };
+    }
+
+}
@@ -0,0 +1,266 @@
+package com.revolut.web.filter;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.InflaterInputStream;
+import javax.ws.rs.core.EntityTag;
+import javax.ws.rs.core.HttpHeaders;
+
+import com.sun.jersey.core.header.InBoundHeaders;
+import com.sun.jersey.core.header.OutBoundHeaders;
+import com.sun.jersey.spi.container.ContainerRequest;
+import com.sun.jersey.spi.container.ContainerResponse;
+import com.sun.jersey.spi.container.ContainerResponseWriter;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.mockito.ArgumentCaptor;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+public class ContentEncodingFilterTest {
+
+    private static final int THRESHOLD_BYTES = 100;
+
+    private ContentEncodingFilter filter = ContentEncodingFilter.getInstance();
+
+    private ContainerRequest request;
+
+    private InBoundHeaders requestHeaders;
+
+    private Map<String, Object> properties;
+
+    private ContainerResponse response;
+
+    private OutBoundHeaders responseHeaders;
+
+    private ContainerResponseWriter writer;
+
+    private ByteArrayOutputStream sent;
+
+    @Before
+    public void setUp() throws IOException {
+        filter.setThresholdBytes(THRESHOLD_BYTES);
+        request = mock(ContainerRequest.class);
+        requestHeaders = new InBoundHeaders();
+        properties = new HashMap<>();
+        when(request.getRequestHeaders()).thenReturn(requestHeaders);
+        when(request.getProperties()).thenReturn(properties);
+        when(request.getHeaderValue(any())).thenAnswer(invocation -> requestHeaders.getFirst(invocation.getArgument(0)));
+        response = mock(ContainerResponse.class);
+        responseHeaders = new OutBoundHeaders();
+        when(response.getHttpHeaders()).thenReturn(responseHeaders);
+        when(response.getStatus()).thenReturn(200);
+        when(response.getEntity()).thenReturn("entity");
+        writer = mock(ContainerResponseWriter.class);
+        sent = new ByteArrayOutputStream();
+        when(writer.writeStatusAndHeaders(anyLong(), any())).thenReturn(sent);
+        when(response.getContainerResponseWriter()).thenReturn(writer);
+    }
+
+    @After
+    public void tearDown() {
+        filter.setThresholdBytes(ContentEncodingFilter.DEFAULT_THRESHOLD_BYTES);
+    }
+
+    @Test
+    public void shouldNegotiateEncodingByQuality() {
+        assertThat(ContentEncodingFilter.negotiate(null)).isNull();
+        assertThat(ContentEncodingFilter.negotiate("")).isNull();
+        assertThat(ContentEncodingFilter.negotiate("gzip")).isEqualTo("gzip");
+        assertThat(ContentEncodingFilter.negotiate("x-gzip")).isEqualTo("gzip");
+        assertThat(ContentEncodingFilter.negotiate("deflate")).isEqualTo("deflate");
+        assertThat(ContentEncodingFilter.negotiate("deflate;q=0.9, gzip;q=0.5")).isEqualTo("deflate");
+        assertThat(ContentEncodingFilter.negotiate("br, deflate;q=0.1")).isEqualTo("deflate");
+        assertThat(ContentEncodingFilter.negotiate("gzip;q=abc, deflate;q=0.1")).isEqualTo("deflate");
+    }
+
+    @Test
+    public void shouldPreferGzipOnTie() {
+        assertThat(ContentEncodingFilter.negotiate("deflate, gzip")).isEqualTo("gzip");
+        assertThat(ContentEncodingFilter.negotiate("deflate;q=0.5, gzip;q=0.5")).isEqualTo("gzip");
+        assertThat(ContentEncodingFilter.negotiate("*")).isEqualTo("gzip");
+    }
+
+    @Test
+    public void shouldTakeWildcardForCodingsNotNamed() {
+        assertThat(ContentEncodingFilter.negotiate("gzip;q=0, *;q=0.5")).isEqualTo("deflate");
+        assertThat(ContentEncodingFilter.negotiate("deflate;q=0.2, *;q=0.5")).isEqualTo("gzip");
+        assertThat(ContentEncodingFilter.negotiate("*;q=0")).isNull();
+    }
+
+    @Test
+    public void shouldNotEncodeWhenClientRefusesBoth() {
+        assertThat(ContentEncodingFilter.negotiate("identity")).isNull();
+        assertThat(ContentEncodingFilter.negotiate("identity, *;q=0")).isNull();
+        assertThat(ContentEncodingFilter.negotiate("gzip;q=0")).isNull();
+        assertThat(ContentEncodingFilter.negotiate("gzip;q=0, deflate;q=0.0")).isNull();
+        assertThat(ContentEncodingFilter.negotiate("gzip;q=0, deflate")).isEqualTo("deflate");
+    }
+
+    @Test
+    public void shouldSendShortResponseAsItIsWithItsLength() throws IOException {
+        // given
+        requestHeaders.putSingle(HttpHeaders.ACCEPT_ENCODING, "gzip");
+        responseHeaders.putSingle(HttpHeaders.ETAG, new EntityTag("abc"));
+        byte[] entity = bytes(THRESHOLD_BYTES - 1);
+
+        // when
+        ContainerResponseWriter encoding = filter(request, response);
+        OutputStream out = encoding.writeStatusAndHeaders(-1, response);
+        out.write(entity, 0, 10);
+        out.flush();
+        out.write(entity, 10, entity.length - 10);
+        boolean sentBeforeFinish = sent.size() > 0;
+        encoding.finish();
+
+        // then
+        assertThat(sentBeforeFinish).isFalse();
+        verify(writer).writeStatusAndHeaders(entity.length, response);
+        verify(writer).finish();
+        assertThat(sent.toByteArray()).isEqualTo(entity);
+        assertThat(responseHeaders.containsKey(HttpHeaders.CONTENT_ENCODING)).isFalse();
+        assertThat(responseHeaders.getFirst(HttpHeaders.ETAG)).isEqualTo(new EntityTag("abc"));
+        assertThat(responseHeaders.get("Vary")).containsExactly(HttpHeaders.ACCEPT_ENCODING);
+    }
+
+    @Test
+    public void shouldCompressLongResponseFromItsFirstByte() throws IOException {
+        // given
+        requestHeaders.putSingle(HttpHeaders.ACCEPT_ENCODING, "gzip, deflate");
+        responseHeaders.putSingle(HttpHeaders.ETAG, new EntityTag("abc"));
+        byte[] entity = bytes(THRESHOLD_BYTES * 10);
+
+        // when
+        ContainerResponseWriter encoding = filter(request, response);
+        OutputStream out = encoding.writeStatusAndHeaders(-1, response);
+        out.write(entity, 0, THRESHOLD_BYTES / 2);
+        out.write(entity[THRESHOLD_BYTES / 2]);
+        out.write(entity, THRESHOLD_BYTES / 2 + 1, entity.length - THRESHOLD_BYTES / 2 - 1);
+        encoding.finish();
+
+        // then
+        verify(writer).writeStatusAndHeaders(-1, response);
+        assertThat(responseHeaders.getFirst(HttpHeaders.CONTENT_ENCODING)).isEqualTo("gzip");
+        assertThat(responseHeaders.getFirst(HttpHeaders.ETAG)).isEqualTo(new EntityTag("abc-gzip"));
+        assertThat(sent.size()).isLessThan(entity.length);
+        assertThat(read(new GZIPInputStream(new ByteArrayInputStream(sent.toByteArray())))).isEqualTo(entity);
+    }
+
+    @Test
+    public void shouldCompressResponseOfKnownLengthWithDeflate() throws IOException {
+        // given
+        requestHeaders.putSingle(HttpHeaders.ACCEPT_ENCODING, "deflate");
+        responseHeaders.putSingle(HttpHeaders.ETAG, new EntityTag("abc", true));
+        byte[] entity = bytes(THRESHOLD_BYTES);
+
+        // when
+        ContainerResponseWriter encoding = filter(request, response);
+        OutputStream out = encoding.writeStatusAndHeaders(entity.length, response);
+        out.write(entity);
+        encoding.finish();
+
+        // then
+        verify(writer).writeStatusAndHeaders(-1, response);
+        assertThat(responseHeaders.getFirst(HttpHeaders.CONTENT_ENCODING)).isEqualTo("deflate");
+        assertThat(responseHeaders.getFirst(HttpHeaders.ETAG)).isEqualTo(new EntityTag("abc-deflate", true));
+        assertThat(read(new InflaterInputStream(new ByteArrayInputStream(sent.toByteArray())))).isEqualTo(entity);
+    }
+
+    @Test
+    public void shouldLeaveResponseAloneWhenClientAcceptsNoEncoding() {
+        // given
+        requestHeaders.putSingle(HttpHeaders.ACCEPT_ENCODING, "identity");
+
+        // when
+        filter.filter(request, response);
+
+        // then
+        verify(response, never()).setContainerResponseWriter(any());
+        assertThat(responseHeaders.get("Vary")).containsExactly(HttpHeaders.ACCEPT_ENCODING);
+    }
+
+    @Test
+    public void shouldTakeEncodingOffTagsClientSends() {
+        // given
+        requestHeaders.putSingle(HttpHeaders.IF_NONE_MATCH, "\"abc-gzip\", W/\"def-deflate\"");
+
+        // when
+        filter.filter(request);
+
+        // then
+        assertThat(requestHeaders.getFirst(HttpHeaders.IF_NONE_MATCH)).isEqualTo("\"abc\", W/\"def\"");
+    }
+
+    @Test
+    public void shouldLeaveTagsWithoutEncodingAlone() {
+        // given
+        requestHeaders.putSingle(HttpHeaders.IF_NONE_MATCH, "\"abc\"");
+
+        // when
+        filter.filter(request);
+
+        // then
+        assertThat(requestHeaders.getFirst(HttpHeaders.IF_NONE_MATCH)).isEqualTo("\"abc\"");
+        assertThat(properties).isEmpty();
+    }
+
+    @Test
+    public void shouldAnswerNotModifiedWithTagClientHas() {
+        // given
+        requestHeaders.putSingle(HttpHeaders.IF_NONE_MATCH, "\"abc-deflate\"");
+        filter.filter(request);
+        when(response.getStatus()).thenReturn(304);
+        when(response.getEntity()).thenReturn(null);
+        responseHeaders.putSingle(HttpHeaders.ETAG, new EntityTag("abc"));
+
+        // when
+        filter.filter(request, response);
+
+        // then
+        assertThat(responseHeaders.getFirst(HttpHeaders.ETAG)).isEqualTo(new EntityTag("abc-deflate"));
+        assertThat(responseHeaders.get("Vary")).containsExactly(HttpHeaders.ACCEPT_ENCODING);
+        verify(response, never()).setContainerResponseWriter(any());
+    }
+
+    private ContainerResponseWriter filter(ContainerRequest request, ContainerResponse response) {
+        filter.filter(request, response);
+        ArgumentCaptor<ContainerResponseWriter> encoding = ArgumentCaptor.forClass(ContainerResponseWriter.class);
+        verify(response).setContainerResponseWriter(encoding.capture());
+        return encoding.getValue();
+    }
+
+    // json like bytes, compressible as responses are
+    private static byte[] bytes(int length) {
+        byte[] pattern = "{\"id\":\"account-1\",\"total\":10.00},".getBytes();
+        byte[] bytes = new byte[length];
+        for (int i = 0; i < length; i++) {
+            bytes[i] = pattern[i % pattern.length];
+        }
+        return bytes;
+    }
+
+    private static byte[] read(InputStream in) throws IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        byte[] buffer = new byte[1024];
+        int read;
+        while ((read = in.read(buffer)) >= 0) {
+            out.write(buffer, 0, read);
+        }
+        return out.toByteArray();
+    }
+
+}
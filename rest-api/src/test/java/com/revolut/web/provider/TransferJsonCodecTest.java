@@ -0,0 +1,173 @@
+package com.revolut.web.provider;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDateTime;
+
+import com.google.gson.Gson;
+import com.google.gson.JsonParseException;
+import com.revolut.core.dto.TransactionDto;
+import com.revolut.core.dto.TransferTransactionCreateDto;
+import com.revolut.dao.model.Currency;
+import com.revolut.dao.model.TransactionType;
+import org.junit.Test;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.catchThrowable;
+
+public class TransferJsonCodecTest {
+
+    // the same gson as GsonProvider
+    private final Gson json = new Gson();
+
+    @Test
+    public void shouldReadTransfersAsGsonDoes() throws IOException {
+        // given
+        String[] requests = {
+                "{\"destinationAccountId\":\"account-2\",\"amount\":10.50}",
+                " {\n\t\"amount\" : \"12.345\" ,\r\n \"destinationAccountId\" : \"account-2\" } ",
+                "{\"destinationAccountId\":\"a\\\"b\\\\c\\/d\\b\\f\\n\\r\\t\\u0041\\u00e9\",\"amount\":1}",
+                "{\"destinationAccountId\":\"\u0441\u0447\u0451\u0442-\ud83d\ude00\",\"amount\":1}",
+                "{\"dest\\u0069nationAccountId\":\"account-2\",\"amount\":1}",
+                "{\"destinationAccountId\":123,\"amount\":-0.01}",
+                "{\"destinationAccountId\":true,\"amount\":1e3}",
+                "{\"destinationAccountId\":\"account-2\",\"amount\":12345678901234567890.123456789}",
+                "{\"destinationAccountId\":\"account-2\",\"amount\":0}",
+                "{\"accountId\":\"account-1\",\"extra\":{\"nested\":[1,\"}\",{\"a\":null}]},\"flag\":false,\"amount\":5}",
+                "{\"destinationAccountId\":null,\"amount\":null}",
+                "{\"amount\":7}",
+                "{}",
+                "null",
+                "",
+                "  "
+        };
+
+        for (String request : requests) {
+            // when
+            TransferTransactionCreateDto codec = TransferJsonCodec.readTransfer(stream(request));
+            TransferTransactionCreateDto gson = json.fromJson(new InputStreamReader(stream(request), StandardCharsets.UTF_8),
+                    TransferTransactionCreateDto.class);
+
+            // then
+            if (gson == null) {
+                assertThat(codec).as(request).isNull();
+                continue;
+            }
+            assertThat(codec).as(request).isNotNull();
+            assertThat(codec.getDestinationAccountId()).as(request).isEqualTo(gson.getDestinationAccountId());
+            // scale is kept too
+            assertThat(codec.getAmount()).as(request).isEqualTo(gson.getAmount());
+            // the account comes from the path, so it is never read from the body
+            assertThat(codec.getAccountId()).as(request).isNull();
+        }
+    }
+
+    @Test
+    public void shouldRejectMalformedTransfersAsGsonDoes() {
+        // given
+        String[] requests = {
+                "{\"amount\":}",
+                "{\"amount\":1",
+                "{\"amount\" 1}",
+                "{\"amount\":1,}x",
+                "{\"amount\":1} {}",
+                "{\"amount\":\"abc\"}",
+                "{\"amount\":1.2.3}",
+                "{\"destinationAccountId\":\"account-2",
+                "[{\"amount\":1}]",
+                "\"amount\""
+        };
+
+        for (String request : requests) {
+            // when
+            Throwable codec = catchThrowable(() -> TransferJsonCodec.readTransfer(stream(request)));
+            Throwable gson = catchThrowable(() -> json.fromJson(new InputStreamReader(stream(request), StandardCharsets.UTF_8),
+                    TransferTransactionCreateDto.class));
+
+            // then
+            assertThat(gson).as(request).isInstanceOf(JsonParseException.class);
+            assertThat(codec).as(request).isInstanceOf(JsonParseException.class);
+        }
+    }
+
+    @Test
+    public void shouldRejectLenientSyntaxWhichGsonAccepts() {
+        // when
+        Throwable comment = catchThrowable(() -> TransferJsonCodec.readTransfer(stream("{/* c */\"amount\":1}")));
+        Throwable unquoted = catchThrowable(() -> TransferJsonCodec.readTransfer(stream("{amount:1}")));
+
+        // then
+        assertThat(comment).isInstanceOf(JsonParseException.class);
+        assertThat(unquoted).isInstanceOf(JsonParseException.class);
+    }
+
+    @Test
+    public void shouldWriteTransactionsAsGsonDoes() throws IOException {
+        // given
+        TransactionDto[] transactions = {
+                TransactionDto.builder()
+                        .id("transaction-1")
+                        .type(TransactionType.TRANSFER_BETWEEN_ACCOUNTS)
+                        .description("Transfer to account-2")
+                        .amount(new BigDecimal("-10.50"))
+                        .currency(Currency.EUR)
+                        .createdAt(LocalDateTime.of(2019, 12, 31, 23, 59, 58, 123456789))
+                        .build(),
+                TransactionDto.builder()
+                        .id("quote\" backslash\\ slash/ <html> & = ' \u2028 \u2029 \u0000 \u001f \b\f\n\r\t")
+                        .description("\u0441\u0447\u0451\u0442 \u20ac \ud83d\ude00 unpaired \uD83D and \uDE00")
+                        .amount(new BigDecimal("1E+3"))
+                        .build(),
+                TransactionDto.builder()
+                        .amount(new BigDecimal("12345678901234567890.123456789"))
+                        .createdAt(LocalDateTime.of(1, 1, 1, 0, 0))
+                        .build(),
+                TransactionDto.builder()
+                        .id("transaction-2")
+                        .build(),
+                TransactionDto.builder()
+                        .build(),
+                null
+        };
+
+        for (TransactionDto transaction : transactions) {
+            // when
+            ByteArrayOutputStream codec = new ByteArrayOutputStream();
+            TransferJsonCodec.writeTransaction(transaction, codec);
+
+            // then
+            assertThat(new String(codec.toByteArray(), StandardCharsets.UTF_8))
+                    .isEqualTo(new String(json.toJson(transaction).getBytes(StandardCharsets.UTF_8), StandardCharsets.UTF_8));
+        }
+    }
+
+    @Test
+    public void shouldReadWrittenTransactionBackWithGson() throws IOException {
+        // given
+        TransactionDto transaction = TransactionDto.builder()
+                .id("\u0441\u0447\u0451\u0442 \"1\"")
+                .amount(new BigDecimal("0.01"))
+                .currency(Currency.USD)
+                .build();
+        ByteArrayOutputStream codec = new ByteArrayOutputStream();
+
+        // when
+        TransferJsonCodec.writeTransaction(transaction, codec);
+        TransactionDto read = json.fromJson(new String(codec.toByteArray(), StandardCharsets.UTF_8), TransactionDto.class);
+
+        // then
+        assertThat(read.getId()).isEqualTo(transaction.getId());
+        assertThat(read.getAmount()).isEqualTo(transaction.getAmount());
+        assertThat(read.getCurrency()).isEqualTo(Currency.USD);
+        assertThat(read.getCreatedAt()).isNull();
+    }
+
+    private static ByteArrayInputStream stream(String request) {
+        return new ByteArrayInputStream(request.getBytes(StandardCharsets.UTF_8));
+    }
+
+}